@@ -97,4 +97,27 @@ public interface ICreateDelegate {
 		return null;
 	}
 
+	/**
+	 * Creates the agents directly from the source, without first filling a list with the initial values of all of them
+	 * (for instance to create them by batches from a large source). Returns null if the delegate does not create the
+	 * agents from this source this way, in which case {@link #createFrom(IScope, List, Integer, Object, Arguments,
+	 * CreateStatement)} is called.
+	 *
+	 * @param scope
+	 *            the scope
+	 * @param population
+	 *            the population
+	 * @param max
+	 *            can be null (in that case, the maximum number of agents to create is ignored)
+	 * @param source
+	 *            the source
+	 * @param statement
+	 *            the statement
+	 * @return the agents created, or null
+	 */
+	default IList<? extends IAgent> createAgentsFrom(final IScope scope, final IPopulation<? extends IAgent> population,
+			final Integer max, final Object source, final CreateStatement statement) {
+		return null;
+	}
+
 }
@@ -956,6 +956,9 @@ public interface IKeyword {
 	/** The pragma requires. */
 	String PRAGMA_REQUIRES = "requires";
 
+	/** The pragma sequential iterators. */
+	String PRAGMA_SEQUENTIAL_ITERATORS = "sequential_iterators";
+
 	/** The primitive. */
 	String PRIMITIVE = "primitive";
 
@@ -1157,6 +1160,9 @@ public interface IKeyword {
 	/** The source. */
 	String SOURCE = "source";
 
+	/** The spatial index. */
+	String SPATIAL_INDEX = "spatial_index";
+
 	/** The species. */
 	String SPECIES = "species";
 
@@ -1364,6 +1370,9 @@ public interface IKeyword {
 	/** The virtual. */
 	String VIRTUAL = "virtual";
 
+	/** The virtual threads. */
+	String VIRTUAL_THREADS = "virtual_threads";
+
 	/** The visible. */
 	String VISIBLE = "visible";
 
@@ -55,6 +55,9 @@ public interface ISerialisationConstants {
 	/** The Constant UNCOMPRESSED. */
 	byte UNCOMPRESSED = 0;
 
+	/** The Constant BLOCK_COMPRESSED. Compressed block by block with the fast codec of the serialisation plugin */
+	byte BLOCK_COMPRESSED = 2;
+
 	/** The Constant GAMA_IDENTIFIER. */
 	byte GAMA_AGENT_IDENTIFIER = 42;
 
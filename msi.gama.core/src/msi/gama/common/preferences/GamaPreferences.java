@@ -542,6 +542,26 @@ public class GamaPreferences {
 		public static final Pref<Boolean> CORE_MEMORY_ACTION = create("pref_memory_action",
 				"If true, when running out of memory, GAMA will try to close the experiment, otherwise it exits", true,
 				IType.BOOL, true).in(NAME, MEMORY);
+
+		/** The Constant STEPBACK_MEMORY. */
+		public static final Pref<Integer> STEPBACK_MEMORY = create("pref_stepback_memory",
+				"Max. memory (in MB) used by each simulation to keep the states it can step back to (0 for no limit)",
+				256, IType.INT, true).between(0, null).in(NAME, MEMORY);
+
+		/** The Constant STEPBACK_KEYFRAMES. */
+		public static final Pref<Integer> STEPBACK_KEYFRAMES = create("pref_stepback_keyframes",
+				"Interval (in cycles) between complete states when recording the states of simulations (the other ones only contain their differences)",
+				20, IType.INT, true).between(1, null).in(NAME, MEMORY);
+
+		/** The Constant STEPBACK_SPILL. */
+		public static final Pref<Boolean> STEPBACK_SPILL = create("pref_stepback_spill",
+				"When this memory is exhausted, write the oldest states to disk rather than forgetting them", true,
+				IType.BOOL, true).in(NAME, MEMORY);
+
+		/** The Constant SERIALISATION_BLOCKS. */
+		public static final Pref<Boolean> SERIALISATION_BLOCKS = create("pref_serialisation_blocks",
+				"Compress serialised agents and objects block by block, without copying them in memory (beware that older versions of GAMA cannot read what is saved or sent this way)",
+				false, IType.BOOL, true).in(NAME, MEMORY);
 		/**
 		 * Errors & warnings
 		 */
@@ -667,6 +687,17 @@ public class GamaPreferences {
 				"Resolution of the charts (from 0, small but fast, to 1, best but resource consuming)", 0.8,
 				IType.FLOAT, true).in(NAME, CHARTS).between(0.1, 1.0);
 
+		/** The Constant CHART_RETENTION. */
+		public static final Pref<Integer> CHART_RETENTION = create("pref_chart_retention",
+				"Max. number of values kept in each series of the charts (0 to keep all of them)", 0, IType.INT, true)
+						.between(0, null).in(NAME, CHARTS);
+
+		/** The Constant CHART_MAX_POINTS. */
+		public static final Pref<Integer> CHART_MAX_POINTS = create("pref_chart_max_points",
+				"Max. number of points drawn for each series with increasing x values, e.g. time series (longer ones are "
+						+ "downsampled, 0 to draw all the points)",
+				5000, IType.INT, true).between(0, null).in(NAME, CHARTS);
+
 		/**
 		 * Drawing methods and defaults
 		 */
@@ -879,6 +910,66 @@ public class GamaPreferences {
 				"Optimize the path computation operators and goto action (but with possible 'jump' issues)", false,
 				IType.BOOL, true).in(NAME, OPTIMIZATIONS);
 
+		/** The Constant PATH_CACHE_SIZE. */
+		public static final Pref<Integer> PATH_CACHE_SIZE = create("pref_path_cache_size",
+				"Max. number of shortest paths kept in the cache of each graph (0 for no limit)", 100000, IType.INT,
+				true).between(0, null).in(NAME, OPTIMIZATIONS);
+
+		/** The Constant SAVE_BUFFERED. */
+		public static final Pref<Boolean> SAVE_BUFFERED = create("pref_save_buffered",
+				"Keep the text, csv and json files written by 'save' open and buffered until the end of each cycle",
+				false, IType.BOOL, true).in(NAME, OPTIMIZATIONS).activates("pref_save_asynchronous");
+
+		/** The Constant SAVE_ASYNCHRONOUS. */
+		public static final Pref<Boolean> SAVE_ASYNCHRONOUS = create("pref_save_asynchronous",
+				"Write these files in a background thread (one per simulation)", false, IType.BOOL, true)
+						.in(NAME, OPTIMIZATIONS);
+
+		/** The Constant COLUMNAR_ATTRIBUTES. */
+		public static final Pref<Boolean> COLUMNAR_ATTRIBUTES = create("pref_columnar_attributes",
+				"Store the int, float and bool attributes of agents in arrays shared by their population (less memory for large populations)",
+				false, IType.BOOL, true).in(NAME, OPTIMIZATIONS);
+
+		/** The Constant SHARE_FILE_CONTENTS. */
+		public static final Pref<Boolean> SHARE_FILE_CONTENTS = create("pref_share_file_contents",
+				"Read the shapefiles, grid files and graph files only once for all the simulations of batch (or parallel) experiments",
+				false, IType.BOOL, true).in(NAME, OPTIMIZATIONS);
+
+		/** The Constant CSV_STREAMING. */
+		public static final Pref<Boolean> CSV_STREAMING = create("pref_csv_streaming",
+				"Create agents from large CSV files by reading them by batches of rows, without loading their contents in a matrix",
+				true, IType.BOOL, true).in(NAME, OPTIMIZATIONS).activates("pref_csv_parallel_parsing");
+
+		/** The Constant CSV_PARALLEL_PARSING. */
+		public static final Pref<Boolean> CSV_PARALLEL_PARSING = create("pref_csv_parallel_parsing",
+				"Convert the values of each batch of rows in parallel when creating agents from large CSV files", false,
+				IType.BOOL, true).in(NAME, OPTIMIZATIONS);
+
+		/** The Constant RASTER_TILING_THRESHOLD. */
+		public static final Pref<Integer> RASTER_TILING_THRESHOLD = create("pref_raster_tiling_threshold",
+				"Number of cells (in millions) above which the fields built from grid files are read by tiles from a cache on disk (0 to disable)",
+				50, IType.INT, true).between(0, null).in(NAME, OPTIMIZATIONS);
+
+		/** The Constant RASTER_TILE_CACHE. */
+		public static final Pref<Integer> RASTER_TILE_CACHE = create("pref_raster_tile_cache",
+				"Memory (in MB) used to keep the tiles of the fields read from disk", 256, IType.INT, true)
+						.between(1, null).in(NAME, OPTIMIZATIONS);
+
+		/** The Constant RASTER_TILE_DISK. */
+		public static final Pref<Integer> RASTER_TILE_DISK = create("pref_raster_tile_disk",
+				"Disk space (in MB) that the caches of the fields read by tiles can occupy in the temporary directory (the least recently used are deleted first)",
+				10240, IType.INT, true).between(0, null).in(NAME, OPTIMIZATIONS);
+
+		/** The Constant FITNESS_CACHE. */
+		public static final Pref<Boolean> FITNESS_CACHE = create("pref_fitness_cache",
+				"Keep the fitness (and the other outputs) of the parameter sets evaluated by calibration experiments in a file, so that an interrupted calibration does not run them again (the file is not used anymore once the model is modified)",
+				false, IType.BOOL, true).in(NAME, OPTIMIZATIONS);
+
+		/** The Constant BATCH_JOURNAL. */
+		public static final Pref<Boolean> BATCH_JOURNAL = create("pref_batch_journal",
+				"Keep a journal of the simulations run by exploration experiments (in the 'journals' folder of the model), so that an interrupted exploration does not run them again and that several headless processes can share an exploration",
+				false, IType.BOOL, true).in(NAME, OPTIMIZATIONS);
+
 		/** The Constant TOLERANCE_POINTS. */
 		public static final Pref<Double> TOLERANCE_POINTS =
 				create("pref_point_tolerance", "Tolerance for the comparison of points", 0.0, IType.FLOAT, true)
@@ -984,6 +1075,16 @@ public class GamaPreferences {
 				"Forces the spatial index to synchronize its operations. Useful for interactive models where the users interfere or parallel models with concurrency errors. Note that it may slow down simulations with a lot of mobile agents",
 				true, IType.BOOL, true).in(NAME, CATEGORY);
 
+		/** The Constant QUADTREE_STRIPING. */
+		public static final Pref<Boolean> QUADTREE_STRIPING = create("pref_stripe_quadtree",
+				"When the spatial index is synchronized, split it in independently locked regions and let spatial queries run without locking (still experimental)",
+				false, IType.BOOL, true).in(NAME, CATEGORY);
+
+		/** The Constant QUADTREE_DEFERRED_UPDATES. */
+		public static final Pref<Boolean> QUADTREE_DEFERRED_UPDATES = create("pref_defer_quadtree_updates",
+				"Defer the updates of the spatial index caused by moving agents until the next spatial query, and apply them in bulk (still experimental)",
+				false, IType.BOOL, true).in(NAME, CATEGORY);
+
 		/** The Constant CONSTANT_OPTIMIZATION. */
 		public static final Pref<Boolean> CONSTANT_OPTIMIZATION = create("pref_optimize_constant_expressions",
 				"Optimize constant expressions (experimental, performs a rebuild of models)", false, IType.BOOL, true)
@@ -9,23 +9,39 @@
  ********************************************************************************************************/
 package msi.gama.common.util;
 
-import java.util.LinkedHashSet;
+import java.util.Arrays;
 import java.util.Queue;
 import java.util.Set;
-
-import com.google.common.collect.Queues;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
 import msi.gama.common.interfaces.IDisposable;
 import msi.gama.common.preferences.GamaPreferences;
+import msi.gama.runtime.concurrent.VirtualThreads;
+import msi.gama.util.GamaMapFactory;
+import msi.gama.util.IMap;
+import msi.gaml.types.Types;
 import ummisco.gama.dev.utils.DEBUG;
 
 /**
- * The Class PoolUtils.
+ * The Class PoolUtils. Pools are organized in magazines: each thread keeps a small stack of objects (its magazine),
+ * so that most of the requests and releases do not involve any synchronization. When the magazine of a thread is full
+ * (or empty), it is exchanged with the shared depot, which keeps a bounded number of full magazines so that objects
+ * released by a thread can be reused by another one. Virtual threads, which are short-lived and may be numerous, do not
+ * have magazines: they take and release their objects directly in a bounded queue shared by all of them.
  */
 public class PoolUtils {
 
+	/** The number of objects in a magazine. */
+	static final int MAGAZINE_SIZE = 32;
+
+	/** The max. number of full magazines kept in the depot of a pool. */
+	static final int DEPOT_SIZE = 32;
+
 	/** The pools. */
-	static Set<ObjectPool> POOLS = new LinkedHashSet<>();
+	static Set<ObjectPool> POOLS = new CopyOnWriteArraySet<>();
 
 	/** The pool. */
 	static public boolean POOL = GamaPreferences.Experimental.USE_POOLING.getValue();
@@ -38,16 +54,67 @@ public class PoolUtils {
 	}
 
 	/**
-	 * Write stats.
+	 * Write stats, i.e. the {@link #report()} on the use of the pools. Called when the experiments are closed. The same
+	 * figures are available to models through {@link #getStatistics()}.
 	 */
 	public static void WriteStats() {
 		if (!DEBUG.IS_ON()) return;
 		DEBUG.SECTION("Pool statistics");
+		for (final String line : report().split("\n")) { DEBUG.OUT(line); }
+	}
+
+	/**
+	 * Returns a report on the use of the pools, in CSV format (one line per pool, preceded by a header): the number of
+	 * objects asked, created (i.e. not found in the pool), released, and dropped (i.e. released when the pool was
+	 * full), and the percentage of requests served by the pool.
+	 *
+	 * @return the string
+	 */
+	public static String report() {
+		final StringBuilder sb =
+				new StringBuilder("pool,asked,created,released,dropped,hit rate (%),magazines in depot,loose\n");
+		POOLS.forEach(p -> sb.append('"').append(p.name).append('"').append(',').append(p.accessed.sum()).append(',')
+				.append(p.created.sum()).append(',').append(p.released.sum()).append(',').append(p.dropped.sum())
+				.append(',').append(p.getHitRate()).append(',').append(p.depotSize.get()).append(',')
+				.append(p.looseSize.get()).append('\n'));
+		return sb.toString();
+	}
+
+	/**
+	 * Returns the statistics of the pools, whatever the debug mode: for each pool (by name), a map of the number of
+	 * objects 'asked', 'created', 'released' and 'dropped', of the 'hit_rate' (in %), and of the number of full
+	 * 'magazines' in the depot and of 'loose' objects released by virtual threads. As GAML integers are 32 bits, the
+	 * numbers are capped to the max. integer.
+	 *
+	 * @return the map
+	 */
+	public static IMap<String, IMap<String, Object>> getStatistics() {
+		@SuppressWarnings ("unchecked") final IMap<String, IMap<String, Object>> result =
+				GamaMapFactory.create(Types.STRING, Types.MAP);
 		POOLS.forEach(p -> {
-			long percentage = p.accessed == 0 ? 100 : 100 - (long) (p.created * 100d / p.accessed);
-			DEBUG.OUT(p.name, 30, "instances created " + p.created + " / instances asked " + p.accessed + " = "
-					+ percentage + "% of coverage");
+			@SuppressWarnings ("unchecked") final IMap<String, Object> stats =
+					GamaMapFactory.create(Types.STRING, Types.INT);
+			stats.put("asked", asInt(p.accessed.sum()));
+			stats.put("created", asInt(p.created.sum()));
+			stats.put("released", asInt(p.released.sum()));
+			stats.put("dropped", asInt(p.dropped.sum()));
+			stats.put("hit_rate", (int) p.getHitRate());
+			stats.put("magazines", p.depotSize.get());
+			stats.put("loose", p.looseSize.get());
+			result.put(p.name, stats);
 		});
+		return result;
+	}
+
+	/**
+	 * Returns a counter as a GAML integer, capped to the max. integer.
+	 *
+	 * @param count
+	 *            the count
+	 * @return the int
+	 */
+	private static int asInt(final long count) {
+		return (int) Math.min(Integer.MAX_VALUE, count);
 	}
 
 	/**
@@ -111,8 +178,9 @@ public class PoolUtils {
 		/** The name. */
 		private String name;
 
-		/** The created. */
-		private long accessed, released, created;
+		/** The counters. Striped, as they are updated concurrently by all the threads using the pool. */
+		private final LongAdder accessed = new LongAdder(), released = new LongAdder(), created = new LongAdder(),
+				dropped = new LongAdder();
 
 		/** The factory. */
 		private final ObjectFactory<T> factory;
@@ -123,8 +191,23 @@ public class PoolUtils {
 		/** The cleaner. */
 		private final ObjectCleaner<T> cleaner;
 
-		/** The objects. */
-		private final Queue<T> objects;
+		/** The magazine of each thread. */
+		private final ThreadLocal<Magazine> magazines = ThreadLocal.withInitial(Magazine::new);
+
+		/** The full magazines shared by all the threads. */
+		private final Queue<Object[]> depot = new ConcurrentLinkedQueue<>();
+
+		/** The number of magazines in the depot. */
+		private final AtomicInteger depotSize = new AtomicInteger();
+
+		/** The objects released by virtual threads, which do not have magazines. */
+		private final Queue<T> loose = new ConcurrentLinkedQueue<>();
+
+		/** The number of objects in the loose queue. */
+		private final AtomicInteger looseSize = new AtomicInteger();
+
+		/** The generation, incremented when the pool is disposed so that the magazines of the threads are emptied. */
+		private final AtomicInteger generation = new AtomicInteger();
 
 		/** The active. */
 		public boolean active;
@@ -143,7 +226,31 @@ public class PoolUtils {
 			this.factory = factory;
 			this.copy = copy;
 			this.cleaner = cleaner;
-			objects = Queues.synchronizedDeque(Queues.newArrayDeque());
+		}
+
+		/**
+		 * The magazine of the current thread.
+		 *
+		 * @return the magazine
+		 */
+		private Magazine magazine() {
+			final Magazine m = magazines.get();
+			final int g = generation.get();
+			if (m.generation != g) {
+				m.clear();
+				m.generation = g;
+			}
+			return m;
+		}
+
+		/**
+		 * Gets the hit rate, i.e. the percentage of requests that did not need to create an object.
+		 *
+		 * @return the hit rate
+		 */
+		public long getHitRate() {
+			final long a = accessed.sum();
+			return a == 0 ? 100 : 100 - (long) (created.sum() * 100d / a);
 		}
 
 		/**
@@ -153,11 +260,16 @@ public class PoolUtils {
 		 */
 		public T get() {
 			if (!POOL || !active) return factory.createNew();
-			accessed++;
-
-			T result = objects.poll();
+			accessed.increment();
+			T result;
+			if (VirtualThreads.isCurrentThreadVirtual()) {
+				result = loose.poll();
+				if (result != null) { looseSize.decrementAndGet(); }
+			} else {
+				result = magazine().pop();
+			}
 			if (result == null) {
-				created++;
+				created.increment();
 				result = factory.createNew();
 			}
 			return result;
@@ -184,11 +296,21 @@ public class PoolUtils {
 		 */
 		public void release(@SuppressWarnings ("unchecked") final T... tt) {
 			if (tt == null) return;
+			final boolean pooled = POOL && active, virtual = pooled && VirtualThreads.isCurrentThreadVirtual();
+			final Magazine m = pooled && !virtual ? magazine() : null;
 			for (T t : tt) {
 				if (cleaner != null) { cleaner.clean(t); }
-				if (POOL && active) {
-					released++;
-					objects.offer(t);
+				if (m != null) {
+					released.increment();
+					if (!m.push(t)) { dropped.increment(); }
+				} else if (virtual) {
+					released.increment();
+					if (looseSize.incrementAndGet() > MAGAZINE_SIZE * DEPOT_SIZE) {
+						looseSize.decrementAndGet();
+						dropped.increment();
+					} else {
+						loose.offer(t);
+					}
 				}
 			}
 
@@ -196,7 +318,74 @@ public class PoolUtils {
 
 		@Override
 		public void dispose() {
-			objects.clear();
+			generation.incrementAndGet();
+			depot.clear();
+			depotSize.set(0);
+			loose.clear();
+			looseSize.set(0);
+		}
+
+		/**
+		 * The objects kept by a thread.
+		 */
+		private class Magazine {
+
+			/** The objects. */
+			Object[] objects = new Object[MAGAZINE_SIZE];
+
+			/** The number of objects. */
+			int size;
+
+			/** The generation of the pool when the magazine was last emptied. */
+			int generation = ObjectPool.this.generation.get();
+
+			/**
+			 * Takes an object, exchanging the (empty) magazine with a full one from the depot if necessary.
+			 *
+			 * @return the object, or null if none is available
+			 */
+			@SuppressWarnings ("unchecked")
+			T pop() {
+				if (size == 0) {
+					final Object[] full = depot.poll();
+					if (full == null) return null;
+					depotSize.decrementAndGet();
+					objects = full;
+					size = full.length;
+				}
+				final Object result = objects[--size];
+				objects[size] = null;
+				return (T) result;
+			}
+
+			/**
+			 * Keeps an object, moving the (full) magazine to the depot if necessary.
+			 *
+			 * @param object
+			 *            the object
+			 * @return false if the object could not be kept, as both the magazine and the depot are full
+			 */
+			boolean push(final T object) {
+				if (size == objects.length) {
+					if (depotSize.incrementAndGet() > DEPOT_SIZE) {
+						depotSize.decrementAndGet();
+						return false;
+					}
+					depot.offer(objects);
+					objects = new Object[MAGAZINE_SIZE];
+					size = 0;
+				}
+				objects[size++] = object;
+				return true;
+			}
+
+			/**
+			 * Empties the magazine.
+			 */
+			void clear() {
+				Arrays.fill(objects, 0, size, null);
+				size = 0;
+			}
 		}
 	}
 
@@ -19,11 +19,13 @@ import java.util.Random;
 
 import msi.gama.common.interfaces.IKeyword;
 import msi.gama.common.preferences.GamaPreferences;
+import msi.gama.metamodel.agent.IAgent;
 import msi.gama.metamodel.shape.GamaPoint;
 import msi.gama.util.random.IGamaRNG;
 import msi.gama.util.random.JavaRNG;
 import msi.gama.util.random.MersenneTwisterRNG;
 import msi.gama.util.random.ParallelMersenneTwisterRNG;
+import msi.gama.util.random.SplittableRNG;
 import msi.gama.util.random.ThreadLocalRNG;
 import msi.gaml.operators.Maths;
 
@@ -39,7 +41,7 @@ public class RandomUtils {
 
 	/** The Constant DOC. */
 	public static final String DOC =
-			"The random number generator to use. Four different ones are at the disposal of the modeler: " + "'"
+			"The random number generator to use. Five different ones are at the disposal of the modeler: " + "'"
 					+ IKeyword.MERSENNE + "'"
 					+ " represents the default generator, based on the Mersenne-Twister algorithm. Very reliable, fast and deterministic (that is, using the same seed and the same sequence of calls, it will return the same stream of pseudo-random numbers). This algorithm is however not safe to use in simulations where agents can behave in parallel; "
 					+ "'threaded'"
@@ -47,7 +49,9 @@ public class RandomUtils {
 					+ "'" + IKeyword.PARALLEL + "'"
 					+ " is a version of the Mersenne-Twister algorithm that can be safely used in parallel simulations by preventing a concurrent access to its internal state. Determinism is guaranteed (in terms of generation, but not in terms of execution, as the sequence in which the threads will access it cannot be determined) and it performs a bit slower than its base version."
 					+ "'" + IKeyword.JAVA + "'"
-					+ " invokes the standard generator provided by the JDK, deterministic and thread-safe, albeit slower than all the other ones";
+					+ " invokes the standard generator provided by the JDK, deterministic and thread-safe, albeit slower than all the other ones; "
+					+ "'splittable'"
+					+ " gives each agent its own stream of numbers, derived from the seed and the identity of the agent, based on the SplitMix algorithm. Fast, safe to use in parallel simulations (no lock is involved) and deterministic in terms of execution: the same seed gives the same results whether agents are run sequentially or in parallel, whatever the number of threads";
 
 	/**
 	 * The Enum GeneratorNames.
@@ -64,7 +68,10 @@ public class RandomUtils {
 				" invokes the standard generator provided by the JDK, deterministic and thread-safe, albeit slower than all the other ones; "),
 		/** The threaded. */
 		THREADED("threaded",
-				" is a very fast generator, based on the DotMix algorithm, that can be safely used in parallel simulations as it creates one instance per thread. However, determinism cannot be guaranteed and this algorithm does not accept a seed as each instance will compute its own; ");
+				" is a very fast generator, based on the DotMix algorithm, that can be safely used in parallel simulations as it creates one instance per thread. However, determinism cannot be guaranteed and this algorithm does not accept a seed as each instance will compute its own; "),
+		/** The splittable. */
+		SPLITTABLE("splittable",
+				" gives each agent its own stream of numbers, derived from the seed and the identity of the agent, based on the SplitMix algorithm. Fast, safe to use in parallel simulations (no lock is involved) and deterministic in terms of execution: the same seed gives the same results whether agents are run sequentially or in parallel, whatever the number of threads; ");
 
 		/** The name. */
 		private String name;
@@ -158,11 +165,44 @@ public class RandomUtils {
 			case JAVA -> new JavaRNG(this);
 			case THREADED -> new ThreadLocalRNG(this);
 			case PARALLEL -> new ParallelMersenneTwisterRNG(this);
+			case SPLITTABLE -> new SplittableRNG(this);
 			default -> new MersenneTwisterRNG(this);
 		};
 
 	}
 
+	/**
+	 * Whether the generator gives a stream of numbers to each agent, i.e. whether it needs to know which agent is
+	 * executed (see {@link #use(IAgent)}).
+	 *
+	 * @return true, if successful
+	 */
+	public boolean usesAgentStreams() {
+		return generator instanceof SplittableRNG;
+	}
+
+	/**
+	 * Called when an agent starts or resumes its execution in the current thread. Only used by the generators that
+	 * give a stream of numbers to each agent.
+	 *
+	 * @param agent
+	 *            the agent (or null)
+	 */
+	public void use(final IAgent agent) {
+		if (generator instanceof SplittableRNG rng) { rng.use(agent); }
+	}
+
+	/**
+	 * Called by the simulations at the beginning of each cycle. Only used by the generators that give a stream of
+	 * numbers to each agent, which derive them again for this cycle.
+	 *
+	 * @param cycle
+	 *            the cycle
+	 */
+	public void startCycle(final int cycle) {
+		if (generator instanceof SplittableRNG rng) { rng.startCycle(cycle); }
+	}
+
 	/**
 	 * Sets the usage.
 	 *
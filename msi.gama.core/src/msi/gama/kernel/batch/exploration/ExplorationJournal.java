@@ -0,0 +1,487 @@
+/*******************************************************************************************************
+ *
+ * ExplorationJournal.java, in msi.gama.core, is part of the source code of the GAMA modeling and simulation platform
+ * (v.1.9.3).
+ *
+ * (c) 2007-2024 UMI 209 UMMISCO IRD/SU & Partners (IRIT, MIAT, TLU, CTU)
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package msi.gama.kernel.batch.exploration;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import msi.gama.kernel.experiment.ParametersSet;
+import msi.gama.runtime.IScope;
+import msi.gama.runtime.exceptions.GamaRuntimeException;
+import msi.gama.util.GamaListFactory;
+import msi.gama.util.GamaMapFactory;
+import msi.gama.util.IList;
+import msi.gama.util.IMap;
+import msi.gama.util.file.json.Json;
+import msi.gama.util.file.json.JsonValue;
+import msi.gaml.operators.Cast;
+
+/**
+ * An append-only journal of the simulations run by an exploration experiment (see the 'pref_batch_journal'
+ * preference): each line records either that a simulation (a parameter set, the index of its replication and its seed)
+ * has been started by a process, or that it is finished, with its outputs in JSON. A relaunched exploration takes the
+ * outputs of the finished simulations from the journal instead of running them again.
+ *
+ * The journal is locked while it is read and written, so that several processes running the same exploration on the
+ * same machine (for instance several headless instances) share it: a simulation started by another run of the
+ * exploration is not run again, and its outputs are waited for. Each run is identified by a token and holds a lease on
+ * the simulations it has started, renewed by a line written every {@link #HEARTBEAT} ms and released when the journal
+ * is closed: the simulations of a run whose lease has expired (because its process has stopped, or is not running the
+ * exploration anymore) are run again. Runs of the same exploration in the same process (e.g. two jobs of a headless
+ * instance) share it the same way, as file locks cannot be held twice by a process: they first take a lock kept for
+ * each journal file in {@link #LOCKS}.
+ */
+public class ExplorationJournal {
+
+	/** The state of a simulation in the journal. */
+	public enum State {
+		/** Finished: its outputs are in the journal. */
+		DONE,
+		/** Started by this run. */
+		OWNED,
+		/** Started by another run whose lease is still valid. */
+		BUSY
+	}
+
+	/** The prefix of the lines of started simulations. */
+	static final String STARTED = "S";
+
+	/** The prefix of the lines of finished simulations. */
+	static final String FINISHED = "F";
+
+	/** The prefix of the lines renewing (or, with 0, releasing) the lease of a run. */
+	static final String HEARTBEAT_LINE = "H";
+
+	/** The time (in ms) after which the simulations started by a run that has not renewed its lease are run again. */
+	public static final long LEASE = 60_000;
+
+	/**
+	 * The time (in ms) after which the simulations started by other runs are run anyway, if none of them has finished
+	 * in the meantime.
+	 */
+	public static final long WAIT = 30 * 60_000;
+
+	/** The time (in ms) between two renewals of the lease. */
+	static final long HEARTBEAT = LEASE / 4;
+
+	/** The key of the JSON objects that stand for the floats JSON cannot represent (NaN and infinities). */
+	static final String NON_FINITE = "$float";
+
+	/** The id of this process. */
+	static final long PID = ProcessHandle.current().pid();
+
+	/** The thread renewing the leases of the journals. */
+	static final ScheduledExecutorService HEARTBEATS = Executors.newSingleThreadScheduledExecutor(r -> {
+		final Thread thread = new Thread(r, "GAMA exploration journal");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	/** The locks taken in this process before locking the journal files, by canonical path. */
+	static final Map<String, ReentrantLock> LOCKS = new ConcurrentHashMap<>();
+
+	/** The token of this run of the exploration: the id of its process, followed by a random part. */
+	final String token = PID + ":" + UUID.randomUUID();
+
+	/** The renewal of the lease of this run, scheduled when it starts its first simulation. */
+	ScheduledFuture<?> heartbeat;
+
+	/** The file. */
+	final File file;
+
+	/** The lock taken in this process before locking the file. */
+	final ReentrantLock local;
+
+	/** The channel, opened on the first access. */
+	FileChannel channel;
+
+	/** The number of bytes of the journal already read. */
+	long position;
+
+	/** The token of the run that has started each simulation. */
+	final Map<String, String> started = new HashMap<>();
+
+	/** The last renewal of the lease of each run (0 if released). */
+	final Map<String, Long> leases = new HashMap<>();
+
+	/** The outputs, in JSON, of each finished simulation. */
+	final Map<String, String> finished = new HashMap<>();
+
+	/** The number of simulations whose outputs have been taken from the journal. */
+	int reused;
+
+	/**
+	 * Instantiates a new exploration journal.
+	 *
+	 * @param model
+	 *            the model file
+	 * @param name
+	 *            the name of the experiment
+	 * @param identity
+	 *            the values (model file, outputs, stop condition...) on which the outputs of simulations depend
+	 */
+	public ExplorationJournal(final File model, final String name, final List<Object> identity) {
+		file = new File(new File(model.getParentFile(), "journals"), fileNameOf(name, identity) + ".journal");
+		String path;
+		try {
+			path = file.getCanonicalPath();
+		} catch (final IOException e) {
+			path = file.getAbsolutePath();
+		}
+		local = LOCKS.computeIfAbsent(path, p -> new ReentrantLock());
+	}
+
+	/**
+	 * The name (without extension) of a file keeping results that depend on some values: the name of the experiment,
+	 * followed by the SHA-1 digest of the values, so that two explorations with different values do not share a file.
+	 *
+	 * @param name
+	 *            the name of the experiment
+	 * @param identity
+	 *            the values
+	 * @return the name of the file
+	 */
+	public static String fileNameOf(final String name, final List<Object> identity) {
+		try {
+			final byte[] digest = MessageDigest.getInstance("SHA-1").digest(identity.toString().getBytes(UTF_8));
+			return name.replaceAll("[^\\w.-]", "_") + "_" + HexFormat.of().formatHex(digest);
+		} catch (final NoSuchAlgorithmException e) {
+			// Every Java platform supports SHA-1
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * The key of a simulation in the journal.
+	 *
+	 * @param solution
+	 *            the parameter set
+	 * @param replication
+	 *            the index of the replication
+	 * @param seed
+	 *            the seed
+	 * @return the string
+	 */
+	public String keyOf(final ParametersSet solution, final int replication, final Double seed) {
+		return solution.toCanonicalString() + "#" + replication + "@" + seed;
+	}
+
+	/**
+	 * Returns the state of the simulation, after having started it in the journal if it is neither finished nor
+	 * started by another run whose lease is still valid.
+	 *
+	 * @param scope
+	 *            the scope
+	 * @param key
+	 *            the key of the simulation
+	 * @param takeOver
+	 *            whether to start the simulation even if another run holds it
+	 * @return the state
+	 */
+	public synchronized State start(final IScope scope, final String key, final boolean takeOver) {
+		try (Locked lock = lock()) {
+			read();
+			if (finished.containsKey(key)) return State.DONE;
+			final String owner = started.get(key);
+			if (token.equals(owner)) return State.OWNED;
+			if (owner != null && !takeOver && isAlive(owner)) return State.BUSY;
+			if (heartbeat == null) {
+				write(HEARTBEAT_LINE + "\t" + token + "\t" + System.currentTimeMillis());
+				heartbeat = HEARTBEATS.scheduleWithFixedDelay(this::renew, HEARTBEAT, HEARTBEAT, TimeUnit.MILLISECONDS);
+			}
+			write(STARTED + "\t" + token + "\t" + key);
+			return State.OWNED;
+		} catch (final IOException e) {
+			throw GamaRuntimeException.create(e, scope);
+		}
+	}
+
+	/**
+	 * Whether a run still holds the simulations it has started: its lease has been renewed recently and its process is
+	 * still alive (which is checked so that the simulations of a process that has crashed are run again at once).
+	 *
+	 * @param owner
+	 *            the token of the run
+	 * @return true if its lease is valid
+	 */
+	boolean isAlive(final String owner) {
+		final Long renewal = leases.get(owner);
+		if (renewal == null || System.currentTimeMillis() - renewal > LEASE) return false;
+		final int colon = owner.indexOf(':');
+		try {
+			final long pid = Long.parseLong(colon < 0 ? owner : owner.substring(0, colon));
+			return ProcessHandle.of(pid).map(ProcessHandle::isAlive).orElse(false);
+		} catch (final NumberFormatException e) {
+			return true;
+		}
+	}
+
+	/**
+	 * Renews the lease of this run, in the thread of {@link #HEARTBEATS}.
+	 */
+	synchronized void renew() {
+		if (channel == null) return;
+		try (Locked lock = lock()) {
+			write(HEARTBEAT_LINE + "\t" + token + "\t" + System.currentTimeMillis());
+		} catch (final IOException e) {
+			// The lease will be renewed at the next heartbeat, or expire
+		}
+	}
+
+	/**
+	 * Records that the simulation is finished, with its outputs.
+	 *
+	 * @param scope
+	 *            the scope
+	 * @param key
+	 *            the key of the simulation
+	 * @param outputs
+	 *            the outputs
+	 */
+	public synchronized void finish(final IScope scope, final String key, final Map<String, Object> outputs) {
+		try (Locked lock = lock()) {
+			read();
+			if (!finished.containsKey(key)) {
+				write(FINISHED + "\t" + Json.getNew().valueOf(encode(outputs)) + "\t" + key);
+			}
+		} catch (final IOException e) {
+			throw GamaRuntimeException.create(e, scope);
+		}
+	}
+
+	/**
+	 * The outputs of a finished simulation.
+	 *
+	 * @param scope
+	 *            the scope
+	 * @param key
+	 *            the key of the simulation
+	 * @return the outputs
+	 */
+	public synchronized IMap<String, Object> getOutputs(final IScope scope, final String key) {
+		reused++;
+		final JsonValue json = Json.getNew().parse(finished.get(key));
+		@SuppressWarnings ("unchecked") final IMap<String, Object> outputs = GamaMapFactory.create();
+		final Object value = json.toGamlValue(scope);
+		if (value instanceof Map<?, ?> map) {
+			for (final Map.Entry<?, ?> entry : map.entrySet()) {
+				outputs.put(Cast.asString(scope, entry.getKey()), decode(entry.getValue()));
+			}
+		}
+		return outputs;
+	}
+
+	/**
+	 * Replaces the floats that JSON cannot represent (NaN and infinities, otherwise written as null) by objects holding
+	 * their textual representation, in the value and in the lists and maps it contains. The value is not modified: a
+	 * copy is returned if needed.
+	 *
+	 * @param value
+	 *            the value
+	 * @return the value or its copy
+	 */
+	public static Object encode(final Object value) {
+		if (value instanceof Double || value instanceof Float) {
+			final double d = ((Number) value).doubleValue();
+			if (Double.isFinite(d)) return value;
+			@SuppressWarnings ("unchecked") final IMap<String, Object> result = GamaMapFactory.create();
+			result.put(NON_FINITE, String.valueOf(d));
+			return result;
+		}
+		if (value instanceof Map<?, ?> map) {
+			IMap<Object, Object> copy = null;
+			for (final Map.Entry<?, ?> entry : map.entrySet()) {
+				final Object v = encode(entry.getValue());
+				if (v == entry.getValue()) { continue; }
+				if (copy == null) {
+					@SuppressWarnings ("unchecked") final IMap<Object, Object> created = GamaMapFactory.create();
+					created.putAll(map);
+					copy = created;
+				}
+				copy.put(entry.getKey(), v);
+			}
+			return copy == null ? value : copy;
+		}
+		if (value instanceof List<?> list) {
+			IList<Object> copy = null;
+			for (int i = 0; i < list.size(); i++) {
+				final Object v = encode(list.get(i));
+				if (v == list.get(i)) { continue; }
+				if (copy == null) {
+					copy = GamaListFactory.create();
+					copy.addAll(list);
+				}
+				copy.set(i, v);
+			}
+			return copy == null ? value : copy;
+		}
+		return value;
+	}
+
+	/**
+	 * Restores the floats replaced by {@link #encode(Object)}, in the value and in the lists and maps it contains
+	 * (which are modified).
+	 *
+	 * @param value
+	 *            the value read from the journal
+	 * @return the value
+	 */
+	public static Object decode(final Object value) {
+		if (value instanceof Map<?, ?> map) {
+			if (map.size() == 1 && map.get(NON_FINITE) instanceof String s) return Double.valueOf(s);
+			@SuppressWarnings ("unchecked") final Map<Object, Object> entries = (Map<Object, Object>) map;
+			for (final Map.Entry<Object, Object> entry : entries.entrySet()) {
+				entry.setValue(decode(entry.getValue()));
+			}
+		} else if (value instanceof List<?> list) {
+			@SuppressWarnings ("unchecked") final List<Object> elements = (List<Object>) list;
+			for (int i = 0; i < elements.size(); i++) { elements.set(i, decode(elements.get(i))); }
+		}
+		return value;
+	}
+
+	/**
+	 * The access to the journal, released by closing it.
+	 */
+	interface Locked extends AutoCloseable {
+
+		@Override
+		void close() throws IOException;
+	}
+
+	/**
+	 * Locks the journal, opening it if needed. The lock of this process is taken first, so that the journals of other
+	 * runs in this process wait for the file to be unlocked instead of failing to lock it.
+	 *
+	 * @return the access to the journal
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	@SuppressWarnings ("resource")
+	Locked lock() throws IOException {
+		local.lock();
+		try {
+			if (channel == null) {
+				file.getParentFile().mkdirs();
+				channel = new RandomAccessFile(file, "rw").getChannel();
+			}
+			final FileLock lock = channel.lock();
+			return () -> {
+				try {
+					lock.release();
+				} finally {
+					local.unlock();
+				}
+			};
+		} catch (final IOException | RuntimeException e) {
+			local.unlock();
+			throw e;
+		}
+	}
+
+	/**
+	 * Reads the lines written since the last reading, by this process or others.
+	 *
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	void read() throws IOException {
+		final long size = channel.size();
+		if (size <= position) return;
+		final ByteBuffer buffer = ByteBuffer.allocate((int) (size - position));
+		while (buffer.hasRemaining() && channel.read(buffer, position + buffer.position()) > 0) {}
+		final byte[] bytes = buffer.array();
+		// Only complete lines are read
+		int end = buffer.position() - 1;
+		while (end >= 0 && bytes[end] != '\n') { end--; }
+		if (end < 0) return;
+		for (final String line : new String(bytes, 0, end, UTF_8).split("\n")) {
+			final String[] fields = line.split("\t", 3);
+			if (fields.length < 3) { continue; }
+			if (STARTED.equals(fields[0])) {
+				started.put(fields[2], fields[1]);
+			} else if (FINISHED.equals(fields[0])) {
+				finished.put(fields[2], fields[1]);
+			} else if (HEARTBEAT_LINE.equals(fields[0])) {
+				try {
+					leases.put(fields[1], Long.valueOf(fields[2]));
+				} catch (final NumberFormatException e) {}
+			}
+		}
+		position += end + 1;
+	}
+
+	/**
+	 * Appends a line to the journal and reads it.
+	 *
+	 * @param line
+	 *            the line
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	void write(final String line) throws IOException {
+		final ByteBuffer buffer = ByteBuffer.wrap((line + "\n").getBytes(UTF_8));
+		long at = channel.size();
+		while (buffer.hasRemaining()) { at += channel.write(buffer, at); }
+		// An interrupted exploration should find all the simulations finished so far
+		channel.force(false);
+		read();
+	}
+
+	/**
+	 * Closes the journal, releasing the lease of this run so that the simulations it has started but not finished can
+	 * be run by others at once.
+	 */
+	public synchronized void close() {
+		if (channel == null) return;
+		if (heartbeat != null) {
+			heartbeat.cancel(false);
+			heartbeat = null;
+			try (Locked lock = lock()) {
+				write(HEARTBEAT_LINE + "\t" + token + "\t0");
+			} catch (final IOException e) {}
+		}
+		try {
+			channel.close();
+		} catch (final IOException e) {}
+		channel = null;
+	}
+
+	/**
+	 * The number of simulations whose outputs have been taken from the journal.
+	 *
+	 * @return the string, empty if there are none
+	 */
+	public String report() {
+		if (reused == 0) return "";
+		return " " + reused + " simulations taken from the journal " + file.getName() + ".";
+	}
+
+}
@@ -0,0 +1,212 @@
+/*******************************************************************************************************
+ *
+ * FitnessCache.java, in msi.gama.core, is part of the source code of the GAMA modeling and simulation platform
+ * (v.1.9.3).
+ *
+ * (c) 2007-2024 UMI 209 UMMISCO IRD/SU & Partners (IRIT, MIAT, TLU, CTU)
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package msi.gama.kernel.batch.optimization;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import msi.gama.common.preferences.GamaPreferences;
+import msi.gama.kernel.batch.exploration.ExplorationJournal;
+import msi.gama.kernel.experiment.ParametersSet;
+import msi.gama.runtime.GAMA;
+import msi.gama.runtime.IScope;
+import msi.gama.runtime.exceptions.GamaRuntimeException;
+import msi.gama.util.GamaMapFactory;
+import msi.gama.util.IMap;
+import msi.gama.util.file.json.Json;
+import msi.gaml.operators.Cast;
+
+/**
+ * The fitness of the parameter sets already evaluated by a calibration experiment, whatever its algorithm, so that
+ * simulations are not run again for a parameter set (and the same seeds) met in a previous generation or
+ * neighbourhood. The other outputs of their simulations are kept with it, so that the results of a parameter set found
+ * in the cache are the same as when it is evaluated. When the 'pref_fitness_cache' preference is on, the values are
+ * also appended to a file identified by the model and the experiment, so that an interrupted calibration does not run
+ * them again when it is relaunched.
+ */
+public class FitnessCache {
+
+	/** The fitness of each parameter set, identified by its canonical form. */
+	final Map<String, Double> values = new HashMap<>();
+
+	/** The outputs, in JSON, of the simulations of each parameter set, identified by its canonical form. */
+	final Map<String, String> outputs = new HashMap<>();
+
+	/** The file where the values are kept, or null. */
+	File file;
+
+	/** The writer appending the values to the file, opened on the first value. */
+	BufferedWriter writer;
+
+	/** The number of evaluations found in the cache. */
+	int hits;
+
+	/** The number of evaluations not found in the cache. */
+	int misses;
+
+	/**
+	 * Instantiates a new fitness cache, and reads the values of a previous calibration if the preference is on.
+	 *
+	 * @param scope
+	 *            the scope
+	 * @param name
+	 *            the name of the experiment
+	 * @param identity
+	 *            the values (model file, fitness, stop condition...) on which the fitness of parameter sets depends
+	 */
+	public FitnessCache(final IScope scope, final String name, final List<Object> identity) {
+		if (!GamaPreferences.External.FITNESS_CACHE.getValue()) return;
+		final File dir = new File(System.getProperty("java.io.tmpdir"), "gama_fitness");
+		file = new File(dir, ExplorationJournal.fileNameOf(name, identity) + ".txt");
+		if (!file.exists()) return;
+		try {
+			for (final String line : Files.readAllLines(file.toPath(), UTF_8)) {
+				final String[] fields = line.split("\t", 3);
+				if (fields.length < 3) { continue; }
+				values.put(fields[2], Double.valueOf(fields[0]));
+				outputs.put(fields[2], fields[1]);
+			}
+		} catch (final IOException | NumberFormatException e) {
+			GAMA.reportError(scope, GamaRuntimeException
+					.warning("The fitness values kept in " + file.getAbsolutePath() + " cannot be read", scope), false);
+		}
+	}
+
+	/**
+	 * The canonical form of a parameter set evaluated with some seeds.
+	 *
+	 * @param solution
+	 *            the parameter set
+	 * @param seeds
+	 *            the seeds
+	 * @return the string
+	 */
+	String keyOf(final ParametersSet solution, final Double[] seeds) {
+		return solution.toCanonicalString() + Arrays.toString(seeds);
+	}
+
+	/**
+	 * Returns the fitness of the parameter set, or null if it has not been evaluated yet with these seeds.
+	 *
+	 * @param solution
+	 *            the parameter set
+	 * @param seeds
+	 *            the seeds
+	 * @return the fitness or null
+	 */
+	public Double get(final ParametersSet solution, final Double[] seeds) {
+		final Double fitness = values.get(keyOf(solution, seeds));
+		if (fitness == null) {
+			misses++;
+		} else {
+			hits++;
+		}
+		return fitness;
+	}
+
+	/**
+	 * Returns the outputs of the simulations of the parameter set (the values of each output, one per seed). The map is
+	 * empty if the parameter set has not been evaluated yet with these seeds.
+	 *
+	 * @param scope
+	 *            the scope
+	 * @param solution
+	 *            the parameter set
+	 * @param seeds
+	 *            the seeds
+	 * @return the outputs
+	 */
+	public IMap<String, List<Object>> getOutputs(final IScope scope, final ParametersSet solution,
+			final Double[] seeds) {
+		@SuppressWarnings ("unchecked") final IMap<String, List<Object>> result = GamaMapFactory.create();
+		final String json = outputs.get(keyOf(solution, seeds));
+		if (json == null) return result;
+		if (Json.getNew().parse(json).toGamlValue(scope) instanceof Map<?, ?> map) {
+			for (final Map.Entry<?, ?> entry : map.entrySet()) {
+				if (ExplorationJournal.decode(entry.getValue()) instanceof List<?> list) {
+					@SuppressWarnings ("unchecked") final List<Object> values = (List<Object>) list;
+					result.put(Cast.asString(scope, entry.getKey()), values);
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Keeps the fitness and the outputs of the parameter set, and appends them to the file if any.
+	 *
+	 * @param scope
+	 *            the scope
+	 * @param solution
+	 *            the parameter set
+	 * @param seeds
+	 *            the seeds
+	 * @param fitness
+	 *            the fitness
+	 * @param results
+	 *            the values of each output, one per seed
+	 */
+	public void put(final IScope scope, final ParametersSet solution, final Double[] seeds, final double fitness,
+			final Map<String, List<Object>> results) {
+		final String key = keyOf(solution, seeds);
+		if (values.put(key, fitness) != null) return;
+		final String json = Json.getNew().valueOf(ExplorationJournal.encode(results)).toString();
+		outputs.put(key, json);
+		if (file == null) return;
+		try {
+			if (writer == null) {
+				file.getParentFile().mkdirs();
+				writer = Files.newBufferedWriter(file.toPath(), UTF_8, CREATE, APPEND);
+			}
+			writer.write(fitness + "\t" + json + "\t" + key);
+			writer.newLine();
+			// An interrupted calibration should find all the values computed so far
+			writer.flush();
+		} catch (final IOException e) {
+			GAMA.reportError(scope, GamaRuntimeException
+					.warning("The fitness values cannot be kept in " + file.getAbsolutePath(), scope), false);
+			close();
+			file = null;
+		}
+	}
+
+	/**
+	 * Closes the file.
+	 */
+	public void close() {
+		if (writer == null) return;
+		try {
+			writer.close();
+		} catch (final IOException e) {}
+		writer = null;
+	}
+
+	/**
+	 * The statistics of the cache.
+	 *
+	 * @return the string, empty if no evaluation has been found in the cache
+	 */
+	public String report() {
+		if (hits == 0) return "";
+		return " " + hits + " evaluations out of " + (hits + misses) + " found in the cache of fitness values.";
+	}
+
+}
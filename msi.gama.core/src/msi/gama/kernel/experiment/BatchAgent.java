@@ -9,22 +9,26 @@
  ********************************************************************************************************/
 package msi.gama.kernel.experiment;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.Vector;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.DoubleStream;
 
-import org.jfree.data.statistics.Statistics;
-
 import msi.gama.common.interfaces.IKeyword;
 import msi.gama.common.interfaces.IScopedStepable;
+import msi.gama.common.preferences.GamaPreferences;
 import msi.gama.kernel.batch.exploration.AExplorationAlgorithm;
+import msi.gama.kernel.batch.exploration.ExplorationJournal;
 import msi.gama.kernel.batch.optimization.AOptimizationAlgorithm;
+import msi.gama.kernel.batch.optimization.FitnessCache;
 import msi.gama.kernel.experiment.IParameter.Batch;
 import msi.gama.kernel.simulation.SimulationAgent;
 import msi.gama.kernel.simulation.SimulationPopulation;
@@ -37,6 +41,7 @@ import msi.gama.precompiler.GamlAnnotations.experiment;
 import msi.gama.runtime.GAMA;
 import msi.gama.runtime.IExperimentStateListener;
 import msi.gama.runtime.IScope;
+import msi.gama.runtime.concurrent.GamaExecutorService;
 import msi.gama.runtime.exceptions.GamaRuntimeException;
 import msi.gama.util.GamaListFactory;
 import msi.gama.util.GamaMapFactory;
@@ -90,6 +95,9 @@ public class BatchAgent extends ExperimentAgent {
 	/** The fitness values. */
 	final List<Double> fitnessValues = new ArrayList<>();
 
+	/** Whether the fitness of the simulations closed is added to the fitness values (for a single solution). */
+	private boolean memorizeFitness;
+
 	/** The tracked values. */
 	// GENERIC OUTPUTS
 	final Map<String, Object> trackedValues = new HashMap<>();
@@ -97,6 +105,27 @@ public class BatchAgent extends ExperimentAgent {
 	/** Keep simulations between ''runs'' */
 	private boolean simDispose;
 
+	/** The number of simulations run independently of each other, used to compute the throughput of the batch. */
+	private long replicas;
+
+	/** The time (in ns) spent running these simulations. */
+	private long replicasTime;
+
+	/** The time (in ns) spent by the threads stepping them. */
+	private final AtomicLong replicasBusyTime = new AtomicLong();
+
+	/** The number of threads that were available to run them. */
+	private int replicasCores;
+
+	/** The fitness of the parameter sets already evaluated, if the exploration algorithm is fitness-based. */
+	private FitnessCache fitnessCache;
+
+	/** The journal of the simulations run, if the exploration algorithm is not fitness-based and it is enabled. */
+	private ExplorationJournal journal;
+
+	/** The keys, in the journal, of the simulations being run. */
+	private final Map<IAgent, String> journalKeys = new HashMap<>();
+
 	/**
 	 * Instantiates a new batch agent.
 	 *
@@ -233,7 +262,12 @@ public class BatchAgent extends ExperimentAgent {
 	public boolean step(final IScope scope) {
 		// We run the exloration algorithm. The future steps will be called by the exploration algorithm through the
 		// launchSimulationsWithSolution() method
-		getSpecies().getExplorationAlgorithm().run(scope);
+		try {
+			getSpecies().getExplorationAlgorithm().run(scope);
+		} finally {
+			if (fitnessCache != null) { fitnessCache.close(); }
+			if (journal != null) { journal.close(); }
+		}
 		// Once the algorithm has finished exploring the solutions, the agent is
 		// killed.
 		scope.getGui().getStatus().informStatus(scope, endStatus());
@@ -252,7 +286,59 @@ public class BatchAgent extends ExperimentAgent {
 	 * @return the string
 	 */
 	protected String endStatus() {
-		return "Batch over. " + runNumber + " runs, " + seeds.length + " simulations.";
+		return "Batch over. " + runNumber + " runs, " + seeds.length + " simulations." + throughput()
+				+ (fitnessCache == null ? "" : fitnessCache.report()) + (journal == null ? "" : journal.report());
+	}
+
+	/**
+	 * Gets the journal of the simulations run, created the first time it is needed, or null if it is not kept. The
+	 * outputs of the simulations depend on the model, the experiment, the outputs expression and the stop condition.
+	 *
+	 * @return the journal or null
+	 */
+	private ExplorationJournal getJournal() {
+		if (journal == null && GamaPreferences.External.BATCH_JOURNAL.getValue()
+				&& getSpecies().getExplorationAlgorithm() instanceof AExplorationAlgorithm exp) {
+			final IExpression outputs = exp.getOutputs();
+			final File model = new File(String.valueOf(getModel().getFilePath()));
+			journal = new ExplorationJournal(model, getModel().getName() + "_" + getSpecies().getName(),
+					Arrays.asList(model.getAbsolutePath(), model.lastModified(), getSpecies().getName(),
+							outputs == null ? null : outputs.serializeToGaml(false),
+							stopCondition == null ? null : stopCondition.serializeToGaml(false)));
+		}
+		return journal;
+	}
+
+	/**
+	 * Gets the fitness cache, created the first time it is needed. The fitness (and the other outputs) of a parameter
+	 * set depend on the model, the experiment, the fitness expression and its combination, and the stop condition.
+	 *
+	 * @return the fitness cache
+	 */
+	private FitnessCache getFitnessCache() {
+		if (fitnessCache == null) {
+			final AOptimizationAlgorithm algo = (AOptimizationAlgorithm) getSpecies().getExplorationAlgorithm();
+			final IExpression fitness = algo.getFitnessExpression();
+			final File model = new File(String.valueOf(getModel().getFilePath()));
+			fitnessCache = new FitnessCache(getScope(), getModel().getName() + "_" + getSpecies().getName(),
+					Arrays.asList(model.getAbsolutePath(), model.lastModified(), getSpecies().getName(),
+							fitness == null ? null : fitness.serializeToGaml(false), algo.getCombination(),
+							stopCondition == null ? null : stopCondition.serializeToGaml(false)));
+		}
+		return fitnessCache;
+	}
+
+	/**
+	 * The throughput of the simulations run independently of each other, in simulations per hour, and the proportion
+	 * of the time of the threads spent stepping them.
+	 *
+	 * @return the string, empty if no simulation has been run independently
+	 */
+	protected String throughput() {
+		if (replicas == 0 || replicasTime == 0) return "";
+		return " " + Math.round(replicas * 3.6e12 / replicasTime) + " simulations/hour, "
+				+ Math.round(replicasBusyTime.get() * 100d / ((double) replicasTime * replicasCores)) + "% of "
+				+ replicasCores + " threads used.";
 	}
 
 	/**
@@ -277,9 +363,64 @@ public class BatchAgent extends ExperimentAgent {
 		final SimulationAgent s = createSimulation(sol, true);
 		s.setSeed((Double) sim.get("seed"));
 		simToParameter.put(s, sol);
+		if (sim.get("key") != null) { journalKeys.put(s, (String) sim.get("key")); }
 		return s;
 	}
 
+	/**
+	 * Creates the next simulation to run, removing it from the list, or returns null if there is none left. When a
+	 * journal is kept, the simulations already finished are skipped and their outputs taken from the journal, and the
+	 * ones being run by another process are deferred (unless they are marked to be taken over).
+	 *
+	 * @param sims
+	 *            the parameters, seeds and keys of the simulations to run
+	 * @param simToParameter
+	 *            the parameters of the simulations created
+	 * @param res
+	 *            the results of the simulations for each set of parameters
+	 * @param deferred
+	 *            the simulations run by other processes
+	 * @return the simulation agent or null
+	 */
+	private SimulationAgent createNextSimulation(final List<Map<String, Object>> sims,
+			final Map<IAgent, ParametersSet> simToParameter, final IMap<ParametersSet, Map<String, List<Object>>> res,
+			final List<Map<String, Object>> deferred) {
+		while (!sims.isEmpty()) {
+			final Map<String, Object> sim = sims.remove(0);
+			final String key = (String) sim.get("key");
+			if (key != null) {
+				switch (journal.start(getScope(), key, sim.containsKey("takeOver"))) {
+					case DONE:
+						addResults(res, (ParametersSet) sim.get("parameters"), journal.getOutputs(getScope(), key));
+						continue;
+					case BUSY:
+						deferred.add(sim);
+						continue;
+					default:
+				}
+			}
+			return createSimulation(sim, simToParameter);
+		}
+		return null;
+	}
+
+	/**
+	 * Retrieves the outputs of a simulation that has ended and closes it. They are recorded in the journal, if any,
+	 * unless the simulation has been interrupted by the end of the batch.
+	 *
+	 * @param agent
+	 *            the simulation
+	 * @param ps
+	 *            its parameters
+	 * @return the outputs
+	 */
+	private IMap<String, Object> closeSimulation(final SimulationAgent agent, final ParametersSet ps) {
+		final String key = journalKeys.remove(agent);
+		final IMap<String, Object> outputs = manageOutputAndCloseSimulation(agent, ps, memorizeFitness, simDispose);
+		if (key != null && !dead) { journal.finish(getScope(), key, outputs); }
+		return outputs;
+	}
+
 	/**
 	 * Launch simulations with solution.
 	 *
@@ -306,61 +447,50 @@ public class BatchAgent extends ExperimentAgent {
 		int numberOfCores = pop.getMaxNumberOfConcurrentSimulations();
 		if (numberOfCores == 0) { numberOfCores = 1; }
 
+		// The parameter sets already evaluated are not run again
+		final boolean fitnessBased = getSpecies().getExplorationAlgorithm().isFitnessBased();
+		final Map<ParametersSet, Double> cached = new HashMap<>();
+		final boolean journaled = !fitnessBased && getJournal() != null;
+
 		// The values present in the solution are passed to the parameters of
 		// the experiment
 		// @Patrick What this set was for ?
 		// LinkedHashSet<ParametersSet> sols_u = new LinkedHashSet<>(sols);
 		for (ParametersSet sol : sols) {
+			if (fitnessBased) {
+				final Double fitness = getFitnessCache().get(sol, getSeeds());
+				if (fitness != null) {
+					cached.put(sol, fitness);
+					continue;
+				}
+			}
 			for (int i = 0; i < getSeeds().length; i++) {
 				runNumber = runNumber + 1;
 				Map<String, Object> sim = new HashMap<>();
 				sim.put("parameters", sol);
 				sim.put("seed", getSeeds()[i]);
+				if (journaled) { sim.put("key", journal.keyOf(sol, i, getSeeds()[i])); }
 				sims.add(sim);
 			}
 		}
 
-		int nb = Math.min(sims.size(), numberOfCores);
-
-		List<Map<String, Object>> simsToRun = new Vector<>();
-
-		for (int i = 0; i < nb; i++) { simsToRun.add(sims.remove(0)); }
-		Map<IAgent, ParametersSet> simToParameter = GamaMapFactory.create();
-		Iterator<Map<String, Object>> it = simsToRun.iterator();
-		while (it.hasNext()) { createSimulation(it.next(), simToParameter); }
-
-		while (pop.hasScheduledSimulations() && !dead) {
-			// We step all the simulations
-			pop.step(getScope());
-			for (final IScopedStepable st : new ArrayList<>(pop.getActiveStepables())) {
-				final SimulationAgent agent = (SimulationAgent) st;
-				ParametersSet ps = simToParameter.get(agent);
-				currentSolution = new ParametersSet(ps);
-
-				// test the condition first in case it is paused
-				final boolean stopConditionMet = dead
-						|| Cast.asBool(agent.getScope(), agent.getScope().evaluate(stopCondition, agent).getValue());
-				final boolean mustStop = stopConditionMet || agent.dead();
-				// AD -- removed because it would prevent simulations from running if 'do pause' was called in the
-				// experiment
-				// || agent.getScope().isPaused();
-				if (mustStop) {
-					pop.unscheduleSimulation(agent);
-					// pop.remove(agent);
-					IMap<String, Object> localRes = manageOutputAndCloseSimulation(agent, ps, false, simDispose);
-
-					if (!res.containsKey(ps)) { res.put(ps, GamaMapFactory.create()); }
-					for (String output : localRes.keySet()) {
-						if (!res.get(ps).containsKey(output)) { res.get(ps).put(output, GamaListFactory.create()); }
-						res.get(ps).get(output).add(localRes.get(output));
-					}
-
-					if (!sims.isEmpty()) { createSimulation(sims.remove(0), simToParameter); }
-
-				}
+		final List<Map<String, Object>> deferred = new ArrayList<>();
+		runSimulations(pop, sims, numberOfCores, res, deferred);
+		// The simulations run by other processes are waited for, or run here if these processes have stopped or if
+		// none of them has finished for too long
+		long deadline = System.currentTimeMillis() + ExplorationJournal.WAIT;
+		int waiting = deferred.size();
+		while (!deferred.isEmpty() && !dead) {
+			THREADS.WAIT(1000);
+			if (deferred.size() < waiting) {
+				waiting = deferred.size();
+				deadline = System.currentTimeMillis() + ExplorationJournal.WAIT;
+			} else if (System.currentTimeMillis() > deadline) {
+				for (final Map<String, Object> sim : deferred) { sim.put("takeOver", true); }
 			}
-			// We then verify that the front scheduler has not been paused
-			while (getSpecies().getController().isPaused() && !dead) { THREADS.WAIT(100); }
+			sims.addAll(deferred);
+			deferred.clear();
+			runSimulations(pop, sims, numberOfCores, res, deferred);
 		}
 
 		// When the simulations are finished, we give a chance to the outputs of
@@ -393,10 +523,18 @@ public class BatchAgent extends ExperimentAgent {
 							: fit.average().getAsDouble();
 				}
 				res.get(p).put(IKeyword.FITNESS, Arrays.asList(lastFitness));
+				getFitnessCache().put(getScope(), p, getSeeds(), lastFitness, res.get(p));
 				// we update the best solution found so far
 				oAlgo.updateBestFitness(lastSolution, lastFitness);
 
 			}
+			for (Map.Entry<ParametersSet, Double> entry : cached.entrySet()) {
+				lastSolution = entry.getKey();
+				lastFitness = entry.getValue();
+				res.put(lastSolution, getFitnessCache().getOutputs(getScope(), lastSolution, getSeeds()));
+				res.get(lastSolution).put(IKeyword.FITNESS, Arrays.asList(lastFitness));
+				oAlgo.updateBestFitness(lastSolution, lastFitness);
+			}
 		}
 
 		// At last, we update the parameters (last fitness and best fitness)
@@ -405,6 +543,239 @@ public class BatchAgent extends ExperimentAgent {
 
 	}
 
+	/**
+	 * Runs the simulations, independently of each other or together depending on the preferences.
+	 *
+	 * @param pop
+	 *            the population of simulations
+	 * @param sims
+	 *            the parameters, seeds and keys of the simulations to run
+	 * @param numberOfCores
+	 *            the max. number of simulations to run at the same time
+	 * @param res
+	 *            the results of the simulations for each set of parameters
+	 * @param deferred
+	 *            the simulations run by other processes
+	 */
+	private void runSimulations(final SimulationPopulation pop, final List<Map<String, Object>> sims,
+			final int numberOfCores, final IMap<ParametersSet, Map<String, List<Object>>> res,
+			final List<Map<String, Object>> deferred) {
+		if (GamaExecutorService.CONCURRENCY_BATCH_ASYNCHRONOUS.getValue()) {
+			runIndependently(pop, sims, numberOfCores, res, deferred);
+		} else {
+			runTogether(pop, sims, numberOfCores, res, deferred);
+		}
+	}
+
+	/**
+	 * Runs the simulations by stepping them all together: the ones that have met their stop condition after a step are
+	 * replaced by new ones before the next step.
+	 *
+	 * @param pop
+	 *            the population of simulations
+	 * @param sims
+	 *            the parameters and seeds of the simulations to run
+	 * @param numberOfCores
+	 *            the max. number of simulations to run at the same time
+	 * @param res
+	 *            the results of the simulations for each set of parameters
+	 * @param deferred
+	 *            the simulations run by other processes
+	 */
+	private void runTogether(final SimulationPopulation pop, final List<Map<String, Object>> sims,
+			final int numberOfCores, final IMap<ParametersSet, Map<String, List<Object>>> res,
+			final List<Map<String, Object>> deferred) {
+		Map<IAgent, ParametersSet> simToParameter = GamaMapFactory.create();
+		for (int i = 0; i < numberOfCores; i++) {
+			if (createNextSimulation(sims, simToParameter, res, deferred) == null) { break; }
+		}
+
+		while (pop.hasScheduledSimulations() && !dead) {
+			// We step all the simulations
+			pop.step(getScope());
+			for (final IScopedStepable st : new ArrayList<>(pop.getActiveStepables())) {
+				final SimulationAgent agent = (SimulationAgent) st;
+				ParametersSet ps = simToParameter.get(agent);
+				currentSolution = new ParametersSet(ps);
+
+				// test the condition first in case it is paused
+				final boolean stopConditionMet = dead
+						|| Cast.asBool(agent.getScope(), agent.getScope().evaluate(stopCondition, agent).getValue());
+				final boolean mustStop = stopConditionMet || agent.dead();
+				// AD -- removed because it would prevent simulations from running if 'do pause' was called in the
+				// experiment
+				// || agent.getScope().isPaused();
+				if (mustStop) {
+					pop.unscheduleSimulation(agent);
+					// pop.remove(agent);
+					addResults(res, ps, closeSimulation(agent, ps));
+
+					createNextSimulation(sims, simToParameter, res, deferred);
+
+				}
+			}
+			// We then verify that the front scheduler has not been paused
+			while (getSpecies().getController().isPaused() && !dead) { THREADS.WAIT(100); }
+		}
+	}
+
+	/**
+	 * Runs the simulations independently of each other: each of them is stepped until its stop condition by one of the
+	 * threads of the simulation population, and is replaced by a new one as soon as it ends, so that a slow simulation
+	 * does not delay the others. Simulations are created, and their outputs retrieved, in this thread, in the order in
+	 * which they end.
+	 *
+	 * @param pop
+	 *            the population of simulations
+	 * @param sims
+	 *            the parameters and seeds of the simulations to run
+	 * @param numberOfCores
+	 *            the max. number of simulations to run at the same time
+	 * @param res
+	 *            the results of the simulations for each set of parameters
+	 * @param deferred
+	 *            the simulations run by other processes
+	 */
+	private void runIndependently(final SimulationPopulation pop, final List<Map<String, Object>> sims,
+			final int numberOfCores, final IMap<ParametersSet, Map<String, List<Object>>> res,
+			final List<Map<String, Object>> deferred) {
+		final CompletionService<SimulationAgent> completion = pop.newCompletionService();
+		final Map<IAgent, ParametersSet> simToParameter = new HashMap<>();
+		final int total = sims.size();
+		final long start = System.nanoTime();
+		final long previousTime = replicasTime;
+		replicasCores = numberOfCores;
+		final AtomicBoolean aborted = new AtomicBoolean();
+		int running = 0;
+		int finished = 0;
+		String suffix = "";
+		for (; running < numberOfCores && !dead; running++) {
+			final SimulationAgent agent = createNextSimulation(sims, simToParameter, res, deferred);
+			if (agent == null) { break; }
+			runUntilStop(pop, completion, agent, aborted);
+		}
+		while (running > 0) {
+			final SimulationAgent agent;
+			try {
+				agent = completion.take().get();
+			} catch (final InterruptedException e) {
+				// The simulations still running stop at their next step
+				aborted.set(true);
+				abandon(completion, running, simToParameter);
+				Thread.currentThread().interrupt();
+				return;
+			} catch (final ExecutionException e) {
+				aborted.set(true);
+				abandon(completion, running - 1, simToParameter);
+				throw GamaRuntimeException.create(e.getCause(), getScope());
+			}
+			running--;
+			finished++;
+			replicas++;
+			replicasTime = previousTime + System.nanoTime() - start;
+			final ParametersSet ps = simToParameter.remove(agent);
+			currentSolution = new ParametersSet(ps);
+			addResults(res, ps, closeSimulation(agent, ps));
+			final SimulationAgent next = dead ? null : createNextSimulation(sims, simToParameter, res, deferred);
+			if (next != null) {
+				runUntilStop(pop, completion, next, aborted);
+				running++;
+			}
+			if (!dead) {
+				getScope().getGui().getStatus().setStatus(getScope(),
+						"Run " + runNumber + " | " + finished + "/" + total + " simulations." + throughput(),
+						"overlays/small.exp.batch.white" + suffix);
+			}
+			suffix = suffix.isEmpty() ? "2" : "";
+		}
+	}
+
+	/**
+	 * Waits for the simulations still running to stop, once they have been asked to, and disposes of them without
+	 * retrieving their outputs. The errors of the ones that fail meanwhile are reported, as only the first one is
+	 * rethrown.
+	 *
+	 * @param completion
+	 *            the completion service
+	 * @param running
+	 *            the number of simulations still running
+	 * @param simToParameter
+	 *            the parameters of the simulations created
+	 */
+	private void abandon(final CompletionService<SimulationAgent> completion, final int running,
+			final Map<IAgent, ParametersSet> simToParameter) {
+		for (int i = 0; i < running; i++) {
+			try {
+				final SimulationAgent agent = completion.take().get();
+				simToParameter.remove(agent);
+				journalKeys.remove(agent);
+				if (!agent.dead()) { agent.primDie(agent.getScope()); }
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			} catch (final ExecutionException e) {
+				GamaExecutorService.EXCEPTION_HANDLER.uncaughtException(Thread.currentThread(), e.getCause());
+			}
+		}
+	}
+
+	/**
+	 * Submits a task that steps the simulation until its stop condition is met, it dies, or the batch is killed or
+	 * aborted, and returns it. If the simulation fails, the other simulations are asked to stop and the error is
+	 * rethrown, to be reported once by {@link #runIndependently}, so that the batch stops.
+	 *
+	 * @param pop
+	 *            the population of simulations
+	 * @param completion
+	 *            the completion service
+	 * @param agent
+	 *            the simulation
+	 * @param aborted
+	 *            set when the other simulations must stop
+	 */
+	private void runUntilStop(final SimulationPopulation pop, final CompletionService<SimulationAgent> completion,
+			final SimulationAgent agent, final AtomicBoolean aborted) {
+		// The simulation is stepped by the task, not by the population
+		pop.unscheduleSimulation(agent);
+		completion.submit(() -> {
+			try {
+				boolean mustStop = dead || aborted.get() || agent.dead();
+				while (!mustStop) {
+					// We verify that the front scheduler has not been paused
+					while (getSpecies().getController().isPaused() && !dead && !aborted.get()) { THREADS.WAIT(100); }
+					final long start = System.nanoTime();
+					agent.step();
+					mustStop = dead || aborted.get() || agent.dead()
+							|| Cast.asBool(agent.getScope(), agent.getScope().evaluate(stopCondition, agent).getValue());
+					replicasBusyTime.addAndGet(System.nanoTime() - start);
+				}
+			} catch (final Exception | Error e) {
+				aborted.set(true);
+				throw e;
+			}
+			return agent;
+		});
+	}
+
+	/**
+	 * Adds the outputs of a simulation to the results of its set of parameters.
+	 *
+	 * @param res
+	 *            the results of the simulations for each set of parameters
+	 * @param ps
+	 *            the set of parameters of the simulation
+	 * @param localRes
+	 *            the outputs of the simulation
+	 */
+	private void addResults(final IMap<ParametersSet, Map<String, List<Object>>> res, final ParametersSet ps,
+			final IMap<String, Object> localRes) {
+		if (!res.containsKey(ps)) { res.put(ps, GamaMapFactory.create()); }
+		for (String output : localRes.keySet()) {
+			if (!res.get(ps).containsKey(output)) { res.get(ps).put(output, GamaListFactory.create()); }
+			res.get(ps).get(output).add(localRes.get(output));
+		}
+	}
+
 	/**
 	 * Launch simulations with solution.
 	 *
@@ -416,12 +787,8 @@ public class BatchAgent extends ExperimentAgent {
 	 */
 	public Map<String, List<Object>> launchSimulationsWithSolution(final ParametersSet sol)
 			throws GamaRuntimeException {
-		// We first reset the currentSolution and the fitness values
-		final SimulationPopulation pop = getSimulationPopulation();
-		Map<String, List<Object>> outputs = GamaMapFactory.create();
-
-		if (pop == null) return outputs;
-
+		final Map<String, List<Object>> outputs = GamaMapFactory.create();
+		if (getSimulationPopulation() == null) return outputs;
 		currentSolution = new ParametersSet(sol);
 		fitnessValues.clear();
 		// The values present in the solution are passed to the parameters of
@@ -430,99 +797,17 @@ public class BatchAgent extends ExperimentAgent {
 			final IParameter p = getSpecies().getExplorableParameters().get(entry.getKey());
 			if (p != null) { p.setValue(getScope(), entry.getValue()); }
 		}
-
 		// We update the parameters (parameter to explore)
 		getScope().getGui().updateParameters();
-
-		// We then create a number of simulations with the same solution
-
-		int numberOfCores = pop.getMaxNumberOfConcurrentSimulations();
-		if (numberOfCores == 0) { numberOfCores = 1; }
-		int repeatIndex = 0;
-		while (repeatIndex < getSeeds().length && !dead) {
-			for (int coreIndex = 0; coreIndex < numberOfCores; coreIndex++) {
-				runNumber = runNumber + 1;
-
-				setSeed(getSeeds()[repeatIndex]);
-				createSimulation(currentSolution, true);
-				repeatIndex++;
-				if (repeatIndex == getSeeds().length || dead) { break; }
-			}
-			String suffix = "";
-			while (pop.hasScheduledSimulations() && !dead) {
-				// We step all the simulations
-				pop.step(getScope());
-				// String cycles = "";
-				// We evaluate their stopCondition and unschedule the ones who
-				// return true
-				for (final IAgent sim : pop.toArray()) {
-					final SimulationAgent agent = (SimulationAgent) sim;
-					// cycles += " " + simulation.getClock().getCycle();
-					// test the condition first in case it is paused
-					final boolean stopConditionMet =
-							dead || Cast.asBool(sim.getScope(), sim.getScope().evaluate(stopCondition, sim).getValue());
-					final boolean mustStop = stopConditionMet || agent.dead();
-					// AD -- removed because it would prevent simulations from running if 'do pause' was called in the
-					// experiment
-					// || agent.getScope().isPaused();
-					if (mustStop) {
-						pop.unscheduleSimulation(agent);
-						Map<String, Object> out =
-								manageOutputAndCloseSimulation(agent, currentSolution, true, simDispose);
-						for (String out_vars : out.keySet()) {
-							if (!outputs.containsKey(out_vars)) { outputs.put(out_vars, GamaListFactory.create()); }
-							outputs.get(out_vars).add(out.get(out_vars));
-						}
-					}
-				}
-				// We inform the status line
-				if (!dead) {
-					getScope().getGui().getStatus().setStatus(getScope(),
-							"Run " + runNumber + " | " + repeatIndex + "/" + seeds.length + " simulations (using "
-									+ pop.getNumberOfActiveThreads() + " threads)",
-							"overlays/small.exp.batch.white" + suffix);
-				}
-				suffix = suffix == "" ? "2" : "";
-				// We then verify that the front scheduler has not been paused
-				while (getSpecies().getController().isPaused() && !dead) { THREADS.WAIT(10); }
-			}
-
-		}
-
-		// When the simulations are finished, we give a chance to the outputs of
-		// the experiment and the experiment
-		// agent itself to "step" once, effectively emulating what the front
-		// scheduler should do. The simulations are
-		// still "alive" at this stage (even if they are not scheduled anymore),
-		// which allows to retrieve information from them
-		super.step(getScope());
-
-		// If the agent is dead, we return immediately
-		if (dead) return outputs;
-		// We reset the experiment agent to erase traces of the current
-		// simulations if any
-		this.reset();
-
-		if (getSpecies().getExplorationAlgorithm().isFitnessBased()) {
-			// We then return the combination (average, min or max) of the different
-			// fitness values computed by the
-			// different simulation.
-			AOptimizationAlgorithm oAlgo = (AOptimizationAlgorithm) getSpecies().getExplorationAlgorithm();
-			final short fitnessCombination = oAlgo.getCombination();
-			lastSolution = currentSolution;
-			lastFitness = fitnessCombination == AOptimizationAlgorithm.C_MAX ? Collections.max(fitnessValues)
-					: fitnessCombination == AOptimizationAlgorithm.C_MIN ? Collections.min(fitnessValues)
-					: Statistics.calculateMean(fitnessValues);
-			outputs.put(IKeyword.FITNESS, GamaListFactory.createWithoutCasting(Types.FLOAT, lastFitness));
-			// we update the best solution found so far
-			oAlgo.updateBestFitness(lastSolution, lastFitness);
+		// The replications are run like the simulations of several solutions, independently of each other if
+		// 'pref_parallel_batch_asynchronous' is true, and their fitness is cached or their outputs journaled. As
+		// before, the fitness of each replication is kept in the fitness values
+		memorizeFitness = true;
+		try {
+			return launchSimulationsWithSolution(Collections.singletonList(sol)).getOrDefault(sol, outputs);
+		} finally {
+			memorizeFitness = false;
 		}
-
-		// At last, we update the parameters (last fitness and best fitness)
-		getScope().getGui().updateParameters();
-
-		return outputs;
-
 	}
 
 	/**
@@ -152,6 +152,11 @@ import msi.gaml.variables.IVariable;
 						type = { IType.BOOL, IType.INT },
 						optional = true,
 						doc = @doc ("When set to true, use multiple threads to run its simulations. Setting it to n will set the numbers of threads to use")),
+				@facet (
+						name = IKeyword.VIRTUAL_THREADS,
+						type = IType.BOOL,
+						optional = true,
+						doc = @doc ("When set to true, run the simulations of this experiment, and the agents scheduled in parallel, each in its own virtual thread (or in the usual pools of threads if the Java runtime does not support virtual threads). Suited to models whose agents block on network or file I/O. False by default (see also the 'pref_parallel_virtual_threads' preference)")),
 				@facet (
 						name = IKeyword.TYPE,
 						type = IType.LABEL,
@@ -372,6 +377,9 @@ public class ExperimentPlan extends GamlSpecies implements IExperimentPlan {
 	/** The benchmarkable. */
 	private final boolean benchmarkable;
 
+	/** Whether virtual threads are used. */
+	private final boolean virtualThreads;
+
 	/** The should record. */
 	private final IExpression shouldRecord;
 
@@ -495,6 +503,8 @@ public class ExperimentPlan extends GamlSpecies implements IExperimentPlan {
 		}
 		final IExpression bm = getFacet(IKeyword.BENCHMARK);
 		benchmarkable = bm != null && Cast.asBool(myScope, bm.value(myScope));
+		final IExpression vt = getFacet(IKeyword.VIRTUAL_THREADS);
+		virtualThreads = vt != null && Cast.asBool(myScope, vt.value(myScope));
 		shouldRecord = getFacet(IKeyword.RECORD);
 		stopCondition = getFacet(IKeyword.UNTIL);
 	}
@@ -1111,6 +1121,11 @@ public class ExperimentPlan extends GamlSpecies implements IExperimentPlan {
 		return benchmarkable;
 	}
 
+	@Override
+	public boolean usesVirtualThreads() {
+		return virtualThreads;
+	}
+
 	@Override
 	public List<IExperimentDisplayable> getDisplayables() { return displayables; }
 
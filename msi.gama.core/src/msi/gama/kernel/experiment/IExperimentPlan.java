@@ -274,6 +274,13 @@ public interface IExperimentPlan extends ISpecies {
 	 */
 	boolean shouldBeBenchmarked();
 
+	/**
+	 * Whether the simulations and the agents run in parallel use virtual threads.
+	 *
+	 * @return true, if successful
+	 */
+	boolean usesVirtualThreads();
+
 	/**
 	 * Gets the displayables.
 	 *
@@ -12,7 +12,9 @@ package msi.gama.kernel.experiment;
 
 import java.util.Collection;
 import java.util.Map;
+import java.util.TreeMap;
 
+import msi.gama.common.util.StringUtils;
 import msi.gama.runtime.IScope;
 import msi.gama.runtime.exceptions.GamaRuntimeException;
 import msi.gama.util.GamaMap;
@@ -96,4 +98,18 @@ public class ParametersSet extends GamaMap<String, Object> {
 		return super.put(s, o);
 	}
 
+	/**
+	 * A canonical form of this parameter set, used to identify it in caches and journals: the values of the
+	 * parameters, sorted by name and serialized in GAML, on one line.
+	 *
+	 * @return the string
+	 */
+	public String toCanonicalString() {
+		final StringBuilder sb = new StringBuilder();
+		for (final Map.Entry<String, Object> entry : new TreeMap<>(this).entrySet()) {
+			sb.append(entry.getKey()).append('=').append(StringUtils.toGaml(entry.getValue(), false)).append(';');
+		}
+		return sb.toString().replace('\n', ' ').replace('\r', ' ');
+	}
+
 }
@@ -22,6 +22,7 @@ import org.osgi.framework.FrameworkUtil;
 import msi.gama.common.interfaces.IKeyword;
 import msi.gama.common.preferences.GamaPreferences;
 import msi.gama.common.preferences.Pref;
+import msi.gama.common.util.PoolUtils;
 import msi.gama.common.util.RandomUtils;
 import msi.gama.kernel.experiment.IExperimentAgent;
 import msi.gama.kernel.experiment.ITopLevelAgent;
@@ -51,6 +52,7 @@ import msi.gama.runtime.server.GamaWebSocketServer;
 import msi.gama.util.GamaColor;
 import msi.gama.util.GamaMapFactory;
 import msi.gama.util.IList;
+import msi.gama.util.IMap;
 import msi.gama.util.file.json.Json;
 import msi.gaml.compilation.kernel.GamaMetaModel;
 import msi.gaml.expressions.IExpression;
@@ -115,6 +117,15 @@ import ummisco.gama.dev.utils.DEBUG;
 				constant = false,
 				doc = @doc (
 						value = "Returns the maximum amount of memory available to GAMA in bytes")),
+		@variable (
+				name = "pool_statistics",
+				type = IType.MAP,
+				index = IType.STRING,
+				of = IType.MAP,
+				constant = false,
+				doc = @doc (
+						value = "Returns, for each pool of objects reused by GAMA (by name), a map of the number of objects 'asked', 'created', 'released' and 'dropped', of the 'hit_rate' (in %), and of the number of full 'magazines' kept in its depot and of 'loose' objects released by virtual threads",
+						see = { "pref_use_pooling" })),
 		@variable (
 				name = "workspace",
 				type = IType.FILE,
@@ -378,6 +389,16 @@ public class PlatformAgent extends GamlAgent implements ITopLevelAgent, IExpress
 			initializer = true)
 	public long getMaxMemory() { return Runtime.getRuntime().maxMemory(); }
 
+	/**
+	 * Gets the statistics of the pools of objects.
+	 *
+	 * @return the pool statistics
+	 */
+	@getter (
+			value = "pool_statistics",
+			initializer = true)
+	public IMap<String, IMap<String, Object>> getPoolStatistics() { return PoolUtils.getStatistics(); }
+
 	/**
 	 * Gets the machine time.
 	 *
@@ -403,6 +403,7 @@ public class SimulationAgent extends GamlAgent implements ITopLevelAgent {
 	@Override
 	protected boolean preStep(final IScope scope) {
 		ownClock.beginCycle();
+		random.startCycle(ownClock.getCycle());
 		executer.executeBeginActions();
 		return super.preStep(scope);
 	}
@@ -15,6 +15,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletionService;
 
 import msi.gama.common.interfaces.IKeyword;
 import msi.gama.common.interfaces.IScopedStepable;
@@ -245,6 +246,18 @@ public class SimulationPopulation extends GamaPopulation<SimulationAgent> {
 		runner.remove(sim);
 	}
 
+	/**
+	 * Returns a completion service running its tasks on the threads used to run the simulations (see
+	 * {@link SimulationRunner#newCompletionService()}).
+	 *
+	 * @param <T>
+	 *            the type of the results of the tasks
+	 * @return the completion service
+	 */
+	public <T> CompletionService<T> newCompletionService() {
+		return runner.newCompletionService();
+	}
+
 	/**
 	 * Gets the number of active stepables.
 	 *
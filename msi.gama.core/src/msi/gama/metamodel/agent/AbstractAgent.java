@@ -10,6 +10,7 @@
  ********************************************************************************************************/
 package msi.gama.metamodel.agent;
 
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -19,6 +20,7 @@ import com.google.common.primitives.Ints;
 import msi.gama.common.interfaces.IKeyword;
 import msi.gama.kernel.model.IModel;
 import msi.gama.kernel.simulation.SimulationAgent;
+import msi.gama.metamodel.population.AttributeColumns;
 import msi.gama.metamodel.population.IPopulation;
 import msi.gama.metamodel.shape.GamaPoint;
 import msi.gama.metamodel.shape.IShape;
@@ -32,8 +34,10 @@ import msi.gama.runtime.exceptions.GamaRuntimeException;
 import msi.gama.util.GamaListFactory;
 import msi.gama.util.GamaMapFactory;
 import msi.gama.util.IList;
+import msi.gama.util.BiConsumerWithPruning;
 import msi.gama.util.IMap;
 import msi.gaml.descriptions.ModelDescription;
+import msi.gaml.interfaces.IAttributed;
 import msi.gaml.operators.Cast;
 import msi.gaml.species.ISpecies;
 import msi.gaml.types.IType;
@@ -80,6 +84,9 @@ public abstract class AbstractAgent implements IAgent {
 	/** The attributes. */
 	protected IMap<String, Object> attributes;
 
+	/** The slot of the agent in the columns of its population, or -1. */
+	private int columnSlot = -1;
+
 	/**
 	 * Instantiates a new abstract agent.
 	 *
@@ -199,6 +206,100 @@ public abstract class AbstractAgent implements IAgent {
 		return attributes;
 	}
 
+	@Override
+	public int getColumnSlot() { return columnSlot; }
+
+	@Override
+	public void setColumnSlot(final int slot) { columnSlot = slot; }
+
+	/**
+	 * The columns in which some attributes of this agent are stored, if any.
+	 *
+	 * @return the columns or null
+	 */
+	private AttributeColumns columns() {
+		if (columnSlot < 0) return null;
+		final IPopulation<? extends IAgent> pop = getPopulation();
+		return pop == null ? null : pop.getColumns();
+	}
+
+	/**
+	 * The column in which this attribute is stored, if the population of the agent stores some attributes in columns.
+	 *
+	 * @param key
+	 *            the key
+	 * @return the column or null
+	 */
+	private AttributeColumns.Column<?> columnOf(final String key) {
+		final AttributeColumns columns = columns();
+		return columns == null ? null : columns.columnOf(key);
+	}
+
+	@Override
+	public Object getAttribute(final String key) {
+		final AttributeColumns.Column<?> column = columnOf(key);
+		if (column != null) return column.get(columnSlot);
+		return IAgent.super.getAttribute(key);
+	}
+
+	@Override
+	public void setAttribute(final String key, final Object value) {
+		final AttributeColumns.Column<?> column = columnOf(key);
+		if (column != null) {
+			column.set(columnSlot, value);
+		} else {
+			IAgent.super.setAttribute(key, value);
+		}
+	}
+
+	@Override
+	public boolean hasAttribute(final String key) {
+		return columnOf(key) != null || IAgent.super.hasAttribute(key);
+	}
+
+	@Override
+	public void forEachAttribute(final BiConsumerWithPruning<String, Object> visitor) {
+		if (visitor == null) return;
+		if (attributes != null) {
+			for (final Entry<String, Object> entry : attributes.entrySet()) {
+				if (!visitor.process(entry.getKey(), entry.getValue())) return;
+			}
+		}
+		final AttributeColumns columns = columns();
+		if (columns == null) return;
+		final Map<String, Object> values = new LinkedHashMap<>();
+		columns.copyTo(this, values);
+		for (final Entry<String, Object> entry : values.entrySet()) {
+			if (!visitor.process(entry.getKey(), entry.getValue())) return;
+		}
+	}
+
+	@Override
+	public void copyAttributesOf(final IAttributed source) {
+		if (source == null) return;
+		source.forEachAttribute((k, v) -> {
+			setAttribute(k, v);
+			return true;
+		});
+	}
+
+	@Override
+	public void setAttributes(final Map<String, Object> attr) {
+		if (attr == null) return;
+		for (final Entry<String, Object> entry : attr.entrySet()) { setAttribute(entry.getKey(), entry.getValue()); }
+	}
+
+	/**
+	 * Returns the attributes of the agent as a map. If some of them are stored in the columns of the population, a view
+	 * including them is returned, whose modifications are written back to the agent.
+	 */
+	@Override
+	public IMap<String, Object> getOrCreateAttributes() {
+		final AttributeColumns columns = columns();
+		if (columns == null) return getAttributes(true);
+		return columns.viewOf(this);
+	}
+
 	/**
 	 * Compare to.
 	 *
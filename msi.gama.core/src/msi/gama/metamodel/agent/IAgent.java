@@ -269,6 +269,22 @@ public interface IAgent extends IShape, INamed, IAttributed, Comparable<IAgent>,
 	@getter (IKeyword.INDEX)
 	int getIndex();
 
+	/**
+	 * Gets the slot of the agent in the columns storing the attributes of its population, if any (see
+	 * {@link msi.gama.metamodel.population.AttributeColumns}).
+	 *
+	 * @return the slot, or -1 if the attributes of the agent are not stored in columns
+	 */
+	default int getColumnSlot() { return -1; }
+
+	/**
+	 * Sets the slot of the agent in the columns storing the attributes of its population.
+	 *
+	 * @param slot
+	 *            the slot, or -1
+	 */
+	default void setColumnSlot(final int slot) {}
+
 	/**
 	 * Gets the species name.
 	 *
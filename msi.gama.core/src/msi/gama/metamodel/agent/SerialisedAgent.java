@@ -156,6 +156,8 @@ public record SerialisedAgent(int index, String species, Map<String, Object> att
 			}
 			map.put(k, v);
 		}
+		final IPopulation<? extends IAgent> pop = agent.getPopulation();
+		if (pop != null && pop.getColumns() != null) { pop.getColumns().copyTo(agent, map); }
 		boolean isSim = agent instanceof SimulationAgent;
 		if (isSim) {
 			SimulationAgent sim = (SimulationAgent) agent;
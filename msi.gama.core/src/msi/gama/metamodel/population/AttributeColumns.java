@@ -0,0 +1,613 @@
+/*******************************************************************************************************
+ *
+ * AttributeColumns.java, in msi.gama.core, is part of the source code of the GAMA modeling and simulation platform
+ * (v.1.9.3).
+ *
+ * (c) 2007-2024 UMI 209 UMMISCO IRD/SU & Partners (IRIT, MIAT, TLU, CTU)
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package msi.gama.metamodel.population;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import msi.gama.metamodel.agent.IAgent;
+import msi.gama.util.GamaMap;
+import msi.gaml.types.IType;
+import msi.gaml.types.Types;
+import msi.gaml.variables.IVariable;
+import msi.gaml.variables.Variable;
+
+/**
+ * The columnar storage of the attributes of the agents of a population (see the 'pref_columnar_attributes'
+ * preference). The values of the declared int, float and bool attributes of the agents are not kept in the attributes
+ * of each agent, but in primitive arrays (one per attribute), indexed by the slot of the agents (see
+ * {@link IAgent#getColumnSlot()}). Each column also records which values are nil. The position of each attribute (its
+ * column) is assigned when the species is compiled and kept by the variable (see {@link Variable#getColumn()}), so
+ * that accessing a value does not involve any lookup by name. Points, which are mutable, are kept in the attributes.
+ *
+ * Slots are allocated when the agents are created and released when they are removed from the population: their
+ * values are then moved to the attributes of the agent, and the slot is reused by the next agent created, so that the
+ * columns do not grow with the number of agents ever created but with the max. number of agents alive at once.
+ *
+ * The arrays are divided in chunks of fixed size that are never moved once allocated, so that the values written by
+ * agents running in parallel are not lost when the columns grow to accommodate new agents.
+ */
+public class AttributeColumns {
+
+	/** The number of bits of the size of the chunks. */
+	static final int CHUNK_BITS = 12;
+
+	/** The size of the chunks. */
+	static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+
+	/** The mask giving the position of an index in its chunk. */
+	static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+	/** The columns. */
+	final Column<?>[] columns;
+
+	/** The columns, by name of the attribute. */
+	final Map<String, Column<?>> byName = new HashMap<>();
+
+	/** The slots released by the agents removed from the population, to be reused. Guarded by this. */
+	int[] freeSlots = new int[16];
+
+	/** The number of free slots. Guarded by this. */
+	int freeCount;
+
+	/** The next slot never allocated. Guarded by this. */
+	int nextSlot;
+
+	/**
+	 * The reductions that can be computed directly on the columns.
+	 */
+	public enum Reduction {
+		/** The sum. */
+		SUM,
+		/** The min. */
+		MIN,
+		/** The max. */
+		MAX,
+		/** The mean. */
+		MEAN
+	}
+
+	/**
+	 * Assigns their column to the variables of a species that can be stored in columns, when the species is compiled.
+	 * As variables are shared by all the populations of the species, this assignment does not depend on the
+	 * population.
+	 *
+	 * @param vars
+	 *            the variables of the species
+	 */
+	public static void assignColumns(final Iterable<IVariable> vars) {
+		int count = 0;
+		for (final IVariable var : vars) {
+			if (var instanceof Variable v) { v.setColumn(v.canBeStoredInColumn() ? count++ : -1); }
+		}
+	}
+
+	/**
+	 * Creates the columns of a population, each at the position assigned to its variable, or returns null if none of
+	 * its variables can be stored in a column.
+	 *
+	 * @param vars
+	 *            the variables of the species
+	 * @return the attribute columns or null
+	 */
+	public static AttributeColumns create(final IVariable[] vars) {
+		int count = 0;
+		for (final IVariable var : vars) {
+			if (var instanceof Variable v) { count = Math.max(count, v.getColumn() + 1); }
+		}
+		if (count == 0) return null;
+		final Column<?>[] columns = new Column<?>[count];
+		for (final IVariable var : vars) {
+			if (var instanceof Variable v && v.getColumn() >= 0) {
+				columns[v.getColumn()] = switch (v.getType().id()) {
+					case IType.INT -> new IntColumn(v);
+					case IType.FLOAT -> new FloatColumn(v);
+					default -> new BoolColumn(v);
+				};
+			}
+		}
+		// Should not happen: the variables of the population are the ones of the species
+		for (final Column<?> c : columns) { if (c == null) return null; }
+		return new AttributeColumns(columns);
+	}
+
+	/**
+	 * Instantiates new attribute columns.
+	 *
+	 * @param columns
+	 *            the columns
+	 */
+	AttributeColumns(final Column<?>[] columns) {
+		this.columns = columns;
+		for (final Column<?> c : columns) { byName.put(c.name, c); }
+	}
+
+	/**
+	 * The column at the position assigned to a variable (see {@link Variable#getColumn()}).
+	 *
+	 * @param column
+	 *            the position of the column
+	 * @return the column
+	 */
+	public Column<?> columnAt(final int column) {
+		return columns[column];
+	}
+
+	/**
+	 * The column of an attribute, or null if it is not stored in a column.
+	 *
+	 * @param name
+	 *            the name
+	 * @return the column or null
+	 */
+	public Column<?> columnOf(final String name) {
+		return byName.get(name);
+	}
+
+	/**
+	 * Adds the values of the attributes of an agent to a map (for instance to serialise the agent).
+	 *
+	 * @param agent
+	 *            the agent
+	 * @param attributes
+	 *            the attributes
+	 */
+	public void copyTo(final IAgent agent, final Map<String, Object> attributes) {
+		final int slot = agent.getColumnSlot();
+		if (slot < 0) return;
+		for (final Column<?> c : columns) { attributes.put(c.name, c.get(slot)); }
+	}
+
+	/**
+	 * Allocates a slot to a new agent, reusing the slot of a removed agent if possible. The values of a reused slot are
+	 * reset to the default values of the types (not to nil).
+	 *
+	 * @param agent
+	 *            the agent
+	 */
+	public void allocate(final IAgent agent) {
+		final int slot;
+		synchronized (this) {
+			slot = freeCount > 0 ? freeSlots[--freeCount] : nextSlot++;
+		}
+		for (final Column<?> c : columns) { c.reset(slot); }
+		agent.setColumnSlot(slot);
+	}
+
+	/**
+	 * Releases the slot of an agent removed from the population. Its values are moved to its attributes, so that they
+	 * remain accessible (e.g. when the agent is captured or released by another one).
+	 *
+	 * @param agent
+	 *            the agent
+	 */
+	public void release(final IAgent agent) {
+		final int slot = agent.getColumnSlot();
+		if (slot < 0) return;
+		final Map<String, Object> attributes = agent.getAttributes(true);
+		if (attributes != null) { copyTo(agent, attributes); }
+		agent.setColumnSlot(-1);
+		synchronized (this) {
+			if (freeCount == freeSlots.length) { freeSlots = Arrays.copyOf(freeSlots, 2 * freeCount); }
+			freeSlots[freeCount++] = slot;
+		}
+	}
+
+	/**
+	 * A view of the attributes of an agent as a map, in which the values stored in the columns are added to the
+	 * attributes of the agent. Its modifications are written back to the agent (and thus to the columns), so that it
+	 * can be used to implement 'agent as map' or the modification of the attributes of an agent as a container.
+	 *
+	 * @param agent
+	 *            the agent
+	 * @return the map
+	 */
+	public GamaMap<String, Object> viewOf(final IAgent agent) {
+		return new AttributesView(agent);
+	}
+
+	/**
+	 * Computes a reduction of the values of an int or float column over some agents of the population, without boxing
+	 * each of them. The agents are visited in order, so that the result is the same as the one obtained by evaluating
+	 * the attribute on each agent.
+	 *
+	 * @param column
+	 *            the column
+	 * @param agents
+	 *            the agents
+	 * @param reduction
+	 *            the reduction
+	 * @return the result, or null if it cannot be computed on the columns (other type of column, agent without slot or
+	 *         with a nil value, min, max or mean of no agent)
+	 */
+	public static Object reduce(final Column<?> column, final IAgent[] agents, final Reduction reduction) {
+		final IntColumn ints = column instanceof IntColumn c ? c : null;
+		final FloatColumn floats = column instanceof FloatColumn c ? c : null;
+		if (ints == null && floats == null) return null;
+		int intSum = 0, n = 0;
+		double sum = 0d, min = Double.POSITIVE_INFINITY, max = Double.NEGATIVE_INFINITY;
+		for (final IAgent a : agents) {
+			if (a == null || a.dead()) { continue; }
+			final int slot = a.getColumnSlot();
+			if (slot < 0 || column.isNil(slot)) return null;
+			final double v;
+			if (ints != null) {
+				final int i = ints.getInt(slot);
+				intSum += i;
+				v = i;
+			} else {
+				v = floats.getDouble(slot);
+			}
+			sum += v;
+			if (v < min) { min = v; }
+			if (v > max) { max = v; }
+			n++;
+		}
+		if (reduction == Reduction.SUM) return ints != null ? (Object) intSum : (Object) sum;
+		if (n == 0) return null;
+		return switch (reduction) {
+			case MIN -> ints != null ? (Object) (int) min : (Object) min;
+			case MAX -> ints != null ? (Object) (int) max : (Object) max;
+			default -> sum / n;
+		};
+	}
+
+	/**
+	 * The view of the attributes of an agent, including the ones stored in columns.
+	 */
+	class AttributesView extends GamaMap<String, Object> {
+
+		/** The serial version UID. */
+		private static final long serialVersionUID = 1L;
+
+		/** The agent. */
+		final IAgent agent;
+
+		/**
+		 * Instantiates a new view.
+		 *
+		 * @param agent
+		 *            the agent
+		 */
+		AttributesView(final IAgent agent) {
+			super(columns.length + 8, Types.STRING, Types.NO_TYPE);
+			this.agent = agent;
+			final Map<String, Object> attributes = agent.getAttributes(false);
+			if (attributes != null) { super.putAll(attributes); }
+			copyTo(agent, this);
+		}
+
+		@Override
+		public Object put(final String key, final Object value) {
+			agent.setAttribute(key, value);
+			return super.put(key, value);
+		}
+
+		@Override
+		public void putAll(final Map<? extends String, ? extends Object> m) {
+			for (final Map.Entry<? extends String, ? extends Object> e : m.entrySet()) { put(e.getKey(), e.getValue()); }
+		}
+
+		@Override
+		public Object remove(final Object key) {
+			if (!(key instanceof String s)) return super.remove(key);
+			final Column<?> c = byName.get(s);
+			if (c != null) {
+				final int slot = agent.getColumnSlot();
+				if (slot >= 0) { c.set(slot, null); }
+			} else {
+				final Map<String, Object> attributes = agent.getAttributes(false);
+				if (attributes != null) { attributes.remove(s); }
+			}
+			return super.remove(key);
+		}
+	}
+
+	/**
+	 * A column. Gives access to the chunk of an index, allocating the missing chunks (and the chunks of flags telling
+	 * which values are nil) if necessary.
+	 *
+	 * @param <A>
+	 *            the type of the chunks (an array of primitives)
+	 */
+	public abstract static class Column<A> {
+
+		/** The variable. */
+		final Variable variable;
+
+		/** The name of the attribute. */
+		final String name;
+
+		/** The chunks. Replaced (but never moved) when the column grows. */
+		volatile A[] chunks;
+
+		/** Whether the values are nil, by chunk. Grows before the chunks, so that it is at least as long. */
+		volatile boolean[][] nils = new boolean[0][];
+
+		/**
+		 * Instantiates a new column.
+		 *
+		 * @param variable
+		 *            the variable
+		 */
+		Column(final Variable variable) {
+			this.variable = variable;
+			this.name = variable.getName();
+			chunks = newChunks(0);
+		}
+
+		/**
+		 * The chunk containing this index.
+		 *
+		 * @param index
+		 *            the index
+		 * @return the chunk
+		 */
+		final A chunk(final int index) {
+			final int c = index >>> CHUNK_BITS;
+			final A[] current = chunks;
+			if (c < current.length && current[c] != null) return current[c];
+			return grow(c);
+		}
+
+		/**
+		 * Makes sure that the chunk exists.
+		 *
+		 * @param c
+		 *            the number of the chunk
+		 * @return the chunk
+		 */
+		private synchronized A grow(final int c) {
+			A[] current = chunks;
+			boolean[][] flags = nils;
+			if (c >= current.length) {
+				final int length = Math.max(c + 1, current.length + (current.length >> 1));
+				current = Arrays.copyOf(current, length);
+				flags = Arrays.copyOf(flags, length);
+			}
+			if (current[c] == null) {
+				current[c] = newChunk();
+				flags[c] = new boolean[CHUNK_SIZE];
+			}
+			nils = flags;
+			chunks = current;
+			return current[c];
+		}
+
+		/**
+		 * Whether the value at this index is nil.
+		 *
+		 * @param index
+		 *            the index
+		 * @return true if it is nil
+		 */
+		public final boolean isNil(final int index) {
+			chunk(index);
+			return nils[index >>> CHUNK_BITS][index & CHUNK_MASK];
+		}
+
+		/**
+		 * Records whether the value at this index is nil. The chunk of the index must exist.
+		 *
+		 * @param index
+		 *            the index
+		 * @param nil
+		 *            whether it is nil
+		 */
+		final void setNil(final int index, final boolean nil) {
+			nils[index >>> CHUNK_BITS][index & CHUNK_MASK] = nil;
+		}
+
+		/**
+		 * A new array of chunks.
+		 *
+		 * @param size
+		 *            the size
+		 * @return the array
+		 */
+		abstract A[] newChunks(int size);
+
+		/**
+		 * A new chunk, initialized with the default value of the type.
+		 *
+		 * @return the chunk
+		 */
+		abstract A newChunk();
+
+		/**
+		 * Gets the value at this index.
+		 *
+		 * @param index
+		 *            the index
+		 * @return the object
+		 */
+		public abstract Object get(int index);
+
+		/**
+		 * Sets the value at this index (nil if the value is null).
+		 *
+		 * @param index
+		 *            the index
+		 * @param value
+		 *            the value
+		 */
+		public abstract void set(int index, Object value);
+
+		/**
+		 * Resets the value at this index to the default value of the type.
+		 *
+		 * @param index
+		 *            the index
+		 */
+		public abstract void reset(int index);
+	}
+
+	/**
+	 * A column of int.
+	 */
+	public static class IntColumn extends Column<int[]> {
+
+		/**
+		 * Instantiates a new int column.
+		 *
+		 * @param variable
+		 *            the variable
+		 */
+		IntColumn(final Variable variable) {
+			super(variable);
+		}
+
+		@Override
+		int[][] newChunks(final int size) {
+			return new int[size][];
+		}
+
+		@Override
+		int[] newChunk() {
+			return new int[CHUNK_SIZE];
+		}
+
+		/**
+		 * Gets the int at this index.
+		 *
+		 * @param index
+		 *            the index
+		 * @return the int
+		 */
+		public int getInt(final int index) {
+			return chunk(index)[index & CHUNK_MASK];
+		}
+
+		@Override
+		public Object get(final int index) {
+			return isNil(index) ? null : getInt(index);
+		}
+
+		@Override
+		public void set(final int index, final Object value) {
+			chunk(index)[index & CHUNK_MASK] = value instanceof Number n ? n.intValue() : 0;
+			setNil(index, value == null);
+		}
+
+		@Override
+		public void reset(final int index) {
+			set(index, 0);
+		}
+	}
+
+	/**
+	 * A column of float.
+	 */
+	public static class FloatColumn extends Column<double[]> {
+
+		/**
+		 * Instantiates a new float column.
+		 *
+		 * @param variable
+		 *            the variable
+		 */
+		FloatColumn(final Variable variable) {
+			super(variable);
+		}
+
+		@Override
+		double[][] newChunks(final int size) {
+			return new double[size][];
+		}
+
+		@Override
+		double[] newChunk() {
+			return new double[CHUNK_SIZE];
+		}
+
+		/**
+		 * Gets the double at this index.
+		 *
+		 * @param index
+		 *            the index
+		 * @return the double
+		 */
+		public double getDouble(final int index) {
+			return chunk(index)[index & CHUNK_MASK];
+		}
+
+		@Override
+		public Object get(final int index) {
+			return isNil(index) ? null : getDouble(index);
+		}
+
+		@Override
+		public void set(final int index, final Object value) {
+			chunk(index)[index & CHUNK_MASK] = value instanceof Number n ? n.doubleValue() : 0d;
+			setNil(index, value == null);
+		}
+
+		@Override
+		public void reset(final int index) {
+			set(index, 0d);
+		}
+	}
+
+	/**
+	 * A column of bool.
+	 */
+	public static class BoolColumn extends Column<boolean[]> {
+
+		/**
+		 * Instantiates a new bool column.
+		 *
+		 * @param variable
+		 *            the variable
+		 */
+		BoolColumn(final Variable variable) {
+			super(variable);
+		}
+
+		@Override
+		boolean[][] newChunks(final int size) {
+			return new boolean[size][];
+		}
+
+		@Override
+		boolean[] newChunk() {
+			return new boolean[CHUNK_SIZE];
+		}
+
+		/**
+		 * Gets the boolean at this index.
+		 *
+		 * @param index
+		 *            the index
+		 * @return the boolean
+		 */
+		public boolean getBoolean(final int index) {
+			return chunk(index)[index & CHUNK_MASK];
+		}
+
+		@Override
+		public Object get(final int index) {
+			return isNil(index) ? null : getBoolean(index);
+		}
+
+		@Override
+		public void set(final int index, final Object value) {
+			chunk(index)[index & CHUNK_MASK] = Boolean.TRUE.equals(value);
+			setNil(index, value == null);
+		}
+
+		@Override
+		public void reset(final int index) {
+			set(index, false);
+		}
+	}
+
+}
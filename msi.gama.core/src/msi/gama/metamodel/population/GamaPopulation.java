@@ -40,11 +40,13 @@ import com.google.common.collect.Iterables;
 import com.google.common.collect.Iterators;
 
 import msi.gama.common.interfaces.IKeyword;
+import msi.gama.common.preferences.GamaPreferences;
 import msi.gama.metamodel.agent.IAgent;
 import msi.gama.metamodel.agent.IMacroAgent;
 import msi.gama.metamodel.shape.GamaPoint;
 import msi.gama.metamodel.shape.GamaShapeFactory;
 import msi.gama.metamodel.shape.IShape;
+import msi.gama.metamodel.topology.ISpatialIndex;
 import msi.gama.metamodel.topology.ITopology;
 import msi.gama.metamodel.topology.continuous.ContinuousTopology;
 import msi.gama.metamodel.topology.filter.IAgentFilter;
@@ -110,9 +112,18 @@ public class GamaPopulation<T extends IAgent> extends GamaList<T> implements IPo
 	/** The current agent index. */
 	protected int currentAgentIndex;
 
+	/** The columns storing the primitive attributes of the agents, if any. */
+	protected final AttributeColumns columns;
+
 	/** The hash code. */
 	private final int hashCode;
 
+	/** The array of the agents stepped at each cycle, only rebuilt when the population has been modified. */
+	private IAgent[] stepArray;
+
+	/** The modification count of the population when the step array was built. */
+	private int stepArrayModCount = -1;
+
 	/** The is step overriden. */
 	private final boolean isInitOverriden, isStepOverriden;
 
@@ -280,6 +291,8 @@ public class GamaPopulation<T extends IAgent> extends GamaList<T> implements IPo
 		orderedVars = orderAttributes(this, ecd, Predicates.alwaysTrue(), INIT_DEPENDENCIES_FACETS);
 		for (IVariable v : orderedVars) { orderedVarNames.add(v.getName()); }
 		updatableVars = orderAttributes(this, ecd, VariableDescription::isUpdatable, UPDATE_DEPENDENCIES_FACETS);
+		columns = GamaPreferences.External.COLUMNAR_ATTRIBUTES.getValue() && !species.getDescription().isModel()
+				&& !species.getDescription().isExperiment() ? AttributeColumns.create(orderedVars) : null;
 		if (species.isMirror() && host != null) {
 			mirrorManagement = new MirrorPopulationManagement(species.getFacet(MIRRORS));
 		} else {
@@ -333,7 +346,12 @@ public class GamaPopulation<T extends IAgent> extends GamaList<T> implements IPo
 		}
 		if (mirrorManagement != null) { mirrorManagement.executeOn(scope); }
 		getSpecies().getArchitecture().preStep(scope, this);
-		return stepAgents(scope);
+		final boolean result = stepAgents(scope);
+		// Applies the moves of the agents that the spatial index may have deferred (see DeferredSpatialIndex)
+		if (topology != null && topology.getSpatialIndex() instanceof ISpatialIndex.Compound index) {
+			index.flush(species);
+		}
+		return result;
 
 	}
 
@@ -348,6 +366,32 @@ public class GamaPopulation<T extends IAgent> extends GamaList<T> implements IPo
 		return GamaExecutorService.step(scope, this, getSpecies());
 	}
 
+	/**
+	 * Returns the agents to step, in the order of the population. The array is reused from one cycle to the other, and
+	 * only rebuilt when agents have been created, removed or reordered since the last call. A new array is then
+	 * allocated, so that the agents stepping an older one are not disturbed. It must not be modified by the callers.
+	 *
+	 * @return the step array
+	 */
+	public IAgent[] getStepArray() {
+		IAgent[] array = stepArray;
+		if (array == null || stepArrayModCount != modCount || array.length != size()) {
+			array = toArray(new IAgent[size()]);
+			stepArray = array;
+			stepArrayModCount = modCount;
+		}
+		return array;
+	}
+
+	/**
+	 * Replacing an agent does not change the modification count of the list: the step array is invalidated explicitly.
+	 */
+	@Override
+	public T set(final int index, final T agent) {
+		stepArray = null;
+		return super.set(index, agent);
+	}
+
 	// @Override
 	// public StreamEx<T> stream(final IScope scope) {
 	// return super.stream(scope);
@@ -491,6 +535,7 @@ public class GamaPopulation<T extends IAgent> extends GamaList<T> implements IPo
 			final T a = constr.createOneAgent(this, currentAgentIndex++);
 			// final int ind = currentAgentIndex++;
 			// a.setIndex(ind);
+			if (columns != null) { columns.allocate(a); }
 			a.setGeometry(geom);
 			list.add(a);
 		}
@@ -539,6 +584,7 @@ public class GamaPopulation<T extends IAgent> extends GamaList<T> implements IPo
 			@SuppressWarnings ("unchecked") final T a = constr.createOneAgent(this, currentAgentIndex++);
 			// final int ind = currentAgentIndex++;
 			// a.setIndex(ind);
+			if (columns != null) { columns.allocate(a); }
 			// Try to grab the location earlier
 			if (initialValues != null && !initialValues.isEmpty()) {
 				final Map<String, Object> init = initialValues.get(i);
@@ -656,6 +702,9 @@ public class GamaPopulation<T extends IAgent> extends GamaList<T> implements IPo
 	@Override
 	public Collection<String> getAspectNames() { return species.getAspectNames(); }
 
+	@Override
+	public AttributeColumns getColumns() { return columns; }
+
 	@Override
 	public IVariable getVar(final String s) {
 		return species.getVar(s);
@@ -761,6 +810,7 @@ public class GamaPopulation<T extends IAgent> extends GamaList<T> implements IPo
 	@Override
 	public void removeValue(final IScope scope, final Object value) {
 		if (value instanceof IAgent && super.remove(value)) {
+			if (columns != null) { columns.release((IAgent) value); }
 			if (topology != null) { topology.removeAgent((IAgent) value); }
 			fireAgentRemoved(scope, (IAgent) value);
 		}
@@ -307,6 +307,13 @@ public interface IPopulation<T extends IAgent>
 	 */
 	IVariable getVar(final String s);
 
+	/**
+	 * Gets the columns in which the values of some attributes of the agents are stored, if any.
+	 *
+	 * @return the columns or null
+	 */
+	default AttributeColumns getColumns() { return null; }
+
 	/**
 	 * Checks for updatable variables.
 	 *
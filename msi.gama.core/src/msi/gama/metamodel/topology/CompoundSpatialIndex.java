@@ -34,6 +34,7 @@ import msi.gama.metamodel.topology.grid.GridPopulation;
 import msi.gama.runtime.IScope;
 import msi.gama.util.Collector;
 import msi.gama.util.ICollector;
+import msi.gaml.expressions.IExpression;
 import msi.gaml.species.ISpecies;
 
 /**
@@ -97,6 +98,17 @@ public class CompoundSpatialIndex implements ISpatialIndex.Compound {
 		if (index != null) { index.remove(previous, agent); }
 	}
 
+	@Override
+	public void relocate(final Envelope3D previous, final IAgent agent) {
+		if (disposed || agent == null) return;
+		ISpatialIndex index = spatialIndexes.getOrDefault(agent.getSpecies(), null);
+		if (index == null) {
+			insert(agent);
+		} else {
+			index.relocate(previous, agent);
+		}
+	}
+
 	@Override
 	public IAgent firstAtDistance(final IScope scope, final IShape source, final double dist, final IAgentFilter f) {
 		if (disposed) return null;
@@ -237,6 +249,8 @@ public class CompoundSpatialIndex implements ISpatialIndex.Compound {
 		if (index == null) {
 			if (pop.isGrid()) {
 				index = ((GridPopulation) pop).getTopology().getPlaces();
+			} else if (usesHashedGrid(spec)) {
+				index = HashedGridIndex.create(bounds, parallel);
 			} else {
 				index = GamaQuadTree.create(bounds, parallel);
 			}
@@ -246,6 +260,18 @@ public class CompoundSpatialIndex implements ISpatialIndex.Compound {
 		return index;
 	}
 
+	/**
+	 * Whether the species asks for its agents to be indexed in a hashed grid ('spatial_index: grid')
+	 *
+	 * @param species
+	 *            the species
+	 * @return true, if successful
+	 */
+	private boolean usesHashedGrid(final ISpecies species) {
+		final IExpression kind = species.getFacet(IKeyword.SPATIAL_INDEX);
+		return kind != null && IKeyword.GRID.equals(kind.literalValue());
+	}
+
 	/**
 	 * Verifies that all the populations covered by the filter have been added to the index and returns the list of
 	 * corresponding i
@@ -282,6 +308,13 @@ public class CompoundSpatialIndex implements ISpatialIndex.Compound {
 		spatialIndexes.remove(species);
 	}
 
+	@Override
+	public void flush(final ISpecies species) {
+		if (disposed || species == null) return;
+		final ISpatialIndex index = spatialIndexes.getOrDefault(species, null);
+		if (index != null) { index.flush(); }
+	}
+
 	@Override
 	public void update(final IScope scope, final Envelope envelope, final boolean parallel) {
 		this.bounds = envelope;
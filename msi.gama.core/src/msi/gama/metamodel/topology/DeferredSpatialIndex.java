@@ -0,0 +1,164 @@
+/*******************************************************************************************************
+ *
+ * DeferredSpatialIndex.java, in msi.gama.core, is part of the source code of the GAMA modeling and simulation platform
+ * (v.1.9.3).
+ *
+ * (c) 2007-2024 UMI 209 UMMISCO IRD/SU & Partners (IRIT, MIAT, TLU, CTU)
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package msi.gama.metamodel.topology;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.locationtech.jts.geom.Envelope;
+
+import msi.gama.common.geometry.Envelope3D;
+import msi.gama.metamodel.agent.IAgent;
+import msi.gama.metamodel.shape.IShape;
+import msi.gama.metamodel.topology.filter.IAgentFilter;
+import msi.gama.runtime.IScope;
+
+/**
+ * A spatial index that defers the relocation of moving agents. Moves are queued without locking (only the envelope an
+ * agent had before its first move is kept, so that an agent moving several times costs only one update) and applied in
+ * bulk to the underlying index (see {@link ISpatialIndex#relocateAll(Map, Map)}) after the agents of the species have
+ * been stepped, or before the next query is answered. Queries made when no move is pending do not take any lock.
+ * Insertions and removals of agents are not deferred.
+ *
+ * When agents move in parallel, the moves made while the pending ones are applied are applied by the next flush. To
+ * remove them then from the right place, the envelope with which each agent is inserted again is read once, kept, and
+ * preferred to the one passed to {@link #relocate(Envelope3D, IAgent)}, which may have been read before or after.
+ */
+public class DeferredSpatialIndex implements ISpatialIndex {
+
+	/** The underlying index. */
+	final ISpatialIndex delegate;
+
+	/** The pending moves: agents associated with the envelope they had before moving. */
+	final Map<IAgent, Envelope3D> pending = new ConcurrentHashMap<>();
+
+	/** The agents relocated by a flush, associated with the envelope they have in the underlying index. */
+	final Map<IAgent, Envelope3D> indexed = new ConcurrentHashMap<>();
+
+	/** The lock taken to apply the pending moves, so that only one thread applies them at a time. */
+	final Object flushing = new Object();
+
+	/**
+	 * Instantiates a new deferred spatial index.
+	 *
+	 * @param delegate
+	 *            the delegate
+	 */
+	DeferredSpatialIndex(final ISpatialIndex delegate) {
+		this.delegate = delegate;
+	}
+
+	@Override
+	public void relocate(final Envelope3D previous, final IAgent agent) {
+		if (previous == null || previous.isNull()) {
+			delegate.insert(agent);
+			return;
+		}
+		if (pending.putIfAbsent(agent, previous) != null) { previous.dispose(); }
+	}
+
+	/**
+	 * Applies the pending moves to the underlying index, in bulk. Each move is taken out of the queue atomically, so
+	 * that it is applied only once even if the agent is removed at the same time. The agents are removed with the
+	 * envelope they have in the index, and inserted again with their current envelope, which is kept for their next
+	 * move.
+	 */
+	@Override
+	public void flush() {
+		if (pending.isEmpty()) return;
+		synchronized (flushing) {
+			if (pending.isEmpty()) return;
+			final Map<IAgent, Envelope3D> moves = new HashMap<>();
+			final Map<IAgent, Envelope3D> current = new HashMap<>();
+			for (final IAgent agent : pending.keySet()) {
+				final Envelope3D previous = pending.remove(agent);
+				if (previous == null) { continue; }
+				final Envelope3D inIndex = indexed.remove(agent);
+				if (inIndex == null) {
+					moves.put(agent, previous);
+				} else {
+					previous.dispose();
+					moves.put(agent, inIndex);
+				}
+				if (agent.dead()) { continue; }
+				final Envelope3D e = agent.getEnvelope();
+				if (e == null) { continue; }
+				indexed.put(agent, Envelope3D.of(e));
+				current.put(agent, e);
+			}
+			// The envelopes are disposed by the delegate
+			delegate.relocateAll(moves, current);
+		}
+	}
+
+	@Override
+	public void insert(final IAgent agent) {
+		delegate.insert(agent);
+	}
+
+	@Override
+	public void remove(final Envelope3D previous, final IAgent agent) {
+		final Envelope3D before = pending.remove(agent);
+		Envelope3D inIndex = indexed.remove(agent);
+		if (inIndex == null) {
+			inIndex = before;
+		} else if (before != null) { before.dispose(); }
+		if (inIndex == null) {
+			delegate.remove(previous, agent);
+		} else {
+			if (previous != null) { previous.dispose(); }
+			delegate.remove(inIndex, agent);
+		}
+	}
+
+	@Override
+	public IAgent firstAtDistance(final IScope scope, final IShape source, final double dist, final IAgentFilter f) {
+		flush();
+		return delegate.firstAtDistance(scope, source, dist, f);
+	}
+
+	@Override
+	public Collection<IAgent> firstAtDistance(final IScope scope, final IShape source, final double dist,
+			final IAgentFilter f, final int number, final Collection<IAgent> alreadyChosen) {
+		flush();
+		return delegate.firstAtDistance(scope, source, dist, f, number, alreadyChosen);
+	}
+
+	@Override
+	public Collection<IAgent> allInEnvelope(final IScope scope, final IShape source, final Envelope envelope,
+			final IAgentFilter f, final boolean contained) {
+		flush();
+		return delegate.allInEnvelope(scope, source, envelope, f, contained);
+	}
+
+	@Override
+	public Collection<IAgent> allAtDistance(final IScope scope, final IShape source, final double dist,
+			final IAgentFilter f) {
+		flush();
+		return delegate.allAtDistance(scope, source, dist, f);
+	}
+
+	@Override
+	public void dispose() {
+		for (final IAgent agent : pending.keySet()) {
+			final Envelope3D previous = pending.remove(agent);
+			if (previous != null) { previous.dispose(); }
+		}
+		for (final IAgent agent : indexed.keySet()) {
+			final Envelope3D e = indexed.remove(agent);
+			if (e != null) { e.dispose(); }
+		}
+		delegate.dispose();
+	}
+
+}
@@ -16,8 +16,6 @@ import java.util.Map;
 
 import org.locationtech.jts.geom.Envelope;
 
-import com.google.common.collect.Ordering;
-
 import msi.gama.common.geometry.Envelope3D;
 import msi.gama.common.geometry.IIntersectable;
 import msi.gama.common.preferences.GamaPreferences;
@@ -26,11 +24,7 @@ import msi.gama.metamodel.shape.GamaPoint;
 import msi.gama.metamodel.shape.IShape;
 import msi.gama.metamodel.topology.filter.IAgentFilter;
 import msi.gama.runtime.IScope;
-import msi.gama.util.Collector;
-import msi.gama.util.GamaListFactory;
 import msi.gama.util.GamaMapFactory;
-import msi.gama.util.ICollector;
-import msi.gaml.operators.Maths;
 import ummisco.gama.dev.utils.DEBUG;
 
 /**
@@ -47,7 +41,7 @@ import ummisco.gama.dev.utils.DEBUG;
  * The Class GamaQuadTree.
  */
 @SuppressWarnings ({ "unchecked", "rawtypes" })
-public class GamaQuadTree implements ISpatialIndex {
+public class GamaQuadTree extends AbstractSpatialIndex {
 
 	static {
 		DEBUG.OFF();
@@ -66,7 +60,8 @@ public class GamaQuadTree implements ISpatialIndex {
 	final boolean parallel;
 
 	/**
-	 * Creates the spatial index. Returns a synchronized quadtree if necessary (cf. #3576)
+	 * Creates the spatial index. Returns a synchronized quadtree if necessary (cf. #3576), and wraps it in a
+	 * {@link DeferredSpatialIndex} if the updates of moving agents are to be deferred
 	 *
 	 * @param envelope
 	 *            the envelope
@@ -75,10 +70,16 @@ public class GamaQuadTree implements ISpatialIndex {
 	 * @return the gama quad tree
 	 */
 	public static ISpatialIndex create(final Envelope envelope, final boolean parallel) {
-		ISpatialIndex qt = new GamaQuadTree(envelope, parallel);
-		if (GamaPreferences.Experimental.QUADTREE_SYNCHRONIZATION.getValue())
-			return new QuadTreeSynchronizer(qt);
-		return qt;
+		ISpatialIndex index;
+		if (!GamaPreferences.Experimental.QUADTREE_SYNCHRONIZATION.getValue()) {
+			index = new GamaQuadTree(envelope, parallel);
+		} else if (GamaPreferences.Experimental.QUADTREE_STRIPING.getValue()) {
+			index = new StripedQuadTree(envelope);
+		} else {
+			index = new QuadTreeSynchronizer(new GamaQuadTree(envelope, parallel));
+		}
+		if (GamaPreferences.Experimental.QUADTREE_DEFERRED_UPDATES.getValue()) return new DeferredSpatialIndex(index);
+		return index;
 	}
 
 	/**
@@ -109,6 +110,17 @@ public class GamaQuadTree implements ISpatialIndex {
 			quadtree.remove(previous, agent);
 		}
 
+		@Override
+		public synchronized void insert(final IAgent agent, final Envelope3D envelope) {
+			quadtree.insert(agent, envelope);
+		}
+
+		@Override
+		public synchronized void relocateAll(final Map<IAgent, Envelope3D> moves,
+				final Map<IAgent, Envelope3D> current) {
+			quadtree.relocateAll(moves, current);
+		}
+
 		@Override
 		public synchronized IAgent firstAtDistance(final IScope scope, final IShape source, final double dist,
 				final IAgentFilter f) {
@@ -148,7 +160,7 @@ public class GamaQuadTree implements ISpatialIndex {
 	 * @param sync
 	 *            the sync
 	 */
-	private GamaQuadTree(final Envelope bounds, final boolean sync) {
+	GamaQuadTree(final Envelope bounds, final boolean sync) {
 		// AD To address Issue 804, explictely converts the bounds to an
 		// Envelope 2D, so that all computations are made
 		// in 2D in the QuadTree
@@ -173,6 +185,19 @@ public class GamaQuadTree implements ISpatialIndex {
 		}
 	}
 
+	@Override
+	public void insert(final IAgent agent, final Envelope3D envelope) {
+		if (agent == null) {
+			envelope.dispose();
+		} else if (envelope.getArea() == 0.0) {
+			// Like in remove(), envelopes without area are indexed by their centre
+			root.add(envelope.centre(), agent);
+			envelope.dispose();
+		} else {
+			root.add(envelope, agent);
+		}
+	}
+
 	@Override
 	public void remove(final Envelope3D previous, final IAgent agent) {
 		final Envelope3D current = previous == null ? agent.getEnvelope() : previous;
@@ -185,95 +210,9 @@ public class GamaQuadTree implements ISpatialIndex {
 		current.dispose();
 	}
 
-	/**
-	 * Find intersects.
-	 *
-	 * @param scope
-	 *            the scope
-	 * @param source
-	 *            the source
-	 * @param r
-	 *            the r
-	 * @param filter
-	 *            the filter
-	 * @return the collection
-	 */
-	protected Collection<IAgent> findIntersects(final IScope scope, final IShape source, final Envelope r,
-			final IAgentFilter filter) {
-		// Adresses Issue 722 by explicitly shuffling the results with GAMA
-		// random procedures and removing duplicates
-		try (final ICollector<IAgent> list = Collector.getOrderedSet()) {
-			root.findIntersects(r, list);
-			if (list.isEmpty()) return GamaListFactory.create();
-			filter.filter(scope, source, list);
-			// DEBUG.OUT(list.size(), false);
-			list.shuffleInPlaceWith(scope.getRandom());
-			return list.items();
-		}
-	}
-
-	@Override
-	public Collection<IAgent> allAtDistance(final IScope scope, final IShape source, final double dist,
-			final IAgentFilter f) {
-		// TODO filter result by topology's bounds
-		final double exp = dist * Maths.SQRT2;
-		final Envelope3D env = Envelope3D.of(source.getEnvelope());
-		env.expandBy(exp);
-		try {
-			final Collection<IAgent> result = findIntersects(scope, source, env, f);
-			if (result.isEmpty()) return GamaListFactory.create();
-			result.removeIf(each -> source.euclidianDistanceTo(each) > dist);
-			return result;
-		} finally {
-			env.dispose();
-		}
-	}
-
-	@Override
-	public Collection<IAgent> firstAtDistance(final IScope scope, final IShape source, final double dist,
-			final IAgentFilter f, final int number, final Collection<IAgent> alreadyChosen) {
-		final double exp = dist * Maths.SQRT2;
-		final Envelope3D env = Envelope3D.of(source.getEnvelope());
-		env.expandBy(exp);
-		try {
-			final Collection<IAgent> in_square = findIntersects(scope, source, env, f);
-			in_square.removeAll(alreadyChosen);
-			if (in_square.isEmpty()) return GamaListFactory.create();
-
-			if (in_square.size() <= number) return in_square;
-			final Ordering<IShape> ordering = Ordering.natural().onResultOf(input -> source.euclidianDistanceTo(input));
-			return ordering.leastOf(in_square, number);
-		} finally {
-			env.dispose();
-		}
-	}
-
-	@Override
-	public IAgent firstAtDistance(final IScope scope, final IShape source, final double dist, final IAgentFilter f) {
-		final Envelope3D env = Envelope3D.of(source.getEnvelope());
-		env.expandBy(dist * Maths.SQRT2);
-		try {
-			final Collection<IAgent> in_square = findIntersects(scope, source, env, f);
-			if (in_square.isEmpty()) return null;
-			double min_distance = dist;
-			IAgent min_agent = null;
-			for (final IAgent a : in_square) {
-				final Double dd = source.euclidianDistanceTo(a);
-				if (dd < min_distance) {
-					min_distance = dd;
-					min_agent = a;
-				}
-			}
-			return min_agent;
-		} finally {
-			env.dispose();
-		}
-	}
-
 	@Override
-	public Collection<IAgent> allInEnvelope(final IScope scope, final IShape source, final Envelope envelope,
-			final IAgentFilter f, final boolean contained) {
-		return findIntersects(scope, source, envelope, f);
+	protected void collectIntersects(final Envelope r, final Collection<IAgent> result) {
+		root.findIntersects(r, result);
 	}
 
 	/**
@@ -0,0 +1,320 @@
+/*******************************************************************************************************
+ *
+ * HashedGridIndex.java, in msi.gama.core, is part of the source code of the GAMA modeling and simulation platform
+ * (v.1.9.3).
+ *
+ * (c) 2007-2024 UMI 209 UMMISCO IRD/SU & Partners (IRIT, MIAT, TLU, CTU)
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package msi.gama.metamodel.topology;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.locationtech.jts.geom.Envelope;
+
+import msi.gama.common.geometry.Envelope3D;
+import msi.gama.common.geometry.IIntersectable;
+import msi.gama.common.preferences.GamaPreferences;
+import msi.gama.metamodel.agent.IAgent;
+import msi.gama.metamodel.shape.GamaPoint;
+
+/**
+ * A spatial index made of a flat grid of square-ish cells (buckets) covering the bounds of the environment, better
+ * suited than quadtrees to dense populations of point agents queried with roughly constant distances. Agents are
+ * stored in slots, kept in primitive arrays and chained per cell (in insertion order, so that the results of queries
+ * remain reproducible). An agent is stored in the cell that contains the centre of its envelope: queries are
+ * therefore expanded by the largest half-size of the envelopes indexed. The resolution of the grid grows with the
+ * number of agents so that cells keep on holding around {@value #AGENTS_PER_CELL} agents.
+ *
+ * This index is not thread-safe: {@link #create(Envelope, boolean)} wraps it when necessary.
+ */
+public class HashedGridIndex extends AbstractSpatialIndex {
+
+	/** The target number of agents per cell. */
+	static final int AGENTS_PER_CELL = 8;
+
+	/** The min and max numbers of cells along each axis. */
+	static final int MIN_SIDE = 16, MAX_SIDE = 2048;
+
+	/** The marker of the end of a chain of slots. */
+	static final int NONE = -1;
+
+	/**
+	 * Creates the index, synchronized if the populations are run in parallel or if the spatial indices have to be
+	 * synchronized (cf. #3576).
+	 *
+	 * @param envelope
+	 *            the envelope
+	 * @param parallel
+	 *            the parallel
+	 * @return the spatial index
+	 */
+	public static ISpatialIndex create(final Envelope envelope, final boolean parallel) {
+		ISpatialIndex index = new HashedGridIndex(envelope);
+		if (parallel || GamaPreferences.Experimental.QUADTREE_SYNCHRONIZATION.getValue()) {
+			index = new GamaQuadTree.QuadTreeSynchronizer(index);
+		}
+		if (GamaPreferences.Experimental.QUADTREE_DEFERRED_UPDATES.getValue()) return new DeferredSpatialIndex(index);
+		return index;
+	}
+
+	/** The bounds. */
+	final Envelope bounds;
+
+	/** The number of cells along each axis. */
+	int side;
+
+	/** The dimensions of the cells. */
+	double cellWidth, cellHeight;
+
+	/** The first and last slots of each cell (or NONE). */
+	int[] head, tail;
+
+	/** The slots: their agent, the shape used to test intersections, and the centre used to choose their cell. */
+	IAgent[] agents = new IAgent[256];
+
+	/** The shapes. */
+	IIntersectable[] shapes = new IIntersectable[256];
+
+	/** The coordinates of the centres. */
+	double[] xs = new double[256], ys = new double[256];
+
+	/** The cell of each slot and the chaining of the slots (within a cell, or in the list of free slots). */
+	int[] cells = new int[256], next = new int[256], previous = new int[256];
+
+	/** The number of slots ever used, the first free slot, and the number of agents indexed. */
+	int used, free = NONE, size;
+
+	/** The largest half-dimensions of the envelopes of the agents indexed. */
+	double maxHalfWidth, maxHalfHeight;
+
+	/** The slot of each agent. */
+	final Map<IAgent, Integer> slots = new HashMap<>();
+
+	/**
+	 * Instantiates a new hashed grid index.
+	 *
+	 * @param envelope
+	 *            the envelope
+	 */
+	HashedGridIndex(final Envelope envelope) {
+		bounds = new Envelope(envelope);
+		resize(MIN_SIDE);
+	}
+
+	/**
+	 * Sets the number of cells along each axis and distributes again the slots in the new cells.
+	 *
+	 * @param newSide
+	 *            the new side
+	 */
+	private void resize(final int newSide) {
+		side = newSide;
+		cellWidth = bounds.getWidth() / side;
+		cellHeight = bounds.getHeight() / side;
+		head = new int[side * side];
+		tail = new int[side * side];
+		Arrays.fill(head, NONE);
+		Arrays.fill(tail, NONE);
+		// Slots are visited in their order of creation, not in their order of insertion in their previous cell. Does
+		// not change the set of agents returned by queries, only the order in which they are found
+		for (int slot = 0; slot < used; slot++) { if (agents[slot] != null) { link(slot); } }
+	}
+
+	/**
+	 * Column.
+	 *
+	 * @param x
+	 *            the x
+	 * @return the column of the cell containing x (border cells for coordinates outside the bounds)
+	 */
+	private int column(final double x) {
+		final int i = (int) ((x - bounds.getMinX()) / cellWidth);
+		return i < 0 ? 0 : i >= side ? side - 1 : i;
+	}
+
+	/**
+	 * Row.
+	 *
+	 * @param y
+	 *            the y
+	 * @return the row of the cell containing y (border cells for coordinates outside the bounds)
+	 */
+	private int row(final double y) {
+		final int i = (int) ((y - bounds.getMinY()) / cellHeight);
+		return i < 0 ? 0 : i >= side ? side - 1 : i;
+	}
+
+	/**
+	 * Adds the slot at the end of the chain of the cell containing its centre.
+	 *
+	 * @param slot
+	 *            the slot
+	 */
+	private void link(final int slot) {
+		final int cell = row(ys[slot]) * side + column(xs[slot]);
+		cells[slot] = cell;
+		next[slot] = NONE;
+		previous[slot] = tail[cell];
+		if (tail[cell] == NONE) {
+			head[cell] = slot;
+		} else {
+			next[tail[cell]] = slot;
+		}
+		tail[cell] = slot;
+	}
+
+	/**
+	 * Removes the slot from the chain of its cell.
+	 *
+	 * @param slot
+	 *            the slot
+	 */
+	private void unlink(final int slot) {
+		final int cell = cells[slot];
+		final int p = previous[slot], n = next[slot];
+		if (p == NONE) {
+			head[cell] = n;
+		} else {
+			next[p] = n;
+		}
+		if (n == NONE) {
+			tail[cell] = p;
+		} else {
+			previous[n] = p;
+		}
+	}
+
+	/**
+	 * Returns a free slot, growing the arrays if necessary.
+	 *
+	 * @return the int
+	 */
+	private int allocate() {
+		if (free != NONE) {
+			final int slot = free;
+			free = next[slot];
+			return slot;
+		}
+		if (used == agents.length) {
+			final int capacity = used + (used >> 1);
+			agents = Arrays.copyOf(agents, capacity);
+			shapes = Arrays.copyOf(shapes, capacity);
+			xs = Arrays.copyOf(xs, capacity);
+			ys = Arrays.copyOf(ys, capacity);
+			cells = Arrays.copyOf(cells, capacity);
+			next = Arrays.copyOf(next, capacity);
+			previous = Arrays.copyOf(previous, capacity);
+		}
+		return used++;
+	}
+
+	@Override
+	public void insert(final IAgent agent) {
+		if (agent == null) return;
+		if (agent.isPoint()) {
+			insert(agent, agent.getLocation());
+		} else {
+			insert(agent, agent.getEnvelope());
+		}
+	}
+
+	@Override
+	public void insert(final IAgent agent, final Envelope3D envelope) {
+		if (agent == null) {
+			envelope.dispose();
+		} else if (envelope.getWidth() == 0.0 && envelope.getHeight() == 0.0) {
+			insert(agent, envelope.centre());
+			envelope.dispose();
+		} else {
+			insert(agent, (IIntersectable) envelope);
+		}
+	}
+
+	/**
+	 * Inserts the agent with its location (if it is a point) or its envelope.
+	 *
+	 * @param agent
+	 *            the agent
+	 * @param shape
+	 *            the location or the envelope, kept in the index
+	 */
+	private void insert(final IAgent agent, final IIntersectable shape) {
+		final Integer existing = slots.get(agent);
+		if (existing != null) { release(existing); }
+		final int slot = allocate();
+		agents[slot] = agent;
+		shapes[slot] = shape;
+		if (shape instanceof GamaPoint p) {
+			xs[slot] = p.x;
+			ys[slot] = p.y;
+		} else {
+			final Envelope3D e = (Envelope3D) shape;
+			xs[slot] = (e.getMinX() + e.getMaxX()) / 2;
+			ys[slot] = (e.getMinY() + e.getMaxY()) / 2;
+			maxHalfWidth = Math.max(maxHalfWidth, e.getWidth() / 2);
+			maxHalfHeight = Math.max(maxHalfHeight, e.getHeight() / 2);
+		}
+		link(slot);
+		slots.put(agent, slot);
+		size++;
+		if (size > side * side * AGENTS_PER_CELL && side < MAX_SIDE) { resize(Math.min(side * 2, MAX_SIDE)); }
+	}
+
+	@Override
+	public void remove(final Envelope3D previous, final IAgent agent) {
+		final Integer slot = slots.remove(agent);
+		if (slot != null) { release(slot); }
+		if (previous != null) { previous.dispose(); }
+	}
+
+	/**
+	 * Empties the slot and puts it in the list of free slots.
+	 *
+	 * @param slot
+	 *            the slot
+	 */
+	private void release(final int slot) {
+		unlink(slot);
+		if (shapes[slot] != null) { shapes[slot].dispose(); }
+		agents[slot] = null;
+		shapes[slot] = null;
+		next[slot] = free;
+		free = slot;
+		size--;
+	}
+
+	@Override
+	protected void collectIntersects(final Envelope r, final Collection<IAgent> result) {
+		if (r.isNull() || size == 0) return;
+		final int minCol = column(r.getMinX() - maxHalfWidth);
+		final int maxCol = column(r.getMaxX() + maxHalfWidth);
+		final int maxRow = row(r.getMaxY() + maxHalfHeight);
+		for (int j = row(r.getMinY() - maxHalfHeight); j <= maxRow; j++) {
+			for (int i = minCol; i <= maxCol; i++) {
+				for (int slot = head[j * side + i]; slot != NONE; slot = next[slot]) {
+					if (shapes[slot].intersects(r)) { result.add(agents[slot]); }
+				}
+			}
+		}
+	}
+
+	@Override
+	public void dispose() {
+		for (int slot = 0; slot < used; slot++) { if (shapes[slot] != null) { shapes[slot].dispose(); } }
+		Arrays.fill(agents, null);
+		Arrays.fill(shapes, null);
+		Arrays.fill(head, NONE);
+		Arrays.fill(tail, NONE);
+		slots.clear();
+		used = 0;
+		size = 0;
+		free = NONE;
+	}
+
+}
@@ -11,6 +11,7 @@
 package msi.gama.metamodel.topology;
 
 import java.util.Collection;
+import java.util.Map;
 
 import org.locationtech.jts.geom.Envelope;
 
@@ -37,6 +38,21 @@ public interface ISpatialIndex {
 	 */
 	void insert(IAgent agent);
 
+	/**
+	 * Inserts an agent with the given envelope rather than with its current one, which may have changed since the
+	 * envelope was read if the agent is moved by another thread. The envelope is disposed by the index. By default,
+	 * inserts the agent with its current envelope.
+	 *
+	 * @param agent
+	 *            the agent
+	 * @param envelope
+	 *            the envelope
+	 */
+	default void insert(final IAgent agent, final Envelope3D envelope) {
+		envelope.dispose();
+		insert(agent);
+	}
+
 	/**
 	 * Removes the.
 	 *
@@ -47,6 +63,40 @@ public interface ISpatialIndex {
 	 */
 	void remove(final Envelope3D previous, final IAgent agent);
 
+	/**
+	 * Updates the position of an agent that has moved or changed its shape. By default, removes it using its previous
+	 * envelope and inserts it again.
+	 *
+	 * @param previous
+	 *            the previous envelope of the agent (can be null if it had none)
+	 * @param agent
+	 *            the agent
+	 */
+	default void relocate(final Envelope3D previous, final IAgent agent) {
+		if (previous != null && !previous.isNull()) { remove(previous, agent); }
+		insert(agent);
+	}
+
+	/**
+	 * Applies several moves at once: removes the agents from the envelopes they had, then inserts them with their new
+	 * envelopes (see {@link #insert(IAgent, Envelope3D)}). The envelopes are disposed by the index. Indices guarded by
+	 * locks acquire them only once for all the moves.
+	 *
+	 * @param moves
+	 *            the agents moved, associated with the envelope they have in the index
+	 * @param current
+	 *            the agents to insert again (i.e. the ones still alive), associated with their new envelope
+	 */
+	default void relocateAll(final Map<IAgent, Envelope3D> moves, final Map<IAgent, Envelope3D> current) {
+		moves.forEach((agent, previous) -> remove(previous, agent));
+		current.forEach(this::insert);
+	}
+
+	/**
+	 * Applies the updates that have been deferred, if any (see {@link DeferredSpatialIndex}). Does nothing by default.
+	 */
+	default void flush() {}
+
 	/**
 	 * First at distance.
 	 *
@@ -153,6 +203,15 @@ public interface ISpatialIndex {
 		 */
 		void mergeWith(Compound spatialIndex);
 
+		/**
+		 * Applies the updates deferred by the index of a species, if any. Called after the agents of the species have
+		 * been stepped.
+		 *
+		 * @param species
+		 *            the species
+		 */
+		void flush(ISpecies species);
+
 	}
 
 }
\ No newline at end of file
@@ -0,0 +1,357 @@
+/*******************************************************************************************************
+ *
+ * StripedQuadTree.java, in msi.gama.core, is part of the source code of the GAMA modeling and simulation platform
+ * (v.1.9.3).
+ *
+ * (c) 2007-2024 UMI 209 UMMISCO IRD/SU & Partners (IRIT, MIAT, TLU, CTU)
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package msi.gama.metamodel.topology;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+import org.locationtech.jts.geom.Envelope;
+
+import msi.gama.common.geometry.Envelope3D;
+import msi.gama.metamodel.agent.IAgent;
+import msi.gama.metamodel.shape.GamaPoint;
+
+/**
+ * A concurrent alternative to the synchronized quadtree. The bounds are divided in STRIPES x STRIPES regions (stripes),
+ * each of them indexed by its own {@link GamaQuadTree} and guarded by its own {@link StampedLock}. Insertions and
+ * removals only lock the stripes covered by the agent, so that agents moving in different regions do not block each
+ * other. Queries take the (shared) read lock of the stripes they cover, so that they do not block each other either:
+ * the trees are not thread-safe, and are never traversed while they are being modified.
+ */
+public class StripedQuadTree extends AbstractSpatialIndex {
+
+	/** The number of stripes along each axis. */
+	static final int STRIPES = 8;
+
+	/** The bounds. */
+	final Envelope bounds;
+
+	/** The dimensions of a stripe. */
+	final double stripeWidth, stripeHeight;
+
+	/** The stripes, stored row by row. */
+	final Stripe[] stripes = new Stripe[STRIPES * STRIPES];
+
+	/**
+	 * A region of the index, with its own quadtree and lock.
+	 */
+	static class Stripe {
+
+		/** The lock. */
+		final StampedLock lock = new StampedLock();
+
+		/** The tree. Not synchronized, as all its accesses are guarded by the lock */
+		final GamaQuadTree tree;
+
+		/**
+		 * Instantiates a new stripe.
+		 *
+		 * @param bounds
+		 *            the bounds
+		 */
+		Stripe(final Envelope bounds) {
+			tree = new GamaQuadTree(bounds, false);
+		}
+
+		/**
+		 * Insert.
+		 *
+		 * @param agent
+		 *            the agent
+		 */
+		void insert(final IAgent agent) {
+			final long stamp = lock.writeLock();
+			try {
+				tree.insert(agent);
+			} finally {
+				lock.unlockWrite(stamp);
+			}
+		}
+
+		/**
+		 * Inserts the agent with the given envelope, which is disposed by the tree.
+		 *
+		 * @param agent
+		 *            the agent
+		 * @param envelope
+		 *            the envelope
+		 */
+		void insert(final IAgent agent, final Envelope3D envelope) {
+			final long stamp = lock.writeLock();
+			try {
+				tree.insert(agent, envelope);
+			} finally {
+				lock.unlockWrite(stamp);
+			}
+		}
+
+		/**
+		 * Removes the agent. The envelope passed is disposed by the tree.
+		 *
+		 * @param previous
+		 *            the previous envelope of the agent
+		 * @param agent
+		 *            the agent
+		 */
+		void remove(final Envelope3D previous, final IAgent agent) {
+			final long stamp = lock.writeLock();
+			try {
+				tree.remove(previous, agent);
+			} finally {
+				lock.unlockWrite(stamp);
+			}
+		}
+
+		/**
+		 * Applies the removals, then the insertions, of several moves under a single acquisition of the lock. The
+		 * envelopes passed are disposed by the tree.
+		 *
+		 * @param moves
+		 *            the moves
+		 */
+		void relocate(final Moves moves) {
+			final long stamp = lock.writeLock();
+			try {
+				for (int i = 0; i < moves.removed.size(); i++) {
+					tree.remove(moves.previous.get(i), moves.removed.get(i));
+				}
+				for (int i = 0; i < moves.inserted.size(); i++) {
+					tree.insert(moves.inserted.get(i), moves.current.get(i));
+				}
+			} finally {
+				lock.unlockWrite(stamp);
+			}
+		}
+
+		/**
+		 * Collects the agents intersecting r under the read lock of the stripe.
+		 *
+		 * @param r
+		 *            the envelope
+		 * @param result
+		 *            the result
+		 */
+		void collectIntersects(final Envelope r, final Collection<IAgent> result) {
+			final long stamp = lock.readLock();
+			try {
+				tree.collectIntersects(r, result);
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+
+		/**
+		 * Dispose.
+		 */
+		void dispose() {
+			final long stamp = lock.writeLock();
+			try {
+				tree.dispose();
+			} finally {
+				lock.unlockWrite(stamp);
+			}
+		}
+	}
+
+	/**
+	 * Instantiates a new striped quad tree.
+	 *
+	 * @param envelope
+	 *            the envelope
+	 */
+	StripedQuadTree(final Envelope envelope) {
+		bounds = new Envelope(envelope);
+		stripeWidth = bounds.getWidth() / STRIPES;
+		stripeHeight = bounds.getHeight() / STRIPES;
+		final double minX = bounds.getMinX();
+		final double minY = bounds.getMinY();
+		for (int j = 0; j < STRIPES; j++) {
+			for (int i = 0; i < STRIPES; i++) {
+				stripes[j * STRIPES + i] = new Stripe(new Envelope(minX + i * stripeWidth,
+						minX + (i + 1) * stripeWidth, minY + j * stripeHeight, minY + (j + 1) * stripeHeight));
+			}
+		}
+	}
+
+	/**
+	 * Returns the index of the stripe column containing x. Coordinates outside the bounds go to the border stripes.
+	 *
+	 * @param x
+	 *            the x
+	 * @return the int
+	 */
+	private int column(final double x) {
+		return clamp((int) ((x - bounds.getMinX()) / stripeWidth));
+	}
+
+	/**
+	 * Returns the index of the stripe row containing y. Coordinates outside the bounds go to the border stripes.
+	 *
+	 * @param y
+	 *            the y
+	 * @return the int
+	 */
+	private int row(final double y) {
+		return clamp((int) ((y - bounds.getMinY()) / stripeHeight));
+	}
+
+	/**
+	 * Clamp.
+	 *
+	 * @param i
+	 *            the i
+	 * @return the int
+	 */
+	private static int clamp(final int i) {
+		return i < 0 ? 0 : i >= STRIPES ? STRIPES - 1 : i;
+	}
+
+	/**
+	 * Applies the action to all the stripes intersecting the envelope
+	 *
+	 * @param e
+	 *            the envelope
+	 * @param action
+	 *            the action
+	 */
+	private void forEachStripe(final Envelope e, final Consumer<Stripe> action) {
+		forEachStripeIndex(e, i -> action.accept(stripes[i]));
+	}
+
+	/**
+	 * Applies the action to the indices of all the stripes intersecting the envelope
+	 *
+	 * @param e
+	 *            the envelope
+	 * @param action
+	 *            the action
+	 */
+	private void forEachStripeIndex(final Envelope e, final IntConsumer action) {
+		if (e.isNull()) return;
+		final int minCol = column(e.getMinX());
+		final int maxCol = column(e.getMaxX());
+		final int maxRow = row(e.getMaxY());
+		for (int j = row(e.getMinY()); j <= maxRow; j++) {
+			for (int i = minCol; i <= maxCol; i++) { action.accept(j * STRIPES + i); }
+		}
+	}
+
+	@Override
+	public void insert(final IAgent agent) {
+		if (agent == null) return;
+		if (agent.isPoint()) {
+			final GamaPoint p = agent.getLocation();
+			stripes[row(p.y) * STRIPES + column(p.x)].insert(agent);
+		} else {
+			final Envelope3D e = agent.getEnvelope();
+			forEachStripe(e, s -> s.insert(agent));
+			e.dispose();
+		}
+	}
+
+	@Override
+	public void insert(final IAgent agent, final Envelope3D envelope) {
+		if (agent != null) {
+			// Each tree disposes the envelope it receives, hence the copies
+			forEachStripe(envelope, s -> s.insert(agent, Envelope3D.of(envelope)));
+		}
+		envelope.dispose();
+	}
+
+	@Override
+	public void remove(final Envelope3D previous, final IAgent agent) {
+		final Envelope3D current = previous == null ? agent.getEnvelope() : previous;
+		if (current == null) return;
+		// Each tree disposes the envelope it receives, hence the copies
+		forEachStripe(current, s -> s.remove(Envelope3D.of(current), agent));
+		current.dispose();
+	}
+
+	/**
+	 * The moves applied to a stripe.
+	 */
+	static class Moves {
+
+		/** The previous envelopes of the agents removed. */
+		final List<Envelope3D> previous = new ArrayList<>();
+
+		/** The agents removed. */
+		final List<IAgent> removed = new ArrayList<>();
+
+		/** The new envelopes of the agents inserted. */
+		final List<Envelope3D> current = new ArrayList<>();
+
+		/** The agents inserted. */
+		final List<IAgent> inserted = new ArrayList<>();
+	}
+
+	/**
+	 * Groups the moves by stripe, so that each stripe is locked only once.
+	 */
+	@Override
+	public void relocateAll(final Map<IAgent, Envelope3D> moves, final Map<IAgent, Envelope3D> current) {
+		final Moves[] byStripe = new Moves[stripes.length];
+		// Each tree disposes the envelopes it receives, hence the copies
+		moves.forEach((agent, previous) -> {
+			final Envelope3D e = previous == null ? agent.getEnvelope() : previous;
+			if (e == null) return;
+			forEachStripeIndex(e, i -> {
+				final Moves m = movesOf(byStripe, i);
+				m.previous.add(Envelope3D.of(e));
+				m.removed.add(agent);
+			});
+			e.dispose();
+		});
+		current.forEach((agent, e) -> {
+			forEachStripeIndex(e, i -> {
+				final Moves m = movesOf(byStripe, i);
+				m.current.add(Envelope3D.of(e));
+				m.inserted.add(agent);
+			});
+			e.dispose();
+		});
+		for (int i = 0; i < stripes.length; i++) {
+			final Moves m = byStripe[i];
+			if (m != null) { stripes[i].relocate(m); }
+		}
+	}
+
+	/**
+	 * Returns the moves of the stripe, creating them if necessary.
+	 *
+	 * @param byStripe
+	 *            the moves of the stripes
+	 * @param i
+	 *            the index of the stripe
+	 * @return the moves
+	 */
+	private static Moves movesOf(final Moves[] byStripe, final int i) {
+		if (byStripe[i] == null) { byStripe[i] = new Moves(); }
+		return byStripe[i];
+	}
+
+	@Override
+	protected void collectIntersects(final Envelope r, final Collection<IAgent> result) {
+		// The ordered set used by findIntersects() removes the agents found in several stripes
+		forEachStripe(r, s -> s.collectIntersects(r, result));
+	}
+
+	@Override
+	public void dispose() {
+		for (final Stripe s : stripes) { s.dispose(); }
+	}
+
+}
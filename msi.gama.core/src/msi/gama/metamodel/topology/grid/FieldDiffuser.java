@@ -12,6 +12,8 @@ package msi.gama.metamodel.topology.grid;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.ExecutionException;
 
@@ -23,7 +25,9 @@ import com.google.common.collect.MultimapBuilder;
 
 import msi.gama.kernel.simulation.SimulationAgent;
 import msi.gama.runtime.IScope;
+import msi.gama.runtime.concurrent.GamaExecutorService;
 import msi.gama.runtime.exceptions.GamaRuntimeException;
+import one.util.streamex.IntStreamEx;
 import ummisco.gama.dev.utils.DEBUG;
 
 /**
@@ -95,6 +99,24 @@ public class FieldDiffuser {
 	/** The output. */
 	double[] input, output;
 
+	/** The values of the variable kept between several diffusions (null if there is only one). */
+	double[] values;
+
+	/** The cells whose value has changed since they were read. */
+	BitSet changed;
+
+	/** The kernel (the diffusion matrix flattened by rows). */
+	double[] kernel;
+
+	/** The dimensions and the center of the kernel. */
+	int kRows, kCols, kCenterX, kCenterY;
+
+	/** The min. number of cells from which diffusions are computed in parallel. */
+	static final int PARALLEL_THRESHOLD = 128 * 128;
+
+	/** The min. width of the bands computed in parallel. */
+	static final int BAND = 32;
+
 	/**
 	 * The Class DiffusionContext.
 	 */
@@ -239,13 +261,14 @@ public class FieldDiffuser {
 		if (diffusionsMap.containsKey(keyValue)) {
 			final List<GridDiffusion> listWithSameVar = diffusionsMap.get(keyValue);
 			// try to mix diffusions if possible
-			for (final GridDiffusion gridToAnalyze : listWithSameVar) {
+			for (final Iterator<GridDiffusion> it = listWithSameVar.iterator(); it.hasNext();) {
+				final GridDiffusion gridToAnalyze = it.next();
 				if (gridToAnalyze != newGridDiff && gridToAnalyze.useConvolution == newGridDiff.useConvolution
 						&& compareArrays(gridToAnalyze.mask, newGridDiff.mask)
 						&& gridToAnalyze.isGradient == newGridDiff.isGradient
 						&& gridToAnalyze.avoidMask == newGridDiff.avoidMask) {
 					// we can add the two diffusion matrix
-					diffusionsMap.remove(keyValue, gridToAnalyze);
+					it.remove();
 					int iiLength = gridToAnalyze.diffusionMatrix.length;
 					int cellNbiiToAddToGridToAnalyze = 0;
 					int cellNbiiToAddToNewGrid = 0;
@@ -333,6 +356,12 @@ public class FieldDiffuser {
 	 */
 	public boolean loadDiffProperties(final GridDiffusion gridDiff) {
 		diffusion = gridDiff;
+		kRows = diffusion.diffusionMatrix.length;
+		kCols = diffusion.diffusionMatrix[0].length;
+		kCenterX = kCols / 2;
+		kCenterY = kRows / 2;
+		if (kernel == null || kernel.length != kRows * kCols) { kernel = new double[kRows * kCols]; }
+		for (int m = 0; m < kRows; m++) { System.arraycopy(diffusion.diffusionMatrix[m], 0, kernel, m * kCols, kCols); }
 		if (gridDiff.avoidMask) {
 			// compute proportion
 			proportion = 0;
@@ -340,30 +369,165 @@ public class FieldDiffuser {
 				for (int j = 0; j < diffusion.diffusionMatrix[0].length; j++) { proportion += element[j]; }
 			}
 		}
-
-		context.target.getValuesInto(scope, context.varName, diffusion.minValue, input);
+		if (values != null) {
+			for (int i = 0; i < input.length; i++) { input[i] = values[i] < diffusion.minValue ? 0 : values[i]; }
+		} else {
+			context.target.getValuesInto(scope, context.varName, diffusion.minValue, input);
+		}
 		return true;
 
 	}
 
+	/**
+	 * The computation of a band of the grid.
+	 */
+	@FunctionalInterface
+	private interface Band {
+
+		/**
+		 * Computes the band.
+		 *
+		 * @param from
+		 *            the first index of the band (inclusive)
+		 * @param to
+		 *            the last index of the band (exclusive)
+		 * @param nonMaskedCells
+		 *            a list that can be used by the computation
+		 */
+		void compute(int from, int to, List<int[]> nonMaskedCells);
+	}
+
+	/**
+	 * Whether the diffusion should be computed in parallel.
+	 *
+	 * @return true, if successful
+	 */
+	private boolean inParallel() {
+		return GamaExecutorService.CONCURRENCY_DIFFUSION.getValue()
+				&& context.nbRows * context.nbCols >= PARALLEL_THRESHOLD;
+	}
+
+	/**
+	 * Computes a diffusion that writes in the neighbourhood of each cell by bands (at least as wide as the kernel).
+	 * Bands of the same parity do not write in the same cells: the even ones are computed in parallel, then the odd
+	 * ones. On a torus, the last band touches the first one: if they have the same parity, it is computed last. As the
+	 * bands only depend on the size of the grid and of the kernel, the results do not depend on the number of threads
+	 * (but, as the contributions to the cells at the borders of the bands are not summed in the same order, they may
+	 * differ from the sequential ones in the last decimals).
+	 *
+	 * @param extent
+	 *            the number of columns
+	 * @param band
+	 *            the band
+	 */
+	private void inBands(final int extent, final Band band) {
+		final int width = Math.max(BAND, kCols);
+		final int nbBands = extent / width;
+		final boolean torus = context.isTorus;
+		if (!inParallel() || nbBands < (torus ? 3 : 2)) {
+			band.compute(0, extent, new ArrayList<>());
+			return;
+		}
+		final int last = torus && nbBands % 2 == 1 ? nbBands - 1 : nbBands;
+		for (int parity = 0; parity < 2; parity++) {
+			IntStreamEx.range(parity, last, 2).parallel(GamaExecutorService.AGENT_PARALLEL_EXECUTOR)
+					.forEach(b -> band.compute(b * width, b == nbBands - 1 ? extent : (b + 1) * width,
+							new ArrayList<>()));
+		}
+		if (last < nbBands) { band.compute(last * width, extent, new ArrayList<>()); }
+	}
+
 	/**
 	 * Diffusion with convolution.
 	 */
 	public void diffusionWithConvolution() {
 		// default method : convolution
+		if (diffusion.avoidMask && diffusion.mask != null) {
+			// The values redistributed to the neighbours depend on the order in which cells are computed
+			convolveColumns(0, context.nbCols, new ArrayList<>());
+		} else if (!inParallel()) {
+			convolveRows(0, context.nbRows);
+		} else {
+			// Each output cell only depends on the input: the rows are independent
+			final int nbBands = (context.nbRows + BAND - 1) / BAND;
+			IntStreamEx.range(nbBands).parallel(GamaExecutorService.AGENT_PARALLEL_EXECUTOR)
+					.forEach(b -> convolveRows(b * BAND, Math.min(context.nbRows, (b + 1) * BAND)));
+		}
+	}
 
-		final int kRows = diffusion.diffusionMatrix.length;
-		final int kCols = diffusion.diffusionMatrix[0].length;
+	/**
+	 * Convolution of the output rows between from and to, when no value has to be redistributed ("avoid_mask"
+	 * without mask, or no "avoid_mask"). Rows are traversed in the order of the arrays.
+	 *
+	 * @param from
+	 *            the from
+	 * @param to
+	 *            the to
+	 */
+	private void convolveRows(final int from, final int to) {
+		final int nbCols = context.nbCols;
+		final int nbRows = context.nbRows;
+		final boolean torus = context.isTorus;
+		final boolean gradient = diffusion.isGradient;
+		final double[][] mask = diffusion.mask;
+		for (int j = from; j < to; ++j) // output rows
+		{
+			for (int i = 0; i < nbCols; ++i) // output columns
+			{
+				final int outputIndex = j * nbCols + i;
+				double value = output[outputIndex];
+				for (int m = 0; m < kRows; ++m) // kernel rows
+				{
+					for (int n = 0; n < kCols; ++n) // kernel columns
+					{
+						// index of input signal, used for checking boundary
+						int ii = i + n - kCenterX;
+						int jj = j + m - kCenterY;
+						if (torus) {
+							if (ii < 0) {
+								ii = nbCols + ii;
+							} else if (ii >= nbCols) { ii = ii - nbCols; }
 
-		final int kCenterX = kCols / 2;
-		final int kCenterY = kRows / 2;
+							if (jj < 0) {
+								jj = nbRows + jj;
+							} else if (jj >= nbRows) { jj = jj - nbRows; }
+						}
+						if (ii >= 0 && ii < nbCols && jj >= 0 && jj < nbRows && (mask == null || mask[ii][jj] == 1)) {
+							final double contribution =
+									input[jj * nbCols + ii] * kernel[(kRows - m - 1) * kCols + kCols - n - 1];
+							if (value == -Double.MAX_VALUE) {
+								value = contribution;
+							} else if (gradient) {
+								if (value < contribution) { value = contribution; }
+							} else {
+								value += contribution;
+							}
+						}
+					}
+				}
+				output[outputIndex] = value;
+			}
+		}
+	}
 
-		for (int i = 0; i < context.nbCols; ++i) // output rows
+	/**
+	 * Convolution of the output columns between from and to, redistributing the values of the masked cells to their
+	 * neighbours ("avoid_mask").
+	 *
+	 * @param from
+	 *            the from
+	 * @param to
+	 *            the to
+	 * @param non_masked_cells
+	 *            the non masked cells
+	 */
+	private void convolveColumns(final int from, final int to, final List<int[]> non_masked_cells) {
+		for (int i = from; i < to; ++i) // output columns
 		{
-			for (int j = 0; j < context.nbRows; ++j) // output columns
+			for (int j = 0; j < context.nbRows; ++j) // output rows
 			{
 				double value_to_redistribute = 0;
-				final ArrayList<int[]> non_masked_cells = new ArrayList<>();
+				non_masked_cells.clear();
 				for (int m = 0; m < kRows; ++m) // kernel rows
 				{
 					for (int n = 0; n < kCols; ++n) // kernel columns
@@ -374,37 +538,34 @@ public class FieldDiffuser {
 						// ignore input samples which are out of bound
 						if (context.isTorus) {
 							if (ii < 0) {
-								ii = context.nbRows + ii;
-							} else if (ii >= context.nbRows) { ii = ii - context.nbRows; }
+								ii = context.nbCols + ii;
+							} else if (ii >= context.nbCols) { ii = ii - context.nbCols; }
 
 							if (jj < 0) {
-								jj = context.nbCols + jj;
-							} else if (jj >= context.nbCols) { jj = jj - context.nbCols; }
+								jj = context.nbRows + jj;
+							} else if (jj >= context.nbRows) { jj = jj - context.nbRows; }
 						}
 						// diffuse if the input value is in the grid, and if the
 						// cell is not masked
 						if (ii >= 0 && ii < context.nbCols && jj >= 0 && jj < context.nbRows
 								&& (diffusion.mask == null || diffusion.mask[ii][jj] == 1)) {
-							final double value_before_change = output[j * context.nbCols + i];
-							if (output[j * context.nbCols + i] == -Double.MAX_VALUE) {
-								output[j * context.nbCols + i] = input[jj * context.nbCols + ii]
-										* diffusion.diffusionMatrix[kRows - m - 1][kCols - n - 1];
+							final int outputIndex = j * context.nbCols + i;
+							final double value_before_change = output[outputIndex];
+							final double contribution =
+									input[jj * context.nbCols + ii] * kernel[(kRows - m - 1) * kCols + kCols - n - 1];
+							if (output[outputIndex] == -Double.MAX_VALUE) {
+								output[outputIndex] = contribution;
 							} else if (diffusion.isGradient) {
-								if (output[j * context.nbCols + i] < input[jj * context.nbCols + ii]
-										* diffusion.diffusionMatrix[kRows - m - 1][kCols - n - 1]) {
-									output[j * context.nbCols + i] = input[jj * context.nbCols + ii]
-											* diffusion.diffusionMatrix[kRows - m - 1][kCols - n - 1];
-								}
+								if (output[outputIndex] < contribution) { output[outputIndex] = contribution; }
 							} else {
-								output[j * context.nbCols + i] += input[jj * context.nbCols + ii]
-										* diffusion.diffusionMatrix[kRows - m - 1][kCols - n - 1];
+								output[outputIndex] += contribution;
 							}
 
 							// undo the changes if "avoid_mask" and if the
 							// output cell is masked.
 							if (diffusion.avoidMask && (diffusion.mask == null ? false : diffusion.mask[i][j] != 1)) {
-								value_to_redistribute += output[j * context.nbCols + i];
-								output[j * context.nbCols + i] = value_before_change;
+								value_to_redistribute += output[outputIndex];
+								output[outputIndex] = value_before_change;
 								if (diffusion.mask[ii][jj] == 1) {
 									// input cell not masked
 									non_masked_cells.add(new int[] { ii, jj });
@@ -413,40 +574,62 @@ public class FieldDiffuser {
 						}
 					}
 				}
-				if (value_to_redistribute != 0) {
-					final double value_to_add = value_to_redistribute * proportion / non_masked_cells.size();
-					for (final int[] coord : non_masked_cells) {
-						if (output[coord[1] * context.nbCols + coord[0]] == -Double.MAX_VALUE) {
-							output[coord[1] * context.nbCols + coord[0]] = value_to_add;
-						} else if (!diffusion.isGradient) {
-							output[coord[1] * context.nbCols + coord[0]] += value_to_add;
-						}
-					}
-				}
+				redistribute(value_to_redistribute, non_masked_cells);
 			}
 		}
 	}
 
+	/**
+	 * Redistributes the value that could not be diffused to the masked cells to the non masked ones.
+	 *
+	 * @param value_to_redistribute
+	 *            the value to redistribute
+	 * @param non_masked_cells
+	 *            the non masked cells
+	 */
+	private void redistribute(final double value_to_redistribute, final List<int[]> non_masked_cells) {
+		if (value_to_redistribute == 0) return;
+		final double value_to_add = value_to_redistribute * proportion / non_masked_cells.size();
+		for (final int[] coord : non_masked_cells) {
+			if (output[coord[1] * context.nbCols + coord[0]] == -Double.MAX_VALUE) {
+				output[coord[1] * context.nbCols + coord[0]] = value_to_add;
+			} else if (!diffusion.isGradient) { output[coord[1] * context.nbCols + coord[0]] += value_to_add; }
+		}
+	}
+
 	/**
 	 * Diffusion with dot product.
 	 */
 	public void diffusionWithDotProduct() {
 		// dot product
+		if (diffusion.avoidMask && diffusion.mask != null) {
+			// The values redistributed to the neighbours depend on the order in which cells are computed
+			dotProduct(0, context.nbCols, new ArrayList<>());
+		} else {
+			inBands(context.nbCols, this::dotProduct);
+		}
+	}
 
-		final int kRows = diffusion.diffusionMatrix.length;
-		final int kCols = diffusion.diffusionMatrix[0].length;
-
-		final int kCenterX = kCols / 2;
-		final int kCenterY = kRows / 2;
-
-		for (int ii = 0; ii < context.nbRows; ++ii) // input rows
+	/**
+	 * Dot product of the input cells whose column is between from and to.
+	 *
+	 * @param from
+	 *            the from
+	 * @param to
+	 *            the to
+	 * @param non_masked_cells
+	 *            the non masked cells
+	 */
+	private void dotProduct(final int from, final int to, final List<int[]> non_masked_cells) {
+		for (int ii = from; ii < to; ++ii) // input columns
 		{
-			for (int jj = 0; jj < context.nbCols; ++jj) // input columns
+			for (int jj = 0; jj < context.nbRows; ++jj) // input rows
 			{
 				if (diffusion.mask == null || diffusion.mask[ii][jj] == 1) {
 					// diffuse only if the input is not masked
 					double value_to_redistribute = 0;
-					final ArrayList<int[]> non_masked_cells = new ArrayList<>();
+					non_masked_cells.clear();
+					final int inputIndex = jj * context.nbCols + ii;
 					for (int m = 0; m < kRows; ++m) // kernel rows
 					{
 						for (int n = 0; n < kCols; ++n) // kernel columns
@@ -458,27 +641,24 @@ public class FieldDiffuser {
 							// ignore output samples which are out of bound
 							if (context.isTorus) {
 								if (i < 0) {
-									i = context.nbRows + i;
-								} else if (i >= context.nbRows) { i = i - context.nbRows; }
+									i = context.nbCols + i;
+								} else if (i >= context.nbCols) { i = i - context.nbCols; }
 
 								if (j < 0) {
-									j = context.nbCols + j;
-								} else if (j >= context.nbCols) { j = j - context.nbCols; }
+									j = context.nbRows + j;
+								} else if (j >= context.nbRows) { j = j - context.nbRows; }
 							}
 							// diffuse if the output value is in the grid
 							if (i >= 0 && i < context.nbCols && j >= 0 && j < context.nbRows) {
-								final double value_before_change = output[j * context.nbCols + i];
 								final int outputIndex = j * context.nbCols + i;
-								final int inputIndex = jj * context.nbCols + ii;
-								final double matrixValue = diffusion.diffusionMatrix[m][n];
+								final double value_before_change = output[outputIndex];
+								final double contribution = input[inputIndex] * kernel[m * kCols + n];
 								if (output[outputIndex] == -Double.MAX_VALUE) {
-									output[outputIndex] = input[inputIndex] * matrixValue;
+									output[outputIndex] = contribution;
 								} else if (diffusion.isGradient) {
-									if (output[outputIndex] < input[inputIndex] * matrixValue) {
-										output[outputIndex] = input[inputIndex] * matrixValue;
-									}
+									if (output[outputIndex] < contribution) { output[outputIndex] = contribution; }
 								} else {
-									output[outputIndex] += input[inputIndex] * matrixValue;
+									output[outputIndex] += contribution;
 								}
 
 								// undo the changes if "avoid_mask" and if the
@@ -495,16 +675,7 @@ public class FieldDiffuser {
 							}
 						}
 					}
-					if (value_to_redistribute != 0) {
-						final double value_to_add = value_to_redistribute * proportion / non_masked_cells.size();
-						for (final int[] coord : non_masked_cells) {
-							if (output[coord[1] * context.nbCols + coord[0]] == -Double.MAX_VALUE) {
-								output[coord[1] * context.nbCols + coord[0]] = value_to_add;
-							} else if (!diffusion.isGradient) {
-								output[coord[1] * context.nbCols + coord[0]] += value_to_add;
-							}
-						}
-					}
+					redistribute(value_to_redistribute, non_masked_cells);
 				}
 			}
 		}
@@ -523,7 +694,12 @@ public class FieldDiffuser {
 			} else {
 				valToPut = Math.max(valToPut, diffusion.minValue);
 			}
-			context.target.setValueAtIndex(scope, i, context.varName, valToPut);
+			if (values != null) {
+				values[i] = valToPut;
+				changed.set(i);
+			} else {
+				context.target.setValueAtIndex(scope, i, context.varName, valToPut);
+			}
 		}
 	}
 
@@ -546,7 +722,15 @@ public class FieldDiffuser {
 				output = new double[context.nbCols * context.nbRows];
 			}
 			Arrays.fill(output, -Double.MAX_VALUE);
-
+			// When several diffusions apply to the same variable, its values are read once and kept in memory
+			// between them, and only the cells that changed are written at the end
+			if (diffusions.size() > 1) {
+				values = new double[length];
+				changed = new BitSet(length);
+				for (int i = 0; i < length; i++) {
+					values[i] = context.target.getValueAtIndex(scope, i, context.varName);
+				}
+			}
 			diffusions.forEach(diffusion -> {
 				loadDiffProperties(diffusion);
 				if (!diffusion.useConvolution) {
@@ -556,6 +740,13 @@ public class FieldDiffuser {
 				}
 				finishDiffusion();
 			});
+			if (values != null) {
+				for (int i = changed.nextSetBit(0); i >= 0; i = changed.nextSetBit(i + 1)) {
+					context.target.setValueAtIndex(scope, i, context.varName, values[i]);
+				}
+				values = null;
+				changed = null;
+			}
 		});
 
 		diffusionsMap.clear();
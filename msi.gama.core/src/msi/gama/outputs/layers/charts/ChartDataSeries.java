@@ -14,6 +14,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 
 import msi.gama.common.interfaces.IKeyword;
+import msi.gama.common.preferences.GamaPreferences;
 import msi.gama.runtime.IScope;
 import msi.gama.util.GamaColor;
 import msi.gama.util.IList;
@@ -30,26 +31,26 @@ public class ChartDataSeries {
 	final ArrayList<String> cvalues = new ArrayList<>(); // for categories
 
 	/** The xvalues. */
-	final ArrayList<Double> xvalues = new ArrayList<>(); // for xy charts
+	final DoubleSeries xvalues = new DoubleSeries(); // for xy charts
 
 	/** The yvalues. */
-	final ArrayList<Double> yvalues = new ArrayList<>();
+	final DoubleSeries yvalues = new DoubleSeries();
 
 	/** The svalues. */
-	final ArrayList<Double> svalues = new ArrayList<>(); // for marker sizes or
+	final DoubleSeries svalues = new DoubleSeries(); // for marker sizes or
 
 	/** The xerrvaluesmax. */
 	// 3d charts
-	final ArrayList<Double> xerrvaluesmax = new ArrayList<>();
+	final DoubleSeries xerrvaluesmax = new DoubleSeries();
 
 	/** The yerrvaluesmax. */
-	final ArrayList<Double> yerrvaluesmax = new ArrayList<>();
+	final DoubleSeries yerrvaluesmax = new DoubleSeries();
 
 	/** The xerrvaluesmin. */
-	final ArrayList<Double> xerrvaluesmin = new ArrayList<>();
+	final DoubleSeries xerrvaluesmin = new DoubleSeries();
 
 	/** The yerrvaluesmin. */
-	final ArrayList<Double> yerrvaluesmin = new ArrayList<>();
+	final DoubleSeries yerrvaluesmin = new DoubleSeries();
 
 	/** The mymedcolor. */
 	GamaColor mycolor, mymincolor, mymedcolor;
@@ -71,13 +72,13 @@ public class ChartDataSeries {
 	final ArrayList<String> oldcvalues = new ArrayList<>(); // for categories
 
 	/** The oldxvalues. */
-	final ArrayList<Double> oldxvalues = new ArrayList<>(); // for xy charts
+	final DoubleSeries oldxvalues = new DoubleSeries(); // for xy charts
 
 	/** The oldyvalues. */
-	final ArrayList<Double> oldyvalues = new ArrayList<>();
+	final DoubleSeries oldyvalues = new DoubleSeries();
 
 	/** The oldsvalues. */
-	final ArrayList<Double> oldsvalues = new ArrayList<>(); // for marker sizes
+	final DoubleSeries oldsvalues = new DoubleSeries(); // for marker sizes
 
 	/**
 	 * Checks if is ongoing update.
@@ -278,7 +279,7 @@ public class ChartDataSeries {
 	 *            the scope
 	 * @return the x values
 	 */
-	public ArrayList<Double> getXValues(final IScope scope) {
+	public DoubleSeries getXValues(final IScope scope) {
 
 		if (isOngoing_update()) return oldxvalues;
 		return xvalues;
@@ -291,7 +292,7 @@ public class ChartDataSeries {
 	 *            the scope
 	 * @return the y values
 	 */
-	public ArrayList<Double> getYValues(final IScope scope) {
+	public DoubleSeries getYValues(final IScope scope) {
 
 		if (isOngoing_update()) return oldyvalues;
 		return yvalues;
@@ -304,7 +305,7 @@ public class ChartDataSeries {
 	 *            the scope
 	 * @return the s values
 	 */
-	public ArrayList<Double> getSValues(final IScope scope) {
+	public DoubleSeries getSValues(final IScope scope) {
 
 		if (isOngoing_update()) return oldsvalues;
 		return svalues;
@@ -326,12 +327,9 @@ public class ChartDataSeries {
 
 		oldcvalues.clear();
 		oldcvalues.addAll(cvalues);
-		oldxvalues.clear();
-		oldxvalues.addAll(xvalues);
-		oldyvalues.clear();
-		oldyvalues.addAll(yvalues);
-		oldsvalues.clear();
-		oldsvalues.addAll(svalues);
+		oldxvalues.setTo(xvalues);
+		oldyvalues.setTo(yvalues);
+		oldsvalues.setTo(svalues);
 
 		cvalues.clear(); // for xy charts
 		xvalues.clear(); // for xy charts
@@ -439,6 +437,7 @@ public class ChartDataSeries {
 			}
 
 		}
+		applyRetention();
 		this.getDataset().serieToUpdateBefore.put(this.getName(), date);
 
 	}
@@ -557,7 +556,7 @@ public class ChartDataSeries {
 		if (barvalues.containsKey(ChartDataStatement.MARKERSIZE)) {
 			final Object o = getlistvalue(scope, barvalues, ChartDataStatement.MARKERSIZE, listvalue);
 			if (o != null) {
-				if (svalues.size() > xvalues.size()) { svalues.remove(svalues.get(svalues.size() - 1)); }
+				if (svalues.size() > xvalues.size()) { svalues.removeLast(); }
 				svalues.add(Cast.asFloat(scope, o));
 			}
 
@@ -605,6 +604,7 @@ public class ChartDataSeries {
 
 		}
 
+		applyRetention();
 		this.getDataset().serieToUpdateBefore.put(this.getName(), date);
 
 	}
@@ -681,7 +681,7 @@ public class ChartDataSeries {
 		if (barvalues.containsKey(ChartDataStatement.MARKERSIZE)) {
 			final Object o = getlistvalue(scope, barvalues, ChartDataStatement.MARKERSIZE, listvalue);
 			if (o != null) {
-				if (svalues.size() > xvalues.size()) { svalues.remove(svalues.get(svalues.size() - 1)); }
+				if (svalues.size() > xvalues.size()) { svalues.removeLast(); }
 				svalues.add(Cast.asFloat(scope, o));
 			}
 
@@ -708,10 +708,31 @@ public class ChartDataSeries {
 
 		}
 
+		applyRetention();
 		this.getDataset().serieToUpdateBefore.put(this.getName(), date);
 
 	}
 
+	/**
+	 * Drops the oldest values of the series when they exceed the number of values to retain (see
+	 * {@link GamaPreferences.Displays#CHART_RETENTION}). To keep this operation cheap, values are dropped by batches,
+	 * once the limit is exceeded by an eighth.
+	 */
+	private void applyRetention() {
+		final int retention = GamaPreferences.Displays.CHART_RETENTION.getValue();
+		if (retention <= 0) return;
+		final int size = Math.max(Math.max(yvalues.size(), xvalues.size()), cvalues.size());
+		if (size <= retention + Math.max(1, retention >> 3)) return;
+		// All the lists are indexed like the values: the same number of (oldest) values is dropped from each of them,
+		// even from the shorter ones (e.g. error values that are not provided for every point)
+		final int dropped = size - retention;
+		for (final DoubleSeries series : new DoubleSeries[] { xvalues, yvalues, svalues, xerrvaluesmax, yerrvaluesmax,
+				xerrvaluesmin, yerrvaluesmin }) {
+			series.removeFirst(dropped);
+		}
+		cvalues.subList(0, Math.min(dropped, cvalues.size())).clear();
+	}
+
 	/**
 	 * Endupdate.
 	 *
@@ -742,12 +763,15 @@ public class ChartDataSeries {
 	 * @param mylist
 	 *            the mylist
 	 */
-	private void savelistd(final IScope scope, final ChartHistory history, final ArrayList<Double> mylist) {
+	private void savelistd(final IScope scope, final ChartHistory history, final DoubleSeries mylist) {
 		if (mylist.size() == 0) {
-			history.append(",");
+			history.append(',');
 			return;
 		}
-		for (Double element : mylist) { history.append(Cast.asFloat(scope, element).floatValue() + ","); }
+		for (int i = 0; i < mylist.size(); i++) {
+			history.append((float) mylist.get(i));
+			history.append(',');
+		}
 
 	}
 
@@ -0,0 +1,164 @@
+/*******************************************************************************************************
+ *
+ * ChartDownsampling.java, in msi.gama.core, is part of the source code of the GAMA modeling and simulation platform
+ * (v.1.9.3).
+ *
+ * (c) 2007-2024 UMI 209 UMMISCO IRD/SU & Partners (IRIT, MIAT, TLU, CTU)
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package msi.gama.outputs.layers.charts;
+
+import java.util.Arrays;
+
+/**
+ * Selects the points of a series that are actually drawn when it contains more points than can be distinguished on
+ * the screen. Uses the "Largest Triangle Three Buckets" algorithm (LTTB, Steinarsson 2013), which keeps the visual shape
+ * of the series (peaks included). For very long series, candidates are first preselected by keeping the min. and max.
+ * values of small buckets (MinMaxLTTB), so that the cost stays linear with a small constant.
+ */
+public class ChartDownsampling {
+
+	/** Above this ratio between the number of points and the threshold, min-max preselection is applied first. */
+	static final int PRESELECTION_RATIO = 8;
+
+	/**
+	 * Returns the indices of the points to draw, in increasing order, or null if all of them should be drawn. Only
+	 * series whose x values never decrease (e.g. time series) are downsampled: the buckets of LTTB are meaningless for
+	 * the other ones (scatter plots, xy charts drawing closed shapes...).
+	 *
+	 * @param x
+	 *            the x values
+	 * @param y
+	 *            the y values
+	 * @param threshold
+	 *            the max. number of points to draw (0 or less for no limit)
+	 * @return the indices or null
+	 */
+	public static int[] select(final DoubleSeries x, final DoubleSeries y, final int threshold) {
+		final int n = Math.min(x.size(), y.size());
+		if (threshold <= 0 || n <= Math.max(threshold, 3) || !isMonotonic(x, n)) return null;
+		final int t = Math.max(threshold, 3);
+		final int[] candidates = n > PRESELECTION_RATIO * t ? minMax(y, n, 2 * t) : null;
+		return lttb(x, y, candidates, candidates == null ? n : candidates.length, t);
+	}
+
+	/**
+	 * Checks whether the n first x values never decrease.
+	 *
+	 * @param x
+	 *            the x values
+	 * @param n
+	 *            the number of points
+	 * @return true if they never decrease
+	 */
+	static boolean isMonotonic(final DoubleSeries x, final int n) {
+		for (int i = 1; i < n; i++) { if (x.get(i) < x.get(i - 1)) return false; }
+		return true;
+	}
+
+	/**
+	 * Keeps the first and last points, and the min. and max. values of y in each of the buckets.
+	 *
+	 * @param y
+	 *            the y
+	 * @param n
+	 *            the number of points
+	 * @param buckets
+	 *            the number of buckets
+	 * @return the indices
+	 */
+	static int[] minMax(final DoubleSeries y, final int n, final int buckets) {
+		final int[] result = new int[2 * buckets + 2];
+		int count = 0;
+		result[count++] = 0;
+		final double size = (double) (n - 2) / buckets;
+		for (int b = 0; b < buckets; b++) {
+			final int from = 1 + (int) (b * size);
+			final int to = Math.min(n - 1, 1 + (int) ((b + 1) * size));
+			if (from >= to) { continue; }
+			int min = from, max = from;
+			for (int i = from + 1; i < to; i++) {
+				final double v = y.get(i);
+				if (v < y.get(min)) { min = i; }
+				if (v > y.get(max)) { max = i; }
+			}
+			result[count++] = Math.min(min, max);
+			if (min != max) { result[count++] = Math.max(min, max); }
+		}
+		result[count++] = n - 1;
+		return Arrays.copyOf(result, count);
+	}
+
+	/**
+	 * Largest Triangle Three Buckets.
+	 *
+	 * @param x
+	 *            the x
+	 * @param y
+	 *            the y
+	 * @param candidates
+	 *            the indices of the candidate points, or null for all the points
+	 * @param m
+	 *            the number of candidates
+	 * @param threshold
+	 *            the number of points to keep
+	 * @return the indices kept, or null if all the candidates are kept
+	 */
+	static int[] lttb(final DoubleSeries x, final DoubleSeries y, final int[] candidates, final int m,
+			final int threshold) {
+		if (m <= threshold) return candidates;
+		final int[] result = new int[threshold];
+		final double every = (double) (m - 2) / (threshold - 2);
+		int a = 0;
+		result[0] = index(candidates, 0);
+		for (int i = 0; i < threshold - 2; i++) {
+			// Average of the next bucket
+			final int avgFrom = (int) ((i + 1) * every) + 1;
+			final int avgTo = Math.min((int) ((i + 2) * every) + 1, m);
+			double avgX = 0, avgY = 0;
+			for (int j = avgFrom; j < avgTo; j++) {
+				final int k = index(candidates, j);
+				avgX += x.get(k);
+				avgY += y.get(k);
+			}
+			final int avgLength = Math.max(1, avgTo - avgFrom);
+			avgX /= avgLength;
+			avgY /= avgLength;
+			// Point of the current bucket making the largest triangle with the previous point and the average
+			final int from = (int) (i * every) + 1;
+			final int to = (int) ((i + 1) * every) + 1;
+			final int ka = index(candidates, a);
+			final double ax = x.get(ka), ay = y.get(ka);
+			double maxArea = -1;
+			int next = from;
+			for (int j = from; j < to; j++) {
+				final int k = index(candidates, j);
+				final double area = Math.abs((ax - avgX) * (y.get(k) - ay) - (ax - x.get(k)) * (avgY - ay));
+				if (area > maxArea) {
+					maxArea = area;
+					next = j;
+				}
+			}
+			result[i + 1] = index(candidates, next);
+			a = next;
+		}
+		result[threshold - 1] = index(candidates, m - 1);
+		return result;
+	}
+
+	/**
+	 * The index of the j-th candidate.
+	 *
+	 * @param candidates
+	 *            the candidates
+	 * @param j
+	 *            the j
+	 * @return the int
+	 */
+	private static int index(final int[] candidates, final int j) {
+		return candidates == null ? j : candidates[j];
+	}
+
+}
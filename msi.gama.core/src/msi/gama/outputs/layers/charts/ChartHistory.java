@@ -54,6 +54,25 @@ public class ChartHistory {
 		verifyOverflow();
 	}
 
+	/**
+	 * Appends a value without creating an intermediate string.
+	 *
+	 * @param value the value
+	 */
+	public void append(final float value) {
+		current.append(value);
+		verifyOverflow();
+	}
+
+	/**
+	 * Appends a character (usually a separator).
+	 *
+	 * @param c the c
+	 */
+	public void append(final char c) {
+		current.append(c);
+	}
+
 	/**
 	 * Verify overflow.
 	 */
@@ -234,10 +234,10 @@ public class ChartJFreeChartOutputBoxAndWhiskerCategory extends ChartJFreeChartO
 		final ChartDataSeries dataserie = chartdataset.getDataSeries(scope, serieid);
 		final DefaultBoxAndWhiskerCategoryDataset serie = (DefaultBoxAndWhiskerCategoryDataset) jfreedataset.get(0);
 		if (serie.getRowKeys().contains(serieid)) { serie.removeRow(serieid); }
-		// final ArrayList<Double> XValues = dataserie.getXValues(scope);
+		// final DoubleSeries XValues = dataserie.getXValues(scope);
 		final ArrayList<String> cValues = dataserie.getCValues(scope);
-		final ArrayList<Double> yValues = dataserie.getYValues(scope);
-		final ArrayList<Double> sValues = dataserie.getSValues(scope);
+		final DoubleSeries yValues = dataserie.getYValues(scope);
+		final DoubleSeries sValues = dataserie.getSValues(scope);
 		if (!cValues.isEmpty()) {
 			final NumberAxis rangeAxis = (NumberAxis) ((CategoryPlot) this.chart.getPlot()).getRangeAxis();
 			rangeAxis.setAutoRange(false);
@@ -16,7 +16,6 @@ import java.text.FieldPosition;
 import java.text.NumberFormat;
 import java.text.ParsePosition;
 import java.util.ArrayList;
-import java.util.Collections;
 
 import org.apache.commons.lang3.StringUtils;
 import org.jfree.chart.ChartFactory;
@@ -237,8 +236,8 @@ public class ChartJFreeChartOutputHeatmap extends ChartJFreeChartOutput {
 
 		if (myserie.getMycolor() != null) { newr.setSeriesPaint(0, myserie.getMycolor()); }
 		if (myserie.getSValues(scope).size() > 0) {
-			final double maxval = Collections.max(myserie.getSValues(scope));
-			final double minval = Collections.min(myserie.getSValues(scope));
+			final double maxval = myserie.getSValues(scope).max();
+			final double minval = myserie.getSValues(scope).min();
 			Color cdeb = new Color(0, 0, 0, 0);
 			if (myserie.getMyMincolor() != null) { cdeb = myserie.getMyMincolor(); }
 			Color cend = new Color(0.9f, 0.9f, 0.9f, 1.0f);
@@ -353,9 +352,9 @@ public class ChartJFreeChartOutputHeatmap extends ChartJFreeChartOutput {
 		final ChartDataSeries dataserie = chartdataset.getDataSeries(scope, serieid);
 		final MatrixSeries serie =
 				((MatrixSeriesCollection) jfreedataset.get(idPosition.get(dataserie.getSerieId(scope)))).getSeries(0);
-		final ArrayList<Double> XValues = dataserie.getXValues(scope);
-		final ArrayList<Double> YValues = dataserie.getYValues(scope);
-		final ArrayList<Double> SValues = dataserie.getSValues(scope);
+		final DoubleSeries XValues = dataserie.getXValues(scope);
+		final DoubleSeries YValues = dataserie.getYValues(scope);
+		final DoubleSeries SValues = dataserie.getSValues(scope);
 		final NumberAxis domainAxis = (NumberAxis) ((XYPlot) this.chart.getPlot()).getDomainAxis();
 		if (XValues.size() == 0 && !usexrangeinterval && !usexrangeminmax) {
 			domainAxis.setAutoRange(false);
@@ -387,7 +386,7 @@ public class ChartJFreeChartOutputHeatmap extends ChartJFreeChartOutput {
 					rangeAxis.setRange(-0.5, YValues.get(i) + 0.5);
 				}
 
-				serie.update(YValues.get(i).intValue(), XValues.get(i).intValue(), SValues.get(i).doubleValue());
+				serie.update((int) YValues.get(i), (int) XValues.get(i), SValues.get(i));
 			}
 		}
 		this.resetRenderer(scope, serieid);
@@ -338,8 +338,8 @@ public class ChartJFreeChartOutputHistogram extends ChartJFreeChartOutput {
 		final DefaultCategoryDataset serie = (DefaultCategoryDataset) jfreedataset.get(0);
 		if (serie.getRowKeys().contains(serieid)) { serie.removeRow(serieid); }
 		final ArrayList<String> CValues = dataserie.getCValues(scope);
-		final ArrayList<Double> YValues = dataserie.getYValues(scope);
-		final ArrayList<Double> SValues = dataserie.getSValues(scope);
+		final DoubleSeries YValues = dataserie.getYValues(scope);
+		final DoubleSeries SValues = dataserie.getSValues(scope);
 		if (CValues.size() > 0) {
 			// TODO Hack to speed up, change!!!
 			// final CategoryAxis domainAxis = ((CategoryPlot)
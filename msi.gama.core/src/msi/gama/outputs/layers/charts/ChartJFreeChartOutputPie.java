@@ -11,7 +11,6 @@
 package msi.gama.outputs.layers.charts;
 
 import java.awt.Point;
-import java.util.ArrayList;
 
 import org.apache.commons.lang3.StringUtils;
 import org.jfree.chart.ChartFactory;
@@ -198,7 +197,7 @@ public class ChartJFreeChartOutputPie extends ChartJFreeChartOutput {
 		final ChartDataSeries dataserie = chartdataset.getDataSeries(scope, serieid);
 		@SuppressWarnings ("unchecked") final DefaultPieDataset<String> serie =
 				(DefaultPieDataset<String>) jfreedataset.get(0);
-		final ArrayList<Double> YValues = dataserie.getYValues(scope);
+		final DoubleSeries YValues = dataserie.getYValues(scope);
 
 		if (YValues.size() > 0) {
 			// TODO Hack to speed up, change!!!
@@ -200,8 +200,8 @@ public class ChartJFreeChartOutputRadar extends ChartJFreeChartOutput {
 			serie.removeRow(serieid);
 		}
 		final ArrayList<String> CValues = dataserie.getCValues(scope);
-		final ArrayList<Double> YValues = dataserie.getYValues(scope);
-		final ArrayList<Double> SValues = dataserie.getSValues(scope);
+		final DoubleSeries YValues = dataserie.getYValues(scope);
+		final DoubleSeries SValues = dataserie.getSValues(scope);
 		if (CValues.size() > 0) {
 			int deb = 0;
 			if (this.usexrangeinterval && CValues.size() > this.xrangeinterval) {
@@ -18,7 +18,6 @@ import java.awt.geom.AffineTransform;
 import java.text.FieldPosition;
 import java.text.NumberFormat;
 import java.text.ParsePosition;
-import java.util.ArrayList;
 import java.util.HashMap;
 
 import org.apache.commons.lang3.StringUtils;
@@ -152,7 +151,7 @@ public class ChartJFreeChartOutputScatter extends ChartJFreeChartOutput {
 	}
 
 	/** The Marker scale. */
-	HashMap<String, ArrayList<Double>> MarkerScale = new HashMap<>();
+	HashMap<String, DoubleSeries> MarkerScale = new HashMap<>();
 
 	/**
 	 * Instantiates a new chart J free chart output scatter.
@@ -378,7 +377,6 @@ public class ChartJFreeChartOutputScatter extends ChartJFreeChartOutput {
 		}
 	}
 
-	@SuppressWarnings ("unchecked")
 	@Override
 	protected void resetSerie(final IScope scope, final String serieid) {
 
@@ -387,9 +385,12 @@ public class ChartJFreeChartOutputScatter extends ChartJFreeChartOutput {
 				((XYIntervalSeriesCollection) jfreedataset.get(idPosition.get(dataserie.getSerieId(scope))))
 						.getSeries(0);
 		serie.clear();
-		final ArrayList<Double> xValues = dataserie.getXValues(scope);
-		final ArrayList<Double> yValues = dataserie.getYValues(scope);
-		final ArrayList<Double> sValues = dataserie.getSValues(scope);
+		final DoubleSeries xValues = dataserie.getXValues(scope);
+		final DoubleSeries yValues = dataserie.getYValues(scope);
+		final DoubleSeries sValues = dataserie.getSValues(scope);
+		// Long series are downsampled before being handed to JFreeChart: drawn is null when all the points are drawn
+		final int[] drawn =
+				ChartDownsampling.select(xValues, yValues, GamaPreferences.Displays.CHART_MAX_POINTS.getValue());
 		boolean secondaxis = false;
 		if (dataserie.getMysource().getUseSecondYAxis(scope)) {
 			secondaxis = true;
@@ -418,7 +419,9 @@ public class ChartJFreeChartOutputScatter extends ChartJFreeChartOutput {
 			// rangeAxis.setRange(Math.min((double)(Collections.min(YValues)),0),
 			// Math.max(Collections.max(YValues),Collections.min(YValues)+1));
 			XYIntervalDataItem newval;
-			for (int i = 0; i < xValues.size(); i++) {
+			final int nbDrawn = drawn == null ? xValues.size() : drawn.length;
+			for (int j = 0; j < nbDrawn; j++) {
+				final int i = drawn == null ? j : drawn[j];
 				if (dataserie.isUseYErrValues()) {
 					if (dataserie.isUseXErrValues()) {
 						newval = new XYIntervalDataItem(xValues.get(i), dataserie.xerrvaluesmin.get(i),
@@ -448,7 +451,13 @@ public class ChartJFreeChartOutputScatter extends ChartJFreeChartOutput {
 		// resetAutorange(scope);
 		if (!sValues.isEmpty()) {
 			MarkerScale.remove(serieid);
-			final ArrayList<Double> nscale = (ArrayList<Double>) sValues.clone();
+			final DoubleSeries nscale;
+			if (drawn == null) {
+				nscale = new DoubleSeries(sValues);
+			} else {
+				nscale = new DoubleSeries();
+				for (final int i : drawn) { if (i < sValues.size()) { nscale.add(sValues.get(i)); } }
+			}
 			MarkerScale.put(serieid, nscale);
 
 		}
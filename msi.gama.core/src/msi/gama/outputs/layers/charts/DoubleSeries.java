@@ -0,0 +1,179 @@
+/*******************************************************************************************************
+ *
+ * DoubleSeries.java, in msi.gama.core, is part of the source code of the GAMA modeling and simulation platform
+ * (v.1.9.3).
+ *
+ * (c) 2007-2024 UMI 209 UMMISCO IRD/SU & Partners (IRIT, MIAT, TLU, CTU)
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package msi.gama.outputs.layers.charts;
+
+import java.util.Arrays;
+
+/**
+ * A growable sequence of primitive doubles, used to store the values of the series of charts without boxing them.
+ * Values are appended at the end and can be dropped from the start (to keep only the most recent ones) in constant
+ * time: the array behaves as a sliding window, compacted only when it needs to grow.
+ */
+public class DoubleSeries {
+
+	/** The empty array. */
+	static final double[] EMPTY = {};
+
+	/** The values. */
+	double[] values = EMPTY;
+
+	/** The index of the first value. */
+	int start;
+
+	/** The index following the last value. */
+	int end;
+
+	/**
+	 * Instantiates a new empty series.
+	 */
+	public DoubleSeries() {}
+
+	/**
+	 * Instantiates a new series with a copy of the values of another one.
+	 *
+	 * @param other
+	 *            the other
+	 */
+	public DoubleSeries(final DoubleSeries other) {
+		setTo(other);
+	}
+
+	/**
+	 * The number of values.
+	 *
+	 * @return the int
+	 */
+	public int size() {
+		return end - start;
+	}
+
+	/**
+	 * Checks if is empty.
+	 *
+	 * @return true, if is empty
+	 */
+	public boolean isEmpty() { return end == start; }
+
+	/**
+	 * Returns the value at this index.
+	 *
+	 * @param index
+	 *            the index
+	 * @return the double
+	 */
+	public double get(final int index) {
+		if (index < 0 || index >= end - start) throw new IndexOutOfBoundsException(index);
+		return values[start + index];
+	}
+
+	/**
+	 * Returns the last value.
+	 *
+	 * @return the double
+	 */
+	public double getLast() { return get(size() - 1); }
+
+	/**
+	 * Appends a value.
+	 *
+	 * @param value
+	 *            the value
+	 */
+	public void add(final double value) {
+		if (end == values.length) { makeRoom(); }
+		values[end++] = value;
+	}
+
+	/**
+	 * Removes the last value, if any.
+	 */
+	public void removeLast() {
+		if (end > start) { end--; }
+	}
+
+	/**
+	 * Removes the n first (oldest) values.
+	 *
+	 * @param n
+	 *            the n
+	 */
+	public void removeFirst(final int n) {
+		start = Math.min(end, start + Math.max(0, n));
+		if (start == end) { start = end = 0; }
+	}
+
+	/**
+	 * Removes all the values. The storage is kept.
+	 */
+	public void clear() {
+		start = end = 0;
+	}
+
+	/**
+	 * Replaces the values by a copy of the ones of another series.
+	 *
+	 * @param other
+	 *            the other
+	 */
+	public void setTo(final DoubleSeries other) {
+		final int size = other.size();
+		if (values.length < size) { values = new double[size]; }
+		System.arraycopy(other.values, other.start, values, 0, size);
+		start = 0;
+		end = size;
+	}
+
+	/**
+	 * The min. value (NaN if the series is empty).
+	 *
+	 * @return the double
+	 */
+	public double min() {
+		if (isEmpty()) return Double.NaN;
+		double result = Double.POSITIVE_INFINITY;
+		for (int i = start; i < end; i++) { result = Math.min(result, values[i]); }
+		return result;
+	}
+
+	/**
+	 * The max. value (NaN if the series is empty).
+	 *
+	 * @return the double
+	 */
+	public double max() {
+		if (isEmpty()) return Double.NaN;
+		double result = Double.NEGATIVE_INFINITY;
+		for (int i = start; i < end; i++) { result = Math.max(result, values[i]); }
+		return result;
+	}
+
+	/**
+	 * Either moves the values to the beginning of the array, if at least half of it is free, or grows it.
+	 */
+	private void makeRoom() {
+		final int size = end - start;
+		if (start > 0 && size <= values.length / 2) {
+			System.arraycopy(values, start, values, 0, size);
+		} else {
+			final double[] copy = new double[Math.max(16, values.length + (values.length >> 1))];
+			System.arraycopy(values, start, copy, 0, size);
+			values = copy;
+		}
+		start = 0;
+		end = size;
+	}
+
+	@Override
+	public String toString() {
+		return Arrays.toString(Arrays.copyOfRange(values, start, end));
+	}
+
+}
@@ -383,10 +383,31 @@ public class ExecutionScope implements IScope {
 				agentContext = null;
 			} else if (a == agent) return false;
 			agentContext = createChildContext(agent);
+			useRandomStreamOf(a, agent);
 			return true;
 		}
 	}
 
+	/**
+	 * Lets the random number generator of the simulation (or experiment) know which agent is executed by the current
+	 * thread, so that generators giving one stream to each agent can use the right one. Nothing is done when the agent
+	 * does not change or when the generator does not give one stream to each agent.
+	 *
+	 * @param previous
+	 *            the agent executed so far (or null)
+	 * @param agent
+	 *            the agent (or null)
+	 */
+	private void useRandomStreamOf(final IAgent previous, final IAgent agent) {
+		if (previous == agent) return;
+		final ITopLevelAgent root = getRoot();
+		// The platform agent creates a new generator each time it is asked for one
+		if (root instanceof SimulationAgent || root instanceof IExperimentAgent) {
+			final RandomUtils rng = root.getRandomGenerator();
+			if (rng.usesAgentStreams()) { rng.use(agent); }
+		}
+	}
+
 	/**
 	 * Sets the root.
 	 *
@@ -409,8 +430,10 @@ public class ExecutionScope implements IScope {
 				return;
 			}
 			final AgentExecutionContext previous = agentContext;
+			final IAgent popped = previous.getAgent();
 			agentContext = agentContext.getOuterContext();
 			previous.dispose();
+			useRandomStreamOf(popped, agentContext == null ? null : agentContext.getAgent());
 			getAndClearDeathStatus();
 			// _agent_halted = false;
 		}
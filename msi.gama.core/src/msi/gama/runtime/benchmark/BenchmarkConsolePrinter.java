@@ -38,6 +38,9 @@ public class BenchmarkConsolePrinter {
 				if (br != BenchmarkRecord.NULL && !br.isUnrecorded()) {
 					sb.append(Strings.LN)
 							.append(String.format("%30s", "[" + br.milliseconds + " ms, " + br.times + " calls] "));
+					if (br.hasParallelRuns()) {
+						sb.append(String.format("[imbalance %.2f, grain %d] ", br.getMeanImbalance(), br.grain));
+					}
 					for (int i = 0; i < n.getWeight(); i++) {
 						sb.append("-" + Strings.TAB);
 					}
@@ -10,6 +10,7 @@
  ********************************************************************************************************/
 package msi.gama.runtime.benchmark;
 
+import java.util.concurrent.atomic.DoubleAdder;
 import java.util.concurrent.atomic.LongAdder;
 
 import msi.gama.common.interfaces.IBenchmarkable;
@@ -28,6 +29,15 @@ public class BenchmarkRecord {
 	/** The object. */
 	public final IBenchmarkable object;
 
+	/** The sum of the imbalances of the parallel runs. */
+	public final DoubleAdder imbalances = new DoubleAdder();
+
+	/** The number of parallel runs. */
+	public final LongAdder parallelRuns = new LongAdder();
+
+	/** The last grain used by the parallel runs. */
+	public volatile int grain;
+
 	/**
 	 * Instantiates a new benchmark record.
 	 *
@@ -46,4 +56,35 @@ public class BenchmarkRecord {
 		return times.longValue() == 0l;
 	}
 
+	/**
+	 * Records a run of agents in parallel.
+	 *
+	 * @param imbalance the ratio between the longest and the mean duration of the chunks of agents
+	 * @param grain the max. number of agents in a chunk
+	 */
+	public void recordChunks(final double imbalance, final int grain) {
+		imbalances.add(imbalance);
+		parallelRuns.increment();
+		this.grain = grain;
+	}
+
+	/**
+	 * Whether parallel runs have been recorded.
+	 *
+	 * @return true, if successful
+	 */
+	public boolean hasParallelRuns() {
+		return parallelRuns.longValue() > 0l;
+	}
+
+	/**
+	 * The mean imbalance of the parallel runs.
+	 *
+	 * @return the double
+	 */
+	public double getMeanImbalance() {
+		final long runs = parallelRuns.longValue();
+		return runs == 0l ? 1d : imbalances.sum() / runs;
+	}
+
 }
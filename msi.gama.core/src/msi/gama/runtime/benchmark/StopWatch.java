@@ -57,6 +57,16 @@ public class StopWatch implements Closeable {
 		return this;
 	}
 
+	/**
+	 * Records the imbalance between the chunks of agents run in parallel and the grain used.
+	 *
+	 * @param imbalance the imbalance
+	 * @param grain the grain
+	 */
+	public void recordChunks(final double imbalance, final int grain) {
+		if (numbers != BenchmarkRecord.NULL) { numbers.recordChunks(imbalance, grain); }
+	}
+
 	@Override
 	public void close() {
 		if (lastStart != notRunning) {
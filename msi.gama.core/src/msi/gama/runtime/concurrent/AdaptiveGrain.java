@@ -0,0 +1,148 @@
+/*******************************************************************************************************
+ *
+ * AdaptiveGrain.java, in msi.gama.core, is part of the source code of the GAMA modeling and simulation platform
+ * (v.1.9.3).
+ *
+ * (c) 2007-2024 UMI 209 UMMISCO IRD/SU & Partners (IRIT, MIAT, TLU, CTU)
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package msi.gama.runtime.concurrent;
+
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.google.common.collect.MapMaker;
+
+import msi.gaml.species.ISpecies;
+
+/**
+ * The grain (i.e. the max. number of agents run by a single task) used to step the agents of a species in parallel,
+ * adjusted from one cycle to the other by measuring the time taken by each chunk of agents (see the
+ * 'pref_parallel_adaptive' preference). The grain is halved when some chunks take much longer than the others (for
+ * instance when a few agents compute paths while most of them do nothing), so that the work-stealing of the pool can
+ * balance the threads, and doubled when chunks are so short that the cost of the tasks outweighs the work done.
+ */
+public class AdaptiveGrain {
+
+	/** The mean duration (in ns) of the chunks under which the grain is increased. */
+	static final long MIN_CHUNK_NANOS = 50_000;
+
+	/** The ratio between the longest and the mean duration of the chunks above which the grain is decreased. */
+	static final double MAX_IMBALANCE = 4d;
+
+	/** The grains of the species. Keys are weak, so that the species of closed models can be collected. */
+	static final ConcurrentMap<ISpecies, AdaptiveGrain> GRAINS = new MapMaker().weakKeys().makeMap();
+
+	/**
+	 * The adaptive grain of a species.
+	 *
+	 * @param species
+	 *            the species
+	 * @return the adaptive grain
+	 */
+	public static AdaptiveGrain of(final ISpecies species) {
+		return GRAINS.computeIfAbsent(species, s -> new AdaptiveGrain());
+	}
+
+	/** The current grain. 0 until the first run. */
+	private volatile int grain;
+
+	/** The imbalance measured during the last run. */
+	private volatile double imbalance = 1d;
+
+	/**
+	 * The grain to use for this number of agents.
+	 *
+	 * @param initial
+	 *            the grain used before any measure
+	 * @param size
+	 *            the number of agents
+	 * @param min
+	 *            the min. grain
+	 * @return the grain
+	 */
+	public int grain(final int initial, final int size, final int min) {
+		final int g = grain;
+		return clamp(g == 0 ? initial : g, size, min);
+	}
+
+	/**
+	 * Clamps the grain between the min. grain (at least 1) and the value that still gives one chunk per thread. The
+	 * min. grain wins when they conflict.
+	 *
+	 * @param g
+	 *            the grain
+	 * @param size
+	 *            the number of agents
+	 * @param min
+	 *            the min. grain
+	 * @return the grain
+	 */
+	static int clamp(final int g, final int size, final int min) {
+		final int max = Math.max(1, size / GamaExecutorService.AGENT_PARALLEL_EXECUTOR.getParallelism());
+		return Math.max(Math.max(1, min), Math.min(g, max));
+	}
+
+	/**
+	 * Gets the imbalance measured during the last run: the ratio between the longest and the mean duration of the
+	 * chunks (1 when all the chunks take the same time).
+	 *
+	 * @return the imbalance
+	 */
+	public double getImbalance() { return imbalance; }
+
+	/**
+	 * Adjusts the grain after a run.
+	 *
+	 * @param times
+	 *            the times of the chunks of the run
+	 * @param used
+	 *            the grain used by the run
+	 * @param size
+	 *            the number of agents
+	 * @param min
+	 *            the min. grain
+	 */
+	public synchronized void adjust(final ChunkTimes times, final int used, final int size, final int min) {
+		final long count = times.count.sum();
+		if (count == 0) return;
+		final double mean = (double) times.total.sum() / count;
+		imbalance = mean == 0d ? 1d : times.longest.get() / mean;
+		int g = used;
+		if (imbalance > MAX_IMBALANCE) {
+			if (mean >= 2 * MIN_CHUNK_NANOS) { g = used / 2; }
+		} else if (mean < MIN_CHUNK_NANOS) { g = used * 2; }
+		grain = clamp(g, size, min);
+	}
+
+	/**
+	 * The durations of the chunks of a run, recorded concurrently by the tasks.
+	 */
+	public static class ChunkTimes {
+
+		/** The total duration. */
+		final LongAdder total = new LongAdder();
+
+		/** The number of chunks. */
+		final LongAdder count = new LongAdder();
+
+		/** The longest duration. */
+		final LongAccumulator longest = new LongAccumulator(Math::max, 0);
+
+		/**
+		 * Records the duration of a chunk.
+		 *
+		 * @param nanos
+		 *            the duration in ns
+		 */
+		void record(final long nanos) {
+			total.add(nanos);
+			count.increment();
+			longest.accumulate(nanos);
+		}
+	}
+
+}
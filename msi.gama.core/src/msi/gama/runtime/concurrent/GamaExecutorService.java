@@ -21,6 +21,7 @@ import msi.gama.common.preferences.GamaPreferences;
 import msi.gama.common.preferences.Pref;
 import msi.gama.kernel.experiment.IExperimentAgent;
 import msi.gama.metamodel.agent.IAgent;
+import msi.gama.metamodel.population.GamaPopulation;
 import msi.gama.metamodel.shape.IShape;
 import msi.gama.runtime.FlowStatus;
 import msi.gama.runtime.GAMA;
@@ -85,6 +86,9 @@ public abstract class GamaExecutorService {
 	/** The agent parallel executor. */
 	public static volatile ForkJoinPool AGENT_PARALLEL_EXECUTOR;
 
+	/** The number of chunks per thread when agents are run in parallel without threshold. */
+	static final int CHUNKS_PER_THREAD = 4;
+
 	/** The Constant CONCURRENCY_SIMULATIONS. */
 	public static final Pref<Boolean> CONCURRENCY_SIMULATIONS =
 			create("pref_parallel_simulations", "Make experiments run simulations in parallel", true, IType.BOOL, true)
@@ -96,6 +100,11 @@ public abstract class GamaExecutorService {
 					+ "[WARNING: disables reflexes and permanent displays of batch experiments]",
 			false, IType.BOOL, true).in(GamaPreferences.Runtime.NAME, GamaPreferences.Runtime.CONCURRENCY);
 
+	/** The Constant CONCURRENCY_BATCH_ASYNCHRONOUS. */
+	public static final Pref<Boolean> CONCURRENCY_BATCH_ASYNCHRONOUS = create("pref_parallel_batch_asynchronous",
+			"In batch, run each simulation until its stop condition independently of the others (otherwise, the simulations are stepped together and wait for the slowest one at each step; beware that setting this to true makes the order of the results of the replications depend on the order in which they end)",
+			false, IType.BOOL, true).in(GamaPreferences.Runtime.NAME, GamaPreferences.Runtime.CONCURRENCY);
+
 	/** The Constant CONCURRENCY_GRID. */
 	public static final Pref<Boolean> CONCURRENCY_GRID = create("pref_parallel_grids",
 			"Make grids schedule their agents in parallel (beware that setting this to true no longer allows GAMA to ensure the reproducibility of simulations)",
@@ -106,6 +115,26 @@ public abstract class GamaExecutorService {
 			"Make species schedule their agents in parallel (beware that setting this to true no longer allows GAMA to ensure the reproducibility of simulations)",
 			false, IType.BOOL, true).in(GamaPreferences.Runtime.NAME, GamaPreferences.Runtime.CONCURRENCY);
 
+	/** The Constant CONCURRENCY_DIFFUSION. */
+	public static final Pref<Boolean> CONCURRENCY_DIFFUSION = create("pref_parallel_diffusion",
+			"Make diffusions compute large grids and fields in parallel (results do not depend on the number of threads, but may differ from the sequential ones in the last decimals)",
+			false, IType.BOOL, true).in(GamaPreferences.Runtime.NAME, GamaPreferences.Runtime.CONCURRENCY);
+
+	/** The Constant CONCURRENCY_ITERATORS. */
+	public static final Pref<Boolean> CONCURRENCY_ITERATORS = create("pref_parallel_iterators",
+			"Make iterator operators (where, collect, count, sum_of, group_by, first_with...) evaluate large containers in parallel (only when the expression is made of operators known to be safe, and unless the model declares the '@sequential_iterators' pragma)",
+			false, IType.BOOL, true).in(GamaPreferences.Runtime.NAME, GamaPreferences.Runtime.CONCURRENCY);
+
+	/** The Constant CONCURRENCY_ADAPTIVE. */
+	public static final Pref<Boolean> CONCURRENCY_ADAPTIVE = create("pref_parallel_adaptive",
+			"Adapt the number of agents stepped by each thread to the time they take, without going below the number given by the 'parallel:' facet of species (otherwise, agents are divided using the threshold below)",
+			false, IType.BOOL, true).in(GamaPreferences.Runtime.NAME, GamaPreferences.Runtime.CONCURRENCY);
+
+	/** The Constant CONCURRENCY_VIRTUAL_THREADS. */
+	public static final Pref<Boolean> CONCURRENCY_VIRTUAL_THREADS = create("pref_parallel_virtual_threads",
+			"Run simulations and agents scheduled in parallel each in its own virtual thread (suited to agents blocking on network or file I/O; requires Java 21, otherwise the usual pools of threads are used)",
+			false, IType.BOOL, true).in(GamaPreferences.Runtime.NAME, GamaPreferences.Runtime.CONCURRENCY);
+
 	/** The Constant CONCURRENCY_THRESHOLD. */
 	public static final Pref<Integer> CONCURRENCY_THRESHOLD =
 			create("pref_parallel_threshold", "Number under which agents are executed sequentially", 20, IType.INT,
@@ -173,16 +202,26 @@ public abstract class GamaExecutorService {
 	 *         threshold of n
 	 */
 	public static int getParallelism(final IScope scope, final IExpression concurrency, final Caller caller) {
-		if (concurrency != null) {
-			final Object o = concurrency.value(scope);
-			if (o instanceof Boolean) {
-				if (o.equals(Boolean.FALSE)) return 0;
-				if (caller == Caller.SIMULATION) return THREADS_NUMBER.getValue();
-				return CONCURRENCY_THRESHOLD.getValue();
-			}
-			if (o instanceof Integer) return Math.abs((Integer) o);
-			return getParallelism(scope, null, caller);
+		return getParallelism(concurrency == null ? null : concurrency.value(scope), caller);
+	}
+
+	/**
+	 * Returns the level of parallelism from the value of the facet passed (null if there is none) and the preferences
+	 *
+	 * @param concurrency
+	 *            the value of the facet passed to the statement or species
+	 * @param caller
+	 *            the caller
+	 * @return 0 for no parallelism, 1 for complete parallelism (i.e. each agent on its own), n for parallelism with a
+	 *         threshold of n
+	 */
+	private static int getParallelism(final Object concurrency, final Caller caller) {
+		if (concurrency instanceof Boolean) {
+			if (concurrency.equals(Boolean.FALSE)) return 0;
+			if (caller == Caller.SIMULATION) return THREADS_NUMBER.getValue();
+			return CONCURRENCY_THRESHOLD.getValue();
 		}
+		if (concurrency instanceof Integer) return Math.abs((Integer) concurrency);
 		switch (caller) {
 			case SIMULATION:
 				if (CONCURRENCY_SIMULATIONS.getValue())
@@ -204,6 +243,20 @@ public abstract class GamaExecutorService {
 		}
 	}
 
+	/**
+	 * Whether the agents (and simulations) run in parallel in this scope should use virtual threads, either because of
+	 * the preference or because of the 'virtual_threads' facet of the experiment.
+	 *
+	 * @param scope
+	 *            the scope
+	 * @return true, if successful
+	 */
+	public static boolean usesVirtualThreads(final IScope scope) {
+		if (CONCURRENCY_VIRTUAL_THREADS.getValue()) return true;
+		final IExperimentAgent experiment = scope == null ? null : scope.getExperiment();
+		return experiment != null && experiment.getSpecies().usesVirtualThreads();
+	}
+
 	/**
 	 * Execute threaded.
 	 *
@@ -232,10 +285,34 @@ public abstract class GamaExecutorService {
 	public static <A extends IAgent> Boolean step(final IScope scope, final IList<A> pop, final ISpecies species)
 			throws GamaRuntimeException {
 		final IExpression schedule = species.getSchedule();
-		final IList<? extends IAgent> agents = schedule == null ? pop : Cast.asList(scope, schedule.value(scope));
-		final int threshold =
-				getParallelism(scope, species.getConcurrency(), species.isGrid() ? Caller.GRID : Caller.SPECIES);
-		return doStep(scope, agents.toArray(new IAgent[agents.size()]), threshold, species);
+		final IShape[] agents = arrayOf(schedule == null ? pop : Cast.asList(scope, schedule.value(scope)));
+		return doStep(scope, agents, species);
+	}
+
+	/**
+	 * Returns the agents of a list as an array. Populations maintain their own array, which avoids copying them at
+	 * each cycle (see {@link GamaPopulation#getStepArray()}).
+	 *
+	 * @param agents
+	 *            the agents
+	 * @return the array
+	 */
+	private static IShape[] arrayOf(final List<?> agents) {
+		if (agents instanceof GamaPopulation<?> pop) return pop.getStepArray();
+		return agents.toArray(new IAgent[agents.size()]);
+	}
+
+	/**
+	 * The number of agents run by each task when agents are run in parallel without threshold: the agents are divided
+	 * in a few chunks per thread (so that the threads can balance their work), rather than in one task per agent.
+	 *
+	 * @param length
+	 *            the number of agents
+	 * @return the size of the chunks
+	 */
+	private static int chunkSize(final int length) {
+		final int chunks = AGENT_PARALLEL_EXECUTOR.getParallelism() * CHUNKS_PER_THREAD;
+		return Math.max(1, (length + chunks - 1) / chunks);
 	}
 
 	/**
@@ -256,16 +333,9 @@ public abstract class GamaExecutorService {
 	public static <A extends IShape> Boolean step(final IScope scope, final A[] array, final ISpecies species)
 			throws GamaRuntimeException {
 		final IExpression schedule = species.getSchedule();
-		final IShape[] scheduledAgents;
-		if (schedule == null) {
-			scheduledAgents = array;
-		} else {
-			final List<IAgent> agents = Cast.asList(scope, schedule.value(scope));
-			scheduledAgents = agents.toArray(new IAgent[agents.size()]);
-		}
-		final int threshold =
-				getParallelism(scope, species.getConcurrency(), species.isGrid() ? Caller.GRID : Caller.SPECIES);
-		return doStep(scope, scheduledAgents, threshold, species);
+		final IShape[] scheduledAgents =
+				schedule == null ? array : arrayOf(Cast.asList(scope, schedule.value(scope)));
+		return doStep(scope, scheduledAgents, species);
 	}
 
 	/**
@@ -277,14 +347,15 @@ public abstract class GamaExecutorService {
 	 *            the scope
 	 * @param array
 	 *            the array
-	 * @param threshold
-	 *            the threshold
 	 * @param species
 	 *            the species
 	 * @return the boolean
 	 */
-	private static <A extends IShape> Boolean doStep(final IScope scope, final A[] array, final int threshold,
-			final ISpecies species) {
+	private static <A extends IShape> Boolean doStep(final IScope scope, final A[] array, final ISpecies species) {
+		// The facet is evaluated once: its value gives both the threshold and the min. grain of adaptive steps
+		final IExpression facet = species.getConcurrency();
+		final Object parallel = facet == null ? null : facet.value(scope);
+		final int threshold = getParallelism(parallel, species.isGrid() ? Caller.GRID : Caller.SPECIES);
 		try (final StopWatch w = GAMA.benchmark(scope, species)) {
 			int concurrency = threshold;
 			if (array.length <= threshold) { concurrency = 0; }
@@ -298,11 +369,20 @@ public abstract class GamaExecutorService {
 						if (!scope.step(agent).passed()) return false;
 					}
 					break;
-				case 1:
-					for (final A agent : array) { executeThreaded(() -> scope.step((IAgent) agent)); }
-					break;
 				default:
-					ParallelAgentRunner.step(scope, array, threshold);
+					if (usesVirtualThreads(scope)) {
+						VirtualThreads.run(scope, array, concurrency,
+								(s, agent) -> agent.dead() || s.step(agent).passed());
+						break;
+					}
+					final int grain = concurrency == 1 ? chunkSize(array.length) : threshold;
+					if (CONCURRENCY_ADAPTIVE.getValue()) {
+						// An explicit number of agents per thread given by the 'parallel:' facet is a minimum
+						final int min = parallel instanceof Integer i && Math.abs(i) > 1 ? grain : 1;
+						ParallelAgentRunner.step(scope, array, grain, min, AdaptiveGrain.of(species), w);
+					} else {
+						ParallelAgentRunner.step(scope, array, grain);
+					}
 			}
 		}
 		return true;
@@ -337,9 +417,17 @@ public abstract class GamaExecutorService {
 				return;
 			// Break doesnt really make sense for parallel execution
 			case 1:
-				for (final A agent : array) { executeThreaded(() -> scope.execute(executable, (IAgent) agent, null)); }
+				if (usesVirtualThreads(scope)) {
+					VirtualThreads.run(scope, array, 1, (s, agent) -> s.execute(executable, agent, null).passed());
+				} else {
+					ParallelAgentRunner.execute(scope, executable, array, chunkSize(array.length));
+				}
 				return;
 			default:
+				if (usesVirtualThreads(scope)) {
+					VirtualThreads.run(scope, array, threshold, (s, agent) -> s.execute(executable, agent, null).passed());
+					return;
+				}
 				ParallelAgentRunner.execute(scope, executable, array, threshold);
 		}
 	}
@@ -17,6 +17,8 @@ import java.util.concurrent.RecursiveTask;
 import msi.gama.metamodel.agent.IAgent;
 import msi.gama.metamodel.shape.IShape;
 import msi.gama.runtime.IScope;
+import msi.gama.runtime.benchmark.StopWatch;
+import msi.gama.runtime.concurrent.AdaptiveGrain.ChunkTimes;
 import msi.gama.runtime.exceptions.GamaRuntimeException;
 import msi.gaml.statements.IExecutable;
 
@@ -33,6 +35,9 @@ public abstract class ParallelAgentRunner<T> extends RecursiveTask<T> implements
 	/** The original scope. */
 	final IScope originalScope;
 
+	/** The times of the chunks, if they are measured. */
+	ChunkTimes times;
+
 	/**
 	 * Execute.
 	 *
@@ -63,6 +68,30 @@ public abstract class ParallelAgentRunner<T> extends RecursiveTask<T> implements
 		return execute(runner);
 	}
 
+	/**
+	 * Steps the agents in chunks whose size is adapted to the durations measured during the previous runs.
+	 *
+	 * @param <A> the generic type
+	 * @param scope the scope
+	 * @param array the array
+	 * @param initial the grain used before any measure
+	 * @param min the min. grain
+	 * @param grain the adaptive grain
+	 * @param watch the stop watch of the species, which records the imbalance of the run
+	 * @return the boolean
+	 * @throws GamaRuntimeException the gama runtime exception
+	 */
+	public static <A extends IShape> Boolean step(final IScope scope, final A[] array, final int initial,
+			final int min, final AdaptiveGrain grain, final StopWatch watch) throws GamaRuntimeException {
+		final int used = grain.grain(initial, array.length, min);
+		final ParallelAgentStepper runner = from(scope, array, used);
+		runner.times = new ChunkTimes();
+		final Boolean result = execute(runner);
+		grain.adjust(runner.times, used, array.length, min);
+		watch.recordChunks(grain.getImbalance(), used);
+		return result;
+	}
+
 	/**
 	 * Execute.
 	 *
@@ -137,9 +166,16 @@ public abstract class ParallelAgentRunner<T> extends RecursiveTask<T> implements
 		final Spliterator<IAgent> sub = agents.trySplit();
 		T result;
 		if (sub == null) {
-			result = executeOn(originalScope);
+			if (times == null) {
+				result = executeOn(originalScope);
+			} else {
+				final long start = System.nanoTime();
+				result = executeOn(originalScope);
+				times.record(System.nanoTime() - start);
+			}
 		} else {
 			final ParallelAgentRunner<T> left = subTask(sub);
+			left.times = times;
 			left.fork();
 			result = compute();
 			left.join();
@@ -35,7 +35,7 @@ public class ParallelAgentStepper extends ParallelAgentRunner<Boolean> {
 	public Boolean executeOn(final IScope scope) throws GamaRuntimeException {
 		final Boolean[] mutableBoolean = { Boolean.TRUE };
 		agents.forEachRemaining(each -> {
-			if (mutableBoolean[0].booleanValue()) {
+			if (mutableBoolean[0].booleanValue() && !each.dead()) {
 				mutableBoolean[0] = Boolean.valueOf(scope.step(each).passed());
 			}
 		});
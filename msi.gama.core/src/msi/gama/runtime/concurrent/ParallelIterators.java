@@ -0,0 +1,193 @@
+/*******************************************************************************************************
+ *
+ * ParallelIterators.java, in msi.gama.core, is part of the source code of the GAMA modeling and simulation platform
+ * (v.1.9.3).
+ *
+ * (c) 2007-2024 UMI 209 UMMISCO IRD/SU & Partners (IRIT, MIAT, TLU, CTU)
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package msi.gama.runtime.concurrent;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import msi.gama.kernel.model.IModel;
+import msi.gama.runtime.IScope;
+import msi.gama.util.IContainer;
+import msi.gaml.descriptions.IDescription;
+import msi.gaml.descriptions.OperatorProto;
+import msi.gaml.descriptions.TypeDescription;
+import msi.gaml.descriptions.VariableDescription;
+import msi.gaml.expressions.ConstantExpression;
+import msi.gaml.expressions.IExpression;
+import msi.gaml.expressions.data.ListExpression;
+import msi.gaml.expressions.data.MapExpression;
+import msi.gaml.expressions.operators.IOperator;
+import msi.gaml.expressions.operators.PrimitiveOperator;
+import msi.gaml.expressions.types.TypeExpression;
+import msi.gaml.expressions.variables.AgentVariableExpression;
+import msi.gaml.expressions.variables.EachExpression;
+import msi.gaml.expressions.variables.GlobalVariableExpression;
+import msi.gaml.expressions.variables.MyselfExpression;
+import msi.gaml.expressions.variables.SelfExpression;
+import msi.gaml.expressions.variables.TempVariableExpression;
+import msi.gaml.expressions.variables.VariableExpression;
+import one.util.streamex.IntStreamEx;
+
+/**
+ * Evaluates the expressions of iterator operators ('where', 'collect', 'count', 'sum_of', 'group_by', 'first_with'...)
+ * on large containers in parallel, using the agent fork-join pool. The elements are divided in chunks, each evaluated
+ * in its own copy of the scope (so that 'each' is not shared between threads), and the values are returned in the
+ * order of the elements, so that the results of the operators do not change.
+ *
+ * Only the expressions made of constants, variables and operators known to be safe (see
+ * {@link OperatorProto#isParallelSafe()}) are evaluated in parallel. Expressions that call actions (which can have side
+ * effects), random operators (whose results would then depend on the order of evaluation), operators defined in
+ * plugins, or variables computed by a function (which can hide the call of an action) are always evaluated
+ * sequentially, as well as all the expressions of models that declare the '@sequential_iterators' pragma.
+ */
+public class ParallelIterators {
+
+	/** The min. number of elements under which expressions are always evaluated sequentially. */
+	static final int MIN_SIZE = 1000;
+
+	/** The number of chunks per thread, so that the threads can balance their work. */
+	static final int CHUNKS_PER_THREAD = 4;
+
+	/**
+	 * Returns the elements of the container if the expression should be evaluated in parallel on them, or null if it
+	 * should be evaluated sequentially.
+	 *
+	 * @param scope
+	 *            the scope
+	 * @param container
+	 *            the container
+	 * @param expression
+	 *            the expression
+	 * @return the elements or null
+	 */
+	public static Object[] elementsOf(final IScope scope, final IContainer<?, ?> container,
+			final IExpression expression) {
+		if (container == null || expression == null || !GamaExecutorService.CONCURRENCY_ITERATORS.getValue()
+				|| GamaExecutorService.AGENT_PARALLEL_EXECUTOR == null)
+			return null;
+		if (container.length(scope) < Math.max(MIN_SIZE, 2 * GamaExecutorService.CONCURRENCY_THRESHOLD.getValue()))
+			return null;
+		if (!canBeEvaluatedInParallel(scope, expression)) return null;
+		return container.stream(scope).toArray();
+	}
+
+	/**
+	 * Whether the expression can be evaluated in parallel.
+	 *
+	 * @param scope
+	 *            the scope
+	 * @param expression
+	 *            the expression
+	 * @return true, if successful
+	 */
+	static boolean canBeEvaluatedInParallel(final IScope scope, final IExpression expression) {
+		final IModel model = scope.getModel();
+		if (model != null && model.getDescription().hasSequentialIterators()) return false;
+		return !expression.findAny(e -> !isParallelSafe(e));
+	}
+
+	/**
+	 * Whether this expression (not including its operands) can be evaluated in parallel.
+	 *
+	 * @param e
+	 *            the expression
+	 * @return true, if is parallel safe
+	 */
+	static boolean isParallelSafe(final IExpression e) {
+		if (e instanceof PrimitiveOperator) return false;
+		if (e instanceof IOperator op) return op.getPrototype() != null && op.getPrototype().isParallelSafe();
+		if (e instanceof ConstantExpression || e instanceof TypeExpression || e instanceof ListExpression
+				|| e instanceof MapExpression || e instanceof EachExpression || e instanceof TempVariableExpression
+				|| e instanceof SelfExpression || e instanceof MyselfExpression)
+			return true;
+		if (e instanceof AgentVariableExpression || e instanceof GlobalVariableExpression) {
+			// Variables computed by a function are evaluated each time they are read
+			final IDescription d = ((VariableExpression) e).getDefinitionDescription();
+			final VariableDescription v =
+					d instanceof TypeDescription td ? td.getAttribute(((VariableExpression) e).getName()) : null;
+			return v != null && !v.isFunction();
+		}
+		return false;
+	}
+
+	/**
+	 * The size of the chunks.
+	 *
+	 * @param size
+	 *            the number of elements
+	 * @return the int
+	 */
+	static int chunkSize(final int size) {
+		final ForkJoinPool pool = GamaExecutorService.AGENT_PARALLEL_EXECUTOR;
+		final int chunks = pool.getParallelism() * CHUNKS_PER_THREAD;
+		return Math.max(GamaExecutorService.CONCURRENCY_THRESHOLD.getValue(), (size + chunks - 1) / chunks);
+	}
+
+	/**
+	 * Evaluates the expression on each of the elements.
+	 *
+	 * @param scope
+	 *            the scope
+	 * @param elements
+	 *            the elements
+	 * @param expression
+	 *            the expression
+	 * @return the values, in the order of the elements
+	 */
+	public static Object[] evaluate(final IScope scope, final Object[] elements, final IExpression expression) {
+		final Object[] values = new Object[elements.length];
+		final int chunk = chunkSize(elements.length);
+		IntStreamEx.range((elements.length + chunk - 1) / chunk).parallel(GamaExecutorService.AGENT_PARALLEL_EXECUTOR)
+				.forEach(c -> {
+					try (IScope copy = scope.copy(" - parallel iterator - ")) {
+						final int end = Math.min(elements.length, (c + 1) * chunk);
+						for (int i = c * chunk; i < end; i++) {
+							copy.setEach(elements[i]);
+							values[i] = expression.value(copy);
+						}
+					}
+				});
+		return values;
+	}
+
+	/**
+	 * Returns the index of the first element that makes the filter evaluate to true, or -1 if none does. The chunks
+	 * located after an element already found are not evaluated.
+	 *
+	 * @param scope
+	 *            the scope
+	 * @param elements
+	 *            the elements
+	 * @param filter
+	 *            the filter
+	 * @return the index
+	 */
+	public static int indexOfFirst(final IScope scope, final Object[] elements, final IExpression filter) {
+		final AtomicInteger first = new AtomicInteger(Integer.MAX_VALUE);
+		final int chunk = chunkSize(elements.length);
+		IntStreamEx.range((elements.length + chunk - 1) / chunk).parallel(GamaExecutorService.AGENT_PARALLEL_EXECUTOR)
+				.forEach(c -> {
+					try (IScope copy = scope.copy(" - parallel iterator - ")) {
+						final int end = Math.min(elements.length, (c + 1) * chunk);
+						for (int i = c * chunk; i < end && i < first.get(); i++) {
+							copy.setEach(elements[i]);
+							if ((Boolean) filter.value(copy)) {
+								first.accumulateAndGet(i, Math::min);
+								return;
+							}
+						}
+					}
+				});
+		final int result = first.get();
+		return result == Integer.MAX_VALUE ? -1 : result;
+	}
+
+}
@@ -12,15 +12,19 @@ package msi.gama.runtime.concurrent;
 
 import static java.util.concurrent.Executors.newSingleThreadExecutor;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static msi.gama.runtime.concurrent.GamaExecutorService.CONCURRENCY_VIRTUAL_THREADS;
 import static msi.gama.runtime.concurrent.GamaExecutorService.EXCEPTION_HANDLER;
 import static msi.gama.runtime.concurrent.GamaExecutorService.THREADS_NUMBER;
 import static msi.gama.runtime.concurrent.GamaExecutorService.getParallelism;
 
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
@@ -46,6 +50,9 @@ public class SimulationRunner {
 	/** The concurrency. */
 	final int concurrency;
 
+	/** Whether each simulation is run in its own virtual thread. */
+	final boolean virtual;
+
 	/** The active threads. */
 	volatile int activeThreads;
 
@@ -64,7 +71,8 @@ public class SimulationRunner {
 		} else {
 			concurrency = getParallelism(pop.getHost().getScope(), plan.getConcurrency(), Caller.SIMULATION);
 		}
-		return withConcurrency(concurrency);
+		return new SimulationRunner(concurrency < 0 ? 1 : concurrency,
+				concurrency != 0 && (CONCURRENCY_VIRTUAL_THREADS.getValue() || plan.usesVirtualThreads()));
 	}
 
 	/**
@@ -75,7 +83,7 @@ public class SimulationRunner {
 	 * @return the simulation runner
 	 */
 	public static SimulationRunner withConcurrency(final int concurrency) {
-		return new SimulationRunner(concurrency < 0 ? 1 : concurrency);
+		return new SimulationRunner(concurrency < 0 ? 1 : concurrency, false);
 	}
 
 	/**
@@ -83,9 +91,12 @@ public class SimulationRunner {
 	 *
 	 * @param concurrency
 	 *            the concurrency
+	 * @param virtual
+	 *            whether each simulation is run in its own virtual thread
 	 */
-	private SimulationRunner(final int concurrency) {
+	private SimulationRunner(final int concurrency, final boolean virtual) {
 		this.concurrency = concurrency;
+		this.virtual = virtual;
 		runnables = new LinkedHashMap<>();
 	}
 
@@ -129,19 +140,42 @@ public class SimulationRunner {
 	 */
 	public void step() {
 		try {
-			getExecutor().invokeAll(runnables.values());
+			final List<Future<Boolean>> results = getExecutor().invokeAll(runnables.values());
+			// The shared executor of virtual threads does not report the exceptions of the tasks
+			if (virtual) {
+				for (final Future<Boolean> result : results) {
+					try {
+						result.get();
+					} catch (final ExecutionException ee) {
+						EXCEPTION_HANDLER.uncaughtException(Thread.currentThread(), ee.getCause());
+					}
+				}
+			}
 		} catch (final InterruptedException e) {
 
 		}
 
 	}
 
+	/**
+	 * Returns a completion service running its tasks on the executor of this runner. Used by batch experiments to run
+	 * each simulation until its end independently of the others, instead of stepping them all with {@link #step()}.
+	 *
+	 * @param <T>
+	 *            the type of the results of the tasks
+	 * @return the completion service
+	 */
+	public <T> CompletionService<T> newCompletionService() {
+		return new ExecutorCompletionService<>(getExecutor());
+	}
+
 	/**
 	 * Compute number of threads.
 	 *
 	 * @return the int
 	 */
 	private int computeNumberOfThreads() {
+		if (virtual) return runnables.size();
 		return getExecutor() instanceof ThreadPoolExecutor tpe ? Math.min(concurrency, tpe.getActiveCount()) : 1;
 	}
 
@@ -151,9 +185,14 @@ public class SimulationRunner {
 	 * @return the executor
 	 */
 	protected ExecutorService getExecutor() {
-		return executor == null
-				? executor = concurrency == 0 ? newSingleThreadExecutor() : new Executor(THREADS_NUMBER.getValue())
-				: executor;
+		if (executor == null) {
+			if (virtual) {
+				executor = VirtualThreads.executor();
+			} else {
+				executor = concurrency == 0 ? newSingleThreadExecutor() : new Executor(THREADS_NUMBER.getValue());
+			}
+		}
+		return executor;
 	}
 
 	/**
@@ -161,7 +200,8 @@ public class SimulationRunner {
 	 */
 	public void dispose() {
 		runnables.clear();
-		if (executor != null) { executor.shutdownNow(); }
+		// The executor of virtual threads is shared
+		if (executor != null && !virtual) { executor.shutdownNow(); }
 	}
 
 	/**
@@ -0,0 +1,220 @@
+/*******************************************************************************************************
+ *
+ * VirtualThreads.java, in msi.gama.core, is part of the source code of the GAMA modeling and simulation platform
+ * (v.1.9.3).
+ *
+ * (c) 2007-2024 UMI 209 UMMISCO IRD/SU & Partners (IRIT, MIAT, TLU, CTU)
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package msi.gama.runtime.concurrent;
+
+import static msi.gama.runtime.concurrent.GamaExecutorService.EXCEPTION_HANDLER;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiPredicate;
+
+import msi.gama.metamodel.agent.IAgent;
+import msi.gama.metamodel.shape.IShape;
+import msi.gama.runtime.IScope;
+import msi.gama.runtime.exceptions.GamaRuntimeException;
+
+/**
+ * Runs tasks each in its own thread, rather than in the bounded pools of {@link GamaExecutorService} and
+ * {@link SimulationRunner}, so that tasks blocking on I/O (network connectors, files...) do not prevent the others from
+ * running. Uses the virtual threads of the Java runtime when they are available (Java 21 and later, looked up
+ * reflectively as GAMA targets Java 17). Otherwise, the simulations are run in a pool bounded to the number of threads
+ * of the preferences and the agents in the pool of {@link GamaExecutorService#AGENT_PARALLEL_EXECUTOR}, as when
+ * virtual threads are not asked for.
+ *
+ * The tasks of a cycle are structured: they are all submitted at once and the cycle only ends when all of them have
+ * ended, the first exception being rethrown to the caller.
+ */
+public class VirtualThreads {
+
+	/** The max. number of tasks created to run the agents of a population. */
+	static final int MAX_TASKS = 10_000;
+
+	/** The executor. */
+	private static volatile ExecutorService executor;
+
+	/** Whether the Java runtime supports virtual threads. */
+	private static Boolean supported;
+
+	/** The method Thread.isVirtual(), or null if the Java runtime does not support virtual threads. */
+	private static final MethodHandle IS_VIRTUAL;
+
+	static {
+		MethodHandle isVirtual = null;
+		try {
+			isVirtual = MethodHandles.publicLookup().findVirtual(Thread.class, "isVirtual",
+					MethodType.methodType(boolean.class));
+		} catch (final ReflectiveOperationException e) {
+			// Java 17: no virtual threads
+		}
+		IS_VIRTUAL = isVirtual;
+	}
+
+	/**
+	 * Whether the current thread is a virtual thread.
+	 *
+	 * @return true, if it is virtual
+	 */
+	public static boolean isCurrentThreadVirtual() {
+		if (IS_VIRTUAL == null) return false;
+		try {
+			return (boolean) IS_VIRTUAL.invokeExact(Thread.currentThread());
+		} catch (final Throwable e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Whether the Java runtime supports virtual threads.
+	 *
+	 * @return true, if is supported
+	 */
+	public static boolean isSupported() {
+		if (supported == null) {
+			try {
+				Thread.class.getMethod("ofVirtual");
+				supported = true;
+			} catch (final NoSuchMethodException e) {
+				supported = false;
+			}
+		}
+		return supported;
+	}
+
+	/**
+	 * The executor, which runs each task in a new virtual thread, or in a pool bounded to the number of threads of the
+	 * preferences if virtual threads are not supported.
+	 *
+	 * @return the executor service
+	 */
+	public static ExecutorService executor() {
+		if (executor == null) {
+			synchronized (VirtualThreads.class) {
+				if (executor == null) { executor = create(); }
+			}
+		}
+		return executor;
+	}
+
+	/**
+	 * Creates the executor.
+	 *
+	 * @return the executor service
+	 */
+	static ExecutorService create() {
+		if (isSupported()) {
+			try {
+				return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+			} catch (final ReflectiveOperationException e) {
+				// Falls back to platform threads
+			}
+		}
+		final int n = Math.max(1, GamaExecutorService.THREADS_NUMBER.getValue());
+		final ThreadPoolExecutor pool = new ThreadPoolExecutor(n, n, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+				r -> {
+					final Thread t = new Thread(r, "GAMA task");
+					t.setDaemon(true);
+					t.setUncaughtExceptionHandler(EXCEPTION_HANDLER);
+					return t;
+				});
+		pool.allowCoreThreadTimeOut(true);
+		return pool;
+	}
+
+	/**
+	 * Runs the tasks and waits for all of them to end. Without virtual threads, the tasks are run in the pool used for
+	 * the agents (or sequentially if there is none), rather than in the bounded pool of the simulations, which could
+	 * otherwise be entirely taken by the simulations waiting for their agents.
+	 *
+	 * @param scope
+	 *            the scope
+	 * @param tasks
+	 *            the tasks
+	 * @return true if all the tasks have returned true
+	 * @throws GamaRuntimeException
+	 *             the first exception thrown by a task
+	 */
+	public static boolean invokeAll(final IScope scope, final List<? extends Callable<Boolean>> tasks)
+			throws GamaRuntimeException {
+		boolean result = true;
+		try {
+			final List<Future<Boolean>> futures;
+			if (isSupported()) {
+				futures = executor().invokeAll(tasks);
+			} else {
+				final ForkJoinPool pool = GamaExecutorService.AGENT_PARALLEL_EXECUTOR;
+				if (pool == null) {
+					for (final Callable<Boolean> task : tasks) { result &= task.call(); }
+					return result;
+				}
+				futures = pool.invokeAll(tasks);
+			}
+			for (final Future<Boolean> f : futures) { result &= f.get(); }
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		} catch (final ExecutionException e) {
+			if (e.getCause() instanceof GamaRuntimeException g) throw g;
+			throw GamaRuntimeException.create(e.getCause(), scope);
+		} catch (final GamaRuntimeException e) {
+			throw e;
+		} catch (final Exception e) {
+			throw GamaRuntimeException.create(e, scope);
+		}
+		return result;
+	}
+
+	/**
+	 * Applies an action to the agents, divided in chunks of the given size, each chunk being run in its own thread with
+	 * its own copy of the scope.
+	 *
+	 * @param <A>
+	 *            the generic type
+	 * @param scope
+	 *            the scope
+	 * @param array
+	 *            the agents
+	 * @param grain
+	 *            the number of agents in each chunk
+	 * @param action
+	 *            the action, returning false to stop the chunk
+	 * @return true if the action has returned true for all the agents
+	 * @throws GamaRuntimeException
+	 *             the gama runtime exception
+	 */
+	public static <A extends IShape> boolean run(final IScope scope, final A[] array, final int grain,
+			final BiPredicate<IScope, IAgent> action) throws GamaRuntimeException {
+		final int size = Math.max(Math.max(1, grain), (array.length + MAX_TASKS - 1) / MAX_TASKS);
+		final List<Callable<Boolean>> tasks = new ArrayList<>((array.length + size - 1) / size);
+		for (int from = 0; from < array.length; from += size) {
+			final int begin = from, end = Math.min(array.length, from + size);
+			tasks.add(() -> {
+				try (IScope copy = scope.copy(" - virtual thread - ")) {
+					for (int i = begin; i < end; i++) { if (!action.test(copy, (IAgent) array[i])) return false; }
+				}
+				return true;
+			});
+		}
+		return invokeAll(scope, tasks);
+	}
+
+}
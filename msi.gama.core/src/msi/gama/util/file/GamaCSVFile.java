@@ -10,6 +10,7 @@
  ********************************************************************************************************/
 package msi.gama.util.file;
 
+import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.util.Arrays;
@@ -29,6 +30,7 @@ import msi.gama.util.GamaListFactory;
 import msi.gama.util.IList;
 import msi.gama.util.file.csv.AbstractCSVManipulator.Letters;
 import msi.gama.util.file.csv.CsvReader;
+import msi.gama.util.file.csv.MappedCsvReader;
 import msi.gama.util.matrix.GamaFloatMatrix;
 import msi.gama.util.matrix.GamaIntMatrix;
 import msi.gama.util.matrix.GamaObjectMatrix;
@@ -135,9 +137,26 @@ public class GamaCSVFile extends GamaFile<IMatrix<Object>, Object> implements IF
 		 *            the CS vsep
 		 */
 		public CSVInfo(final String fileName, final long modificationStamp, final String CSVsep) {
+			this(fileName, modificationStamp, CSVsep, false);
+		}
+
+		/**
+		 * Instantiates a new CSV info.
+		 *
+		 * @param fileName
+		 *            the file name
+		 * @param modificationStamp
+		 *            the modification stamp
+		 * @param CSVsep
+		 *            the CS vsep
+		 * @param firstLinesOnly
+		 *            whether only the first two lines should be read (in which case the number of rows is not computed)
+		 */
+		public CSVInfo(final String fileName, final long modificationStamp, final String CSVsep,
+				final boolean firstLinesOnly) {
 			super(modificationStamp);
 			try (CsvReader reader = new CsvReader(fileName)) {
-				process(reader, CSVsep);
+				process(reader, CSVsep, firstLinesOnly);
 			} catch (FileNotFoundException e) {}
 		}
 
@@ -150,6 +169,20 @@ public class GamaCSVFile extends GamaFile<IMatrix<Object>, Object> implements IF
 		 *            the CS vsep
 		 */
 		public void process(final CsvReader reader, final String CSVsep) {
+			process(reader, CSVsep, false);
+		}
+
+		/**
+		 * Process.
+		 *
+		 * @param reader
+		 *            the reader
+		 * @param CSVsep
+		 *            the CS vsep
+		 * @param firstLinesOnly
+		 *            whether only the first two lines should be read
+		 */
+		public void process(final CsvReader reader, final String CSVsep, final boolean firstLinesOnly) {
 			// By default now (see #3786)
 			// reader.setTextQualifier(AbstractCSVManipulator.getDefaultQualifier());
 			boolean firstLineHasNumber = false;
@@ -170,7 +203,7 @@ public class GamaCSVFile extends GamaFile<IMatrix<Object>, Object> implements IF
 					// We process the second line
 					type = processRecord(reader.getValues());
 				}
-				while (reader.readRecord()) { if (reader.columnsCount > cols) { cols = reader.columnsCount; } }
+				while (!firstLinesOnly && reader.readRecord()) { if (reader.columnsCount > cols) { cols = reader.columnsCount; } }
 			} catch (final IOException e) {}
 			if (!type.equals(firstLineType) || !firstLineHasNumber && atLeastOneNumber) {
 				header = true;
@@ -314,6 +347,9 @@ public class GamaCSVFile extends GamaFile<IMatrix<Object>, Object> implements IF
 
 	}
 
+	/** The size (in bytes) above which agents are created from the file by reading it by batches of rows. */
+	public static final long MIN_STREAMED_SIZE = 8 << 20;
+
 	/** The csv separator. */
 	String csvSeparator = null;
 
@@ -773,6 +809,35 @@ public class GamaCSVFile extends GamaFile<IMatrix<Object>, Object> implements IF
 		return hasHeader == null ? false : hasHeader;
 	}
 
+	/**
+	 * Opens a reader that reads the rows of the file by batches, without loading the contents of the file in memory.
+	 * Only the first lines of the file are analysed to determine its delimiter, header and type when they have not been
+	 * specified. Returns null if the file is better read at once: when its contents are already loaded, when it is
+	 * smaller than {@link #MIN_STREAMED_SIZE} or when its delimiter or text qualifier are not ASCII characters.
+	 *
+	 * @param scope
+	 *            the scope
+	 * @return the reader or null
+	 * @throws GamaRuntimeException
+	 *             the gama runtime exception
+	 */
+	public MappedCsvReader openReader(final IScope scope) throws GamaRuntimeException {
+		if (getBuffer() != null) return null;
+		flushSaves(scope);
+		final File file = getFile(scope);
+		if (!file.isFile() || file.length() < MIN_STREAMED_SIZE) return null;
+		final CSVInfo stats = info != null ? info : new CSVInfo(file.getAbsolutePath(), 0, csvSeparator, true);
+		final char separator = csvSeparator == null ? stats.delimiter : csvSeparator.charAt(0);
+		if (!MappedCsvReader.isAscii(separator) || !MappedCsvReader.isAscii(textQualifier)) return null;
+		final boolean header = hasHeader == null ? stats.header : hasHeader;
+		try {
+			return new MappedCsvReader(file.toPath(), separator, textQualifier, header,
+					contentsType == null ? stats.type : contentsType, stats.cols);
+		} catch (final IOException e) {
+			throw GamaRuntimeException.create(e, scope);
+		}
+	}
+
 	@Override
 	public int getRows(final IScope scope) {
 		return getInfo(scope, null).rows;
@@ -35,6 +35,7 @@ import msi.gama.util.matrix.IMatrix;
 import msi.gaml.expressions.IExpression;
 import msi.gaml.operators.Cast;
 import msi.gaml.statements.Facets;
+import msi.gaml.statements.save.SaveWriters;
 import msi.gaml.types.IType;
 import one.util.streamex.StreamEx;
 
@@ -468,8 +469,11 @@ public abstract class GamaFile<Container extends IAddressableContainer & IModifi
 
 	@Override
 	public Container getContents(final IScope scope) throws GamaRuntimeException {
-		if (buffer == null && !exists(scope))
-			throw GamaRuntimeException.error("File " + getFile(scope).getAbsolutePath() + " does not exist", scope);
+		if (buffer == null) {
+			if (!exists(scope)) throw GamaRuntimeException
+					.error("File " + getFile(scope).getAbsolutePath() + " does not exist", scope);
+			flushSaves(scope);
+		}
 		fillBuffer(scope);
 		return getBuffer();
 	}
@@ -600,6 +604,17 @@ public abstract class GamaFile<Container extends IAddressableContainer & IModifi
 		return file;
 	}
 
+	/**
+	 * Writes what has been saved in the file but is still buffered (see {@link SaveWriters}). To be called before the
+	 * file is read.
+	 *
+	 * @param scope
+	 *            the scope
+	 */
+	protected void flushSaves(final IScope scope) {
+		SaveWriters.flush(scope, getFile(scope));
+	}
+
 	@Override
 	public Container getBuffer() { return buffer; }
 
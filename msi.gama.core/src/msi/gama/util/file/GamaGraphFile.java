@@ -82,12 +82,16 @@ public abstract class GamaGraphFile extends GamaFile<IGraph<?, ?>, Object> {
 	@Override
 	protected void fillBuffer(final IScope scope) throws GamaRuntimeException {
 		if (getBuffer() != null) return;
-		GraphImporter<String, DefaultEdge> parser = GraphImporters.getGraphImporter(getFileType());
-		DirectedMultigraph<String, DefaultEdge> graph =
-				new DirectedMultigraph<>(SupplierUtil.createStringSupplier(), SupplierUtil.DEFAULT_EDGE_SUPPLIER, true);
-
-		parser.importGraph(graph, this.getFile(scope));
-		setBuffer(new GamaGraph<>(scope, graph, nodeS, edgeS));
+		// The graph parsed is shared by the simulations of the experiment, if any: each of them builds its own graph
+		// (and agents) from it
+		final DirectedMultigraph<String, DefaultEdge> graph = SharedFileContents.get(scope, this, () -> {
+			GraphImporter<String, DefaultEdge> parser = GraphImporters.getGraphImporter(getFileType());
+			DirectedMultigraph<String, DefaultEdge> parsed = new DirectedMultigraph<>(
+					SupplierUtil.createStringSupplier(), SupplierUtil.DEFAULT_EDGE_SUPPLIER, true);
+			parser.importGraph(parsed, this.getFile(scope));
+			return parsed;
+		}, getFileType());
+		setBuffer(new GamaGraph<>(scope, graph, nodeS, edgeS, null, null, SharedFileContents.isEnabled(scope)));
 	}
 
 	/**
@@ -106,6 +106,23 @@ public class GamaGraphMLFile extends GamaGraphFile {
 	@Override
 	protected void fillBuffer(final IScope scope) throws GamaRuntimeException {
 		if (getBuffer() != null) return;
+		// The graph parsed is shared by the simulations of the experiment, if any: each of them builds its own graph
+		// (and agents) from it
+		final DirectedMultigraph<GamaGraphMLNodeImporter, GamaGraphMLEdgeImporter> graph =
+				SharedFileContents.get(scope, this, () -> parse(scope));
+		GamaGraph g =
+				new GamaGraph(scope, graph, nodeS, edgeS, nodeAttr, edgeAttr, SharedFileContents.isEnabled(scope));
+		setBuffer(g);
+//		setBuffer((GamaGraph<Object, DefaultEdge>) new GamaGraph<GamaGraphMLNodeImporter, GamaGraphMLEdgeImporter>(scope, graph, nodeS, edgeS, nodeAttr, edgeAttr));
+	}
+
+	/**
+	 * Parses the file.
+	 *
+	 * @param scope the scope
+	 * @return the graph
+	 */
+	private DirectedMultigraph<GamaGraphMLNodeImporter, GamaGraphMLEdgeImporter> parse(final IScope scope) {
 		GraphImporter<GamaGraphMLNodeImporter, GamaGraphMLEdgeImporter> generic_parser = GraphImporters.getGraphImporter(getFileType());
 		GraphMLImporter<GamaGraphMLNodeImporter, GamaGraphMLEdgeImporter> parser ;
 		if(generic_parser instanceof GraphMLImporter) {
@@ -133,10 +150,7 @@ public class GamaGraphMLFile extends GamaGraphFile {
 				new DirectedMultigraph<>(new GamaGraphMLNodeImporterSupplier(), new GamaGraphMLEdgeImporterSupplier(), true);
 
 		parser.importGraph(graph, this.getFile(scope));
-		
-		GamaGraph g = new GamaGraph(scope, graph, nodeS, edgeS, nodeAttr, edgeAttr);
-		setBuffer(g);
-//		setBuffer((GamaGraph<Object, DefaultEdge>) new GamaGraph<GamaGraphMLNodeImporter, GamaGraphMLEdgeImporter>(scope, graph, nodeS, edgeS, nodeAttr, edgeAttr));
+		return graph;
 	}	
 
 	/**
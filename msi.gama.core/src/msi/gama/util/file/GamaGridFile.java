@@ -64,7 +64,9 @@ import msi.gama.util.GamaListFactory;
 import msi.gama.util.IList;
 import msi.gama.util.matrix.GamaField;
 import msi.gama.util.matrix.GamaFloatMatrix;
+import msi.gama.util.matrix.GamaTiledField;
 import msi.gama.util.matrix.IField;
+import msi.gama.util.matrix.TiledRaster;
 import msi.gaml.statements.Facets;
 import msi.gaml.types.GamaGeometryType;
 import msi.gaml.types.IType;
@@ -571,8 +573,6 @@ public class GamaGridFile extends GamaGisFile implements IFieldMatrixProvider {
 			geom = GamaGeometryType.buildPolygon(shapes);
 			if (!readAll) return;
 
-			final double cmx = cellWidth / 2;
-			final double cmy = cellHeight / 2;
 			double cellHeightP;
 			double cellWidthP;
 			double originXP;
@@ -589,47 +589,16 @@ public class GamaGridFile extends GamaGisFile implements IFieldMatrixProvider {
 				originXP = ascInfo[2];
 				maxYP = ascInfo[3];
 			}
-			final double cmxP = cellWidthP / 2;
-			final double cmyP = cellHeightP / 2;
-
 			if (records == null) {
-				records = new Records();
-				records.x = new double[numRows * numCols]; // x
-				records.y = new double[numRows * numCols]; // y
-				records.bands.add(new double[numRows * numCols]); // data
-				for (int i = 0, n = numRows * numCols; i < n; i++) {
-					scope.getGui().getStatus().setSubStatusCompletion(scope, i / (double) n);
-
-					final int yy = i / numCols;
-					final int xx = i - yy * numCols;
-
-					records.x[i] = originX + xx * cellWidth + cmx;
-					records.y[i] = maxY - (yy * cellHeight + cmy);
-
-					double[] vd = getValue(scope, originXP + xx * cellWidthP + cmxP, maxYP - (yy * cellHeightP + cmyP),
-							xx, yy);
-					nbBands = vd.length;
-					if (i == 0 && vd.length > 1) {
-						for (int j = 0; j < vd.length - 1; j++) { records.bands.add(new double[numRows * numCols]); }
-					}
-					for (int j = 0; j < vd.length; j++) { records.bands.get(j)[i] = vd[j]; }
-
-					// else if (byteValues) {
-					// final byte[] bv = (byte[]) vals;
-					// if (i == 0) { nbBands = bv.length; }
-					// if (bv.length == 1) {
-					// final double v = Double.valueOf(((byte[]) vals)[0]);
-					// rect.setAttribute("grid_value", v);
-					// } else if (bv.length == 3) {
-					// final int red = bv[0] < 0 ? 256 + bv[0] : bv[0];
-					// final int green = bv[0] < 0 ? 256 + bv[1] : bv[1];
-					// final int blue = bv[0] < 0 ? 256 + bv[2] : bv[2];
-					// rect.setAttribute("grid_value", (red + green + blue) / 3.0);
-					// }
-					// rect.setAttribute("bands", GamaListFactory.create(scope, Types.FLOAT, bv));
-					// }
-
-				}
+				// The values of the cells are shared by the simulations of the experiment, if any. They are keyed by
+				// all the values they are computed from, including the projected origin and the reference systems
+				records = SharedFileContents.get(scope, this,
+						() -> readRecords(scope, originX, maxY, cellWidth, cellHeight, originXP, maxYP, cellWidthP,
+								cellHeightP),
+						numRows, numCols, envP, originX, maxY, cellWidth, cellHeight, originXP, maxYP, cellWidthP,
+						cellHeightP, gis == null ? null : gis.getInitialCRS(scope),
+						gis == null ? null : gis.getTargetCRS(scope));
+				nbBands = records.bands.size();
 				if (createGeometries) {
 					// System.out.println("Building geometries !");
 					for (int i = 0, n = numRows * numCols; i < n; i++) {
@@ -658,6 +627,75 @@ public class GamaGridFile extends GamaGisFile implements IFieldMatrixProvider {
 
 	}
 
+	/**
+	 * Reads the coordinates and the values of the cells.
+	 *
+	 * @param scope
+	 *            the scope
+	 * @param originX
+	 *            the min. x of the projected envelope
+	 * @param maxY
+	 *            the max. y of the projected envelope
+	 * @param cellWidth
+	 *            the projected width of the cells
+	 * @param cellHeight
+	 *            the projected height of the cells
+	 * @param originXP
+	 *            the min. x of the envelope of the file
+	 * @param maxYP
+	 *            the max. y of the envelope of the file
+	 * @param cellWidthP
+	 *            the width of the cells in the file
+	 * @param cellHeightP
+	 *            the height of the cells in the file
+	 * @return the records
+	 */
+	private Records readRecords(final IScope scope, final double originX, final double maxY, final double cellWidth,
+			final double cellHeight, final double originXP, final double maxYP, final double cellWidthP,
+			final double cellHeightP) {
+		final double cmx = cellWidth / 2;
+		final double cmy = cellHeight / 2;
+		final double cmxP = cellWidthP / 2;
+		final double cmyP = cellHeightP / 2;
+		final Records result = new Records();
+		result.x = new double[numRows * numCols]; // x
+		result.y = new double[numRows * numCols]; // y
+		result.bands.add(new double[numRows * numCols]); // data
+		for (int i = 0, n = numRows * numCols; i < n; i++) {
+			scope.getGui().getStatus().setSubStatusCompletion(scope, i / (double) n);
+
+			final int yy = i / numCols;
+			final int xx = i - yy * numCols;
+
+			result.x[i] = originX + xx * cellWidth + cmx;
+			result.y[i] = maxY - (yy * cellHeight + cmy);
+
+			double[] vd = getValue(scope, originXP + xx * cellWidthP + cmxP, maxYP - (yy * cellHeightP + cmyP),
+					xx, yy);
+			if (i == 0 && vd.length > 1) {
+				for (int j = 0; j < vd.length - 1; j++) { result.bands.add(new double[numRows * numCols]); }
+			}
+			for (int j = 0; j < vd.length; j++) { result.bands.get(j)[i] = vd[j]; }
+
+			// else if (byteValues) {
+			// final byte[] bv = (byte[]) vals;
+			// if (i == 0) { nbBands = bv.length; }
+			// if (bv.length == 1) {
+			// final double v = Double.valueOf(((byte[]) vals)[0]);
+			// rect.setAttribute("grid_value", v);
+			// } else if (bv.length == 3) {
+			// final int red = bv[0] < 0 ? 256 + bv[0] : bv[0];
+			// final int green = bv[0] < 0 ? 256 + bv[1] : bv[1];
+			// final int blue = bv[0] < 0 ? 256 + bv[2] : bv[2];
+			// rect.setAttribute("grid_value", (red + green + blue) / 3.0);
+			// }
+			// rect.setAttribute("bands", GamaListFactory.create(scope, Types.FLOAT, bv));
+			// }
+
+		}
+		return result;
+	}
+
 	@Override
 	public Envelope3D computeEnvelope(final IScope scope) {
 		if (gis == null) { createCoverage(scope); }
@@ -836,6 +874,23 @@ public class GamaGridFile extends GamaGisFile implements IFieldMatrixProvider {
 		return noData.doubleValue();
 	}
 
+	/**
+	 * Returns a field whose values are read by tiles from a cache on disk when the grid is too large (see the
+	 * 'pref_raster_tiling_threshold' preference), and a field in memory otherwise.
+	 */
+	@Override
+	public IField getField(final IScope scope) {
+		createCoverage(scope);
+		if (coverage == null || !TiledRaster.shouldTile(numCols, numRows))
+			return IFieldMatrixProvider.super.getField(scope);
+		try {
+			return new GamaTiledField(scope, TiledRaster.of(scope, getFile(scope), coverage.getRenderedImage()),
+					getNoData(scope));
+		} catch (final IOException e) {
+			throw GamaRuntimeException.create(e, scope);
+		}
+	}
+
 	@Override
 	public int getRows(final IScope scope) {
 		createCoverage(scope);
@@ -44,6 +44,9 @@ import msi.gama.common.geometry.GeometryUtils;
 import msi.gama.common.preferences.GamaPreferences;
 import msi.gama.metamodel.shape.GamaGisGeometry;
 import msi.gama.metamodel.shape.GamaShape;
+import msi.gama.metamodel.shape.GamaShapeFactory;
+import msi.gama.metamodel.shape.IShape;
+import msi.gama.metamodel.topology.projection.IProjection;
 import msi.gama.metamodel.topology.projection.ProjectionFactory;
 import msi.gama.precompiler.GamlAnnotations.doc;
 import msi.gama.precompiler.GamlAnnotations.example;
@@ -442,6 +445,34 @@ public class GamaShapeFile extends GamaGisFile {
 
 	}
 
+	/**
+	 * When the contents of files are shared between simulations (see {@link SharedFileContents}), the shapes are only
+	 * read once, and each simulation gets a copy of them, as the geometries of agents are modified in place.
+	 */
+	@Override
+	protected void fillBuffer(final IScope scope) throws GamaRuntimeException {
+		if (getBuffer() != null) return;
+		if (!SharedFileContents.isEnabled(scope)) {
+			super.fillBuffer(scope);
+			return;
+		}
+		// Computed in any case, as the projection of the first file read defines the world of the simulation
+		computeEnvelope(scope);
+		final IProjection world = scope.getSimulation().getProjectionFactory().getWorld();
+		final IList<IShape> shapes = SharedFileContents.get(scope, this, () -> {
+			super.fillBuffer(scope);
+			final IList<IShape> master = getBuffer();
+			setBuffer(null);
+			return master;
+		}, with3D, initialCRSCode, initialCRSCodeStr, gis.getProjectedEnvelope(),
+				world == null ? null : world.getProjectedEnvelope());
+		final IList<IShape> copy = GamaListFactory.create(Types.GEOMETRY, shapes.size());
+		for (final IShape s : shapes) {
+			copy.add(GamaShapeFactory.createFrom(s.getInnerGeometry().copy()).withAttributesOf(s));
+		}
+		setBuffer(copy);
+	}
+
 	@Override
 	protected final void readShapes(final IScope scope) {
 		ProgressCounter counter = new ProgressCounter(scope, "Reading " + getName(scope));
@@ -0,0 +1,125 @@
+/*******************************************************************************************************
+ *
+ * SharedFileContents.java, in msi.gama.core, is part of the source code of the GAMA modeling and simulation platform
+ * (v.1.9.3).
+ *
+ * (c) 2007-2024 UMI 209 UMMISCO IRD/SU & Partners (IRIT, MIAT, TLU, CTU)
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package msi.gama.util.file;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.function.Supplier;
+
+import com.google.common.collect.MapMaker;
+
+import msi.gama.common.preferences.GamaPreferences;
+import msi.gama.kernel.experiment.IExperimentAgent;
+import msi.gama.runtime.IScope;
+import msi.gama.runtime.concurrent.GamaExecutorService;
+import msi.gama.runtime.exceptions.GamaRuntimeException;
+
+/**
+ * The contents of the files read by the simulations of an experiment, shared by all of them (see the
+ * 'pref_share_file_contents' preference). When many simulations of the same model are run (for instance by batch
+ * experiments), each of them reads the same shapefiles, grid files and graph files in its 'global' init: the contents
+ * are only read (and projected) by the first one, and kept here as an immutable master copy.
+ *
+ * The master copy is never given to the simulations: files either copy it (when their contents are mutable, like
+ * geometries) or build their own contents from it (like graphs and grids). The contents are identified by the class
+ * and path of the file, its date of modification and size, and whatever else (projection, options...) their reading
+ * depends on, and are released with the experiment. Spatial indices are not shared: each simulation indexes its own
+ * agents, which move and change their geometries independently of the other simulations.
+ */
+public class SharedFileContents {
+
+	/** The shared contents of each experiment. Keys are weak, so that the contents are released with the experiment. */
+	static final ConcurrentMap<IExperimentAgent, SharedFileContents> EXPERIMENTS = new MapMaker().weakKeys().makeMap();
+
+	/** The contents, being read or already read. */
+	final ConcurrentMap<List<Object>, Future<Object>> contents = new ConcurrentHashMap<>();
+
+	/**
+	 * The shared contents of the experiment of this scope, or null if contents should not be shared: when the
+	 * preference is off, or when the experiment is not a batch and does not run its simulations in parallel.
+	 *
+	 * @param scope
+	 *            the scope
+	 * @return the shared file contents or null
+	 */
+	static SharedFileContents of(final IScope scope) {
+		if (scope == null || !GamaPreferences.External.SHARE_FILE_CONTENTS.getValue()) return null;
+		final IExperimentAgent experiment = scope.getExperiment();
+		if (experiment == null || scope.getSimulation() == null) return null;
+		if (!experiment.getSpecies().isBatch() && !GamaExecutorService.shouldRunAllSimulationsInParallel(experiment))
+			return null;
+		return EXPERIMENTS.computeIfAbsent(experiment, e -> new SharedFileContents());
+	}
+
+	/**
+	 * Whether the contents of files are shared in this scope.
+	 *
+	 * @param scope
+	 *            the scope
+	 * @return true, if is enabled
+	 */
+	public static boolean isEnabled(final IScope scope) {
+		return of(scope) != null;
+	}
+
+	/**
+	 * Returns the contents of the file, read by the loader if no simulation of the experiment has read them yet. If
+	 * several simulations ask for the same contents at the same time, only one of them reads them and the others wait
+	 * for it. If contents are not shared, the loader is simply called.
+	 *
+	 * @param <T>
+	 *            the type of the contents
+	 * @param scope
+	 *            the scope
+	 * @param file
+	 *            the file
+	 * @param loader
+	 *            the loader
+	 * @param discriminators
+	 *            the values, other than the file itself, on which the contents depend
+	 * @return the contents
+	 * @throws GamaRuntimeException
+	 *             the exception thrown by the loader
+	 */
+	@SuppressWarnings ("unchecked")
+	public static <T> T get(final IScope scope, final GamaFile<?, ?> file, final Supplier<T> loader,
+			final Object... discriminators) throws GamaRuntimeException {
+		final SharedFileContents shared = of(scope);
+		if (shared == null) return loader.get();
+		final File f = file.getFile(scope);
+		final List<Object> key = Arrays.asList(file.getClass(), f.getAbsolutePath(), f.lastModified(), f.length(),
+				Arrays.asList(discriminators));
+		final FutureTask<Object> task = new FutureTask<>(loader::get);
+		Future<Object> existing = shared.contents.putIfAbsent(key, task);
+		if (existing == null) {
+			existing = task;
+			task.run();
+		}
+		try {
+			return (T) existing.get();
+		} catch (final ExecutionException e) {
+			// The next simulation will try again
+			shared.contents.remove(key, existing);
+			if (e.getCause() instanceof GamaRuntimeException g) throw g;
+			throw GamaRuntimeException.create(e.getCause(), scope);
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return loader.get();
+		}
+	}
+
+}
@@ -0,0 +1,635 @@
+/*******************************************************************************************************
+ *
+ * MappedCsvReader.java, in msi.gama.core, is part of the source code of the GAMA modeling and simulation platform
+ * (v.1.9.3).
+ *
+ * (c) 2007-2024 UMI 209 UMMISCO IRD/SU & Partners (IRIT, MIAT, TLU, CTU)
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package msi.gama.util.file.csv;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.BitSet;
+
+import msi.gama.runtime.concurrent.GamaExecutorService;
+import msi.gaml.operators.Cast;
+import msi.gaml.types.IType;
+import one.util.streamex.IntStreamEx;
+
+/**
+ * Reads the records of a CSV file by batches, without loading the file in memory: the file is mapped in memory by
+ * windows (or read in them when it cannot be mapped) and its bytes are scanned directly, without being decoded to
+ * characters. The values are then converted from the bytes of each field into the type of its column (int, float or
+ * string), so that no intermediate string is created for numbers. As the delimiter and the text qualifier are ASCII
+ * characters, scanning the bytes is safe for files encoded in UTF-8.
+ *
+ * The values are read like {@link CsvReader} does: blank lines are skipped, leading and trailing whitespaces are
+ * trimmed, values can be enclosed in the text qualifier (in which case they can contain delimiters and new lines, and
+ * the qualifier itself if it is doubled) and whatever follows the closing qualifier is ignored. A byte order mark at the
+ * beginning of the file is skipped.
+ */
+public class MappedCsvReader implements Closeable {
+
+	/** The size of the windows of the file mapped in memory. */
+	static final int WINDOW = 64 << 20;
+
+	/** The number of records converted by each task when the values are converted in parallel. */
+	static final int RECORDS_PER_TASK = 1000;
+
+	/** The result of a scan that needs more bytes than the window contains. */
+	static final int MORE = -1;
+
+	/** The result of a scan that has reached the end of the file. */
+	static final int END = -2;
+
+	/** The byte order mark of the files encoded in UTF-8. */
+	static final byte[] BOM = { (byte) 0xEF, (byte) 0xBB, (byte) 0xBF };
+
+	/** The powers of ten that are exactly represented as doubles. */
+	static final double[] POWERS_OF_TEN = { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13,
+			1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+
+	/** The channel. */
+	final FileChannel channel;
+
+	/** The size of the file. */
+	final long size;
+
+	/** The delimiter. */
+	final byte delimiter;
+
+	/** The text qualifier, or -1 if none is used. */
+	final int qualifier;
+
+	/** The type of the contents of the file. */
+	final IType<?> type;
+
+	/** The headers, or null if the file has no header. */
+	String[] headers;
+
+	/** The number of columns, increased when a record of a file without header has more values. */
+	int columns;
+
+	/** The current window. */
+	ByteBuffer window;
+
+	/** The position, in the file, of the first byte of the window. */
+	long windowStart;
+
+	/** The size of the windows, increased when a record does not fit in one window. */
+	int windowSize = WINDOW;
+
+	/** The position, in the window, of the next record. */
+	int next;
+
+	/** Whether the file can be mapped in memory. */
+	boolean mapped = true;
+
+	/** The bounds (start, end) of the fields of the record being scanned, relative to the window. */
+	int[] fields = new int[64];
+
+	/** The number of fields of the record being scanned. */
+	int fieldCount;
+
+	/** The fields of the record being scanned that contain doubled qualifiers. */
+	final BitSet escaped = new BitSet();
+
+	/** The bytes of the records of the current batch. */
+	byte[] data = new byte[1 << 16];
+
+	/** The number of bytes of the current batch. */
+	int dataSize;
+
+	/** The bounds (start, end) of the fields of the records of the current batch, relative to data. */
+	int[] bounds = new int[1 << 12];
+
+	/** The number of bounds of the current batch. */
+	int boundsSize;
+
+	/** The index, in bounds, of the first field of each record of the current batch (plus the end of the last one). */
+	int[] records = new int[1 << 10];
+
+	/** The fields of the current batch (indexed like their bounds, divided by 2) that contain doubled qualifiers. */
+	final BitSet escapes = new BitSet();
+
+	/**
+	 * Instantiates a new mapped csv reader.
+	 *
+	 * @param path
+	 *            the path of the file
+	 * @param delimiter
+	 *            the delimiter (an ASCII character)
+	 * @param qualifier
+	 *            the text qualifier (an ASCII character) or null
+	 * @param header
+	 *            whether the first record contains the headers
+	 * @param type
+	 *            the type of the contents of the file
+	 * @param columns
+	 *            the number of columns of the file, if it has no header
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public MappedCsvReader(final Path path, final char delimiter, final Character qualifier, final boolean header,
+			final IType<?> type, final int columns) throws IOException {
+		this.delimiter = (byte) delimiter;
+		this.qualifier = qualifier == null ? -1 : (byte) qualifier.charValue();
+		this.type = type;
+		this.columns = columns;
+		channel = FileChannel.open(path, StandardOpenOption.READ);
+		size = channel.size();
+		moveTo(0);
+		if (hasBOM()) { next = BOM.length; }
+		if (header && scan()) {
+			headers = new String[fieldCount];
+			for (int i = 0; i < fieldCount; i++) {
+				headers[i] = decode(window, fields[2 * i], fields[2 * i + 1], escaped.get(i));
+			}
+			this.columns = fieldCount;
+		}
+	}
+
+	/**
+	 * Whether the file begins with a byte order mark.
+	 *
+	 * @return true, if successful
+	 */
+	private boolean hasBOM() {
+		if (window.limit() < BOM.length) return false;
+		for (int i = 0; i < BOM.length; i++) { if (window.get(i) != BOM[i]) return false; }
+		return true;
+	}
+
+	/**
+	 * Whether a character can be scanned as a single byte.
+	 *
+	 * @param c
+	 *            the character, possibly null
+	 * @return true if it is null or ASCII
+	 */
+	public static boolean isAscii(final Character c) {
+		return c == null || c < 128;
+	}
+
+	/**
+	 * Gets the headers.
+	 *
+	 * @return the headers, or null if the file has no header
+	 */
+	public String[] getHeaders() { return headers; }
+
+	/**
+	 * Gets the number of columns. When the file has no header, it grows with the records read that have more values.
+	 *
+	 * @return the columns
+	 */
+	public int getColumns() { return columns; }
+
+	/**
+	 * Gets the type of the contents of the file.
+	 *
+	 * @return the type
+	 */
+	public IType<?> getType() { return type; }
+
+	/**
+	 * Gets the proportion of the file already read.
+	 *
+	 * @return a number between 0 and 1
+	 */
+	public double getProgress() { return size == 0 ? 1d : (double) (windowStart + next) / size; }
+
+	/**
+	 * Reads the next records of the file and converts their values into the types of their columns. Missing values are
+	 * 0 in int columns, 0.0 in float columns and nil in the others. The values in excess are ignored if the file has a
+	 * header; otherwise the columns are added (see {@link #getColumns()}) and their values converted into the type of
+	 * the contents of the file, so that the records returned can be longer than the types passed.
+	 *
+	 * @param max
+	 *            the max. number of records to read
+	 * @param types
+	 *            the ids of the types of the columns ({@link IType#INT}, {@link IType#FLOAT} or any other for strings)
+	 * @param parallel
+	 *            whether the values should be converted in parallel
+	 * @return the values of the records, or null if the end of the file has been reached
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public Object[][] readBatch(final int max, final int[] types, final boolean parallel) throws IOException {
+		dataSize = 0;
+		boundsSize = 0;
+		escapes.clear();
+		int count = 0;
+		while (count < max && scan()) { store(count++); }
+		if (count == 0) return null;
+		records = grow(records, count + 1);
+		records[count] = boundsSize;
+		final Object[][] rows = new Object[count][];
+		if (parallel && count > RECORDS_PER_TASK && GamaExecutorService.AGENT_PARALLEL_EXECUTOR != null) {
+			final int total = count;
+			IntStreamEx.range((count + RECORDS_PER_TASK - 1) / RECORDS_PER_TASK)
+					.parallel(GamaExecutorService.AGENT_PARALLEL_EXECUTOR).forEach(c -> {
+						final int end = Math.min(total, (c + 1) * RECORDS_PER_TASK);
+						for (int i = c * RECORDS_PER_TASK; i < end; i++) { rows[i] = convert(i, types); }
+					});
+		} else {
+			for (int i = 0; i < count; i++) { rows[i] = convert(i, types); }
+		}
+		return rows;
+	}
+
+	/**
+	 * Copies the bytes and the bounds of the fields of the record just scanned in the current batch.
+	 *
+	 * @param index
+	 *            the index of the record in the batch
+	 */
+	private void store(final int index) {
+		if (headers == null && fieldCount > columns) { columns = fieldCount; }
+		final int from = fields[0], to = fields[2 * fieldCount - 1];
+		data = grow(data, dataSize + to - from);
+		window.get(from, data, dataSize, to - from);
+		bounds = grow(bounds, boundsSize + 2 * fieldCount);
+		for (int i = 0; i < 2 * fieldCount; i++) { bounds[boundsSize + i] = fields[i] - from + dataSize; }
+		records = grow(records, index + 1);
+		records[index] = boundsSize;
+		for (int i = escaped.nextSetBit(0); i >= 0; i = escaped.nextSetBit(i + 1)) { escapes.set(boundsSize / 2 + i); }
+		dataSize += to - from;
+		boundsSize += 2 * fieldCount;
+	}
+
+	/**
+	 * Converts the values of a record of the current batch. As the records can be converted in parallel, this method
+	 * does not use any scope.
+	 *
+	 * @param record
+	 *            the index of the record
+	 * @param types
+	 *            the ids of the types of the columns
+	 * @return the values
+	 */
+	private Object[] convert(final int record, final int[] types) {
+		final int first = records[record], count = (records[record + 1] - first) / 2;
+		final Object[] values = new Object[headers == null ? Math.max(types.length, count) : types.length];
+		for (int j = 0; j < values.length; j++) {
+			final int t = j < types.length ? types[j] : type.id();
+			if (j >= count) {
+				values[j] = t == IType.INT ? (Object) 0 : t == IType.FLOAT ? (Object) 0d : null;
+				continue;
+			}
+			int start = bounds[first + 2 * j], end = bounds[first + 2 * j + 1];
+			while (start < end && (data[start] & 0xFF) <= ' ') { start++; }
+			while (end > start && (data[end - 1] & 0xFF) <= ' ') { end--; }
+			if (t == IType.INT) {
+				final long l = parseInt(data, start, end);
+				values[j] = l == Long.MIN_VALUE ? asInt(string(first, j, start, end)) : (Object) Math.toIntExact(l);
+			} else if (t == IType.FLOAT) {
+				final double d = parseDouble(data, start, end);
+				values[j] = Double.isNaN(d) ? asFloat(string(first, j, start, end)) : (Object) d;
+			} else {
+				values[j] = string(first, j, start, end);
+			}
+		}
+		return values;
+	}
+
+	/**
+	 * Converts a string into an int like {@link Cast#asInt(msi.gama.runtime.IScope, Object)} does (hexadecimal numbers
+	 * prefixed by '#', decimal numbers truncated, 0 otherwise), without a scope.
+	 *
+	 * @param s
+	 *            the string
+	 * @return the int
+	 */
+	static Integer asInt(final String s) {
+		final String n = s.replaceAll("\\p{Zs}", "");
+		try {
+			if (n.startsWith("#")) return Integer.parseInt(n.substring(1), 16);
+			return Integer.parseInt(n);
+		} catch (final NumberFormatException e) {
+			try {
+				return (int) Double.parseDouble(n);
+			} catch (final NumberFormatException e1) {
+				return 0;
+			}
+		}
+	}
+
+	/**
+	 * Converts a string into a float like {@link Cast#asFloat(msi.gama.runtime.IScope, Object)} does, without a scope.
+	 *
+	 * @param s
+	 *            the string
+	 * @return the double
+	 */
+	static Double asFloat(final String s) {
+		try {
+			return Double.parseDouble(s);
+		} catch (final NumberFormatException e) {
+			return 0d;
+		}
+	}
+
+	/**
+	 * Decodes a field of a record of the current batch.
+	 *
+	 * @param first
+	 *            the index, in bounds, of the first field of the record
+	 * @param column
+	 *            the column
+	 * @param start
+	 *            the start of the field
+	 * @param end
+	 *            the end of the field
+	 * @return the string
+	 */
+	private String string(final int first, final int column, final int start, final int end) {
+		final String s = new String(data, start, end - start, StandardCharsets.UTF_8);
+		return escapes.get(first / 2 + column) ? unescape(s) : s;
+	}
+
+	/**
+	 * Decodes a field located in a window.
+	 *
+	 * @param buffer
+	 *            the buffer
+	 * @param start
+	 *            the start
+	 * @param end
+	 *            the end
+	 * @param hasEscapes
+	 *            whether the field may contain doubled qualifiers
+	 * @return the string
+	 */
+	private String decode(final ByteBuffer buffer, final int start, final int end, final boolean hasEscapes) {
+		final byte[] bytes = new byte[end - start];
+		buffer.get(start, bytes);
+		final String s = new String(bytes, StandardCharsets.UTF_8).trim();
+		return hasEscapes ? unescape(s) : s;
+	}
+
+	/**
+	 * Replaces the doubled qualifiers by single ones.
+	 *
+	 * @param s
+	 *            the string
+	 * @return the string
+	 */
+	private String unescape(final String s) {
+		final String q = String.valueOf((char) qualifier);
+		return s.replace(q + q, q);
+	}
+
+	/**
+	 * Scans the next record, moving the window forward if the record does not fit in it, and stores the bounds of its
+	 * fields.
+	 *
+	 * @return false if the end of the file has been reached
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private boolean scan() throws IOException {
+		while (true) {
+			final int result = scan(next);
+			if (result == END) return false;
+			if (result != MORE) {
+				next = result;
+				return true;
+			}
+			// The record does not fit in the window
+			if (next == 0) { windowSize = (int) Math.min(Integer.MAX_VALUE - 8, 2L * windowSize); }
+			moveTo(windowStart + next);
+		}
+	}
+
+	/**
+	 * Scans the record that begins (possibly after blank lines) at this position in the window.
+	 *
+	 * @param from
+	 *            the position in the window
+	 * @return the position following the record, {@link #MORE} or {@link #END}
+	 */
+	private int scan(final int from) {
+		final ByteBuffer b = window;
+		final int limit = b.limit();
+		final boolean last = windowStart + limit >= size;
+		int i = from;
+		while (i < limit && isEndOfLine(b.get(i))) { i++; }
+		if (i == limit) return last ? END : MORE;
+		fieldCount = 0;
+		escaped.clear();
+		byte c;
+		while (true) {
+			// Leading whitespaces
+			while (i < limit && ((c = b.get(i)) == ' ' || c == '\t') && c != delimiter) { i++; }
+			if (i == limit && !last) return MORE;
+			if (qualifier >= 0 && i < limit && b.get(i) == qualifier) {
+				final int start = ++i;
+				while (true) {
+					if (i == limit) {
+						if (!last) return MORE;
+						break;
+					}
+					if (b.get(i) == qualifier) {
+						if (i + 1 == limit && !last) return MORE;
+						if (i + 1 == limit || b.get(i + 1) != qualifier) { break; }
+						escaped.set(fieldCount);
+						i++;
+					}
+					i++;
+				}
+				final int end = i;
+				if (i < limit) { i++; }
+				// Trailing junk after the qualifier
+				while (i < limit && (c = b.get(i)) != delimiter && !isEndOfLine(c)) { i++; }
+				if (i == limit && !last) return MORE;
+				addField(start, end);
+			} else {
+				final int start = i;
+				while (i < limit && (c = b.get(i)) != delimiter && !isEndOfLine(c)) { i++; }
+				if (i == limit && !last) return MORE;
+				addField(start, i);
+			}
+			if (i == limit || b.get(i) != delimiter) return i;
+			i++;
+		}
+	}
+
+	/**
+	 * Adds the bounds of a field to the record being scanned.
+	 *
+	 * @param start
+	 *            the start
+	 * @param end
+	 *            the end
+	 */
+	private void addField(final int start, final int end) {
+		fields = grow(fields, 2 * fieldCount + 2);
+		fields[2 * fieldCount] = start;
+		fields[2 * fieldCount + 1] = end;
+		fieldCount++;
+	}
+
+	/**
+	 * Moves the window to this position of the file.
+	 *
+	 * @param position
+	 *            the position
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private void moveTo(final long position) throws IOException {
+		final int length = (int) Math.min(windowSize, size - position);
+		windowStart = position;
+		next = 0;
+		if (mapped) {
+			try {
+				window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+				return;
+			} catch (final IOException | UnsupportedOperationException e) {
+				mapped = false;
+			}
+		}
+		final ByteBuffer buffer =
+				window != null && window.capacity() >= length && !window.isDirect() ? window : ByteBuffer.allocate(length);
+		buffer.clear().limit(length);
+		while (buffer.hasRemaining() && channel.read(buffer, position + buffer.position()) >= 0) {}
+		buffer.flip();
+		window = buffer;
+	}
+
+	/**
+	 * Checks if is end of line.
+	 *
+	 * @param c
+	 *            the c
+	 * @return true, if is end of line
+	 */
+	private static boolean isEndOfLine(final byte c) {
+		return c == '\n' || c == '\r';
+	}
+
+	/**
+	 * Parses an integer from its bytes.
+	 *
+	 * @param b
+	 *            the bytes
+	 * @param start
+	 *            the start
+	 * @param end
+	 *            the end
+	 * @return the value, or Long.MIN_VALUE if it is not a plain integer that fits in an int
+	 */
+	static long parseInt(final byte[] b, final int start, final int end) {
+		int i = start;
+		final boolean negative = i < end && b[i] == '-';
+		if (i < end && (b[i] == '-' || b[i] == '+')) { i++; }
+		if (i == end || end - i > 10) return Long.MIN_VALUE;
+		long result = 0;
+		for (; i < end; i++) {
+			final int d = b[i] - '0';
+			if (d < 0 || d > 9) return Long.MIN_VALUE;
+			result = result * 10 + d;
+		}
+		result = negative ? -result : result;
+		return result < Integer.MIN_VALUE || result > Integer.MAX_VALUE ? Long.MIN_VALUE : result;
+	}
+
+	/**
+	 * Parses a double from its bytes. Only handles the numbers whose significand has at most 15 digits and whose
+	 * exponent is small enough for the result to be exact (which covers most of the values found in CSV files).
+	 *
+	 * @param b
+	 *            the bytes
+	 * @param start
+	 *            the start
+	 * @param end
+	 *            the end
+	 * @return the value, or NaN if it should be parsed by {@link #asFloat(String)}
+	 */
+	static double parseDouble(final byte[] b, final int start, final int end) {
+		int i = start;
+		final boolean negative = i < end && b[i] == '-';
+		if (i < end && (b[i] == '-' || b[i] == '+')) { i++; }
+		long significand = 0;
+		int digits = 0, exponent = 0;
+		boolean any = false, point = false;
+		for (; i < end; i++) {
+			final byte c = b[i];
+			if (c >= '0' && c <= '9') {
+				any = true;
+				if (significand != 0 || c != '0') {
+					if (++digits > 15) return Double.NaN;
+					significand = significand * 10 + c - '0';
+				}
+				if (point) { exponent--; }
+			} else if (c == '.' && !point) {
+				point = true;
+			} else {
+				break;
+			}
+		}
+		if (!any) return Double.NaN;
+		if (i < end) {
+			if (b[i] != 'e' && b[i] != 'E' || ++i == end) return Double.NaN;
+			final boolean negativeExponent = b[i] == '-';
+			if (b[i] == '-' || b[i] == '+') { i++; }
+			if (i == end || end - i > 3) return Double.NaN;
+			int e = 0;
+			for (; i < end; i++) {
+				final int d = b[i] - '0';
+				if (d < 0 || d > 9) return Double.NaN;
+				e = e * 10 + d;
+			}
+			exponent += negativeExponent ? -e : e;
+		}
+		double result = significand;
+		if (significand != 0) {
+			if (exponent < -22 || exponent > 22) return Double.NaN;
+			result = exponent < 0 ? result / POWERS_OF_TEN[-exponent] : result * POWERS_OF_TEN[exponent];
+		}
+		return negative ? -result : result;
+	}
+
+	/**
+	 * Grows an array if needed.
+	 *
+	 * @param array
+	 *            the array
+	 * @param length
+	 *            the min. length
+	 * @return the array or a larger copy
+	 */
+	private static int[] grow(final int[] array, final int length) {
+		return length <= array.length ? array : Arrays.copyOf(array, Math.max(length, 2 * array.length));
+	}
+
+	/**
+	 * Grows an array if needed.
+	 *
+	 * @param array
+	 *            the array
+	 * @param length
+	 *            the min. length
+	 * @return the array or a larger copy
+	 */
+	private static byte[] grow(final byte[] array, final int length) {
+		return length <= array.length ? array : Arrays.copyOf(array, Math.max(length, 2 * array.length));
+	}
+
+	@Override
+	public void close() throws IOException {
+		window = null;
+		channel.close();
+	}
+
+}
@@ -276,6 +276,31 @@ public class GamaGraph<V, E> implements IGraph<V, E> {
 	 */
 	public GamaGraph(final IScope scope, final AbstractBaseGraph<?, DefaultEdge> graph, final ISpecies nodeS,
 			final ISpecies edgeS, final String nodeAttr, final String edgeAttr) {
+		this(scope, graph, nodeS, edgeS, nodeAttr, edgeAttr, false);
+	}
+
+	/**
+	 * Instantiates a new gama graph, with a specified node and edge attributes to store attributes read in the graph
+	 * file.
+	 *
+	 * @param scope
+	 *            the scope
+	 * @param graph
+	 *            the graph
+	 * @param nodeS
+	 *            the species of the nodes in the created GAMA graph
+	 * @param edgeS
+	 *            the species of the edges in the created GAMA graph
+	 * @param nodeAttr
+	 *            the name of the attribute in nodeS species, that will contain the attributes read in the graph file
+	 * @param edgeAttr
+	 *            the name of the attribute in edgeS species, that will contain the attributes read in the graph file
+	 * @param shared
+	 *            whether the graph is shared by several simulations (see SharedFileContents), in which case its edges
+	 *            are copied rather than reused
+	 */
+	public GamaGraph(final IScope scope, final AbstractBaseGraph<?, DefaultEdge> graph, final ISpecies nodeS,
+			final ISpecies edgeS, final String nodeAttr, final String edgeAttr, final boolean shared) {
 		this(scope, nodeS == null ? Types.STRING : Types.AGENT, edgeS == null ? Types.STRING : Types.AGENT);
 		Map<String, IAgent> verticesAg = GamaMapFactory.create();
 		for (Object v : graph.vertexSet()) {
@@ -308,8 +333,11 @@ public class GamaGraph<V, E> implements IGraph<V, E> {
 					addEdge(s.toString(), t.toString(), the_edge); // (null : null)
 					setEdgeWeight(the_edge, graph.getEdgeWeight(e));
 				} else {
-					addEdge(s, t, e);
-					setEdgeWeight(e, graph.getEdgeWeight(e));
+					// jgrapht edges keep their source and target: a graph shared by several simulations gives each of
+					// them its own copy of the edge
+					final DefaultEdge edge = shared ? copyOf(e) : e;
+					addEdge(s, t, edge);
+					setEdgeWeight(edge, graph.getEdgeWeight(e));
 				}
 				// setEdgeWeight(e, graph.getEdgeWeight(e));
 			} else {
@@ -340,6 +368,22 @@ public class GamaGraph<V, E> implements IGraph<V, E> {
 		}
 	}
 
+	/**
+	 * Copies an edge read in a graph file, keeping its concrete type and the attributes read with it.
+	 *
+	 * @param e
+	 *            the edge
+	 * @return the copy of the edge
+	 */
+	private static DefaultEdge copyOf(final DefaultEdge e) {
+		if (e instanceof GamaGraphMLEdgeImporter edge) {
+			final GamaGraphMLEdgeImporter copy = new GamaGraphMLEdgeImporter();
+			edge.getAttributes().forEach(copy::addAttribute);
+			return copy;
+		}
+		return new DefaultEdge();
+	}
+
 	/**
 	 * Instantiates a new gama graph.
 	 *
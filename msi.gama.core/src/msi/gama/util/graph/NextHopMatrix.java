@@ -0,0 +1,196 @@
+/*******************************************************************************************************
+ *
+ * NextHopMatrix.java, in msi.gama.core, is part of the source code of the GAMA modeling and simulation platform
+ * (v.1.9.3).
+ *
+ * (c) 2007-2024 UMI 209 UMMISCO IRD/SU & Partners (IRIT, MIAT, TLU, CTU)
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package msi.gama.util.graph;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A square matrix of the next vertices to visit on the shortest paths of a graph (cell (source, target) holds the
+ * index of the vertex following source on the shortest path from source to target), stored in a file mapped in
+ * memory rather than in the heap. The file is made of a header (a magic number, the number of vertices and a hash of
+ * the ordered list of vertices, so that a matrix is not used with another graph) followed by the rows of the matrix,
+ * and can be mapped again later without recomputing the paths. As a single mapping is
+ * limited to 2GB, the rows are spread over several mappings (chunks).
+ */
+public class NextHopMatrix implements Closeable {
+
+	/** The magic number identifying the files. */
+	static final int MAGIC = 0x47414e32;
+
+	/** The size of the header in bytes. */
+	static final int HEADER = 16;
+
+	/** The max. size of a chunk in bytes. */
+	static final long MAX_CHUNK = 1L << 30;
+
+	/** The channel. */
+	final FileChannel channel;
+
+	/** The number of vertices. */
+	final int size;
+
+	/** The hash of the ordered list of vertices. */
+	final long vertices;
+
+	/** The number of rows per chunk. */
+	final int rowsPerChunk;
+
+	/** The chunks. */
+	final MappedByteBuffer[] chunks;
+
+	/**
+	 * Creates (or overwrites) the file and maps it for writing. All its rows are then expected to be written with
+	 * {@link #setRow(int, int[])}.
+	 *
+	 * @param file
+	 *            the file
+	 * @param size
+	 *            the number of vertices
+	 * @param vertices
+	 *            the hash of the ordered list of vertices
+	 * @return the next hop matrix
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public static NextHopMatrix create(final File file, final int size, final long vertices) throws IOException {
+		final FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		final ByteBuffer header = ByteBuffer.allocate(HEADER).putInt(MAGIC).putInt(size).putLong(vertices);
+		header.flip();
+		channel.write(header, 0);
+		return new NextHopMatrix(channel, size, vertices, MapMode.READ_WRITE);
+	}
+
+	/**
+	 * Maps an existing file for reading.
+	 *
+	 * @param file
+	 *            the file
+	 * @return the next hop matrix
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred, or that the file is not a matrix of next hops
+	 */
+	public static NextHopMatrix open(final File file) throws IOException {
+		final FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		final ByteBuffer header = ByteBuffer.allocate(HEADER);
+		channel.read(header, 0);
+		header.flip();
+		if (header.remaining() < HEADER || header.getInt() != MAGIC) {
+			channel.close();
+			throw new IOException(file.getName() + " does not contain shortest paths");
+		}
+		final int size = header.getInt();
+		final long vertices = header.getLong();
+		if (channel.size() < HEADER + 4L * size * size) {
+			channel.close();
+			throw new IOException(file.getName() + " is truncated");
+		}
+		return new NextHopMatrix(channel, size, vertices, MapMode.READ_ONLY);
+	}
+
+	/**
+	 * Instantiates a new next hop matrix.
+	 *
+	 * @param channel
+	 *            the channel
+	 * @param size
+	 *            the size
+	 * @param vertices
+	 *            the hash of the ordered list of vertices
+	 * @param mode
+	 *            the mode
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private NextHopMatrix(final FileChannel channel, final int size, final long vertices, final MapMode mode)
+			throws IOException {
+		this.channel = channel;
+		this.size = size;
+		this.vertices = vertices;
+		final long rowBytes = 4L * Math.max(1, size);
+		rowsPerChunk = (int) Math.max(1, MAX_CHUNK / rowBytes);
+		final int nbChunks = Math.max(1, (size + rowsPerChunk - 1) / rowsPerChunk);
+		chunks = new MappedByteBuffer[nbChunks];
+		for (int i = 0; i < nbChunks; i++) {
+			final int rows = Math.min(rowsPerChunk, size - i * rowsPerChunk);
+			chunks[i] = channel.map(mode, HEADER + i * rowsPerChunk * rowBytes, Math.max(0, rows) * rowBytes);
+		}
+	}
+
+	/**
+	 * The number of vertices.
+	 *
+	 * @return the int
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * The hash of the ordered list of vertices for which the matrix has been computed.
+	 *
+	 * @return the long
+	 */
+	public long vertices() {
+		return vertices;
+	}
+
+	/**
+	 * Returns the index of the vertex following source on the shortest path to target (source itself if there is no
+	 * path).
+	 *
+	 * @param source
+	 *            the source
+	 * @param target
+	 *            the target
+	 * @return the int
+	 */
+	public int get(final int source, final int target) {
+		if (source < 0 || source >= size || target < 0 || target >= size) return source;
+		return chunks[source / rowsPerChunk].getInt(4 * ((source % rowsPerChunk) * size + target));
+	}
+
+	/**
+	 * Writes the row of a source. Rows of different sources can be written concurrently.
+	 *
+	 * @param source
+	 *            the source
+	 * @param row
+	 *            the next hops from source to all the vertices
+	 */
+	public void setRow(final int source, final int[] row) {
+		// Absolute bulk puts on a duplicate, so that the position of the chunk shared by all threads is not modified
+		final ByteBuffer chunk = chunks[source / rowsPerChunk].duplicate();
+		chunk.position(4 * (source % rowsPerChunk) * size);
+		chunk.asIntBuffer().put(row, 0, size);
+	}
+
+	/**
+	 * Writes the changes to the disk.
+	 */
+	public void force() {
+		for (final MappedByteBuffer chunk : chunks) { if (!chunk.isReadOnly()) { chunk.force(); } }
+	}
+
+	@Override
+	public void close() throws IOException {
+		force();
+		channel.close();
+	}
+
+}
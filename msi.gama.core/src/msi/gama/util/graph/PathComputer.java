@@ -10,12 +10,15 @@
  ********************************************************************************************************/
 package msi.gama.util.graph;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadPoolExecutor;
+import java.util.function.ObjIntConsumer;
 
 import org.jgrapht.GraphPath;
 import org.jgrapht.alg.interfaces.KShortestPathAlgorithm;
@@ -28,15 +31,18 @@ import org.jgrapht.alg.shortestpath.DeltaSteppingShortestPath;
 import org.jgrapht.alg.shortestpath.DijkstraShortestPath;
 import org.jgrapht.alg.shortestpath.TransitNodeRoutingShortestPath;
 import org.jgrapht.alg.shortestpath.YenKShortestPath;
-import org.jgrapht.alg.util.Pair;
 import org.jgrapht.graph.AbstractBaseGraph;
 import org.jgrapht.graph.DefaultDirectedGraph;
 import org.jgrapht.graph.DefaultUndirectedGraph;
 import org.jgrapht.graph.DefaultWeightedEdge;
+import org.jgrapht.traverse.ClosestFirstIterator;
 import org.jgrapht.util.SupplierUtil;
 
 import com.google.common.collect.ImmutableList;
 
+import msi.gama.common.preferences.GamaPreferences;
+import msi.gama.metamodel.agent.IAgent;
+import msi.gama.metamodel.shape.IShape;
 import msi.gama.metamodel.topology.graph.AStar;
 import msi.gama.metamodel.topology.graph.FloydWarshallShortestPathsGAMA;
 import msi.gama.metamodel.topology.graph.NBAStarPathfinder;
@@ -51,6 +57,7 @@ import msi.gama.util.matrix.GamaIntMatrix;
 import msi.gama.util.matrix.GamaMatrix;
 import msi.gama.util.path.IPath;
 import msi.gaml.types.Types;
+import one.util.streamex.IntStreamEx;
 
 /**
  * The Class PathComputer.
@@ -135,11 +142,15 @@ public class PathComputer<V, E> {
 	protected int version = 1;
 
 	/** The shortest path computed. */
-	protected Map<Pair<V, V>, IList<IList<E>>> shortestPathComputed = new ConcurrentHashMap<>();
+	protected final ShortestPathCache<V, E> shortestPathComputed =
+			new ShortestPathCache<>(GamaPreferences.External.PATH_CACHE_SIZE.getValue());
 
 	/** The shortest path matrix. */
 	protected GamaIntMatrix shortestPathMatrix = null;
 
+	/** The shortest path matrix, when mapped from a file. */
+	protected NextHopMatrix nextHopMatrix = null;
+
 	/** The Constant ONLY_FOR_DIRECTED_GRAPH. */
 	public static final ImmutableList<PathComputer.kShortestPathAlgorithm> ONLY_FOR_DIRECTED_GRAPH =
 			ImmutableList.of(kShortestPathAlgorithm.Bhandari);
@@ -170,7 +181,7 @@ public class PathComputer<V, E> {
 	 *
 	 * @return the shortest path computed
 	 */
-	public Map<Pair<V, V>, IList<IList<E>>> getShortestPathComputed() { return shortestPathComputed; }
+	public ShortestPathCache<V, E> getShortestPathComputed() { return shortestPathComputed; }
 
 	/**
 	 * Gets the shortest path.
@@ -182,8 +193,7 @@ public class PathComputer<V, E> {
 	 * @return the shortest path
 	 */
 	public IList<E> getShortestPath(final V s, final V t) {
-		final Pair<V, V> vp = new Pair<>(s, t);
-		final IList<IList<E>> ppc = shortestPathComputed.get(vp);
+		final IList<IList<E>> ppc = shortestPathComputed.get(s, t, graph.getGamlType().getContentType());
 		if (ppc == null || ppc.isEmpty()) return null;
 		return ppc.get(0);
 	}
@@ -224,6 +234,11 @@ public class PathComputer<V, E> {
 					matrix.set(scope, j, i, optimizer.succRecur(i, j));
 				}
 			}
+		} else if (pathFindingAlgo == shortestPathAlgorithm.Dijkstra
+				|| pathFindingAlgo == shortestPathAlgorithm.BidirectionalDijkstra) {
+			final int n = vertices.size();
+			final int[] cells = matrix.getMatrix();
+			computeNextHops(vertices, indexVertices, (row, i) -> System.arraycopy(row, 0, cells, i * n, n));
 		} else {
 			for (int i = 0; i < graph.vertexMap.size(); i++) {
 				final V v1 = vertices.get(i);
@@ -256,6 +271,76 @@ public class PathComputer<V, E> {
 
 	}
 
+	/**
+	 * Computes the shortest paths between all the pairs of vertices and writes the matrix of the next vertices to visit
+	 * in a file mapped in memory, which is then used to answer the queries. The paths are always computed with
+	 * Dijkstra, in parallel.
+	 *
+	 * @param scope
+	 *            the scope
+	 * @param path
+	 *            the absolute path of the file
+	 */
+	public void saveShortestPaths(final IScope scope, final String path) {
+		final IList<V> vertices = graph.getVertices();
+		final Map<V, Integer> indexVertices = GamaMapFactory.create();
+		for (int i = 0; i < vertices.size(); i++) { indexVertices.put(vertices.get(i), i); }
+		try (NextHopMatrix file = NextHopMatrix.create(new File(path), vertices.size(), hashOf(vertices))) {
+			computeNextHops(vertices, indexVertices, (row, i) -> file.setRow(i, row));
+		} catch (final IOException e) {
+			throw GamaRuntimeException.create(e, scope);
+		}
+		loadShortestPaths(scope, path);
+	}
+
+	/**
+	 * Computes one single-source shortest path tree (Dijkstra) per vertex, in parallel on the agent executor, and
+	 * passes each row of the matrix of the next vertices to visit (the source itself for unreachable targets) to the
+	 * consumer, possibly from several threads at once.
+	 *
+	 * @param vertices
+	 *            the vertices
+	 * @param indexVertices
+	 *            the index of the vertices
+	 * @param rows
+	 *            the consumer of the rows and of the index of their source
+	 */
+	private void computeNextHops(final IList<V> vertices, final Map<V, Integer> indexVertices,
+			final ObjIntConsumer<int[]> rows) {
+		IntStreamEx.range(vertices.size()).parallel(GamaExecutorService.AGENT_PARALLEL_EXECUTOR)
+				.forEach(i -> rows.accept(nextHopsFrom(vertices, indexVertices, i), i));
+	}
+
+	/**
+	 * Computes the row of the next vertices to visit from a source. As the vertices are visited by increasing
+	 * distance, the next vertex towards their predecessor in the tree is always known when they are reached.
+	 *
+	 * @param vertices
+	 *            the vertices
+	 * @param indexVertices
+	 *            the index of the vertices
+	 * @param i
+	 *            the index of the source
+	 * @return the int[]
+	 */
+	@SuppressWarnings ("unchecked")
+	private int[] nextHopsFrom(final IList<V> vertices, final Map<V, Integer> indexVertices, final int i) {
+		final int[] row = new int[vertices.size()];
+		Arrays.fill(row, i);
+		final V source = vertices.get(i);
+		final ClosestFirstIterator<V, E> it = new ClosestFirstIterator<>(graph, source);
+		while (it.hasNext()) {
+			final V v = it.next();
+			final E edge = it.getSpanningTreeEdge(v);
+			if (edge == null) { continue; }
+			V previous = (V) graph.getEdgeSource(edge);
+			if (!graph.directed && previous.equals(v)) { previous = (V) graph.getEdgeTarget(edge); }
+			final int k = indexVertices.get(v);
+			row[k] = previous.equals(source) ? k : row[indexVertices.get(previous)];
+		}
+		return row;
+	}
+
 	/**
 	 * Next vertice.
 	 *
@@ -325,12 +410,7 @@ public class PathComputer<V, E> {
 				next = M[next];
 				vc = vn;
 			} while (previous != i);
-			final Pair vv = new Pair<>(v1, vt);
-			if (!shortestPathComputed.containsKey(vv)) {
-				final IList<IList<E>> ssp = GamaListFactory.create(Types.LIST.of(graph.getGamlType().getContentType()));
-				ssp.add(edges);
-				shortestPathComputed.put(vv, ssp);
-			}
+			shortestPathComputed.putIfAbsent((V) v1, vt, edges);
 			if (j == t) { edgesVertices = edges; }
 		}
 		return edgesVertices;
@@ -352,7 +432,7 @@ public class PathComputer<V, E> {
 		final int indexS = vertices.indexOf(vs);
 		final int indexT = vertices.indexOf(t);
 		int previous = indexS;
-		Integer next = shortestPathMatrix.get(graph.graphScope, indexT, previous);
+		int next = nextHop(previous, indexT);
 		if (previous == next) return edges;
 		do {
 			if (next == -1) return GamaListFactory.create(graph.getGamlType().getContentType());
@@ -366,12 +446,26 @@ public class PathComputer<V, E> {
 			if (edge == null) return GamaListFactory.create(graph.getGamlType().getContentType());
 			edges.add(edge);
 			previous = next;
-			next = shortestPathMatrix.get(graph.graphScope, indexT, next);
+			next = nextHop(next, indexT);
 			vs = vn;
 		} while (previous != indexT);
 		return edges;
 	}
 
+	/**
+	 * Returns the next vertex to visit from source towards target in the matrix loaded.
+	 *
+	 * @param source
+	 *            the source
+	 * @param target
+	 *            the target
+	 * @return the int
+	 */
+	private int nextHop(final int source, final int target) {
+		if (nextHopMatrix != null) return nextHopMatrix.get(source, target);
+		return shortestPathMatrix.get(graph.graphScope, target, source);
+	}
+
 	/**
 	 * Checks if is save computed shortest paths.
 	 *
@@ -424,7 +518,73 @@ public class PathComputer<V, E> {
 	 */
 	public void loadShortestPaths(final IScope scope, final GamaMatrix matrix) {
 		shortestPathMatrix = GamaIntMatrix.from(scope, matrix);
+		closeNextHopMatrix();
+	}
 
+	/**
+	 * Load shortest paths from a file written by {@link #saveShortestPaths(IScope, String)}, which is mapped in memory
+	 * (and not read in the heap).
+	 *
+	 * @param scope
+	 *            the scope
+	 * @param path
+	 *            the absolute path of the file
+	 */
+	public void loadShortestPaths(final IScope scope, final String path) {
+		final NextHopMatrix file;
+		try {
+			file = NextHopMatrix.open(new File(path));
+		} catch (final IOException e) {
+			throw GamaRuntimeException.create(e, scope);
+		}
+		final IList<V> vertices = graph.getVertices();
+		if (file.size() != vertices.size() || file.vertices() != hashOf(vertices)) {
+			try {
+				file.close();
+			} catch (final IOException e) {}
+			throw GamaRuntimeException.error(file.size() != vertices.size()
+					? "The shortest paths in " + path + " concern " + file.size() + " vertices instead of "
+							+ vertices.size()
+					: "The shortest paths in " + path + " concern other vertices than those of the graph", scope);
+		}
+		closeNextHopMatrix();
+		nextHopMatrix = file;
+		shortestPathMatrix = null;
+	}
+
+	/**
+	 * A hash of the ordered list of vertices, identifying them across simulations: agents by their species, index and
+	 * location, geometries by their location, other values by their string representation.
+	 *
+	 * @param vertices
+	 *            the vertices
+	 * @return the long
+	 */
+	private static long hashOf(final IList<?> vertices) {
+		long hash = 1125899906842597L;
+		for (final Object v : vertices) {
+			final String id;
+			if (v instanceof IAgent a) {
+				id = a.getSpeciesName() + a.getIndex() + a.getLocation();
+			} else if (v instanceof IShape s) {
+				id = String.valueOf(s.getLocation());
+			} else {
+				id = String.valueOf(v);
+			}
+			hash = 31 * hash + id.hashCode();
+		}
+		return hash;
+	}
+
+	/**
+	 * Closes the matrix mapped from a file, if any.
+	 */
+	private void closeNextHopMatrix() {
+		if (nextHopMatrix == null) return;
+		try {
+			nextHopMatrix.close();
+		} catch (final IOException e) {}
+		nextHopMatrix = null;
 	}
 
 	/**
@@ -481,7 +641,7 @@ public class PathComputer<V, E> {
 	 */
 	public IList<E> computeBestRouteBetween(final IScope scope, final V source, final V target) {
 		if (source.equals(target)) return GamaListFactory.create(graph.getGamlType().getContentType());
-		if (shortestPathMatrix != null) {
+		if (shortestPathMatrix != null || nextHopMatrix != null) {
 			final IList<E> edges = getShortestPathFromMatrix(source, target);
 			if (saveComputedShortestPaths) { saveShortestPaths(edges, source, target); }
 			return edges;
@@ -493,7 +653,9 @@ public class PathComputer<V, E> {
 			return GamaListFactory.create(scope, graph.getGamlType().getContentType(), path.getEdgeList());
 		}
 		IList<IList<E>> sp = null;
-		if (saveComputedShortestPaths) { sp = shortestPathComputed.get(new Pair<>(source, target)); }
+		if (saveComputedShortestPaths) {
+			sp = shortestPathComputed.get(source, target, graph.getGamlType().getContentType());
+		}
 		IList<E> spl = null;
 		if (sp == null || sp.isEmpty() || sp.get(0).isEmpty()) {
 			if (pathFindingAlgo == shortestPathAlgorithm.NBAStar) {
@@ -534,7 +696,7 @@ public class PathComputer<V, E> {
 			if (saveComputedShortestPaths) { saveShortestPaths(spl, source, target); }
 
 		} else {
-			spl = GamaListFactory.create(scope, graph.getGamlType().getContentType(), sp.get(0));
+			spl = sp.get(0);
 		}
 		return spl;
 	}
@@ -551,9 +713,7 @@ public class PathComputer<V, E> {
 	 */
 	private void saveShortestPaths(final List<E> edges, final V source, final V target) {
 		V s = source;
-		final IList<IList<E>> spl = GamaListFactory.create(Types.LIST.of(graph.getGamlType().getContentType()));
-		spl.add(GamaListFactory.createWithoutCasting(graph.getGamlType().getContentType(), edges));
-		shortestPathComputed.put(new Pair<>(source, target), spl);
+		shortestPathComputed.put(source, target, edges);
 		final List<E> edges2 = GamaListFactory.create(graph.graphScope, graph.getGamlType().getContentType(), edges);
 		for (int i = 0; i < edges.size(); i++) {
 			final E edge = edges2.remove(0);
@@ -561,12 +721,7 @@ public class PathComputer<V, E> {
 			// DEBUG.LOG("s : " + s + " j : " + j + " i: " + i);
 			V nwS = (V) graph.getEdgeTarget(edge);
 			if (!graph.directed && nwS.equals(s)) { nwS = (V) graph.getEdgeSource(edge); }
-			final Pair<V, V> pp = new Pair<>(nwS, target);
-			if (!shortestPathComputed.containsKey(pp)) {
-				final IList<IList<E>> spl2 = GamaListFactory.create(graph.getGamlType().getContentType());
-				spl2.add(GamaListFactory.createWithoutCasting(graph.getGamlType().getContentType(), edges2));
-				shortestPathComputed.put(pp, spl2);
-			}
+			shortestPathComputed.putIfAbsent(nwS, target, edges2);
 			s = nwS;
 
 		}
@@ -641,7 +796,7 @@ public class PathComputer<V, E> {
 			paths.add(path);
 			if (saveComputedShortestPaths) { el.add(path); }
 		}
-		if (saveComputedShortestPaths) { shortestPathComputed.put(new Pair<>(source, target), el); }
+		if (saveComputedShortestPaths) { shortestPathComputed.putPaths(source, target, el); }
 		return paths;
 	}
 
@@ -661,15 +816,8 @@ public class PathComputer<V, E> {
 	 * @date 30 oct. 2023
 	 */
 	public IList<IList<E>> computeKBestRoutesBetween(final IScope scope, final V source, final V target, final int k) {
-		final Pair<V, V> pp = new Pair<>(source, target);
-		final IList<IList<E>> sps = shortestPathComputed.get(pp);
-		if (sps != null && sps.size() >= k) {
-			IList<IList<E>> paths = GamaListFactory.create(Types.LIST.of(graph.getGamlType().getContentType()));
-			for (final IList<E> sp : sps) {
-				paths.add(GamaListFactory.create(scope, graph.getGamlType().getContentType(), sp));
-			}
-			return paths;
-		}
+		final IList<IList<E>> sps = shortestPathComputed.get(source, target, graph.getGamlType().getContentType());
+		if (sps != null && sps.size() >= k) return sps;
 		IList<IList<E>> paths = GamaListFactory.create(Types.LIST.of(graph.getGamlType().getContentType()));
 		if (kPathFindingAlgo == kShortestPathAlgorithm.Yen) {
 			paths = geKtShortestPath(scope, new YenKShortestPath<>(graph), source, target, k, false);
@@ -757,6 +905,8 @@ public class PathComputer<V, E> {
 	public void incVersion() {
 		version++;
 		shortestPathComputed.clear();
+		// The paths mapped from a file no longer correspond to the graph
+		closeNextHopMatrix();
 		contractionHierarchyBD = null;
 		transitNodeRouting = null;
 		linkedJGraph = null;
@@ -0,0 +1,379 @@
+/*******************************************************************************************************
+ *
+ * ShortestPathCache.java, in msi.gama.core, is part of the source code of the GAMA modeling and simulation platform
+ * (v.1.9.3).
+ *
+ * (c) 2007-2024 UMI 209 UMMISCO IRD/SU & Partners (IRIT, MIAT, TLU, CTU)
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package msi.gama.util.graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.jgrapht.alg.util.Pair;
+
+import msi.gama.util.GamaListFactory;
+import msi.gama.util.GamaMapFactory;
+import msi.gama.util.IList;
+import msi.gama.util.IMap;
+import msi.gaml.types.IType;
+import msi.gaml.types.Types;
+
+/**
+ * The cache of the shortest paths computed in a graph, indexed by their source and target. It is bounded (the least
+ * recently used paths are evicted first) and split in independently synchronized segments so that agents computing
+ * paths in parallel do not contend on a single lock. Paths are stored as arrays of indices in a dictionary of the
+ * edges of the graph, rather than as lists of edges.
+ *
+ * @param <V>
+ *            the type of the vertices
+ * @param <E>
+ *            the type of the edges
+ */
+public class ShortestPathCache<V, E> {
+
+	/** The number of segments (a power of 2). */
+	static final int SEGMENTS = 16;
+
+	/** The empty path. */
+	static final int[] EMPTY = {};
+
+	/**
+	 * A segment of the cache: a map in access order, so that its eldest entry is the least recently used.
+	 */
+	@SuppressWarnings ("serial")
+	class Segment extends LinkedHashMap<Pair<V, V>, Paths> {
+
+		/**
+		 * Instantiates a new segment.
+		 */
+		Segment() {
+			super(16, 0.75f, true);
+		}
+	}
+
+	/**
+	 * The paths stored for a pair, with the table of edges against which they have been encoded. As the table is only
+	 * replaced (never modified at existing indices) when the dictionary grows or is cleared, the paths are always
+	 * decoded with the edges they have been encoded with.
+	 *
+	 * @param paths
+	 *            the paths, as arrays of indices
+	 * @param edges
+	 *            the table of edges
+	 */
+	record Paths(int[][] paths, Object[] edges) {}
+
+	/** The segments. */
+	final List<Segment> segments = new ArrayList<>(SEGMENTS);
+
+	/** The max. number of pairs (source, target) kept in the cache. 0 or less means no limit */
+	volatile int capacity;
+
+	/** The number of pairs (source, target) currently stored. Only modified under the lock of a segment. */
+	final AtomicInteger size = new AtomicInteger();
+
+	/** The statistics. */
+	final LongAdder hits = new LongAdder(), misses = new LongAdder(), evictions = new LongAdder();
+
+	/** The dictionary of edges: their index (by identity) and the table of edges by index. */
+	final Map<E, Integer> edgeIndices = new IdentityHashMap<>();
+
+	/** The edges. */
+	volatile Object[] edges = new Object[64];
+
+	/** The generation of the dictionary, incremented each time it is cleared. */
+	volatile int generation;
+
+	/**
+	 * Instantiates a new shortest path cache.
+	 *
+	 * @param capacity
+	 *            the max. number of pairs (source, target) to keep (0 or less for no limit)
+	 */
+	public ShortestPathCache(final int capacity) {
+		this.capacity = capacity;
+		for (int i = 0; i < SEGMENTS; i++) { segments.add(new Segment()); }
+	}
+
+	/**
+	 * Returns the segment in charge of this pair.
+	 *
+	 * @param key
+	 *            the key
+	 * @return the segment
+	 */
+	private Segment segmentOf(final Pair<V, V> key) {
+		final int h = key.hashCode();
+		return segments.get((h ^ h >>> 16) & SEGMENTS - 1);
+	}
+
+	/**
+	 * Returns the index of the edge in the dictionary, adding it if necessary. Must be called under the lock of the
+	 * dictionary.
+	 *
+	 * @param edge
+	 *            the edge
+	 * @return the int
+	 */
+	private int encode(final E edge) {
+		Integer index = edgeIndices.get(edge);
+		if (index == null) {
+			index = edgeIndices.size();
+			Object[] table = edges;
+			if (index == table.length) { table = Arrays.copyOf(table, index * 2); }
+			table[index] = edge;
+			edges = table;
+			edgeIndices.put(edge, index);
+		}
+		return index;
+	}
+
+	/**
+	 * Encode.
+	 *
+	 * @param path
+	 *            the path
+	 * @return the int[]
+	 */
+	private int[] encode(final List<E> path) {
+		if (path == null || path.isEmpty()) return EMPTY;
+		final int[] result = new int[path.size()];
+		for (int i = 0; i < result.length; i++) { result[i] = encode(path.get(i)); }
+		return result;
+	}
+
+	/**
+	 * Encodes the paths and stores them for this pair, replacing the previous ones, unless the dictionary has been
+	 * cleared in the meantime (the paths would then belong to a previous state of the graph).
+	 *
+	 * @param source
+	 *            the source
+	 * @param target
+	 *            the target
+	 * @param paths
+	 *            the paths
+	 */
+	private void store(final V source, final V target, final List<? extends List<E>> paths) {
+		final int[][] encoded = new int[paths.size()][];
+		final Object[] table;
+		final int gen;
+		synchronized (edgeIndices) {
+			gen = generation;
+			for (int i = 0; i < encoded.length; i++) { encoded[i] = encode(paths.get(i)); }
+			table = edges;
+		}
+		final Pair<V, V> key = new Pair<>(source, target);
+		final Segment segment = segmentOf(key);
+		synchronized (segment) {
+			// clear() changes the generation before emptying the segments
+			if (gen != generation) return;
+			if (segment.put(key, new Paths(encoded, table)) == null) { size.incrementAndGet(); }
+		}
+		evictExcess();
+	}
+
+	/**
+	 * Evicts the least recently used pairs of the largest segments until the cache does not exceed its capacity.
+	 */
+	private void evictExcess() {
+		final int max = capacity;
+		if (max <= 0) return;
+		while (size.get() > max) {
+			Segment largest = segments.get(0);
+			for (final Segment segment : segments) { if (segment.size() > largest.size()) { largest = segment; } }
+			synchronized (largest) {
+				final Iterator<Paths> eldest = largest.values().iterator();
+				// Emptied concurrently
+				if (!eldest.hasNext()) return;
+				eldest.next();
+				eldest.remove();
+				size.decrementAndGet();
+				evictions.increment();
+			}
+		}
+	}
+
+	/**
+	 * Decode.
+	 *
+	 * @param path
+	 *            the path
+	 * @param table
+	 *            the table of edges it has been encoded with
+	 * @param edgeType
+	 *            the edge type
+	 * @return the i list
+	 */
+	@SuppressWarnings ("unchecked")
+	private IList<E> decode(final int[] path, final Object[] table, final IType<?> edgeType) {
+		final IList<E> result = GamaListFactory.create(edgeType, path.length);
+		for (final int index : path) { result.add((E) table[index]); }
+		return result;
+	}
+
+	/**
+	 * Returns the paths stored for this pair (decoded in new lists), or null if there are none. Counts as a hit or a
+	 * miss in the statistics.
+	 *
+	 * @param source
+	 *            the source
+	 * @param target
+	 *            the target
+	 * @param edgeType
+	 *            the type of the edges
+	 * @return the list of paths or null
+	 */
+	public IList<IList<E>> get(final V source, final V target, final IType<?> edgeType) {
+		final Pair<V, V> key = new Pair<>(source, target);
+		final Segment segment = segmentOf(key);
+		final Paths paths;
+		synchronized (segment) {
+			paths = segment.get(key);
+		}
+		if (paths == null) {
+			misses.increment();
+			return null;
+		}
+		hits.increment();
+		final IList<IList<E>> result = GamaListFactory.create(Types.LIST.of(edgeType), paths.paths().length);
+		for (final int[] path : paths.paths()) { result.add(decode(path, paths.edges(), edgeType)); }
+		return result;
+	}
+
+	/**
+	 * Whether paths are stored for this pair. Does not count in the statistics nor change the order of eviction
+	 *
+	 * @param source
+	 *            the source
+	 * @param target
+	 *            the target
+	 * @return true, if successful
+	 */
+	public boolean contains(final V source, final V target) {
+		final Pair<V, V> key = new Pair<>(source, target);
+		final Segment segment = segmentOf(key);
+		synchronized (segment) {
+			return segment.containsKey(key);
+		}
+	}
+
+	/**
+	 * Stores the paths for this pair, replacing the previous ones.
+	 *
+	 * @param source
+	 *            the source
+	 * @param target
+	 *            the target
+	 * @param paths
+	 *            the paths
+	 */
+	public void putPaths(final V source, final V target, final List<? extends List<E>> paths) {
+		store(source, target, paths);
+	}
+
+	/**
+	 * Stores one path for this pair, replacing the previous ones.
+	 *
+	 * @param source
+	 *            the source
+	 * @param target
+	 *            the target
+	 * @param path
+	 *            the path
+	 */
+	public void put(final V source, final V target, final List<E> path) {
+		store(source, target, Collections.singletonList(path));
+	}
+
+	/**
+	 * Stores one path for this pair if none is already stored.
+	 *
+	 * @param source
+	 *            the source
+	 * @param target
+	 *            the target
+	 * @param path
+	 *            the path
+	 */
+	public void putIfAbsent(final V source, final V target, final List<E> path) {
+		if (!contains(source, target)) { put(source, target, path); }
+	}
+
+	/**
+	 * Empties the cache and the dictionary of edges (for instance when the graph changes). Does not reset the
+	 * statistics.
+	 */
+	public void clear() {
+		// The generation changes first, so that the paths being encoded with the previous dictionary are not stored
+		synchronized (edgeIndices) {
+			generation++;
+			edgeIndices.clear();
+			edges = new Object[64];
+		}
+		for (final Segment segment : segments) {
+			synchronized (segment) {
+				size.addAndGet(-segment.size());
+				segment.clear();
+			}
+		}
+	}
+
+	/**
+	 * Sets the capacity, evicting the entries in excess.
+	 *
+	 * @param capacity
+	 *            the max. number of pairs (source, target) to keep (0 or less for no limit)
+	 */
+	public void setCapacity(final int capacity) {
+		this.capacity = capacity;
+		evictExcess();
+	}
+
+	/**
+	 * Gets the capacity.
+	 *
+	 * @return the capacity
+	 */
+	public int getCapacity() { return capacity; }
+
+	/**
+	 * The number of pairs (source, target) currently stored.
+	 *
+	 * @return the int
+	 */
+	public int size() {
+		return size.get();
+	}
+
+	/**
+	 * Returns the statistics of the cache: number of hits, misses and evictions, current size and capacity, and hit
+	 * rate.
+	 *
+	 * @return the map
+	 */
+	public IMap<String, Object> getStatistics() {
+		final IMap<String, Object> result = GamaMapFactory.create(Types.STRING, Types.NO_TYPE);
+		final long h = hits.sum();
+		final long m = misses.sum();
+		result.put("hits", h);
+		result.put("misses", m);
+		result.put("evictions", evictions.sum());
+		result.put("size", size());
+		result.put("capacity", capacity);
+		result.put("hit_rate", h + m == 0 ? 0d : (double) h / (h + m));
+		return result;
+	}
+
+}
@@ -417,13 +417,16 @@ public class GamaField extends GamaFloatMatrix implements IField {
 	@no_test
 	public GamaField plus(final IScope scope, final IMatrix other) throws GamaRuntimeException {
 		// No check for best performances. Errors will be emitted by the various sub-operations (out of bounds, etc.)
+		final double[] m = getMatrix();
 		if (other instanceof GamaField gf) {
 			double otherNoDataValue = gf.noDataValue;
-			for (int i = 0; i < matrix.length; i++) { if (matrix[i] != noDataValue && gf.matrix[i] != otherNoDataValue) { matrix[i] += gf.matrix[i]; } }
+			final double[] values = gf.getMatrix();
+			for (int i = 0; i < m.length; i++) { if (m[i] != noDataValue && values[i] != otherNoDataValue) { m[i] += values[i]; } }
 		} else if (other instanceof GamaFloatMatrix nm) {
-			for (int i = 0; i < matrix.length; i++) { if (matrix[i] != noDataValue) { matrix[i] += nm.matrix[i]; } }
+			final double[] others = nm.getMatrix();
+			for (int i = 0; i < m.length; i++) { if (m[i] != noDataValue) { m[i] += others[i]; } }
 		} else if (other instanceof GamaIntMatrix nm) {
-				for (int i = 0; i < matrix.length; i++) { if (matrix[i] != noDataValue) { matrix[i] += nm.matrix[i]; } }
+				for (int i = 0; i < m.length; i++) { if (m[i] != noDataValue) { m[i] += nm.matrix[i]; } }
 		}
 		return this;
 	}
@@ -441,13 +444,16 @@ public class GamaField extends GamaFloatMatrix implements IField {
 	@no_test
 	public GamaField minus(final IScope scope, final IMatrix other) throws GamaRuntimeException {
 		// No check for best performances. Errors will be emitted by the various sub-operations (out of bounds, etc.)
+		final double[] m = getMatrix();
 		if (other instanceof GamaField gf) {
 			double otherNoDataValue = gf.noDataValue;
-			for (int i = 0; i < matrix.length; i++) { if (matrix[i] != noDataValue && gf.matrix[i] != otherNoDataValue) { matrix[i] -= gf.matrix[i]; } }
+			final double[] values = gf.getMatrix();
+			for (int i = 0; i < m.length; i++) { if (m[i] != noDataValue && values[i] != otherNoDataValue) { m[i] -= values[i]; } }
 		} else if (other instanceof GamaFloatMatrix nm) {
-			for (int i = 0; i < matrix.length; i++) { if (matrix[i] != noDataValue) { matrix[i] -= nm.matrix[i]; } }
+			final double[] others = nm.getMatrix();
+			for (int i = 0; i < m.length; i++) { if (m[i] != noDataValue) { m[i] -= others[i]; } }
 		} else if (other instanceof GamaIntMatrix nm) {
-				for (int i = 0; i < matrix.length; i++) { if (matrix[i] != noDataValue) { matrix[i] -= nm.matrix[i]; } }
+				for (int i = 0; i < m.length; i++) { if (m[i] != noDataValue) { m[i] -= nm.matrix[i]; } }
 		}
 		return this;
 	}
@@ -465,7 +471,8 @@ public class GamaField extends GamaFloatMatrix implements IField {
 	@no_test
 	public GamaField times(final Double val) throws GamaRuntimeException {
 		// No check for best performances. Errors will be emitted by the various sub-operations (out of bounds, etc.)
-		for (int i = 0; i < matrix.length; i++) { if (matrix[i] != noDataValue) { matrix[i] *= val; } }
+		final double[] m = getMatrix();
+		for (int i = 0; i < m.length; i++) { if (m[i] != noDataValue) { m[i] *= val; } }
 		return this;
 	}
 
@@ -482,7 +489,8 @@ public class GamaField extends GamaFloatMatrix implements IField {
 	@no_test
 	public GamaField times(final Integer val) throws GamaRuntimeException {
 		// No check for best performances. Errors will be emitted by the various sub-operations (out of bounds, etc.)
-		for (int i = 0; i < matrix.length; i++) { if (matrix[i] != noDataValue) { matrix[i] *= val; } }
+		final double[] m = getMatrix();
+		for (int i = 0; i < m.length; i++) { if (m[i] != noDataValue) { m[i] *= val; } }
 		return this;
 	}
 
@@ -499,7 +507,8 @@ public class GamaField extends GamaFloatMatrix implements IField {
 	@no_test
 	public GamaField divides(final Double val) throws GamaRuntimeException {
 		// No check for best performances. Errors will be emitted by the various sub-operations (out of bounds, etc.)
-		for (int i = 0; i < matrix.length; i++) { if (matrix[i] != noDataValue) { matrix[i] /= val; } }
+		final double[] m = getMatrix();
+		for (int i = 0; i < m.length; i++) { if (m[i] != noDataValue) { m[i] /= val; } }
 		return this;
 	}
 
@@ -516,7 +525,8 @@ public class GamaField extends GamaFloatMatrix implements IField {
 	@no_test
 	public GamaField divides(final Integer val) throws GamaRuntimeException {
 		// No check for best performances. Errors will be emitted by the various sub-operations (out of bounds, etc.)
-		for (int i = 0; i < matrix.length; i++) { if (matrix[i] != noDataValue) { matrix[i] /= val; } }
+		final double[] m = getMatrix();
+		for (int i = 0; i < m.length; i++) { if (m[i] != noDataValue) { m[i] /= val; } }
 		return this;
 	}
 
@@ -533,7 +543,8 @@ public class GamaField extends GamaFloatMatrix implements IField {
 	@no_test
 	public GamaField plus(final Double val) throws GamaRuntimeException {
 		// No check for best performances. Errors will be emitted by the various sub-operations (out of bounds, etc.)
-		for (int i = 0; i < matrix.length; i++) { if (matrix[i] != noDataValue) { matrix[i] += val; } }
+		final double[] m = getMatrix();
+		for (int i = 0; i < m.length; i++) { if (m[i] != noDataValue) { m[i] += val; } }
 		return this;
 	}
 
@@ -550,7 +561,8 @@ public class GamaField extends GamaFloatMatrix implements IField {
 	@no_test
 	public GamaField plus(final Integer val) throws GamaRuntimeException {
 		// No check for best performances. Errors will be emitted by the various sub-operations (out of bounds, etc.)
-		for (int i = 0; i < matrix.length; i++) { if (matrix[i] != noDataValue) { matrix[i] += val; } }
+		final double[] m = getMatrix();
+		for (int i = 0; i < m.length; i++) { if (m[i] != noDataValue) { m[i] += val; } }
 		return this;
 	}
 
@@ -567,7 +579,8 @@ public class GamaField extends GamaFloatMatrix implements IField {
 	@no_test
 	public GamaField minus(final Double val) throws GamaRuntimeException {
 		// No check for best performances. Errors will be emitted by the various sub-operations (out of bounds, etc.)
-		for (int i = 0; i < matrix.length; i++) { if (matrix[i] != noDataValue) { matrix[i] -= val; } }
+		final double[] m = getMatrix();
+		for (int i = 0; i < m.length; i++) { if (m[i] != noDataValue) { m[i] -= val; } }
 		return this;
 	}
 
@@ -584,7 +597,8 @@ public class GamaField extends GamaFloatMatrix implements IField {
 	@no_test
 	public GamaField minus(final Integer val) throws GamaRuntimeException {
 		// No check for best performances. Errors will be emitted by the various sub-operations (out of bounds, etc.)
-		for (int i = 0; i < matrix.length; i++) { if (matrix[i] != noDataValue) { matrix[i] -= val; } }
+		final double[] m = getMatrix();
+		for (int i = 0; i < m.length; i++) { if (m[i] != noDataValue) { m[i] -= val; } }
 		return this;
 	}
 
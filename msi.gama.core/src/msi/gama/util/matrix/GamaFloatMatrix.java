@@ -55,7 +55,7 @@ public class GamaFloatMatrix extends GamaMatrix<Double> implements IImageProvide
 	static public GamaFloatMatrix from(final IScope scope, final IMatrix m) {
 		// We explicitly convert it to a matrix (and not a field)
 		if (m instanceof GamaField)
-			return new GamaFloatMatrix(m.getCols(scope), m.getRows(scope), ((GamaField) m).matrix);
+			return new GamaFloatMatrix(m.getCols(scope), m.getRows(scope), ((GamaField) m).getMatrix());
 		if (m instanceof GamaFloatMatrix) return (GamaFloatMatrix) m;
 		if (m instanceof GamaObjectMatrix)
 			return new GamaFloatMatrix(scope, m.getCols(scope), m.getRows(scope), ((GamaObjectMatrix) m).getMatrix());
@@ -219,8 +219,8 @@ public class GamaFloatMatrix extends GamaMatrix<Double> implements IImageProvide
 
 	@Override
 	protected IList _listValue(final IScope scope, final IType contentsType, final boolean cast) {
-		return cast ? GamaListFactory.create(scope, contentsType, matrix)
-				: GamaListFactory.createWithoutCasting(contentsType, matrix);
+		return cast ? GamaListFactory.create(scope, contentsType, getMatrix())
+				: GamaListFactory.createWithoutCasting(contentsType, getMatrix());
 	}
 
 	@Override
@@ -433,7 +433,9 @@ public class GamaFloatMatrix extends GamaMatrix<Double> implements IImageProvide
 		final GamaFloatMatrix matb = from(scope, other);
 		if (matb != null && this.numCols == matb.numCols && this.numRows == matb.numRows) {
 			final GamaFloatMatrix nm = new GamaFloatMatrix(this.numCols, this.numRows);
-			for (int i = 0; i < matrix.length; i++) { nm.matrix[i] = matrix[i] + matb.matrix[i]; }
+			final double[] values = getMatrix();
+			final double[] others = matb.getMatrix();
+			for (int i = 0; i < values.length; i++) { nm.matrix[i] = values[i] + others[i]; }
 			return nm;
 		}
 		throw GamaRuntimeException.error(" The dimensions of the matrices do not correspond", scope);
@@ -444,7 +446,9 @@ public class GamaFloatMatrix extends GamaMatrix<Double> implements IImageProvide
 		final GamaFloatMatrix matb = from(scope, other);
 		if (matb != null && this.numCols == matb.numCols && this.numRows == matb.numRows) {
 			final GamaFloatMatrix nm = new GamaFloatMatrix(this.numCols, this.numRows);
-			for (int i = 0; i < matrix.length; i++) { nm.matrix[i] = matrix[i] * matb.matrix[i]; }
+			final double[] values = getMatrix();
+			final double[] others = matb.getMatrix();
+			for (int i = 0; i < values.length; i++) { nm.matrix[i] = values[i] * others[i]; }
 			return nm;
 		}
 		throw GamaRuntimeException.error(" The dimensions of the matrices do not correspond", scope);
@@ -455,7 +459,9 @@ public class GamaFloatMatrix extends GamaMatrix<Double> implements IImageProvide
 		final GamaFloatMatrix matb = from(scope, other);
 		if (matb != null && this.numCols == matb.numCols && this.numRows == matb.numRows) {
 			final GamaFloatMatrix nm = new GamaFloatMatrix(this.numCols, this.numRows);
-			for (int i = 0; i < matrix.length; i++) { nm.matrix[i] = matrix[i] - matb.matrix[i]; }
+			final double[] values = getMatrix();
+			final double[] others = matb.getMatrix();
+			for (int i = 0; i < values.length; i++) { nm.matrix[i] = values[i] - others[i]; }
 			return nm;
 		}
 		throw GamaRuntimeException.error(" The dimensions of the matrices do not correspond", scope);
@@ -464,28 +470,32 @@ public class GamaFloatMatrix extends GamaMatrix<Double> implements IImageProvide
 	@Override
 	public GamaFloatMatrix times(final Double val) throws GamaRuntimeException {
 		final GamaFloatMatrix nm = new GamaFloatMatrix(this.numCols, this.numRows);
-		for (int i = 0; i < matrix.length; i++) { nm.matrix[i] = matrix[i] * val; }
+		final double[] values = getMatrix();
+		for (int i = 0; i < values.length; i++) { nm.matrix[i] = values[i] * val; }
 		return nm;
 	}
 
 	@Override
 	public GamaFloatMatrix times(final Integer val) throws GamaRuntimeException {
 		final GamaFloatMatrix nm = new GamaFloatMatrix(this.numCols, this.numRows);
-		for (int i = 0; i < matrix.length; i++) { nm.matrix[i] = matrix[i] * val; }
+		final double[] values = getMatrix();
+		for (int i = 0; i < values.length; i++) { nm.matrix[i] = values[i] * val; }
 		return nm;
 	}
 
 	@Override
 	public GamaFloatMatrix divides(final Double val) throws GamaRuntimeException {
 		final GamaFloatMatrix nm = new GamaFloatMatrix(this.numCols, this.numRows);
-		for (int i = 0; i < matrix.length; i++) { nm.matrix[i] = matrix[i] / val; }
+		final double[] values = getMatrix();
+		for (int i = 0; i < values.length; i++) { nm.matrix[i] = values[i] / val; }
 		return nm;
 	}
 
 	@Override
 	public GamaFloatMatrix divides(final Integer val) throws GamaRuntimeException {
 		final GamaFloatMatrix nm = new GamaFloatMatrix(this.numCols, this.numRows);
-		for (int i = 0; i < matrix.length; i++) { nm.matrix[i] = matrix[i] / val; }
+		final double[] values = getMatrix();
+		for (int i = 0; i < values.length; i++) { nm.matrix[i] = values[i] / val; }
 		return nm;
 	}
 
@@ -494,7 +504,9 @@ public class GamaFloatMatrix extends GamaMatrix<Double> implements IImageProvide
 		final GamaFloatMatrix matb = from(scope, other);
 		if (matb != null && this.numCols == matb.numCols && this.numRows == matb.numRows) {
 			final GamaFloatMatrix nm = new GamaFloatMatrix(this.numCols, this.numRows);
-			for (int i = 0; i < matrix.length; i++) { nm.matrix[i] = matrix[i] / matb.matrix[i]; }
+			final double[] values = getMatrix();
+			final double[] others = matb.getMatrix();
+			for (int i = 0; i < values.length; i++) { nm.matrix[i] = values[i] / others[i]; }
 			return nm;
 		}
 		throw GamaRuntimeException.error(" The dimensions of the matrices do not correspond", scope);
@@ -503,28 +515,32 @@ public class GamaFloatMatrix extends GamaMatrix<Double> implements IImageProvide
 	@Override
 	public GamaFloatMatrix plus(final Double val) throws GamaRuntimeException {
 		final GamaFloatMatrix nm = new GamaFloatMatrix(this.numCols, this.numRows);
-		for (int i = 0; i < matrix.length; i++) { nm.matrix[i] = matrix[i] + val; }
+		final double[] values = getMatrix();
+		for (int i = 0; i < values.length; i++) { nm.matrix[i] = values[i] + val; }
 		return nm;
 	}
 
 	@Override
 	public GamaFloatMatrix plus(final Integer val) throws GamaRuntimeException {
 		final GamaFloatMatrix nm = new GamaFloatMatrix(this.numCols, this.numRows);
-		for (int i = 0; i < matrix.length; i++) { nm.matrix[i] = matrix[i] + val; }
+		final double[] values = getMatrix();
+		for (int i = 0; i < values.length; i++) { nm.matrix[i] = values[i] + val; }
 		return nm;
 	}
 
 	@Override
 	public GamaFloatMatrix minus(final Double val) throws GamaRuntimeException {
 		final GamaFloatMatrix nm = new GamaFloatMatrix(this.numCols, this.numRows);
-		for (int i = 0; i < matrix.length; i++) { nm.matrix[i] = matrix[i] - val; }
+		final double[] values = getMatrix();
+		for (int i = 0; i < values.length; i++) { nm.matrix[i] = values[i] - val; }
 		return nm;
 	}
 
 	@Override
 	public GamaFloatMatrix minus(final Integer val) throws GamaRuntimeException {
 		final GamaFloatMatrix nm = new GamaFloatMatrix(this.numCols, this.numRows);
-		for (int i = 0; i < matrix.length; i++) { nm.matrix[i] = matrix[i] - val; }
+		final double[] values = getMatrix();
+		for (int i = 0; i < values.length; i++) { nm.matrix[i] = values[i] - val; }
 		return nm;
 	}
 
@@ -544,12 +560,12 @@ public class GamaFloatMatrix extends GamaMatrix<Double> implements IImageProvide
 
 	@Override
 	public StreamEx<Double> stream(final IScope scope) {
-		return DoubleStreamEx.of(matrix).boxed();
+		return DoubleStreamEx.of(getMatrix()).boxed();
 	}
 
 	@Override
 	public double[] getFieldData(final IScope scope) {
-		return matrix;
+		return getMatrix();
 	}
 
 	/**
@@ -0,0 +1,244 @@
+/*******************************************************************************************************
+ *
+ * GamaTiledField.java, in msi.gama.core, is part of the source code of the GAMA modeling and simulation platform
+ * (v.1.9.3).
+ *
+ * (c) 2007-2024 UMI 209 UMMISCO IRD/SU & Partners (IRIT, MIAT, TLU, CTU)
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package msi.gama.util.matrix;
+
+import java.util.stream.DoubleStream;
+
+import msi.gama.metamodel.shape.GamaPoint;
+import msi.gama.runtime.GAMA;
+import msi.gama.runtime.IScope;
+import msi.gama.runtime.exceptions.GamaRuntimeException;
+import msi.gama.util.IList;
+import msi.gaml.operators.Cast;
+import msi.gaml.types.IType;
+import one.util.streamex.IntStreamEx;
+import one.util.streamex.StreamEx;
+
+/**
+ * A field whose values are read by tiles from a {@link TiledRaster} instead of being loaded in memory, so that grid
+ * files too large for the heap can still be used by agents (through their locations or the indices of the cells).
+ *
+ * The values are only loaded in memory (when the field is small enough to fit in an array) by the operations that
+ * need all of them at once or that modify them: arithmetic operators, diffusion, display, copies... The field then
+ * behaves as a normal field.
+ */
+public class GamaTiledField extends GamaField {
+
+	/** The max. number of cells of a field that can be loaded in memory. */
+	static final long MAX_CELLS = Integer.MAX_VALUE - 8;
+
+	/** The raster. */
+	final TiledRaster raster;
+
+	/** The band of the raster read by this field. */
+	final int band;
+
+	/** Whether the values have been loaded in memory. */
+	volatile boolean loaded;
+
+	/**
+	 * Instantiates a new tiled field, and the fields of the other bands of the raster.
+	 *
+	 * @param scope
+	 *            the scope
+	 * @param raster
+	 *            the raster
+	 * @param noDataValue
+	 *            the no data value
+	 */
+	public GamaTiledField(final IScope scope, final TiledRaster raster, final double noDataValue) {
+		this(scope, raster, 0, noDataValue);
+		for (int i = 1; i < raster.getBands(); i++) { bands.add(new GamaTiledField(scope, raster, i, noDataValue)); }
+	}
+
+	/**
+	 * Instantiates a new tiled field.
+	 *
+	 * @param scope
+	 *            the scope
+	 * @param raster
+	 *            the raster
+	 * @param band
+	 *            the band
+	 * @param noDataValue
+	 *            the no data value
+	 */
+	private GamaTiledField(final IScope scope, final TiledRaster raster, final int band, final double noDataValue) {
+		super(scope, raster.getCols(), raster.getRows(), new double[0], noDataValue);
+		this.raster = raster;
+		this.band = band;
+	}
+
+	/**
+	 * Loads the values in memory if they are not already.
+	 *
+	 * @return the values
+	 */
+	@Override
+	public double[] getMatrix() {
+		if (!loaded) {
+			synchronized (this) {
+				if (!loaded) {
+					if ((long) numCols * numRows > MAX_CELLS) throw GamaRuntimeException.error("This field ("
+							+ numCols + "x" + numRows + ") is too large to be loaded in memory: its values can only be read",
+							GAMA.getRuntimeScope());
+					final double[] values = new double[numCols * numRows];
+					for (int row = 0; row < numRows; row++) { raster.readRow(band, row, values, row * numCols); }
+					matrix = values;
+					loaded = true;
+				}
+			}
+		}
+		return matrix;
+	}
+
+	/**
+	 * Reads the values of a row.
+	 *
+	 * @param row
+	 *            the row
+	 * @return the values
+	 */
+	private double[] row(final int row) {
+		final double[] values = new double[numCols];
+		raster.readRow(band, row, values, 0);
+		return values;
+	}
+
+	@Override
+	public Double get(final IScope scope, final int col, final int row) {
+		if (loaded) return super.get(scope, col, row);
+		if (col >= numCols || col < 0 || row >= numRows || row < 0) return 0d;
+		return raster.get(band, col, row);
+	}
+
+	@Override
+	public Double get(final IScope scope, final GamaPoint p) {
+		if (loaded) return super.get(scope, p);
+		final GamaPoint cell = getCellSize(scope);
+		final int x = p.x < 0 ? 0 : p.x >= worldDimensions.x ? numCols - 1 : Math.min(numCols - 1, (int) (p.x / cell.x));
+		final int y = p.y < 0 ? 0 : p.y >= worldDimensions.y ? numRows - 1 : Math.min(numRows - 1, (int) (p.y / cell.y));
+		return raster.get(band, x, y);
+	}
+
+	@Override
+	@SuppressWarnings ("rawtypes")
+	public Double getFromIndicesList(final IScope scope, final IList indices) throws GamaRuntimeException {
+		if (!loaded && indices != null && indices.size() == 1 && !(indices.get(0) instanceof GamaPoint))
+			return getNthElement(Cast.asInt(scope, indices.get(0)));
+		return super.getFromIndicesList(scope, indices);
+	}
+
+	@Override
+	public Double getNthElement(final Integer index) {
+		if (loaded) return super.getNthElement(index);
+		if (index == null || index < 0 || index >= (long) numCols * numRows) return 0d;
+		return raster.get(band, index % numCols, index / numCols);
+	}
+
+	@Override
+	public double getValueAtIndex(final IScope scope, final int i, final String var_diffu) {
+		return loaded ? super.getValueAtIndex(scope, i, var_diffu) : getNthElement(i);
+	}
+
+	@Override
+	public Integer _length(final IScope scope) {
+		return loaded ? super._length(scope) : (int) Math.min(Integer.MAX_VALUE, (long) numCols * numRows);
+	}
+
+	@Override
+	public Double _first(final IScope scope) {
+		return get(scope, 0, 0);
+	}
+
+	@Override
+	public Double _last(final IScope scope) {
+		return get(scope, numCols - 1, numRows - 1);
+	}
+
+	@Override
+	public double[] getMinMax(final double[] result) {
+		if (loaded) return super.getMinMax(result);
+		double min = Double.MAX_VALUE;
+		double max = -Double.MAX_VALUE;
+		for (int row = 0; row < numRows; row++) {
+			for (final double f : row(row)) {
+				if (f == noDataValue) { continue; }
+				if (f > max) { max = f; }
+				if (f < min) { min = f; }
+			}
+		}
+		if (result == null) return new double[] { min, max };
+		result[0] = min;
+		result[1] = max;
+		return result;
+	}
+
+	@Override
+	public StreamEx<Double> stream(final IScope scope) {
+		if (loaded) return super.stream(scope);
+		return IntStreamEx.range(numRows).mapToObj(this::row).flatMapToDouble(DoubleStream::of)
+				.filter(d -> d != noDataValue).boxed();
+	}
+
+	@Override
+	public java.lang.Iterable<Double> iterable(final IScope scope) {
+		if (loaded) return super.iterable(scope);
+		return () -> stream(scope).iterator();
+	}
+
+	@Override
+	public double[] getFieldData(final IScope scope) {
+		return getMatrix();
+	}
+
+	@Override
+	@SuppressWarnings ({ "rawtypes", "unchecked" })
+	protected IList<Double> _listValue(final IScope scope, final IType contentsType, final boolean cast) {
+		getMatrix();
+		return super._listValue(scope, contentsType, cast);
+	}
+
+	@Override
+	public void setValueAtIndex(final IScope scope, final Object at, final Double value) {
+		getMatrix();
+		super.setValueAtIndex(scope, at, value);
+	}
+
+	@Override
+	public void setValueAtIndex(final IScope scope, final int i, final String var_diffu, final double val) {
+		getMatrix();
+		super.setValueAtIndex(scope, i, var_diffu, val);
+	}
+
+	@Override
+	public void getValuesInto(final IScope scope, final String varName, final double minValue, final double[] input) {
+		getMatrix();
+		super.getValuesInto(scope, varName, minValue, input);
+	}
+
+	@Override
+	public GamaField flatten(final IScope scope, final Object computer) throws GamaRuntimeException {
+		getMatrix();
+		return super.flatten(scope, computer);
+	}
+
+	@Override
+	public boolean equals(final Object m) {
+		return this == m;
+	}
+
+	@Override
+	public int hashCode() {
+		return System.identityHashCode(this);
+	}
+
+}
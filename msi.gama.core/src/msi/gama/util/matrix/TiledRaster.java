@@ -0,0 +1,525 @@
+/*******************************************************************************************************
+ *
+ * TiledRaster.java, in msi.gama.core, is part of the source code of the GAMA modeling and simulation platform
+ * (v.1.9.3).
+ *
+ * (c) 2007-2024 UMI 209 UMMISCO IRD/SU & Partners (IRIT, MIAT, TLU, CTU)
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package msi.gama.util.matrix;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import java.awt.Rectangle;
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentMap;
+
+import com.google.common.collect.MapMaker;
+
+import msi.gama.common.preferences.GamaPreferences;
+import msi.gama.runtime.GAMA;
+import msi.gama.runtime.IScope;
+import msi.gama.runtime.exceptions.GamaRuntimeException;
+
+/**
+ * The values of a raster too large to be loaded in memory (see the 'pref_raster_tiling_threshold' preference), read by
+ * square tiles from a cache on disk. The raster is converted once into the cache (a file of the temporary directory
+ * where the values of each tile are contiguous), which is then memory-mapped by segments and reused as long as the
+ * original file does not change. The caches that are not used are deleted, least recently used first, when they
+ * occupy more than the space given by the 'pref_raster_tile_disk' preference. The tiles read are kept in a LRU cache whose size is given by the
+ * 'pref_raster_tile_cache' preference, so that agents reading values in the same area do not read the file again.
+ *
+ * Values are stored as floats when the raster contains bytes, shorts or floats (which floats represent exactly), and as
+ * doubles otherwise. Tiles on the right and bottom borders are padded, so that all the tiles have the same size.
+ */
+public class TiledRaster {
+
+	/** The size (in cells) of the side of the tiles. Must be a power of two. */
+	static final int TILE = 256;
+
+	/** The size (in bytes) of the header of the cache. */
+	static final int HEADER = 64;
+
+	/** The magic number of the caches. */
+	static final int MAGIC = 0x47544331;
+
+	/** The max. size (in bytes) of the segments of the cache mapped in memory. */
+	static final long SEGMENT = 1L << 30;
+
+	/** The max. number of values read at once from the original raster when the cache is built. */
+	static final int STRIP_VALUES = 1 << 23;
+
+	/** The age (in ms) after which the temporary files left by builds that did not complete are deleted. */
+	static final long STALE = 24 * 3600 * 1000L;
+
+	/** The rasters already opened, shared by the fields (and simulations) that read the same file. */
+	static final ConcurrentMap<String, TiledRaster> RASTERS = new MapMaker().weakValues().makeMap();
+
+	/**
+	 * Whether a raster of this size should be read by tiles.
+	 *
+	 * @param cols
+	 *            the cols
+	 * @param rows
+	 *            the rows
+	 * @return true, if successful
+	 */
+	public static boolean shouldTile(final int cols, final int rows) {
+		final int threshold = GamaPreferences.External.RASTER_TILING_THRESHOLD.getValue();
+		return threshold > 0 && (long) cols * rows > threshold * 1_000_000L;
+	}
+
+	/**
+	 * Returns the tiled raster of a file, building its cache on disk if it does not exist or if the file has changed
+	 * since it was built.
+	 *
+	 * @param scope
+	 *            the scope
+	 * @param file
+	 *            the original file
+	 * @param image
+	 *            the image of the file, whose values are only read when the cache is built
+	 * @return the tiled raster
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public static synchronized TiledRaster of(final IScope scope, final File file, final RenderedImage image)
+			throws IOException {
+		final File dir = new File(System.getProperty("java.io.tmpdir"), "gama_tiles");
+		final String name = file.getName() + "_"
+				+ Integer.toHexString(Objects.hash(file.getAbsolutePath(), file.lastModified(), file.length()))
+				+ ".tiles";
+		final File cache = new File(dir, name);
+		TiledRaster result = RASTERS.get(cache.getAbsolutePath());
+		if (result != null) return result;
+		result = open(cache, image);
+		if (result == null) {
+			dir.mkdirs();
+			build(scope, cache, image, file.getName());
+			result = open(cache, image);
+			if (result == null) throw new IOException("Impossible to build the tiles of " + file.getName());
+			RASTERS.put(cache.getAbsolutePath(), result);
+			prune(dir);
+		} else {
+			RASTERS.put(cache.getAbsolutePath(), result);
+		}
+		return result;
+	}
+
+	/**
+	 * Deletes the caches not opened in this JVM, least recently used first, while the caches of the directory occupy
+	 * more than the space allowed by the 'pref_raster_tile_disk' preference, as well as the temporary files left by
+	 * builds that did not complete. The caches opened by other processes cannot be known: on the systems where they can
+	 * be deleted, the processes keep reading them until they close them.
+	 *
+	 * @param dir
+	 *            the directory of the caches
+	 */
+	static void prune(final File dir) {
+		final File[] files = dir.listFiles();
+		if (files == null) return;
+		final long max = GamaPreferences.External.RASTER_TILE_DISK.getValue() * (1L << 20);
+		final long now = System.currentTimeMillis();
+		final List<File> unused = new ArrayList<>();
+		long total = 0;
+		for (final File f : files) {
+			if (f.getName().endsWith(".tmp")) {
+				if (now - f.lastModified() > STALE) { f.delete(); }
+			} else if (f.getName().endsWith(".tiles")) {
+				total += f.length();
+				if (!RASTERS.containsKey(f.getAbsolutePath())) { unused.add(f); }
+			}
+		}
+		unused.sort(Comparator.comparingLong(File::lastModified));
+		for (final File f : unused) {
+			if (total <= max) { break; }
+			final long length = f.length();
+			if (f.delete()) { total -= length; }
+		}
+	}
+
+	/**
+	 * Opens an existing cache, if it corresponds to the image.
+	 *
+	 * @param cache
+	 *            the cache
+	 * @param image
+	 *            the image
+	 * @return the tiled raster or null if the cache does not exist or is not valid
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	static TiledRaster open(final File cache, final RenderedImage image) throws IOException {
+		if (!cache.isFile()) return null;
+		final FileChannel channel = FileChannel.open(cache.toPath(), READ);
+		final ByteBuffer header = ByteBuffer.allocate(HEADER).order(ByteOrder.LITTLE_ENDIAN);
+		while (header.hasRemaining() && channel.read(header, header.position()) >= 0) {}
+		header.flip();
+		if (header.remaining() == HEADER && header.getInt() == MAGIC) {
+			final int cols = header.getInt(), rows = header.getInt(), bands = header.getInt(),
+					bytesPerValue = header.getInt();
+			final TiledRaster raster = new TiledRaster(channel, cols, rows, bands, bytesPerValue);
+			if (cols == image.getWidth() && rows == image.getHeight()
+					&& bands == image.getSampleModel().getNumBands() && channel.size() == raster.size()) {
+				// Marks the cache as recently used (see prune())
+				cache.setLastModified(System.currentTimeMillis());
+				return raster;
+			}
+		}
+		channel.close();
+		return null;
+	}
+
+	/**
+	 * Builds the cache from the image, by strips of rows that share the same tiles. The cache is written in a
+	 * temporary file of a unique name, moved into place once complete, so that an interrupted build is never reused and
+	 * that several processes building the same cache do not write in the same file.
+	 *
+	 * @param scope
+	 *            the scope
+	 * @param cache
+	 *            the cache
+	 * @param image
+	 *            the image
+	 * @param name
+	 *            the name of the original file
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	static void build(final IScope scope, final File cache, final RenderedImage image, final String name)
+			throws IOException {
+		final int cols = image.getWidth(), rows = image.getHeight(), bands = image.getSampleModel().getNumBands();
+		final int type = image.getSampleModel().getDataType();
+		final int bytesPerValue = type == DataBuffer.TYPE_BYTE || type == DataBuffer.TYPE_SHORT
+				|| type == DataBuffer.TYPE_USHORT || type == DataBuffer.TYPE_FLOAT ? 4 : 8;
+		final TiledRaster layout = new TiledRaster(null, cols, rows, bands, bytesPerValue);
+		final int strip = Integer.highestOneBit(Math.max(1, Math.min(TILE, STRIP_VALUES / Math.max(1, cols))));
+		final double[] samples = new double[cols * strip];
+		final ByteBuffer buffer = ByteBuffer.allocate(strip * TILE * bytesPerValue).order(ByteOrder.LITTLE_ENDIAN);
+		final File temp = File.createTempFile(cache.getName() + "_", ".tmp", cache.getParentFile());
+		boolean complete = false;
+		scope.getGui().getStatus().beginSubStatus(scope, "Tiling file " + name);
+		try (FileChannel out = FileChannel.open(temp.toPath(), CREATE, TRUNCATE_EXISTING, WRITE)) {
+			for (int y = 0; y < rows; y += strip) {
+				scope.getGui().getStatus().setSubStatusCompletion(scope, y / (double) rows);
+				final int h = Math.min(strip, rows - y);
+				final Raster data = image.getData(new Rectangle(image.getMinX(), image.getMinY() + y, cols, h));
+				for (int b = 0; b < bands; b++) {
+					data.getSamples(image.getMinX(), image.getMinY() + y, cols, h, b, samples);
+					for (int tx = 0; tx < layout.tilesX; tx++) {
+						final int x0 = tx * TILE, w = Math.min(TILE, cols - x0);
+						buffer.clear();
+						for (int k = 0; k < h; k++) {
+							for (int i = 0; i < TILE; i++) {
+								final double v = i < w ? samples[k * cols + x0 + i] : 0d;
+								if (bytesPerValue == 4) {
+									buffer.putFloat((float) v);
+								} else {
+									buffer.putDouble(v);
+								}
+							}
+						}
+						buffer.flip();
+						long position = layout.position(layout.key(b, tx, y / TILE))
+								+ (long) (y % TILE) * TILE * bytesPerValue;
+						while (buffer.hasRemaining()) { position += out.write(buffer, position); }
+					}
+				}
+			}
+			// The size of the cache is set explicitly, in case the last rows do not fill their tiles
+			final ByteBuffer header = ByteBuffer.allocate(HEADER).order(ByteOrder.LITTLE_ENDIAN);
+			header.putInt(MAGIC).putInt(cols).putInt(rows).putInt(bands).putInt(bytesPerValue);
+			header.rewind();
+			out.write(header, 0);
+			if (out.size() < layout.size()) { out.write(ByteBuffer.allocate(1), layout.size() - 1); }
+			complete = true;
+		} finally {
+			scope.getGui().getStatus().endSubStatus(scope, "Tiling file " + name);
+			if (!complete) { temp.delete(); }
+		}
+		try {
+			Files.move(temp.toPath(), cache.toPath(), REPLACE_EXISTING, ATOMIC_MOVE);
+		} catch (final AtomicMoveNotSupportedException e) {
+			Files.move(temp.toPath(), cache.toPath(), REPLACE_EXISTING);
+		} catch (final IOException e) {
+			// Another process has built the same cache and keeps it open (on the systems where open files cannot be
+			// replaced): its copy is used
+			temp.delete();
+			if (!cache.isFile()) throw e;
+		}
+	}
+
+	/**
+	 * A tile and its key.
+	 *
+	 * @param key
+	 *            the key
+	 * @param values
+	 *            the values
+	 */
+	record Tile(long key, double[] values) {}
+
+	/** The channel of the cache. */
+	final FileChannel channel;
+
+	/** The dimensions. */
+	final int cols, rows, bands, tilesX, tilesY;
+
+	/** The number of bytes of each value (4 or 8). */
+	final int bytesPerValue;
+
+	/** The number of bytes of each tile. */
+	final long tileBytes;
+
+	/** The number of tiles in each segment. */
+	final long tilesPerSegment;
+
+	/** The segments of the cache mapped in memory. */
+	final ByteBuffer[] segments;
+
+	/** Whether the cache can be mapped in memory. */
+	volatile boolean mapped = true;
+
+	/** The tiles read last, in access order. */
+	final Map<Long, double[]> tiles;
+
+	/** The tile read last, which agents are likely to read again. */
+	volatile Tile last;
+
+	/**
+	 * Instantiates a new tiled raster.
+	 *
+	 * @param channel
+	 *            the channel of the cache
+	 * @param cols
+	 *            the cols
+	 * @param rows
+	 *            the rows
+	 * @param bands
+	 *            the bands
+	 * @param bytesPerValue
+	 *            the bytes per value
+	 */
+	TiledRaster(final FileChannel channel, final int cols, final int rows, final int bands, final int bytesPerValue) {
+		this.channel = channel;
+		this.cols = cols;
+		this.rows = rows;
+		this.bands = bands;
+		this.bytesPerValue = bytesPerValue;
+		tilesX = (cols + TILE - 1) / TILE;
+		tilesY = (rows + TILE - 1) / TILE;
+		tileBytes = (long) TILE * TILE * bytesPerValue;
+		tilesPerSegment = Math.max(1, SEGMENT / tileBytes);
+		segments = new ByteBuffer[(int) (((long) bands * tilesX * tilesY + tilesPerSegment - 1) / tilesPerSegment)];
+		final int max = Math.max(4,
+				(int) (GamaPreferences.External.RASTER_TILE_CACHE.getValue() * (1L << 20) / (TILE * TILE * 8L)));
+		tiles = new LinkedHashMap<>(16, 0.75f, true) {
+
+			@Override
+			protected boolean removeEldestEntry(final Map.Entry<Long, double[]> eldest) {
+				return size() > max;
+			}
+		};
+	}
+
+	/**
+	 * The size of the cache in bytes.
+	 *
+	 * @return the long
+	 */
+	long size() {
+		return HEADER + (long) bands * tilesX * tilesY * tileBytes;
+	}
+
+	/**
+	 * The key of a tile.
+	 *
+	 * @param band
+	 *            the band
+	 * @param tx
+	 *            the column of the tile
+	 * @param ty
+	 *            the row of the tile
+	 * @return the long
+	 */
+	long key(final int band, final int tx, final int ty) {
+		return ((long) band * tilesY + ty) * tilesX + tx;
+	}
+
+	/**
+	 * The position of a tile in the cache.
+	 *
+	 * @param key
+	 *            the key
+	 * @return the long
+	 */
+	long position(final long key) {
+		return HEADER + key * tileBytes;
+	}
+
+	/**
+	 * Gets the number of columns.
+	 *
+	 * @return the cols
+	 */
+	public int getCols() { return cols; }
+
+	/**
+	 * Gets the number of rows.
+	 *
+	 * @return the rows
+	 */
+	public int getRows() { return rows; }
+
+	/**
+	 * Gets the number of bands.
+	 *
+	 * @return the bands
+	 */
+	public int getBands() { return bands; }
+
+	/**
+	 * Returns the value of a cell, which must be within the raster.
+	 *
+	 * @param band
+	 *            the band
+	 * @param col
+	 *            the col
+	 * @param row
+	 *            the row
+	 * @return the value
+	 */
+	public double get(final int band, final int col, final int row) {
+		return tile(band, col / TILE, row / TILE)[(row & TILE - 1) * TILE + (col & TILE - 1)];
+	}
+
+	/**
+	 * Reads the values of a row.
+	 *
+	 * @param band
+	 *            the band
+	 * @param row
+	 *            the row
+	 * @param values
+	 *            the array to fill
+	 * @param offset
+	 *            the index, in the array, of the first value of the row
+	 */
+	public void readRow(final int band, final int row, final double[] values, final int offset) {
+		final int start = (row & TILE - 1) * TILE;
+		for (int tx = 0; tx < tilesX; tx++) {
+			System.arraycopy(tile(band, tx, row / TILE), start, values, offset + tx * TILE,
+					Math.min(TILE, cols - tx * TILE));
+		}
+	}
+
+	/**
+	 * Returns the values of a tile, read from the cache on disk if it is not in memory.
+	 *
+	 * @param band
+	 *            the band
+	 * @param tx
+	 *            the column of the tile
+	 * @param ty
+	 *            the row of the tile
+	 * @return the values (not to be modified)
+	 */
+	double[] tile(final int band, final int tx, final int ty) {
+		final long key = key(band, tx, ty);
+		final Tile t = last;
+		if (t != null && t.key == key) return t.values;
+		double[] values;
+		synchronized (tiles) {
+			values = tiles.get(key);
+		}
+		if (values == null) {
+			values = read(key);
+			synchronized (tiles) {
+				tiles.put(key, values);
+			}
+		}
+		last = new Tile(key, values);
+		return values;
+	}
+
+	/**
+	 * Reads a tile from the cache on disk.
+	 *
+	 * @param key
+	 *            the key
+	 * @return the values
+	 */
+	private double[] read(final long key) {
+		final double[] values = new double[TILE * TILE];
+		ByteBuffer bytes = null;
+		try {
+			if (mapped) {
+				final ByteBuffer segment = segment((int) (key / tilesPerSegment));
+				if (segment != null) {
+					bytes = segment.slice((int) (key % tilesPerSegment * tileBytes), (int) tileBytes);
+				}
+			}
+			if (bytes == null) {
+				bytes = ByteBuffer.allocate((int) tileBytes);
+				final long position = position(key);
+				while (bytes.hasRemaining() && channel.read(bytes, position + bytes.position()) >= 0) {}
+				bytes.flip();
+			}
+		} catch (final IOException e) {
+			throw GamaRuntimeException.create(e, GAMA.getRuntimeScope());
+		}
+		bytes.order(ByteOrder.LITTLE_ENDIAN);
+		if (bytesPerValue == 8) {
+			bytes.asDoubleBuffer().get(values);
+		} else {
+			final FloatBuffer floats = bytes.asFloatBuffer();
+			for (int i = 0; i < values.length; i++) { values[i] = floats.get(i); }
+		}
+		return values;
+	}
+
+	/**
+	 * Returns a segment of the cache mapped in memory, mapping it if needed.
+	 *
+	 * @param index
+	 *            the index
+	 * @return the segment, or null if the cache cannot be mapped
+	 */
+	private synchronized ByteBuffer segment(final int index) {
+		if (segments[index] == null) {
+			final long start = position(index * tilesPerSegment);
+			final long length = Math.min(tilesPerSegment * tileBytes, size() - start);
+			try {
+				segments[index] = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+			} catch (final IOException | UnsupportedOperationException e) {
+				mapped = false;
+				return null;
+			}
+		}
+		return segments[index];
+	}
+
+}
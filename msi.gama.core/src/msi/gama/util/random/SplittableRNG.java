@@ -0,0 +1,344 @@
+/*******************************************************************************************************
+ *
+ * SplittableRNG.java, in msi.gama.core, is part of the source code of the GAMA modeling and simulation platform
+ * (v.1.9.3).
+ *
+ * (c) 2007-2024 UMI 209 UMMISCO IRD/SU & Partners (IRIT, MIAT, TLU, CTU)
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package msi.gama.util.random;
+
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+import com.google.common.collect.MapMaker;
+
+import msi.gama.common.util.RandomUtils;
+import msi.gama.kernel.experiment.ITopLevelAgent;
+import msi.gama.metamodel.agent.IAgent;
+
+/**
+ * A generator made of independent streams, one per agent, based on the SplitMix64 algorithm (the one of
+ * {@link java.util.SplittableRandom}). The stream of an agent is derived from the seed and from the identity of the
+ * agent (its species, index and hosts), and is used whenever this agent is executed, whatever the thread. The numbers
+ * drawn by an agent only depend on the seed and on its own sequence of calls, so simulations give the same results
+ * whether their agents are run sequentially or in parallel, with any number of threads. As the state of a stream is a
+ * single long, drawing a number is a single atomic addition: no lock is involved.
+ *
+ * The draws that cannot be attributed to an agent (or that are made by the simulation itself) use a shared stream,
+ * which is the only one taken into account by the usage of the generator. The streams of the agents are derived anew
+ * at each cycle (see {@link #startCycle(int)}) from the seed, the identity of the agent and the cycle: the state of the
+ * generator is then entirely described by its usage and by the cycle of the simulation, so that a simulation restored
+ * (or stepped back) at the beginning of a cycle replays the same draws as the original one.
+ */
+public class SplittableRNG implements IGamaRNG {
+
+	/** The golden gamma, used as the increment of the shared stream. */
+	static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+	/** The seed. */
+	final long seed;
+
+	/** The shared stream. */
+	final Stream shared;
+
+	/** The streams of the agents. Keys are weak (and compared by identity), so that dead agents can be collected. */
+	final ConcurrentMap<IAgent, AgentStream> streams = new MapMaker().weakKeys().makeMap();
+
+	/** The stream of the agent currently executed by each thread (null for the shared one). */
+	final ThreadLocal<AgentStream> current = new ThreadLocal<>();
+
+	/**
+	 * The current era. The streams of the agents created in a previous era are derived again before being used. A new
+	 * era begins with each cycle and whenever the usage is set.
+	 */
+	volatile Era era = new Era(-1);
+
+	/** The view of this generator as a java.util.Random. */
+	final Random random = new Random() {
+
+		@Override
+		protected int next(final int bits) {
+			return (int) (stream().nextLong() >>> 64 - bits);
+		}
+	};
+
+	/**
+	 * Seed the RNG using the provided seed generation strategy.
+	 *
+	 * @param seedGenerator
+	 *            The seed generation strategy that will provide the seed value for this RNG.
+	 */
+	public SplittableRNG(final RandomUtils seedGenerator) {
+		this(ByteBuffer.wrap(seedGenerator.generateSeed(8)).getLong());
+	}
+
+	/**
+	 * Creates an RNG with the specified seed.
+	 *
+	 * @param seed
+	 *            the seed
+	 */
+	public SplittableRNG(final long seed) {
+		this.seed = seed;
+		shared = new Stream(seed, GOLDEN_GAMMA);
+	}
+
+	/**
+	 * Makes the current thread use the stream of this agent (or the shared one if the agent is null or is a
+	 * simulation or an experiment), until another agent is used.
+	 *
+	 * @param agent
+	 *            the agent
+	 */
+	public void use(final IAgent agent) {
+		if (agent == null || agent instanceof ITopLevelAgent) {
+			current.remove();
+		} else {
+			current.set(streamOf(agent));
+		}
+	}
+
+	/**
+	 * Called by the simulation at the beginning of each cycle: the streams of the agents are derived again for this
+	 * cycle.
+	 *
+	 * @param cycle
+	 *            the cycle
+	 */
+	public void startCycle(final int cycle) {
+		era = new Era(cycle);
+	}
+
+	/**
+	 * Returns the stream of an agent in the current era, deriving it if necessary.
+	 *
+	 * @param agent
+	 *            the agent
+	 * @return the stream
+	 */
+	AgentStream streamOf(final IAgent agent) {
+		final Era e = era;
+		final AgentStream s = streams.get(agent);
+		if (s != null && s.era == e) return s;
+		return streams.compute(agent, (a, old) -> old != null && old.era == e ? old : deriveStream(a, e));
+	}
+
+	/**
+	 * Derives the stream of an agent from the seed, from its identity and from the cycle of the era.
+	 *
+	 * @param agent
+	 *            the agent
+	 * @param e
+	 *            the era
+	 * @return the stream
+	 */
+	AgentStream deriveStream(final IAgent agent, final Era e) {
+		final long key = keyOf(agent);
+		return new AgentStream(mix64(mix64(seed ^ key) + e.cycle() * GOLDEN_GAMMA), mixGamma(seed + key * GOLDEN_GAMMA),
+				agent, e);
+	}
+
+	/**
+	 * A key identifying the agent among all the agents of a simulation, independently of the execution.
+	 *
+	 * @param agent
+	 *            the agent
+	 * @return the long
+	 */
+	static long keyOf(final IAgent agent) {
+		if (agent == null || agent instanceof ITopLevelAgent) return 0;
+		final long host = keyOf(agent.getHost());
+		return mix64(mix64(host + agent.getSpeciesName().hashCode()) + agent.getIndex());
+	}
+
+	/**
+	 * The stream used by the current thread.
+	 *
+	 * @return the stream
+	 */
+	Stream stream() {
+		final AgentStream s = current.get();
+		if (s == null) return shared;
+		if (s.era == era) return s;
+		// The thread kept the stream of a previous era (e.g. before the usage was set)
+		final IAgent agent = s.agent.get();
+		if (agent == null) return shared;
+		final AgentStream renewed = streamOf(agent);
+		current.set(renewed);
+		return renewed;
+	}
+
+	@Override
+	public int getUsage() { return (int) shared.draws(); }
+
+	/**
+	 * Sets the usage of the shared stream (when a simulation is restored or stepped back). The streams of the agents
+	 * are derived again from the cycle of the current era.
+	 */
+	@Override
+	public void setUsage(final int usage) {
+		shared.moveTo(usage);
+		era = new Era(era.cycle());
+		streams.clear();
+	}
+
+	@Override
+	public int nextInt() {
+		return (int) (stream().nextLong() >>> 32);
+	}
+
+	@Override
+	public double nextDouble() {
+		return (stream().nextLong() >>> 11) * 0x1.0p-53;
+	}
+
+	@Override
+	public double nextGaussian() {
+		// Box-Muller transform, without keeping the second value so that the stream remains a single long
+		final Stream s = stream();
+		double u;
+		do {
+			u = (s.nextLong() >>> 11) * 0x1.0p-53;
+		} while (u == 0d);
+		final double v = (s.nextLong() >>> 11) * 0x1.0p-53;
+		return Math.sqrt(-2 * Math.log(u)) * Math.cos(2 * Math.PI * v);
+	}
+
+	@Override
+	public Random getRandomGenerator() { return random; }
+
+	/**
+	 * The finalizer of SplitMix64 (variant 13 of Stafford's mixers).
+	 *
+	 * @param z
+	 *            the z
+	 * @return the long
+	 */
+	static long mix64(final long z) {
+		long x = (z ^ z >>> 30) * 0xbf58476d1ce4e5b9L;
+		x = (x ^ x >>> 27) * 0x94d049bb133111ebL;
+		return x ^ x >>> 31;
+	}
+
+	/**
+	 * Computes an odd gamma with enough bit transitions, as done by {@link java.util.SplittableRandom}.
+	 *
+	 * @param z
+	 *            the z
+	 * @return the long
+	 */
+	static long mixGamma(final long z) {
+		long x = (z ^ z >>> 33) * 0xff51afd7ed558ccdL;
+		x = (x ^ x >>> 33) * 0xc4ceb9fe1a85ec53L;
+		x = x ^ x >>> 33 | 1L;
+		return Long.bitCount(x ^ x >>> 1) < 24 ? x ^ 0xaaaaaaaaaaaaaaaaL : x;
+	}
+
+	/**
+	 * A SplitMix64 stream. Its state is advanced atomically, so that it remains consistent even if it happens to be
+	 * used by several threads at once.
+	 */
+	static class Stream {
+
+		/** The updater of the state. */
+		static final AtomicLongFieldUpdater<Stream> STATE = AtomicLongFieldUpdater.newUpdater(Stream.class, "state");
+
+		/** The initial state. */
+		final long origin;
+
+		/** The increment. Always odd. */
+		final long gamma;
+
+		/** The state. */
+		volatile long state;
+
+		/**
+		 * Instantiates a new stream.
+		 *
+		 * @param origin
+		 *            the initial state
+		 * @param gamma
+		 *            the increment
+		 */
+		Stream(final long origin, final long gamma) {
+			this.origin = state = origin;
+			this.gamma = gamma;
+		}
+
+		/**
+		 * Next long.
+		 *
+		 * @return the long
+		 */
+		long nextLong() {
+			return mix64(STATE.addAndGet(this, gamma));
+		}
+
+		/**
+		 * Puts the stream in the state it has after n values have been drawn.
+		 *
+		 * @param n
+		 *            the n
+		 */
+		void moveTo(final long n) {
+			state = origin + n * gamma;
+		}
+
+		/**
+		 * The number of values drawn so far, obtained by dividing the distance to the initial state by the (odd, hence
+		 * invertible modulo 2^64) increment.
+		 *
+		 * @return the long
+		 */
+		long draws() {
+			long inverse = gamma;
+			for (int i = 0; i < 5; i++) { inverse *= 2 - gamma * inverse; }
+			return (state - origin) * inverse;
+		}
+	}
+
+	/**
+	 * The stream of an agent in an era.
+	 */
+	static class AgentStream extends Stream {
+
+		/** The agent. Weakly referenced, so that the threads do not keep dead agents. */
+		final WeakReference<IAgent> agent;
+
+		/** The era in which it has been derived. */
+		final Era era;
+
+		/**
+		 * Instantiates a new agent stream.
+		 *
+		 * @param origin
+		 *            the initial state
+		 * @param gamma
+		 *            the increment
+		 * @param agent
+		 *            the agent
+		 * @param era
+		 *            the era
+		 */
+		AgentStream(final long origin, final long gamma, final IAgent agent, final Era era) {
+			super(origin, gamma);
+			this.agent = new WeakReference<>(agent);
+			this.era = era;
+		}
+	}
+
+	/**
+	 * An era of the generator. Compared by identity: setting the usage begins a new era in the same cycle.
+	 *
+	 * @param cycle
+	 *            the cycle (-1 before the first one)
+	 */
+	record Era(int cycle) {}
+
+}
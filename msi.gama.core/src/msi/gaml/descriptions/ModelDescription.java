@@ -90,6 +90,9 @@ public class ModelDescription extends SpeciesDescription {
 	/** The imported model names. */
 	private Collection<String> importedModelNames;
 
+	/** Whether the iterator operators must always be evaluated sequentially ('@sequential_iterators' pragma). */
+	private boolean sequentialIterators;
+
 	/**
 	 * Gets the alternate paths.
 	 *
@@ -517,6 +520,23 @@ public class ModelDescription extends SpeciesDescription {
 	 */
 	public void setImportedModelNames(final Collection<String> allModelNames) { importedModelNames = allModelNames; }
 
+	/**
+	 * Whether the iterator operators must always be evaluated sequentially in this model.
+	 *
+	 * @return true, if successful
+	 */
+	public boolean hasSequentialIterators() {
+		return sequentialIterators;
+	}
+
+	/**
+	 * Sets whether the iterator operators must always be evaluated sequentially in this model.
+	 *
+	 * @param sequential
+	 *            the new sequential iterators
+	 */
+	public void setSequentialIterators(final boolean sequential) { sequentialIterators = sequential; }
+
 	/**
 	 * Returns all the species including the model itself, all the micro-species and the experiments
 	 *
@@ -26,6 +26,7 @@ import msi.gama.precompiler.GamlAnnotations.operator;
 import msi.gama.precompiler.GamlAnnotations.variable;
 import msi.gama.precompiler.GamlAnnotations.vars;
 import msi.gama.precompiler.GamlProperties;
+import msi.gama.precompiler.IConcept;
 import msi.gama.precompiler.ISymbolKind;
 import msi.gama.precompiler.ITypeProvider;
 import msi.gama.runtime.IScope;
@@ -230,6 +231,71 @@ public class OperatorProto extends AbstractProto implements IVarDescriptionUser
 		this.contentTypeContentTypeProvider = contentTypeContentTypeProvider;
 	}
 
+	/** The operators that draw random numbers although they are not declared with the 'random' concept. */
+	static final Set<String> RANDOM_OPERATORS = ImmutableSet.of("one_of", "any", "among", "shuffle", "sample",
+			"any_location_in", "any_point_in", "points_at");
+
+	/**
+	 * The classes whose operators do not have side effects and only depend on their operands, so that they can be
+	 * evaluated in parallel (unless they draw random numbers).
+	 */
+	static final Set<Class<?>> PARALLEL_SAFE_CLASSES = ImmutableSet.of(msi.gaml.operators.Maths.class,
+			msi.gaml.operators.Comparison.class, msi.gaml.operators.Logic.class, msi.gaml.operators.Strings.class,
+			msi.gaml.operators.Points.class, msi.gaml.operators.Colors.class, msi.gaml.operators.Cast.class,
+			msi.gaml.operators.Dates.class, msi.gaml.operators.Containers.class, msi.gama.util.IContainer.class);
+
+	/** The operators of the System class that can be evaluated in parallel. */
+	static final Set<String> PARALLEL_SAFE_SYSTEM_OPERATORS =
+			ImmutableSet.of(IKeyword._DOT, IKeyword.OF, "dead", "copy");
+
+	/** Whether the operator draws random numbers. Computed lazily. */
+	private Boolean random;
+
+	/** Whether the operator can be evaluated in parallel. Computed lazily. */
+	private Boolean parallelSafe;
+
+	/**
+	 * Whether this operator draws random numbers, i.e. whether it is declared with the 'random' concept, defined in
+	 * the Random class, or one of the operators known to use the random generator (like 'one_of', 'among' or
+	 * 'any_location_in').
+	 *
+	 * @return true, if is random
+	 */
+	public boolean isRandom() {
+		if (random == null) {
+			final operator op = support == null ? null : support.getAnnotation(operator.class);
+			random = op != null && Arrays.asList(op.concept()).contains(IConcept.RANDOM)
+					|| support instanceof Method m && m.getDeclaringClass() == msi.gaml.operators.Random.class
+					|| RANDOM_OPERATORS.contains(getName()) || getName().startsWith("rnd")
+					|| getName().contains("random");
+		}
+		return random;
+	}
+
+	/**
+	 * Whether this operator can be evaluated in parallel: only the accesses to fields and the operators of a fixed list
+	 * of classes, which have no side effects, are considered as such, unless they draw random numbers. The operators
+	 * defined in plugins or by models are always evaluated sequentially.
+	 *
+	 * @return true, if is parallel safe
+	 */
+	public boolean isParallelSafe() {
+		if (parallelSafe == null) {
+			if (isRandom()) {
+				parallelSafe = false;
+			} else if (isVarOrField) {
+				parallelSafe = true;
+			} else if (support instanceof Method m) {
+				final Class<?> c = m.getDeclaringClass();
+				parallelSafe = PARALLEL_SAFE_CLASSES.contains(c) || c == msi.gaml.operators.System.class
+						&& PARALLEL_SAFE_SYSTEM_OPERATORS.contains(getName());
+			} else {
+				parallelSafe = false;
+			}
+		}
+		return parallelSafe;
+	}
+
 	/**
 	 * Compute lazyness.
 	 *
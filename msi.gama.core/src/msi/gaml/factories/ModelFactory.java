@@ -348,6 +348,8 @@ public class ModelFactory extends SymbolFactory {
 		final Collection<String> allModelNames = Iterables.size(models) == 1 ? null : ImmutableSet
 				.copyOf(Iterables.transform(Iterables.skip(models, 1), each -> buildModelName(each.getName())));
 		model.setImportedModelNames(allModelNames);
+		final Map<String, List<String>> pragmas = source.getPragmas();
+		model.setSequentialIterators(pragmas != null && pragmas.containsKey(IKeyword.PRAGMA_SEQUENTIAL_ITERATORS));
 		return model;
 	}
 
@@ -36,6 +36,9 @@ import com.google.common.collect.Sets;
 
 import msi.gama.common.interfaces.IKeyword;
 import msi.gama.metamodel.agent.IAgent;
+import msi.gama.metamodel.population.AttributeColumns;
+import msi.gama.metamodel.population.AttributeColumns.Reduction;
+import msi.gama.metamodel.population.IPopulation;
 import msi.gama.metamodel.population.IPopulationSet;
 import msi.gama.metamodel.population.MetaPopulation;
 import msi.gama.metamodel.shape.GamaPoint;
@@ -71,11 +74,13 @@ import msi.gaml.compilation.annotations.validator;
 import msi.gaml.descriptions.IDescription;
 import msi.gaml.expressions.IExpression;
 import msi.gaml.expressions.operators.BinaryOperator;
+import msi.gaml.expressions.variables.EachExpression;
 import msi.gaml.interfaces.IGamlIssue;
 import msi.gaml.species.ISpecies;
 import msi.gaml.types.GamaType;
 import msi.gaml.types.IType;
 import msi.gaml.types.Types;
+import msi.gama.runtime.concurrent.ParallelIterators;
 import one.util.streamex.IntStreamEx;
 import one.util.streamex.StreamEx;
 
@@ -1730,6 +1735,15 @@ public class Containers {
 	@test ("[1::2, 3::4, 5::6] group_by (each > 4) = [false::[2, 4], true::[6]]")
 	public static IMap group_by(final IScope scope, final IContainer c, final IExpression e) {
 		final IType ct = notNull(scope, c).getGamlType().getContentType();
+		final Object[] elements = ParallelIterators.elementsOf(scope, c, e);
+		if (elements != null) {
+			final Object[] keys = ParallelIterators.evaluate(scope, elements, e);
+			final IMap result = asMapOf(e.getGamlType(), Types.LIST.of(ct)).get();
+			for (int i = 0; i < elements.length; i++) {
+				((IList) result.computeIfAbsent(keys[i], k -> listOf(ct).get())).add(elements[i]);
+			}
+			return result;
+		}
 		return (IMap) stream(scope, c).groupingTo(with(scope, e), asMapOf(e.getGamlType(), Types.LIST.of(ct)),
 				listOf(ct));
 	}
@@ -1835,6 +1849,11 @@ public class Containers {
 			see = { "group_by", "last_with", "where" })
 	@test ("[1,2,3,4,5,6,7,8] first_with (each > 3) = 4")
 	public static Object first_with(final IScope scope, final IContainer c, final IExpression filter) {
+		final Object[] elements = ParallelIterators.elementsOf(scope, c, filter);
+		if (elements != null) {
+			final int index = ParallelIterators.indexOfFirst(scope, elements, filter);
+			return index < 0 ? null : elements[index];
+		}
 		return stream(scope, c).findFirst(by(scope, filter)).orElse(null);
 	}
 
@@ -1974,12 +1993,17 @@ public class Containers {
 			see = { "min_of", "max_of", "product_of", "mean_of" })
 	@test ("[1,2] sum_of (each * 100 ) = 300")
 	public static Object sum_of(final IScope scope, final IContainer container, final IExpression filter) {
-		Stream s = stream(scope, container);
+		Stream s;
 		IType t;
+		final Object reduced = reduceColumn(scope, container, filter, Reduction.SUM);
+		if (reduced != null) return reduced;
 		if (filter != null) {
-			s = s.map(with(scope, filter));
+			final Object[] elements = ParallelIterators.elementsOf(scope, container, filter);
+			s = elements != null ? StreamEx.of(ParallelIterators.evaluate(scope, elements, filter))
+					: stream(scope, container).map(with(scope, filter));
 			t = filter.getGamlType();
 		} else {
+			s = stream(scope, container);
 			t = container.getGamlType().getContentType();
 		}
 		s = s.map(each -> t.cast(scope, each, null, false));
@@ -1994,6 +2018,34 @@ public class Containers {
 		};
 	}
 
+	/**
+	 * Computes a reduction directly on the columns of a population (see {@link AttributeColumns}), without evaluating
+	 * the filter on each agent, when the container is a population (or a species) and the filter is the access to one
+	 * of the int or float attributes stored in its columns (e.g. "people sum_of each.energy").
+	 *
+	 * @param scope
+	 *            the scope
+	 * @param container
+	 *            the container
+	 * @param filter
+	 *            the filter
+	 * @param reduction
+	 *            the reduction
+	 * @return the result, or null if it cannot be computed on the columns
+	 */
+	public static Object reduceColumn(final IScope scope, final IContainer container, final IExpression filter,
+			final Reduction reduction) {
+		if (!(filter instanceof BinaryOperator.BinaryVarOperator op) || !(op.getOwner() instanceof EachExpression))
+			return null;
+		final IPopulation<? extends IAgent> pop = container instanceof IPopulation p ? p
+				: container instanceof ISpecies s ? s.getPopulation(scope) : null;
+		final AttributeColumns columns = pop == null ? null : pop.getColumns();
+		if (columns == null) return null;
+		final AttributeColumns.Column<?> column = columns.columnOf(op.getVar().getName());
+		if (column == null) return null;
+		return AttributeColumns.reduce(column, pop.toArray(), reduction);
+	}
+
 	/**
 	 * Among.
 	 *
@@ -2168,6 +2220,8 @@ public class Containers {
 			see = { "first_with", "last_with" })
 	@test ("[1,2,3,4,5,6,7,8] where (each > 3) = [4, 5, 6, 7, 8] ")
 	public static IList where(final IScope scope, final IContainer c, final IExpression filter) {
+		final Object[] elements = ParallelIterators.elementsOf(scope, c, filter);
+		if (elements != null) return where(scope, elements, c.getGamlType().getContentType(), filter);
 		return (IList) stream(scope, c).filter(by(scope, filter)).toCollection(listLike(c));
 	}
 
@@ -2201,6 +2255,8 @@ public class Containers {
 	 * @return
 	 */
 	public static IList where(final IScope scope, final IList c, final IExpression filter) {
+		final Object[] elements = ParallelIterators.elementsOf(scope, c, filter);
+		if (elements != null) return where(scope, elements, c.getGamlType().getContentType(), filter);
 		return where(scope, c.iterable(scope), c.getGamlType().getContentType(), filter);
 	}
 
@@ -2228,6 +2284,27 @@ public class Containers {
 		return result;
 	}
 
+	/**
+	 * Where, evaluating the filter in parallel.
+	 *
+	 * @param scope
+	 *            the scope
+	 * @param elements
+	 *            the elements
+	 * @param contentType
+	 *            the content type
+	 * @param filter
+	 *            the filter
+	 * @return the i list
+	 */
+	private static IList where(final IScope scope, final Object[] elements, final IType contentType,
+			final IExpression filter) {
+		final Object[] values = ParallelIterators.evaluate(scope, elements, filter);
+		final IList result = GamaListFactory.create(contentType);
+		for (int i = 0; i < elements.length; i++) { if ((Boolean) values[i]) { result.add(elements[i]); } }
+		return result;
+	}
+
 	/**
 	 * Where.
 	 *
@@ -2258,6 +2335,8 @@ public class Containers {
 	 * @return
 	 */
 	public static IList where(final IScope scope, final ISpecies c, final IExpression filter) {
+		final Object[] elements = ParallelIterators.elementsOf(scope, c, filter);
+		if (elements != null) return where(scope, elements, c.getGamlType().getContentType(), filter);
 		return where(scope, c.iterable(scope), c.getGamlType().getContentType(), filter);
 	}
 
@@ -2437,6 +2516,12 @@ public class Containers {
 	@test ("[1,2,4] collect (each *2) = [2,4,8]")
 	@test ("[1,2,4] collect ([2,4]) = [[2,4],[2,4],[2,4]]")
 	public static IList collect(final IScope scope, final IContainer c, final IExpression filter) {
+		final Object[] elements = ParallelIterators.elementsOf(scope, c, filter);
+		if (elements != null) {
+			final IList result = listOf(filter.getGamlType()).get();
+			for (final Object value : ParallelIterators.evaluate(scope, elements, filter)) { result.add(value); }
+			return result;
+		}
 		return (IList) stream(scope, c).map(with(scope, filter)).toCollection(listOf(filter.getGamlType()));
 	}
 
@@ -2513,6 +2598,14 @@ public class Containers {
 							equals = "1") },
 			see = { "group_by" })
 	public static Integer count(final IScope scope, final IContainer original, final IExpression filter) {
+		final Object[] elements = ParallelIterators.elementsOf(scope, notNull(scope, original), filter);
+		if (elements != null) {
+			int count = 0;
+			for (final Object value : ParallelIterators.evaluate(scope, elements, filter)) {
+				if ((Boolean) value) { count++; }
+			}
+			return count;
+		}
 		return (int) notNull(scope, original).stream(scope).filter(by(scope, filter)).count();
 	}
 
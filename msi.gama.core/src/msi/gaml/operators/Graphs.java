@@ -46,6 +46,7 @@ import org.locationtech.jts.geom.Coordinate;
 import msi.gama.common.geometry.Envelope3D;
 import msi.gama.common.geometry.GeometryUtils;
 import msi.gama.common.interfaces.IKeyword;
+import msi.gama.common.util.FileUtils;
 import msi.gama.metamodel.agent.IAgent;
 import msi.gama.metamodel.shape.GamaPoint;
 import msi.gama.metamodel.shape.IShape;
@@ -2000,6 +2001,58 @@ public class Graphs {
 		return g;
 	}
 
+	/**
+	 * Sets the size of the cache of shortest paths.
+	 *
+	 * @param g
+	 *            the g
+	 * @param size
+	 *            the size
+	 * @return the i graph
+	 */
+	@operator (
+			value = "with_path_cache_size",
+			content_type = ITypeProvider.CONTENT_TYPE_AT_INDEX + 1,
+			index_type = ITypeProvider.KEY_TYPE_AT_INDEX + 1,
+			category = { IOperatorCategory.GRAPH, IOperatorCategory.PATH },
+			concept = { IConcept.GRAPH, IConcept.SHORTEST_PATH })
+	@doc (
+			value = "limits the number of shortest paths (i.e. of pairs source-target) kept in the cache of the operand graph to the right-hand operand (0 for no limit). When the cache is full, the least recently used paths are removed first. Its default size is defined in the preferences",
+			comment = "WARNING / side effect: this operator modifies the operand and does not create a new graph.",
+			examples = @example (
+					value = "road_network <- road_network with_path_cache_size 10000;",
+					isExecutable = false),
+			see = { "use_cache", "path_cache_statistics" })
+	@no_test
+	public static IGraph setPathCacheSize(final IGraph g, final int size) {
+		g.getPathComputer().getShortestPathComputed().setCapacity(size);
+		return g;
+	}
+
+	/**
+	 * Returns the statistics of the cache of shortest paths.
+	 *
+	 * @param g
+	 *            the g
+	 * @return the i map
+	 */
+	@operator (
+			value = "path_cache_statistics",
+			content_type = IType.NONE,
+			index_type = IType.STRING,
+			category = { IOperatorCategory.GRAPH, IOperatorCategory.PATH },
+			concept = { IConcept.GRAPH, IConcept.SHORTEST_PATH })
+	@doc (
+			value = "returns a map describing the use of the cache of shortest paths of the operand graph: the number of 'hits' (paths found in the cache), 'misses' (paths that had to be computed) and 'evictions' (paths removed because the cache was full), its current 'size' and 'capacity', and the 'hit_rate' (between 0 and 1)",
+			examples = @example (
+					value = "write path_cache_statistics(road_network)[\"hit_rate\"];",
+					isExecutable = false),
+			see = { "use_cache", "with_path_cache_size" })
+	@no_test
+	public static IMap<String, Object> getPathCacheStatistics(final IGraph g) {
+		return g.getPathComputer().getShortestPathComputed().getStatistics();
+	}
+
 	/**
 	 * As directed graph.
 	 *
@@ -2531,6 +2584,42 @@ public class Graphs {
 
 	}
 
+	/**
+	 * Makes the graph use the shortest paths of a file written by all_pairs_shortest_path(graph, file), provided it
+	 * has been computed for the same vertices.
+	 *
+	 * @param scope
+	 *            the scope
+	 * @param graph
+	 *            the graph
+	 * @param path
+	 *            the path of the file
+	 * @return the graph
+	 * @throws GamaRuntimeException
+	 *             the gama runtime exception
+	 */
+	@operator (
+			value = "load_shortest_paths",
+			content_type = ITypeProvider.CONTENT_TYPE_AT_INDEX + 1,
+			index_type = ITypeProvider.KEY_TYPE_AT_INDEX + 1,
+			category = { IOperatorCategory.GRAPH, IOperatorCategory.PATH },
+			concept = { IConcept.GRAPH, IConcept.SHORTEST_PATH })
+	@doc (
+			value = "makes the graph use the shortest paths contained in the file written by all_pairs_shortest_path(graph, file path), without computing them again. The file is mapped in memory rather than loaded, which allows to use graphs with tens of thousands of nodes. An error is raised if the file has been computed for other nodes (or nodes in another order). The file is no longer used once the graph is modified",
+			examples = { @example (
+					value = "load_shortest_paths(my_graph, \"../includes/shortest_paths.bin\")",
+					equals = "return my_graph with all the shortest paths computed",
+					isExecutable = false) },
+			see = "all_pairs_shortest_path")
+	@no_test
+	public static IGraph loadShortestPathsFromFile(final IScope scope, final GamaGraph graph, final String path)
+			throws GamaRuntimeException {
+		if (graph == null) throw GamaRuntimeException
+				.error("In the load_shortest_paths operator, the graph should not be null!", scope);
+		graph.getPathComputer().loadShortestPaths(scope, FileUtils.constructAbsoluteFilePath(scope, path, true));
+		return graph;
+	}
+
 	/**
 	 * Prim all pair shortest paths.
 	 *
@@ -2562,6 +2651,42 @@ public class Graphs {
 		return graph.getPathComputer().saveShortestPaths(scope);
 	}
 
+	/**
+	 * Computes the shortest paths between all the pairs of vertices and writes them in a file mapped in memory, which
+	 * the graph then uses.
+	 *
+	 * @param scope
+	 *            the scope
+	 * @param graph
+	 *            the graph
+	 * @param path
+	 *            the path of the file
+	 * @return the graph
+	 * @throws GamaRuntimeException
+	 *             the gama runtime exception
+	 */
+	@operator (
+			value = "all_pairs_shortest_path",
+			content_type = ITypeProvider.CONTENT_TYPE_AT_INDEX + 1,
+			index_type = ITypeProvider.KEY_TYPE_AT_INDEX + 1,
+			category = { IOperatorCategory.GRAPH, IOperatorCategory.PATH },
+			concept = { IConcept.GRAPH, IConcept.SHORTEST_PATH })
+	@doc (
+			value = "computes in parallel (one Dijkstra per source node) the shortest paths between all node pairs, writes their successor matrix in the file (in a binary format) and returns the graph, which uses it from then on. The file is mapped in memory rather than kept in the heap, and can be reused in later simulations with load_shortest_paths(graph, file path)",
+			examples = { @example (
+					value = "all_pairs_shortest_path(my_graph, \"../includes/shortest_paths.bin\")",
+					equals = "return my_graph with all the shortest paths computed",
+					isExecutable = false) },
+			see = "load_shortest_paths")
+	@no_test
+	public static IGraph primAllPairShortestPathsFile(final IScope scope, final GamaGraph graph, final String path)
+			throws GamaRuntimeException {
+		if (graph == null) throw GamaRuntimeException
+				.error("In the all_pairs_shortest_paths operator, the graph should not be null!", scope);
+		graph.getPathComputer().saveShortestPaths(scope, FileUtils.constructAbsoluteFilePath(scope, path, false));
+		return graph;
+	}
+
 	/**
 	 * Layout force.
 	 *
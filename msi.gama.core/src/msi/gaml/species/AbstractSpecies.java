@@ -20,6 +20,7 @@ import msi.gama.common.interfaces.IKeyword;
 import msi.gama.common.interfaces.ISkill;
 import msi.gama.kernel.model.GamlModelSpecies;
 import msi.gama.metamodel.agent.IAgent;
+import msi.gama.metamodel.population.AttributeColumns;
 import msi.gama.metamodel.population.IPopulation;
 import msi.gama.metamodel.shape.GamaPoint;
 import msi.gama.runtime.GAMA;
@@ -365,6 +366,8 @@ public abstract class AbstractSpecies extends Symbol implements ISpecies {
 		control.setChildren(behaviors);
 		behaviors.forEach(b -> b.setEnclosing(this));
 		variables.forEach((n, v) -> v.setEnclosing(this));
+		// Once the variables know their getters and setters, the ones that can be stored in columns get their column
+		AttributeColumns.assignColumns(variables.values());
 		control.verifyBehaviors(this);
 	}
 
@@ -198,6 +198,12 @@ import one.util.streamex.StreamEx;
 						type = IType.TOPOLOGY,
 						optional = true,
 						doc = @doc ("The topology of the population of agents defined by this species. In case of nested species, it can for example be the shape of the macro-agent. In case of grid or graph species, the topology is automatically computed and cannot be redefined")),
+				@facet (
+						name = IKeyword.SPATIAL_INDEX,
+						type = IType.LABEL,
+						values = { "quadtree", IKeyword.GRID },
+						optional = true,
+						doc = @doc ("(experimental) the structure used to index the agents of this species in space: 'quadtree' (the default) or 'grid', a flat grid of cells whose resolution adapts to the number of agents, better suited to dense populations of point agents queried at roughly constant distances")),
 				@facet (
 						name = IKeyword.VIRTUAL,
 						type = IType.BOOL,
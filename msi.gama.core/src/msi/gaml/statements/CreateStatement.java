@@ -457,8 +457,11 @@ public class CreateStatement extends AbstractStatementSequence implements IState
 		IList<? extends IAgent> agents = null;
 		for (final ICreateDelegate delegate : DELEGATES) {
 			if (delegate.acceptSource(scope, source)) {
-				delegate.createFrom(scope, inits, max, source, init, this);
-				if (delegate.handlesCreation()) { agents = delegate.createAgents(scope, pop, inits, this, sequence); }
+				agents = delegate.createAgentsFrom(scope, pop, max, source, this);
+				if (agents == null) {
+					delegate.createFrom(scope, inits, max, source, init, this);
+					if (delegate.handlesCreation()) { agents = delegate.createAgents(scope, pop, inits, this, sequence); }
+				}
 				break;
 			}
 		}
@@ -49,6 +49,7 @@ import msi.gaml.expressions.data.MapExpression;
 import msi.gaml.interfaces.IGamlIssue;
 import msi.gaml.operators.Cast;
 import msi.gaml.statements.SaveStatement.SaveValidator;
+import msi.gaml.statements.save.SaveWriters;
 import msi.gaml.types.GamaFileType;
 import msi.gaml.types.IType;
 import msi.gaml.types.Types;
@@ -456,8 +457,10 @@ public class SaveStatement extends AbstractStatementSequence implements IStateme
 		}
 		try {
 			Files.createDirectories(fileToSave.toPath().getParent());
-			boolean exists = fileToSave.exists();
 			final boolean rewrite = shouldOverwrite(scope);
+			// The writer possibly kept open on the file by a previous save is closed before it is rewritten
+			if (rewrite) { SaveWriters.close(scope, fileToSave); }
+			boolean exists = fileToSave.exists();
 			if (rewrite && exists) {
 				fileToSave.delete();
 				exists = false;
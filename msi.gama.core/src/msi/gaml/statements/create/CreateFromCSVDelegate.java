@@ -10,15 +10,22 @@
  ********************************************************************************************************/
 package msi.gaml.statements.create;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
 import msi.gama.common.interfaces.ICreateDelegate;
+import msi.gama.common.preferences.GamaPreferences;
+import msi.gama.metamodel.agent.IAgent;
+import msi.gama.metamodel.population.IPopulation;
 import msi.gama.runtime.IScope;
+import msi.gama.runtime.exceptions.GamaRuntimeException;
+import msi.gama.util.GamaListFactory;
 import msi.gama.util.GamaMapFactory;
 import msi.gama.util.IList;
 import msi.gama.util.file.GamaCSVFile;
+import msi.gama.util.file.csv.MappedCsvReader;
 import msi.gama.util.matrix.IMatrix;
 import msi.gaml.expressions.IExpression;
 import msi.gaml.operators.Cast;
@@ -26,6 +33,7 @@ import msi.gaml.statements.Arguments;
 import msi.gaml.statements.CreateStatement;
 import msi.gaml.types.IType;
 import msi.gaml.types.Types;
+import msi.gaml.variables.IVariable;
 
 /**
  * Class CreateFromDatabaseDelegate.
@@ -36,6 +44,9 @@ import msi.gaml.types.Types;
  */
 public class CreateFromCSVDelegate implements ICreateDelegate {
 
+	/** The number of rows read from large files, and turned into agents, at once (see 'pref_csv_streaming'). */
+	static final int BATCH_SIZE = 10_000;
+
 	/**
 	 * Method acceptSource()
 	 *
@@ -46,6 +57,28 @@ public class CreateFromCSVDelegate implements ICreateDelegate {
 		return source instanceof GamaCSVFile;
 	}
 
+	/**
+	 * Method createAgentsFrom(). Creates the agents of large files by batches (see
+	 * {@link #createByBatches(IScope, IPopulation, Integer, String, MappedCsvReader, CreateStatement)}). Returns null if
+	 * streaming is disabled or if the file is read as a matrix, in which case createFrom() is called.
+	 *
+	 * @see msi.gama.common.interfaces.ICreateDelegate#createAgentsFrom(IScope, IPopulation, Integer, Object,
+	 *      CreateStatement)
+	 */
+	@Override
+	public IList<? extends IAgent> createAgentsFrom(final IScope scope, final IPopulation<? extends IAgent> population,
+			final Integer max, final Object input, final CreateStatement statement) {
+		if (!GamaPreferences.External.CSV_STREAMING.getValue()) return null;
+		final GamaCSVFile source = (GamaCSVFile) input;
+		forceHeader(scope, source, statement);
+		try (MappedCsvReader reader = source.openReader(scope)) {
+			if (reader == null) return null;
+			return createByBatches(scope, population, max, source.getName(scope), reader, statement);
+		} catch (final IOException e) {
+			throw GamaRuntimeException.create(e, scope);
+		}
+	}
+
 	/**
 	 * Method createFrom() Method used to read initial values and attributes from a CSV values descring a synthetic
 	 * population
@@ -60,8 +93,7 @@ public class CreateFromCSVDelegate implements ICreateDelegate {
 	public boolean createFrom(final IScope scope, final List<Map<String, Object>> inits, final Integer max,
 			final Object input, final Arguments init, final CreateStatement statement) {
 		final GamaCSVFile source = (GamaCSVFile) input;
-		final IExpression header = statement.getHeader();
-		if (header != null) { source.forceHeader(Cast.asBool(scope, header.value(scope))); }
+		forceHeader(scope, source, statement);
 		final boolean hasHeader = source.hasHeader(scope);
 		final IMatrix<?> mat = source.getContents(scope);
 		if (mat == null || mat.isEmpty(scope)) return false;
@@ -92,6 +124,96 @@ public class CreateFromCSVDelegate implements ICreateDelegate {
 		return true;
 	}
 
+	/**
+	 * Forces the header of the file if the statement defines one.
+	 *
+	 * @param scope
+	 *            the scope
+	 * @param source
+	 *            the source
+	 * @param statement
+	 *            the statement
+	 */
+	private static void forceHeader(final IScope scope, final GamaCSVFile source, final CreateStatement statement) {
+		final IExpression header = statement.getHeader();
+		if (header != null) { source.forceHeader(Cast.asBool(scope, header.value(scope))); }
+	}
+
+	/**
+	 * Creates the agents of a large file by batches of {@link #BATCH_SIZE} rows, without loading its contents in a
+	 * matrix: the values of each batch are read and converted (in parallel if 'pref_csv_parallel_parsing' is true), then
+	 * the agents of the batch are created and initialised, and the initial values of the batch are dropped before the
+	 * next batch is read. The values of the columns are directly read as int or float when the file contains only
+	 * numbers, or when the attributes of the same name are declared as such in the species.
+	 *
+	 * @param scope
+	 *            the scope
+	 * @param population
+	 *            the population
+	 * @param max
+	 *            the max. number of agents to create, or null
+	 * @param name
+	 *            the name of the file
+	 * @param reader
+	 *            the reader
+	 * @param statement
+	 *            the statement
+	 * @return the agents created
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private IList<? extends IAgent> createByBatches(final IScope scope, final IPopulation<? extends IAgent> population,
+			final Integer max, final String name, final MappedCsvReader reader, final CreateStatement statement)
+			throws IOException {
+		final String[] headers = reader.getHeaders();
+		final int cols = reader.getColumns();
+		final int fileType = reader.getType().id();
+		final String[] keys = new String[cols];
+		final int[] types = new int[cols];
+		for (int j = 0; j < cols; j++) {
+			keys[j] = headers == null ? String.valueOf(j) : clean(headers[j]);
+			if (fileType == IType.INT || fileType == IType.FLOAT) {
+				types[j] = fileType;
+			} else {
+				final IVariable var = headers == null ? null : population.getSpecies().getVar(keys[j]);
+				final int t = var == null ? IType.STRING : var.getType().id();
+				types[j] = t == IType.INT || t == IType.FLOAT ? t : IType.STRING;
+			}
+		}
+		final Object missing = fileType == IType.INT ? (Object) 0 : fileType == IType.FLOAT ? (Object) 0d : null;
+		final boolean parallel = GamaPreferences.External.CSV_PARALLEL_PARSING.getValue();
+		final IList<IAgent> agents = GamaListFactory.create(Types.AGENT);
+		int remaining = max == null ? Integer.MAX_VALUE : max;
+		scope.getGui().getStatus().beginSubStatus(scope, "Reading file " + name);
+		try {
+			Object[][] rows;
+			while (remaining > 0 && !scope.interrupted()
+					&& (rows = reader.readBatch(Math.min(BATCH_SIZE, remaining), types, parallel)) != null) {
+				// Files without header: the columns found so far are given to all the agents of the batch
+				final int all = reader.getColumns();
+				final List<Map<String, Object>> inits = GamaListFactory.create(Types.MAP, rows.length);
+				for (final Object[] row : rows) {
+					@SuppressWarnings ("unchecked") final Map<String, Object> map =
+							GamaMapFactory.create(headers != null ? Types.STRING : Types.INT, Types.NO_TYPE);
+					for (int j = 0; j < all; j++) {
+						map.put(j < cols ? keys[j] : String.valueOf(j), j < row.length ? row[j] : missing);
+					}
+					// CSV attributes are mixed with the attributes of agents
+					statement.fillWithUserInit(scope, map);
+					inits.add(map);
+				}
+				remaining -= rows.length;
+				// The rows are not needed anymore while the agents are created
+				rows = null;
+				agents.addAll(statement.createAgents(scope, population, inits));
+				scope.getGui().getStatus().setSubStatusCompletion(scope, reader.getProgress());
+			}
+		} finally {
+			scope.getGui().getStatus().endSubStatus(scope, "");
+		}
+		return agents;
+	}
+
 	/**
 	 * Clean.
 	 *
@@ -10,11 +10,11 @@
 package msi.gaml.statements.save;
 
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.Writer;
+import java.nio.charset.Charset;
 import java.util.Collection;
 import java.util.Set;
 
@@ -80,7 +80,7 @@ public class CSVSaver extends AbstractSaver {
 	public void save(final IScope scope, final IExpression item, final File file, final String code,
 			final boolean addHeader, final String type, final Object attributesToSave)
 			throws GamaRuntimeException, IOException {
-		save(scope, new FileWriter(file, true), addHeader, item);
+		save(scope, SaveWriters.open(scope, file, Charset.defaultCharset()), addHeader, item);
 	}
 
 	/**
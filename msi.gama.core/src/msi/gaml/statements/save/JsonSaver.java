@@ -10,9 +10,9 @@
 package msi.gaml.statements.save;
 
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.io.Writer;
+import java.nio.charset.Charset;
 import java.util.Set;
 
 import msi.gama.runtime.IScope;
@@ -33,7 +33,7 @@ public class JsonSaver extends AbstractSaver {
 	public void save(final IScope scope, final IExpression item, final File file, final String code,
 			final boolean addHeader, final String type, final Object attributesToSave)
 			throws GamaRuntimeException, IOException {
-		try (Writer fw = new FileWriter(file, true)) {
+		try (Writer fw = SaveWriters.open(scope, file, Charset.defaultCharset())) {
 			Json.getNew().valueOf(item.value(scope)).writeTo(fw, WriterConfig.PRETTY_PRINT);
 		} catch (final GamaRuntimeException e) {
 			throw e;
@@ -0,0 +1,420 @@
+/*******************************************************************************************************
+ *
+ * SaveWriters.java, in msi.gama.core, is part of the source code of the GAMA modeling and simulation platform
+ * (v.1.9.3).
+ *
+ * (c) 2007-2024 UMI 209 UMMISCO IRD/SU & Partners (IRIT, MIAT, TLU, CTU)
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package msi.gaml.statements.save;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import msi.gama.common.preferences.GamaPreferences;
+import msi.gama.kernel.simulation.SimulationAgent;
+import msi.gama.runtime.IScope;
+import msi.gama.runtime.exceptions.GamaRuntimeException;
+
+/**
+ * The writers used by the savers that append text to files (csv, text, json). Instead of opening and closing the file
+ * at each save, one buffered writer is kept per file (identified by its canonical path) and shared by all the
+ * simulations that append to it. The text produced by each save is written at once, so that the saves of different
+ * agents or simulations are never interleaved. Writers are flushed at the end of each cycle of the simulations that
+ * use them and before the contents of the file are read, and closed when the last of these simulations is disposed
+ * (or before the file is rewritten, or appended with another charset). Optionally, the writing itself is done by a background thread (a single one, so that the order
+ * of the saves is preserved), so that the disk does not slow down the simulations.
+ */
+public class SaveWriters {
+
+	/**
+	 * A writer shared by the simulations appending to a file.
+	 */
+	static class SharedWriter {
+
+		/** The writer. */
+		final Writer writer;
+
+		/** The charset of the writer. */
+		final Charset charset;
+
+		/** The number of simulations using it. Modified under the lock of {@link SaveWriters#WRITERS} */
+		int users;
+
+		/** The first error raised in the background thread, reported at the next save or flush. */
+		volatile IOException error;
+
+		/**
+		 * Instantiates a new shared writer.
+		 *
+		 * @param writer
+		 *            the writer
+		 * @param charset
+		 *            the charset
+		 */
+		SharedWriter(final Writer writer, final Charset charset) {
+			this.writer = writer;
+			this.charset = charset;
+		}
+
+		/**
+		 * Appends the text produced by a save.
+		 *
+		 * @param text
+		 *            the text
+		 * @throws IOException
+		 *             Signals that an I/O exception has occurred.
+		 */
+		synchronized void append(final String text) throws IOException {
+			writer.write(text);
+		}
+
+		/**
+		 * Flushes the writer.
+		 *
+		 * @throws IOException
+		 *             Signals that an I/O exception has occurred.
+		 */
+		synchronized void flush() throws IOException {
+			writer.flush();
+		}
+
+		/**
+		 * Closes the writer.
+		 *
+		 * @throws IOException
+		 *             Signals that an I/O exception has occurred.
+		 */
+		synchronized void close() throws IOException {
+			writer.close();
+		}
+
+		/**
+		 * Throws the error raised in the background thread, if any.
+		 *
+		 * @param scope
+		 *            the scope
+		 */
+		void reportError(final IScope scope) {
+			final IOException e = error;
+			if (e == null) return;
+			error = null;
+			throw GamaRuntimeException.create(e, scope);
+		}
+	}
+
+	/** The writers, by canonical path. */
+	static final Map<String, SharedWriter> WRITERS = new HashMap<>();
+
+	/** The canonical paths of the files, by absolute path. */
+	static final Map<String, String> CANONICAL_PATHS = new ConcurrentHashMap<>();
+
+	/** The canonical paths of the files appended by each simulation. */
+	static final Map<SimulationAgent, Set<String>> USERS = new ConcurrentHashMap<>();
+
+	/** The background thread, created with the first asynchronous save. */
+	static ExecutorService background;
+
+	/**
+	 * Returns a writer that appends to the file. It must be closed after each save: closing it does not close the
+	 * file, but hands what has been written to the writer of the file (or to the background thread).
+	 *
+	 * @param scope
+	 *            the scope
+	 * @param file
+	 *            the file
+	 * @param charset
+	 *            the charset
+	 * @return the writer
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public static Writer open(final IScope scope, final File file, final Charset charset) throws IOException {
+		final SimulationAgent sim = scope.getSimulation();
+		if (!GamaPreferences.External.SAVE_BUFFERED.getValue() || sim == null || sim.dead()) {
+			// What has been buffered before the preference was changed is written first
+			flush(scope, file);
+			return new FileWriter(file, charset, true);
+		}
+		final SharedWriter shared = acquire(sim, file, charset);
+		shared.reportError(scope);
+		final boolean asynchronous = GamaPreferences.External.SAVE_ASYNCHRONOUS.getValue();
+		return new Writer() {
+
+			final StringBuilder pending = new StringBuilder();
+
+			@Override
+			public void write(final char[] cbuf, final int off, final int len) throws IOException {
+				pending.append(cbuf, off, len);
+			}
+
+			@Override
+			public void write(final String str) throws IOException {
+				pending.append(str);
+			}
+
+			@Override
+			public void flush() throws IOException {}
+
+			@Override
+			public void close() throws IOException {
+				if (pending.isEmpty()) return;
+				final String text = pending.toString();
+				pending.setLength(0);
+				if (asynchronous) {
+					background().execute(() -> {
+						try {
+							shared.append(text);
+						} catch (final IOException e) {
+							if (shared.error == null) { shared.error = e; }
+						}
+					});
+				} else {
+					shared.append(text);
+				}
+			}
+		};
+	}
+
+	/**
+	 * Returns the writer of the file, opening it if necessary, and registers the simulation as one of its users. The
+	 * file is always opened in the calling thread, so that it exists as soon as the first save returns. If the writer
+	 * kept for the file uses another charset, it is closed (once what it has been given is written) and replaced.
+	 *
+	 * @param sim
+	 *            the simulation
+	 * @param file
+	 *            the file
+	 * @param charset
+	 *            the charset
+	 * @return the shared writer
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	static SharedWriter acquire(final SimulationAgent sim, final File file, final Charset charset)
+			throws IOException {
+		final Set<String> paths = USERS.computeIfAbsent(sim, s -> {
+			s.postEndAction(scope -> {
+				flushAll(scope, USERS.get(scope.getSimulation()));
+				return null;
+			});
+			s.postDisposeAction(scope -> {
+				release(scope, USERS.remove(scope.getSimulation()));
+				return null;
+			});
+			return ConcurrentHashMap.newKeySet();
+		});
+		final String path = canonicalPath(file);
+		synchronized (WRITERS) {
+			SharedWriter shared = WRITERS.get(path);
+			int users = 0;
+			if (shared != null && !shared.charset.equals(charset)) {
+				WRITERS.remove(path);
+				users = shared.users;
+				complete(sim.getScope(), shared, true);
+				shared = null;
+			}
+			if (shared == null) {
+				shared = new SharedWriter(new BufferedWriter(new FileWriter(file, charset, true)), charset);
+				shared.users = users;
+				WRITERS.put(path, shared);
+			}
+			if (paths.add(path)) { shared.users++; }
+			return shared;
+		}
+	}
+
+	/**
+	 * The canonical path of a file, so that the same file reached through different paths is written by a single
+	 * writer.
+	 *
+	 * @param file
+	 *            the file
+	 * @return the string
+	 */
+	static String canonicalPath(final File file) {
+		return CANONICAL_PATHS.computeIfAbsent(file.getAbsolutePath(), p -> {
+			try {
+				return file.getCanonicalPath();
+			} catch (final IOException e) {
+				return p;
+			}
+		});
+	}
+
+	/**
+	 * The writer kept for this file, if any.
+	 *
+	 * @param file
+	 *            the file
+	 * @return the shared writer or null
+	 */
+	static SharedWriter writerOf(final File file) {
+		synchronized (WRITERS) {
+			if (WRITERS.isEmpty()) return null;
+		}
+		final String path = canonicalPath(file);
+		synchronized (WRITERS) {
+			return WRITERS.get(path);
+		}
+	}
+
+	/**
+	 * The background thread.
+	 *
+	 * @return the executor service
+	 */
+	static synchronized ExecutorService background() {
+		if (background == null) {
+			background = Executors.newSingleThreadExecutor(r -> {
+				final Thread thread = new Thread(r, "GAMA save writer");
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+		return background;
+	}
+
+	/**
+	 * Runs an operation on a writer once the saves handed to the background thread, if any, are written, and waits
+	 * for it to be done.
+	 *
+	 * @param scope
+	 *            the scope
+	 * @param shared
+	 *            the writer
+	 * @param close
+	 *            whether to close the writer or only to flush it
+	 */
+	static void complete(final IScope scope, final SharedWriter shared, final boolean close) {
+		try {
+			final ExecutorService bg;
+			synchronized (SaveWriters.class) {
+				bg = background;
+			}
+			if (bg != null) { bg.submit(() -> null).get(); }
+			if (close) {
+				shared.close();
+			} else {
+				shared.flush();
+			}
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (final Exception e) {
+			throw GamaRuntimeException.create(e, scope);
+		}
+		shared.reportError(scope);
+	}
+
+	/**
+	 * Writes to the disk what has been saved in the file so far, for instance before it is read.
+	 *
+	 * @param scope
+	 *            the scope
+	 * @param file
+	 *            the file
+	 */
+	public static void flush(final IScope scope, final File file) {
+		final SharedWriter shared = writerOf(file);
+		if (shared != null) { complete(scope, shared, false); }
+	}
+
+	/**
+	 * Closes the writer kept for this file, if any, for instance before the file is deleted. The simulations that
+	 * append to the file afterwards open a new one.
+	 *
+	 * @param scope
+	 *            the scope
+	 * @param file
+	 *            the file
+	 */
+	public static void close(final IScope scope, final File file) {
+		final String path = canonicalPath(file);
+		final SharedWriter shared;
+		synchronized (WRITERS) {
+			shared = WRITERS.remove(path);
+			if (shared == null) return;
+			for (final Set<String> paths : USERS.values()) { paths.remove(path); }
+		}
+		complete(scope, shared, true);
+	}
+
+	/**
+	 * Flushes the writers of the files appended by a simulation (at the end of each of its cycles). The flush is done
+	 * in the background thread if there is one, without waiting for it.
+	 *
+	 * @param scope
+	 *            the scope
+	 * @param paths
+	 *            the canonical paths of the files
+	 */
+	static void flushAll(final IScope scope, final Set<String> paths) {
+		if (paths == null || paths.isEmpty()) return;
+		for (final String path : paths) {
+			final SharedWriter shared;
+			synchronized (WRITERS) {
+				shared = WRITERS.get(path);
+			}
+			if (shared == null) { continue; }
+			final ExecutorService bg;
+			synchronized (SaveWriters.class) {
+				bg = background;
+			}
+			try {
+				if (bg == null) {
+					shared.flush();
+				} else {
+					bg.execute(() -> {
+						try {
+							shared.flush();
+						} catch (final IOException e) {
+							if (shared.error == null) { shared.error = e; }
+						}
+					});
+				}
+			} catch (final IOException e) {
+				throw GamaRuntimeException.create(e, scope);
+			}
+			shared.reportError(scope);
+		}
+	}
+
+	/**
+	 * Called when a simulation is disposed: closes the writers of the files it appended that are no longer used by
+	 * other simulations, once all the pending writes are done.
+	 *
+	 * @param scope
+	 *            the scope
+	 * @param paths
+	 *            the canonical paths of the files
+	 */
+	static void release(final IScope scope, final Set<String> paths) {
+		if (paths == null) return;
+		for (final String path : paths) {
+			SharedWriter shared;
+			synchronized (WRITERS) {
+				shared = WRITERS.get(path);
+				if (shared == null) { continue; }
+				if (--shared.users > 0) {
+					shared = null;
+				} else {
+					WRITERS.remove(path);
+				}
+			}
+			if (shared != null) { complete(scope, shared, true); }
+		}
+	}
+
+}
@@ -10,7 +10,6 @@
 package msi.gaml.statements.save;
 
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
@@ -97,7 +96,7 @@ public class TextSaver extends AbstractSaver {
 		Charset ch = id == ISerialisationConstants.GAMA_AGENT_IDENTIFIER
 				|| id == ISerialisationConstants.GAMA_OBJECT_IDENTIFIER
 						? ISerialisationConstants.STRING_BYTE_ARRAY_CHARSET : StandardCharsets.UTF_8;
-		try (final Writer fw = new FileWriter(file, ch, true)) {
+		try (final Writer fw = SaveWriters.open(scope, file, ch)) {
 			fw.write(Cast.asString(scope, item.value(scope)) + Strings.LN);
 		} catch (final GamaRuntimeException e) {
 			throw e;
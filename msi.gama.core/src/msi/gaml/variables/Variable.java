@@ -25,6 +25,7 @@ import msi.gama.common.interfaces.IVarAndActionSupport;
 import msi.gama.common.util.JavaUtils;
 import msi.gama.common.util.StringUtils;
 import msi.gama.metamodel.agent.IAgent;
+import msi.gama.metamodel.population.AttributeColumns;
 import msi.gama.precompiler.GamlAnnotations.doc;
 import msi.gama.precompiler.GamlAnnotations.facet;
 import msi.gama.precompiler.GamlAnnotations.facets;
@@ -519,6 +520,9 @@ public class Variable extends Symbol implements IVariable {
 
 	/** The must notify of changes. */
 	protected boolean mustNotifyOfChanges;
+
+	/** The column of this variable in the columnar storage of the populations (or -1). */
+	private int column = -1;
 	// private Object speciesWideValue;
 
 	/**
@@ -800,7 +804,12 @@ public class Variable extends Symbol implements IVariable {
 		if (setter != null) {
 			setter.run(scope, agent, sSkill == null ? agent : sSkill, val);
 		} else {
-			agent.setAttribute(name, val);
+			final AttributeColumns.Column<?> c = columnFor(agent);
+			if (c != null) {
+				c.set(agent.getColumnSlot(), val);
+			} else {
+				agent.setAttribute(name, val);
+			}
 		}
 		// if (isSpeciesConst) {
 		// speciesWideValue = val;
@@ -839,6 +848,8 @@ public class Variable extends Symbol implements IVariable {
 		// if (isSpeciesConst) { return speciesWideValue; }
 		if (getter != null) return getter.run(scope, agent, gSkill == null ? agent : gSkill);
 		if (functionExpression != null) return scope.evaluate(functionExpression, agent).getValue();
+		final AttributeColumns.Column<?> c = columnFor(agent);
+		if (c != null) return c.get(agent.getColumnSlot());
 		// Var not yet initialized. May happen when asking for its value while initializing an editor
 		// See Issue #2781 + Issue #3920
 		if (!agent.hasAttribute(name) && (isNotModifiable || initExpression != null && initExpression.isConst())
@@ -847,6 +858,48 @@ public class Variable extends Symbol implements IVariable {
 		return agent.getAttribute(name);
 	}
 
+	/**
+	 * Whether the values of this variable can be stored in the columns of the populations: only the int, float and bool
+	 * variables declared in models, which are not computed by a function or accessed through Java getters and setters.
+	 *
+	 * @return true, if successful
+	 */
+	public boolean canBeStoredInColumn() {
+		if (getter != null || setter != null || functionExpression != null || getDescription().isBuiltIn()) return false;
+		final int id = type.id();
+		return id == IType.INT || id == IType.FLOAT || id == IType.BOOL;
+	}
+
+	/**
+	 * Gets the column of this variable in the columnar storage of the populations (or -1), assigned when its species is
+	 * compiled.
+	 *
+	 * @return the column
+	 */
+	public int getColumn() { return column; }
+
+	/**
+	 * Sets the column.
+	 *
+	 * @param column
+	 *            the new column
+	 */
+	public void setColumn(final int column) { this.column = column; }
+
+	/**
+	 * The column in which the value of this variable is stored for this agent, or null if it is stored in its
+	 * attributes.
+	 *
+	 * @param agent
+	 *            the agent
+	 * @return the column
+	 */
+	private AttributeColumns.Column<?> columnFor(final IAgent agent) {
+		// Agents only have a slot when their population stores attributes in columns
+		if (column < 0 || agent.getColumnSlot() < 0) return null;
+		return agent.getPopulation().getColumns().columnAt(column);
+	}
+
 	@Override
 	public Object getUpdatedValue(final IScope scope) {
 		return updateExpression.value(scope);
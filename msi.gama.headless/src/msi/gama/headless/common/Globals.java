@@ -24,6 +24,12 @@ public abstract class Globals {
 	
 	/** The output path. */
 	public static String TEMP_PATH;
+
+	/** The compression level (0-9) of the snapshots of displays, or -1 to use the default one. */
+	public static int IMAGES_COMPRESSION = -1;
+
+	/** Whether the snapshots of each display are written in a single archive instead of one file per step. */
+	public static boolean IMAGES_ARCHIVE = false;
 	
 	/** The Constant OUTPUT_FILENAME. */
 	public final static String OUTPUT_FILENAME = "simulation-outputs";
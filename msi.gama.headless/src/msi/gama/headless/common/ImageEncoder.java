@@ -0,0 +1,211 @@
+/*******************************************************************************************************
+ *
+ * ImageEncoder.java, in msi.gama.headless, is part of the source code of the GAMA modeling and simulation platform
+ * (v.1.9.3).
+ *
+ * (c) 2007-2024 UMI 209 UMMISCO IRD/SU & Partners (IRIT, MIAT, TLU, CTU)
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package msi.gama.headless.common;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+
+/**
+ * Writes the PNG snapshots of the displays of a headless experiment in the background, so that their encoding does
+ * not slow down the simulation. The images are encoded by a pool of threads shared by all the experiments. Its queue
+ * is bounded: when it is full, images are encoded by the simulation threads themselves, which limits the memory used
+ * by the images waiting to be encoded.
+ *
+ * The compression level of the images can be lowered (see {@link Globals#IMAGES_COMPRESSION}) to encode them faster,
+ * and they can be written in a single ZIP archive per display (see {@link Globals#IMAGES_ARCHIVE}) instead of one file
+ * per step.
+ */
+public class ImageEncoder {
+
+	/** The number of encoding threads. */
+	static final int THREADS = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+
+	/** The encoding threads. */
+	static final ThreadPoolExecutor ENCODERS = new ThreadPoolExecutor(THREADS, THREADS, 10, TimeUnit.SECONDS,
+			new ArrayBlockingQueue<>(4 * THREADS), r -> {
+				final Thread thread = new Thread(r, "GAMA image encoder");
+				thread.setDaemon(true);
+				return thread;
+			}, new ThreadPoolExecutor.CallerRunsPolicy());
+
+	static {
+		ENCODERS.allowCoreThreadTimeOut(true);
+	}
+
+	/** The images of this experiment not yet written. */
+	final Queue<Future<?>> pending = new ConcurrentLinkedQueue<>();
+
+	/** The archives opened by this experiment. */
+	final Map<File, ZipOutputStream> archives = new HashMap<>();
+
+	/**
+	 * Writes an image in a file. The pixels of the image are copied, so that it can be modified afterwards.
+	 *
+	 * @param image
+	 *            the image
+	 * @param file
+	 *            the file
+	 */
+	public void write(final BufferedImage image, final File file) {
+		final BufferedImage copy = copy(image);
+		submit(() -> Files.write(file.toPath(), encode(copy)));
+	}
+
+	/**
+	 * Writes an image in an archive, which is created if it is not already opened. The pixels of the image are
+	 * copied, so that it can be modified afterwards.
+	 *
+	 * @param image
+	 *            the image
+	 * @param archive
+	 *            the archive
+	 * @param entry
+	 *            the name of the image in the archive
+	 */
+	public void write(final BufferedImage image, final File archive, final String entry) {
+		final BufferedImage copy = copy(image);
+		submit(() -> {
+			final byte[] bytes = encode(copy);
+			final ZipOutputStream zip = archive(archive);
+			synchronized (zip) {
+				zip.putNextEntry(new ZipEntry(entry));
+				zip.write(bytes);
+				zip.closeEntry();
+			}
+			return null;
+		});
+	}
+
+	/**
+	 * Returns the archive, opening it if needed. PNG images being already compressed, its entries are not.
+	 *
+	 * @param file
+	 *            the file
+	 * @return the zip output stream
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	synchronized ZipOutputStream archive(final File file) throws IOException {
+		ZipOutputStream zip = archives.get(file);
+		if (zip == null) {
+			zip = new ZipOutputStream(new FileOutputStream(file));
+			zip.setLevel(Deflater.NO_COMPRESSION);
+			archives.put(file, zip);
+		}
+		return zip;
+	}
+
+	/**
+	 * Submits the writing of an image.
+	 *
+	 * @param task
+	 *            the task
+	 */
+	void submit(final Callable<?> task) {
+		while (!pending.isEmpty() && pending.peek().isDone()) { done(pending.poll()); }
+		pending.add(ENCODERS.submit(task));
+	}
+
+	/**
+	 * Waits for an image to be written and reports the error that may have occurred.
+	 *
+	 * @param future
+	 *            the future
+	 */
+	void done(final Future<?> future) {
+		try {
+			future.get();
+		} catch (final ExecutionException e) {
+			e.getCause().printStackTrace();
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Waits for all the images of this experiment to be written, and closes its archives.
+	 */
+	public void close() {
+		while (!pending.isEmpty()) { done(pending.poll()); }
+		synchronized (this) {
+			for (final ZipOutputStream zip : archives.values()) {
+				try {
+					zip.close();
+				} catch (final IOException e) {
+					e.printStackTrace();
+				}
+			}
+			archives.clear();
+		}
+	}
+
+	/**
+	 * Copies the pixels of an image.
+	 *
+	 * @param image
+	 *            the image
+	 * @return the buffered image
+	 */
+	static BufferedImage copy(final BufferedImage image) {
+		return new BufferedImage(image.getColorModel(), image.copyData(null), image.isAlphaPremultiplied(), null);
+	}
+
+	/**
+	 * Encodes an image in PNG, with the compression level asked for, if any.
+	 *
+	 * @param image
+	 *            the image
+	 * @return the bytes
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	static byte[] encode(final BufferedImage image) throws IOException {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		final ImageWriter writer = ImageIO.getImageWritersByFormatName("png").next();
+		try (MemoryCacheImageOutputStream output = new MemoryCacheImageOutputStream(bytes)) {
+			writer.setOutput(output);
+			final ImageWriteParam param = writer.getDefaultWriteParam();
+			if (Globals.IMAGES_COMPRESSION >= 0 && param.canWriteCompressed()) {
+				param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+				// The PNG writer deflates the images with the level (1 - quality) * 9
+				param.setCompressionQuality(1f - Math.min(9, Globals.IMAGES_COMPRESSION) / 9f);
+			}
+			writer.write(null, new IIOImage(image, null, null), param);
+		} finally {
+			writer.dispose();
+		}
+		return bytes.toByteArray();
+	}
+
+}
@@ -16,8 +16,6 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
-import javax.imageio.ImageIO;
-
 import org.w3c.dom.Attr;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
@@ -25,6 +23,7 @@ import org.w3c.dom.Element;
 import msi.gama.common.interfaces.IKeyword;
 import msi.gama.headless.common.Display2D;
 import msi.gama.headless.common.Globals;
+import msi.gama.headless.common.ImageEncoder;
 import msi.gama.headless.core.GamaHeadlessException;
 import msi.gama.headless.core.IRichExperiment;
 import msi.gama.headless.core.RichExperiment;
@@ -82,6 +81,9 @@ public class ExperimentJob implements IExperimentJob {
 	/** The output file. */
 	protected Writer outputFile;
 
+	/** The encoder writing the snapshots of the displays, created with the first one. */
+	protected ImageEncoder images;
+
 	/** The source path. */
 	protected String sourcePath;
 
@@ -117,6 +119,9 @@ public class ExperimentJob implements IExperimentJob {
 	 */
 	public volatile IRichExperiment simulator;
 
+	/** Whether the job has been stopped by an error. */
+	private volatile boolean failed;
+
 	/**
 	 * Instantiates a new experiment job.
 	 *
@@ -317,16 +322,40 @@ public class ExperimentJob implements IExperimentJob {
 				step++;
 			}
 		} catch (final GamaRuntimeException e) {
+			failed = true;
 			DEBUG.ERR("\n The simulation has stopped before the end due to the following exception: ", e);
 		}
 	}
 
+	@Override
+	public void run() {
+		try (final DebugStream file = new DebugStream(this)) {
+			loadAndBuild();
+			playAndDispose();
+		} catch (final Exception e) {
+			failed = true;
+			DEBUG.ERR(e);
+		}
+	}
+
+	/**
+	 * Whether the job has been stopped by an error, either while it was loaded or while it was played. Errors that do
+	 * not stop the simulation are not taken into account.
+	 *
+	 * @return true, if successful
+	 */
+	public boolean hasFailed() { return failed; }
+
 	@Override
 	public void dispose() {
 		if (this.simulator != null) {
 			this.simulator.dispose();
 			this.simulator = null;
 		}
+		if (this.images != null) {
+			this.images.close();
+			this.images = null;
+		}
 		if (this.outputFile != null) {
 			this.outputFile.close();
 			this.outputFile = null;
@@ -391,7 +420,8 @@ public class ExperimentJob implements IExperimentJob {
 	public long getStep() { return step; }
 
 	/**
-	 * Write image in file.
+	 * Write image in file. The image is encoded in the background by an {@link ImageEncoder}, in its own file or in the
+	 * archive of the display.
 	 *
 	 * @param img
 	 *            the img
@@ -404,20 +434,25 @@ public class ExperimentJob implements IExperimentJob {
 	protected Display2D writeImageInFile(final BufferedImage img, final String name, final String outputPath) {
 		final String fileName = name + this.getExperimentID() + "-" + step + ".png";
 		String fileFullName = Globals.IMAGES_PATH + "/" + fileName;
+		String archiveName = Globals.IMAGES_PATH + "/" + name + this.getExperimentID() + ".zip";
 		if (outputPath != "" && outputPath != null) {
 			// a specific output path has been specified with the "output_path"
 			// keyword in the xml
 			fileFullName = outputPath + "-" + step + ".png";
+			archiveName = outputPath + ".zip";
 			// check if the folder exists, create a new one if it does not
 			final File tmp = new File(fileFullName);
 			tmp.getParentFile().mkdirs();
 		}
-		try {
-			ImageIO.write(img, "png", new File(fileFullName));
-		} catch (final IOException e) {
-			e.printStackTrace();
+		if (images == null) { images = new ImageEncoder(); }
+		if (Globals.IMAGES_ARCHIVE) {
+			final File archive = new File(archiveName);
+			final String entry = new File(fileFullName).getName();
+			images.write(img, archive, entry);
+			return new Display2D(archive.getName() + "!/" + entry);
 		}
-		return new Display2D(name + this.getExperimentID() + "-" + step + ".png");
+		images.write(img, new File(fileFullName));
+		return new Display2D(fileName);
 	}
 
 	@Override
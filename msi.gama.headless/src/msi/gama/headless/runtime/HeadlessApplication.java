@@ -10,16 +10,21 @@
  ********************************************************************************************************/
 package msi.gama.headless.runtime;
 
+import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 
 import javax.xml.parsers.ParserConfigurationException;
@@ -120,6 +125,27 @@ public class HeadlessApplication implements IApplication {
 	/** The Constant THREAD_PARAMETER. */
 	final public static String THREAD_PARAMETER = "-hpc";
 
+	/** The Constant WORKERS_PARAMETER. */
+	final public static String WORKERS_PARAMETER = "-workers";
+
+	/** The Constant WORKER_MEMORY_PARAMETER. */
+	final public static String WORKER_MEMORY_PARAMETER = "-worker_memory";
+
+	/** The Constant WORKER_TIMEOUT_PARAMETER. */
+	final public static String WORKER_TIMEOUT_PARAMETER = "-worker_timeout";
+
+	/** The Constant WORKER_PARAMETER. Used by the processes launched by a {@link WorkerPool}. */
+	final public static String WORKER_PARAMETER = "-worker";
+
+	/** The Constant DATA_PARAMETER. The option of the launcher giving the workspace. */
+	final public static String DATA_PARAMETER = "-data";
+
+	/** The Constant IMAGES_COMPRESSION_PARAMETER. */
+	final public static String IMAGES_COMPRESSION_PARAMETER = "-images_compression";
+
+	/** The Constant IMAGES_ARCHIVE_PARAMETER. */
+	final public static String IMAGES_ARCHIVE_PARAMETER = "-images_archive";
+
 	/** The Constant PING_INTERVAL. */
 	final public static String PING_INTERVAL = "-ping_interval";
 
@@ -185,6 +211,21 @@ public class HeadlessApplication implements IApplication {
 	/** The verbose. */
 	public boolean verbose = false;
 
+	/** The number of worker processes running the jobs of the experiment plan, 0 to run them in this process. */
+	public int workers = 0;
+
+	/** The max. heap size of each worker process (ex 2048m), or null to use the one of this process. */
+	public String workerMemory = null;
+
+	/** The time (in s) after which a worker process that has not finished its experiment is killed, 0 for no limit. */
+	public long workerTimeout = 0;
+
+	/** Whether this process is a worker, running the jobs given on its standard input. */
+	public boolean workerMode = false;
+
+	/** The experiment plan run, as given on the command line, or null if it is read on the console. */
+	private String inputFile = null;
+
 	/** The processor queue. */
 	public final SimulationRuntime processorQueue = new SimulationRuntime();
 
@@ -214,6 +255,18 @@ public class HeadlessApplication implements IApplication {
 				+ "                            -- start the console to write xml parameter file" + "\n\t\t"
 				+ VERBOSE_PARAMETER + "                            -- verbose mode" + "\n\t\t" + THREAD_PARAMETER
 				+ " [core]                   -- set the number of core available for experimentation" + "\n\t\t"
+				+ WORKERS_PARAMETER
+				+ " [n]                     -- run the experiments of the xml file in n separate processes (an experiment"
+				+ " is reported as failed only if it raises an error that stops it)" + "\n\t\t"
+				+ WORKER_MEMORY_PARAMETER
+				+ " [mem]             -- allocate memory to each of these processes (ex 2048m)" + "\n\t\t"
+				+ WORKER_TIMEOUT_PARAMETER
+				+ " [s]              -- kill and replace the processes that run an experiment for more than s seconds"
+				+ "\n\t\t"
+				+ IMAGES_COMPRESSION_PARAMETER
+				+ " [0-9]         -- compression level of the snapshots of displays (lower is faster)" + "\n\t\t"
+				+ IMAGES_ARCHIVE_PARAMETER
+				+ "               -- write the snapshots of each display in a single zip file" + "\n\t\t"
 				+ TUNNELING_PARAMETER
 				+ "                            -- start pipeline to interact with another framework" + "\n\t\t"
 				+ PING_INTERVAL + " [pingInterval] "
@@ -294,6 +347,30 @@ public class HeadlessApplication implements IApplication {
 			size = size - 2;
 			processorQueue.setNumberOfThreads(Integer.parseInt(after(args, THREAD_PARAMETER)));
 		}
+		if (args.contains(WORKERS_PARAMETER)) {
+			size = size - 2;
+			this.workers = Integer.parseInt(after(args, WORKERS_PARAMETER));
+		}
+		if (args.contains(WORKER_MEMORY_PARAMETER)) {
+			size = size - 2;
+			this.workerMemory = after(args, WORKER_MEMORY_PARAMETER);
+		}
+		if (args.contains(WORKER_TIMEOUT_PARAMETER)) {
+			size = size - 2;
+			this.workerTimeout = Long.parseLong(after(args, WORKER_TIMEOUT_PARAMETER));
+		}
+		if (args.contains(WORKER_PARAMETER)) {
+			size = size - 1;
+			this.workerMode = true;
+		}
+		if (args.contains(IMAGES_COMPRESSION_PARAMETER)) {
+			size = size - 2;
+			Globals.IMAGES_COMPRESSION = Integer.parseInt(after(args, IMAGES_COMPRESSION_PARAMETER));
+		}
+		if (args.contains(IMAGES_ARCHIVE_PARAMETER)) {
+			size = size - 1;
+			Globals.IMAGES_ARCHIVE = true;
+		}
 
 		// Commands
 		// ========================
@@ -556,7 +633,8 @@ public class HeadlessApplication implements IApplication {
 	 */
 	public void runSimulation(final List<String> args) throws FileNotFoundException, InterruptedException {
 		if (this.verbose && !this.tunnelingMode) { DEBUG.FORCE_ON(); }
-		runXML(consoleMode ? new Reader(ConsoleReader.readOnConsole()) : new Reader(args.get(args.size() - 2)));
+		if (!consoleMode) { inputFile = args.get(args.size() - 2); }
+		runXML(consoleMode ? new Reader(ConsoleReader.readOnConsole()) : new Reader(inputFile));
 		System.exit(0);
 	}
 
@@ -570,7 +648,13 @@ public class HeadlessApplication implements IApplication {
 	 */
 	private void runXML(final Reader in) throws InterruptedException {
 		in.parseXmlFile();
-		this.buildAndRunSimulation(in.getSimulation());
+		if (workerMode) {
+			runAsWorker(new ArrayList<>(in.getSimulation()));
+		} else if (workers > 0 && !consoleMode && !tunnelingMode) {
+			runInWorkers(in.getSimulation());
+		} else {
+			this.buildAndRunSimulation(in.getSimulation());
+		}
 		in.dispose();
 		processorQueue.shutdown();
 		while (!processorQueue.awaitTermination(100, TimeUnit.MILLISECONDS)) {}
@@ -585,14 +669,7 @@ public class HeadlessApplication implements IApplication {
 	public void buildAndRunSimulation(final Collection<ExperimentJob> sims) {
 		for (ExperimentJob sim : sims) {
 			try {
-				XMLWriter ou = null;
-				if (tunnelingMode) {
-					ou = new XMLWriter(new BufferedWriter(new OutputStreamWriter(System.out)));
-				} else {
-					ou = new XMLWriter(
-							Globals.OUTPUT_PATH + "/" + Globals.OUTPUT_FILENAME + sim.getExperimentID() + ".xml");
-				}
-				sim.setBufferedWriter(ou);
+				sim.setBufferedWriter(createWriter(sim));
 				processorQueue.execute(sim);
 			} catch (final Exception e) {
 				e.printStackTrace();
@@ -601,6 +678,128 @@ public class HeadlessApplication implements IApplication {
 		}
 	}
 
+	/**
+	 * Creates the writer of the outputs of a simulation.
+	 *
+	 * @param sim
+	 *            the sim
+	 * @return the XML writer
+	 */
+	private XMLWriter createWriter(final ExperimentJob sim) {
+		if (tunnelingMode) return new XMLWriter(new BufferedWriter(new OutputStreamWriter(System.out)));
+		return new XMLWriter(Globals.OUTPUT_PATH + "/" + Globals.OUTPUT_FILENAME + sim.getExperimentID() + ".xml");
+	}
+
+	/**
+	 * Runs the simulations in a pool of worker processes, each of them writing the outputs of its simulations in the
+	 * output folder. They are run in this process if its command line cannot be known.
+	 *
+	 * @param sims
+	 *            the sims
+	 * @throws InterruptedException
+	 *             the interrupted exception
+	 */
+	private void runInWorkers(final Collection<ExperimentJob> sims) throws InterruptedException {
+		final List<String> command = workerCommand();
+		if (command == null) {
+			DEBUG.ERR("The workers cannot be launched: the experiments are run in a single process");
+			buildAndRunSimulation(sims);
+		} else {
+			new WorkerPool(command, workers, sims.size(), workerTimeout * 1000).run();
+		}
+	}
+
+	/**
+	 * The command launching a worker: the command line of this process, with the memory of the workers and the
+	 * {@link #WORKER_PARAMETER} option instead of the {@link #WORKERS_PARAMETER} one. Workers exit when they run out of
+	 * memory, so that they are replaced by the pool. Each worker needs its own workspace: the {@link #DATA_PARAMETER}
+	 * option designates the folder in which the pool creates them (see {@link WorkerPool#commandOf(int)}). This folder
+	 * is created here, with a unique name, next to the workspace of this process or, if it has not been given, in the
+	 * temporary folder, so that the pool, which deletes it once the jobs are run, never deletes a folder it has not
+	 * created.
+	 *
+	 * @return the command, or null if the command line of this process cannot be read or the folder cannot be created
+	 */
+	private List<String> workerCommand() {
+		final ProcessHandle.Info info = ProcessHandle.current().info();
+		if (inputFile == null || info.command().isEmpty() || info.arguments().isEmpty()) return null;
+		final String[] arguments = info.arguments().get();
+		// The input file and the output folder are located in the command line, as it begins with the options of the
+		// JVM and of the launcher
+		int input = -1;
+		for (int i = arguments.length - 2; i >= 0 && input < 0; i--) {
+			if (inputFile.equals(arguments[i]) && Globals.OUTPUT_PATH.equals(arguments[i + 1])) { input = i; }
+		}
+		if (input < 0) return null;
+		File parent = new File(System.getProperty("java.io.tmpdir"));
+		String prefix = "gama_workers_";
+		for (int i = 0; i + 1 < input; i++) {
+			if (DATA_PARAMETER.equals(arguments[i])) {
+				final File workspace = new File(arguments[i + 1]).getAbsoluteFile();
+				if (workspace.getParentFile() != null) { parent = workspace.getParentFile(); }
+				prefix = workspace.getName() + "_workers_";
+			}
+		}
+		final File workspaces;
+		try {
+			workspaces = Files.createTempDirectory(parent.toPath(), prefix).toFile();
+		} catch (final IOException e) {
+			DEBUG.ERR("The folder of the workspaces of the workers cannot be created in " + parent + ": "
+					+ e.getMessage());
+			return null;
+		}
+		final List<String> command = new ArrayList<>();
+		command.add(info.command().get());
+		if (workerMemory != null) { command.add("-Xmx" + workerMemory); }
+		command.add("-XX:+ExitOnOutOfMemoryError");
+		for (int i = 0; i < arguments.length; i++) {
+			if (i == input) {
+				command.add(DATA_PARAMETER);
+				command.add(workspaces.getPath());
+				command.add(WORKER_PARAMETER);
+			}
+			if (WORKERS_PARAMETER.equals(arguments[i]) || WORKER_MEMORY_PARAMETER.equals(arguments[i])
+					|| WORKER_TIMEOUT_PARAMETER.equals(arguments[i])
+					|| DATA_PARAMETER.equals(arguments[i]) && i + 1 < input) {
+				i++;
+			} else if (workerMemory == null || !arguments[i].startsWith("-Xmx")) { command.add(arguments[i]); }
+		}
+		return command;
+	}
+
+	/**
+	 * Runs, one by one, the simulations whose indices are read on the standard input, and tells the {@link WorkerPool}
+	 * that has launched this process when each of them is finished, and whether it has failed (see
+	 * {@link ExperimentJob#hasFailed()}). Returns when the standard input is closed.
+	 *
+	 * @param sims
+	 *            the sims
+	 * @throws InterruptedException
+	 *             the interrupted exception
+	 */
+	private void runAsWorker(final List<ExperimentJob> sims) throws InterruptedException {
+		final BufferedReader jobs = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+		try {
+			for (String line = jobs.readLine(); line != null; line = jobs.readLine()) {
+				final int index = Integer.parseInt(line.trim());
+				String status = WorkerPool.OK;
+				try {
+					final ExperimentJob sim = sims.get(index);
+					sim.setBufferedWriter(createWriter(sim));
+					processorQueue.submit(sim).get();
+					if (sim.hasFailed()) { status = WorkerPool.ERROR; }
+				} catch (final ExecutionException | RuntimeException e) {
+					e.printStackTrace();
+					status = WorkerPool.ERROR;
+				}
+				System.out.println(WorkerPool.DONE + index + ":" + status);
+				System.out.flush();
+			}
+		} catch (final IOException e) {
+			e.printStackTrace();
+		}
+	}
+
 	/**
 	 * Stop.
 	 *
@@ -0,0 +1,307 @@
+/*******************************************************************************************************
+ *
+ * WorkerPool.java, in msi.gama.headless, is part of the source code of the GAMA modeling and simulation platform
+ * (v.1.9.3).
+ *
+ * (c) 2007-2024 UMI 209 UMMISCO IRD/SU & Partners (IRIT, MIAT, TLU, CTU)
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package msi.gama.headless.runtime;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import ummisco.gama.dev.utils.DEBUG;
+
+/**
+ * A pool of worker processes running the jobs of an experiment plan on the same machine (see the '-workers' option of
+ * the headless mode), so that the memory used by each job, its garbage collections or its crash do not affect the
+ * others. Each worker is a copy of the current process launched with the '-worker' option, in its own workspace: it
+ * parses the same plan, then reads the indices of the jobs to run on its standard input, runs them one by one, and
+ * writes {@link #DONE} on its standard output once each of them is finished. The outputs of the jobs are written by
+ * the workers in the output folder, exactly as they would be by this process.
+ *
+ * A worker that stops before having finished its job (crash, out of memory...), or that has not finished it after the
+ * timeout given to the pool (see the '-worker_timeout' option), is killed if needed and replaced by a new one, and the
+ * job given again to a worker, at most {@link #MAX_ATTEMPTS} times. The workspaces of the workers are deleted once all
+ * the jobs are run.
+ */
+public class WorkerPool {
+
+	/** The marker written by workers when they have run a job, followed by its index and status. */
+	public static final String DONE = "@gama_worker_done:";
+
+	/** The status of the jobs run without error. */
+	public static final String OK = "ok";
+
+	/** The status of the jobs run with errors. */
+	public static final String ERROR = "error";
+
+	/** The max. number of times a job is given to a worker. */
+	static final int MAX_ATTEMPTS = 3;
+
+	/** The command launching a worker, whose '-data' option gives the folder of the workspaces of the workers. */
+	final List<String> command;
+
+	/** The number of workers. */
+	final int size;
+
+	/** The time (in ms) after which a worker that has not finished its job is killed, 0 for no limit. */
+	final long timeout;
+
+	/** The thread killing the workers that exceed the timeout, if there is one. */
+	ScheduledExecutorService watchdog;
+
+	/** The indices of the jobs to run. */
+	final Deque<Integer> jobs = new ArrayDeque<>();
+
+	/** The number of times each job has been given to a worker. */
+	final int[] attempts;
+
+	/** The number of workers replaced. */
+	int restarts;
+
+	/** The number of jobs that have failed. */
+	int failures;
+
+	/**
+	 * Instantiates a new worker pool.
+	 *
+	 * @param command
+	 *            the command launching a worker
+	 * @param size
+	 *            the number of workers
+	 * @param nbJobs
+	 *            the number of jobs of the plan
+	 * @param timeout
+	 *            the time (in ms) after which a worker that has not finished its job is killed, 0 for no limit
+	 */
+	public WorkerPool(final List<String> command, final int size, final int nbJobs, final long timeout) {
+		this.command = command;
+		this.size = Math.min(size, nbJobs);
+		this.timeout = timeout;
+		attempts = new int[nbJobs];
+		for (int i = 0; i < nbJobs; i++) { jobs.add(i); }
+	}
+
+	/**
+	 * Runs all the jobs and waits for them to be finished.
+	 *
+	 * @throws InterruptedException
+	 *             the interrupted exception
+	 */
+	public void run() throws InterruptedException {
+		final long start = System.currentTimeMillis();
+		if (timeout > 0) {
+			watchdog = Executors.newSingleThreadScheduledExecutor(r -> {
+				final Thread thread = new Thread(r, "GAMA worker watchdog");
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+		final List<Thread> threads = new ArrayList<>();
+		try {
+			for (int i = 0; i < size; i++) {
+				final int worker = i;
+				final Thread thread = new Thread(() -> serve(worker), "GAMA worker " + i);
+				threads.add(thread);
+				thread.start();
+			}
+			for (final Thread thread : threads) { thread.join(); }
+		} finally {
+			if (watchdog != null) { watchdog.shutdownNow(); }
+		}
+		deleteWorkspaces();
+		DEBUG.LOG(attempts.length + " jobs run by " + size + " workers in "
+				+ (System.currentTimeMillis() - start) / 1000 + "s (" + restarts + " workers replaced, " + failures
+				+ " jobs failed)");
+	}
+
+	/**
+	 * The next job to run.
+	 *
+	 * @return its index, or null if there are none left
+	 */
+	synchronized Integer nextJob() {
+		final Integer job = jobs.poll();
+		if (job != null) { attempts[job]++; }
+		return job;
+	}
+
+	/**
+	 * Called when a worker has stopped while running a job: the job is given again to a worker, unless it has been
+	 * given too many times.
+	 *
+	 * @param job
+	 *            the job
+	 */
+	synchronized void workerStopped(final int job) {
+		restarts++;
+		if (attempts[job] < MAX_ATTEMPTS) {
+			jobs.addFirst(job);
+		} else {
+			failures++;
+			DEBUG.ERR("Job " + job + " has stopped its worker " + MAX_ATTEMPTS + " times: it is abandoned");
+		}
+	}
+
+	/**
+	 * Called when a worker has run a job.
+	 *
+	 * @param job
+	 *            the job
+	 * @param status
+	 *            the status of the job
+	 */
+	synchronized void jobFinished(final int job, final String status) {
+		if (!OK.equals(status)) { failures++; }
+	}
+
+	/**
+	 * The folder of the workspaces of the workers, given by the '-data' option of the command.
+	 *
+	 * @return the folder, or null if the command has none
+	 */
+	File workspaces() {
+		final int data = command.indexOf(HeadlessApplication.DATA_PARAMETER);
+		return data >= 0 && data + 1 < command.size() ? new File(command.get(data + 1)) : null;
+	}
+
+	/**
+	 * The command launching a worker, with its own workspace: a sub-folder, named after the worker, of the folder given
+	 * by the '-data' option of the command.
+	 *
+	 * @param worker
+	 *            the index of the worker
+	 * @return the command
+	 */
+	List<String> commandOf(final int worker) {
+		final List<String> result = new ArrayList<>(command);
+		final File workspaces = workspaces();
+		if (workspaces != null) {
+			result.set(result.indexOf(HeadlessApplication.DATA_PARAMETER) + 1,
+					new File(workspaces, String.valueOf(worker)).getPath());
+		}
+		return result;
+	}
+
+	/**
+	 * Deletes the folder of the workspaces of the workers once they have all exited. This folder is created, with a
+	 * unique name, for this pool only (see {@link HeadlessApplication}), so it never holds anything else.
+	 */
+	void deleteWorkspaces() {
+		final File workspaces = workspaces();
+		if (workspaces == null || !workspaces.isDirectory()) return;
+		try (Stream<Path> paths = Files.walk(workspaces.toPath())) {
+			paths.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+		} catch (final IOException e) {
+			DEBUG.ERR("The workspaces of the workers cannot be deleted: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Gives jobs to a worker, replacing it if it stops or exceeds the timeout, until there are none left. A job given
+	 * back after its worker has stopped is put at the head of the queue, where it can be taken by any thread; as the
+	 * thread that gives it back then polls the queue again, no job is left behind when the other threads have finished.
+	 *
+	 * @param worker
+	 *            the index of the worker, which gives its workspace (shared by the workers that replace it)
+	 */
+	void serve(final int worker) {
+		Process process = null;
+		Writer input = null;
+		BufferedReader output = null;
+		try {
+			for (Integer job = nextJob(); job != null; job = nextJob()) {
+				boolean done = false;
+				ScheduledFuture<?> kill = null;
+				final AtomicBoolean killed = new AtomicBoolean();
+				try {
+					if (process == null) {
+						process = new ProcessBuilder(commandOf(worker)).redirectError(ProcessBuilder.Redirect.INHERIT)
+								.start();
+						input = new OutputStreamWriter(process.getOutputStream(), UTF_8);
+						output = new BufferedReader(new InputStreamReader(process.getInputStream(), UTF_8));
+					}
+					input.write(job + "\n");
+					input.flush();
+					if (watchdog != null) {
+						// Killing the worker ends its output, and thus the wait for its result
+						final Process hung = process;
+						kill = watchdog.schedule(() -> {
+							killed.set(true);
+							hung.destroyForcibly();
+						}, timeout, TimeUnit.MILLISECONDS);
+					}
+					String line;
+					while (!done && (line = output.readLine()) != null) {
+						// The logs of the worker may not end with a new line
+						final int marker = line.indexOf(DONE);
+						if (marker > 0) { System.out.println(line.substring(0, marker)); }
+						if (marker >= 0) {
+							final String[] result = line.substring(marker + DONE.length()).split(":");
+							jobFinished(job, result.length > 1 ? result[1] : ERROR);
+							done = true;
+						} else {
+							System.out.println(line);
+						}
+					}
+				} catch (final IOException e) {
+					DEBUG.ERR("Worker error: " + e.getMessage());
+				} finally {
+					if (kill != null) { kill.cancel(false); }
+				}
+				if (killed.get()) {
+					if (done) {
+						// The job has finished just before its worker was killed: the worker is replaced anyway
+						process.destroyForcibly().onExit().join();
+						process = null;
+					} else {
+						DEBUG.ERR("Job " + job + " has not finished after " + timeout / 1000 + "s: its worker is killed");
+					}
+				}
+				if (!done) {
+					// The worker is waited for, so that its replacement can lock the same workspace
+					if (process != null) { process.destroyForcibly().onExit().join(); }
+					process = null;
+					workerStopped(job);
+				}
+			}
+		} finally {
+			if (process != null) {
+				// Closing its input tells the worker that there are no more jobs
+				try {
+					input.close();
+					process.waitFor();
+				} catch (final IOException e) {
+					process.destroyForcibly();
+				} catch (final InterruptedException e) {
+					process.destroyForcibly();
+					Thread.currentThread().interrupt();
+				}
+			}
+		}
+	}
+
+}
@@ -10,14 +10,23 @@
  ********************************************************************************************************/
 package ummisco.gama.serializer.implementations;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.Arrays;
 
 import msi.gama.common.interfaces.ISerialisationConstants;
+import msi.gama.common.preferences.GamaPreferences;
 import msi.gama.common.util.FileUtils;
 import msi.gama.kernel.simulation.SimulationAgent;
 import msi.gama.metamodel.agent.IAgent;
@@ -47,9 +56,14 @@ public class BinarySerialisation implements ISerialisationConstants {
 	 * @date 31 oct. 2023
 	 */
 	public static Object createFromFile(final IScope scope, final String path) {
-		try {
-			byte[] all = Files.readAllBytes(Path.of(FileUtils.constructAbsoluteFilePath(scope, path, true)));
-			return createFromBytes(scope, all);
+		Path file = Path.of(FileUtils.constructAbsoluteFilePath(scope, path, true));
+		try (FileChannel channel = FileChannel.open(file)) {
+			byte[] header = readHeader(channel);
+			if (header[2] == BLOCK_COMPRESSED) {
+				checkType(scope, header[0]);
+				return createFromChannel(scope, header[0], SerialisationProcessorFactory.create(header[1]), channel);
+			}
+			return createFromBytes(scope, Files.readAllBytes(file));
 		} catch (IOException e) {
 			throw GamaRuntimeException.create(e, GAMA.getRuntimeScope());
 		}
@@ -94,9 +108,10 @@ public class BinarySerialisation implements ISerialisationConstants {
 	 */
 	public static Object createFromBytes(final IScope scope, final byte[] bytes) {
 		byte type = bytes[0];
-		if (type != GAMA_OBJECT_IDENTIFIER && type != GAMA_AGENT_IDENTIFIER)
-			throw GamaRuntimeException.error("Not a GAMA serialisation record", scope);
+		checkType(scope, type);
 		ISerialisationProcessor processor = SerialisationProcessorFactory.create(bytes[1]);
+		if (bytes[2] == BLOCK_COMPRESSED) return createFromChannel(scope, type, processor,
+				Channels.newChannel(new ByteArrayInputStream(bytes, 3, bytes.length - 3)));
 		boolean zip = bytes[2] == COMPRESSED;
 		byte[] some = Arrays.copyOfRange(bytes, 3, bytes.length);
 		if (zip) { some = ByteArrayZipper.unzip(some); }
@@ -104,6 +119,66 @@ public class BinarySerialisation implements ISerialisationConstants {
 				: processor.createAgentFromBytes(scope, some);
 	}
 
+	/**
+	 * Creates an object or an agent from a channel containing a block compressed serialisation (without its header).
+	 * FST processors read the stream directly.
+	 *
+	 * @param scope
+	 *            the scope
+	 * @param type
+	 *            the type of record (agent or object)
+	 * @param processor
+	 *            the processor
+	 * @param channel
+	 *            the channel
+	 * @return the object
+	 */
+	private static Object createFromChannel(final IScope scope, final byte type,
+			final ISerialisationProcessor processor, final ReadableByteChannel channel) {
+		try (InputStream in = new BlockCompressedInputStream(channel)) {
+			if (processor instanceof FSTAbstractProcessor fst) {
+				Object o = fst.read(scope, in);
+				if (type == GAMA_OBJECT_IDENTIFIER) return o;
+				return o instanceof SerialisedAgent sa ? sa.recreateIn(scope) : null;
+			}
+			byte[] some = in.readAllBytes();
+			return type == GAMA_OBJECT_IDENTIFIER ? processor.createObjectFromBytes(scope, some)
+					: processor.createAgentFromBytes(scope, some);
+		} catch (IOException e) {
+			throw GamaRuntimeException.create(e, scope);
+		}
+	}
+
+	/**
+	 * Reads the header of a record (type, format, compression).
+	 *
+	 * @param channel
+	 *            the channel
+	 * @return the header
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private static byte[] readHeader(final ReadableByteChannel channel) throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(3);
+		while (header.hasRemaining()) {
+			if (channel.read(header) < 0) throw new IOException("Not a GAMA serialisation record");
+		}
+		return header.array();
+	}
+
+	/**
+	 * Checks the type of a record.
+	 *
+	 * @param scope
+	 *            the scope
+	 * @param type
+	 *            the type
+	 */
+	private static void checkType(final IScope scope, final byte type) {
+		if (type != GAMA_OBJECT_IDENTIFIER && type != GAMA_AGENT_IDENTIFIER)
+			throw GamaRuntimeException.error("Not a GAMA serialisation record", scope);
+	}
+
 	/**
 	 * Restore from file.
 	 *
@@ -113,9 +188,14 @@ public class BinarySerialisation implements ISerialisationConstants {
 	 * @date 8 août 2023
 	 */
 	public static void restoreFromFile(final IAgent agent, final String path) {
-		try {
-			byte[] all = Files.readAllBytes(Path.of(path));
-			restoreFromBytes(agent, all);
+		try (FileChannel channel = FileChannel.open(Path.of(path))) {
+			byte[] header = readHeader(channel);
+			if (header[2] == BLOCK_COMPRESSED) {
+				if (header[0] != GAMA_AGENT_IDENTIFIER) throw new IOException("Not an agent serialisation record");
+				restoreFromChannel(agent, SerialisationProcessorFactory.create(header[1]), channel);
+			} else {
+				restoreFromBytes(agent, Files.readAllBytes(Path.of(path)));
+			}
 		} catch (IOException e) {
 			throw GamaRuntimeException.create(e, agent.getScope());
 		}
@@ -161,12 +241,40 @@ public class BinarySerialisation implements ISerialisationConstants {
 	public static void restoreFromBytes(final IAgent sim, final byte[] bytes) throws IOException {
 		if (bytes[0] != GAMA_AGENT_IDENTIFIER) throw new IOException("Not an agent serialisation record");
 		ISerialisationProcessor processor = SerialisationProcessorFactory.create(bytes[1]);
+		if (bytes[2] == BLOCK_COMPRESSED) {
+			restoreFromChannel(sim, processor, Channels.newChannel(new ByteArrayInputStream(bytes, 3, bytes.length - 3)));
+			return;
+		}
 		boolean zip = bytes[2] == COMPRESSED;
 		byte[] some = Arrays.copyOfRange(bytes, 3, bytes.length);
 		if (zip) { some = ByteArrayZipper.unzip(some); }
 		processor.restoreAgentFromBytes(sim, some);
 	}
 
+	/**
+	 * Restores an agent from a channel containing a block compressed serialisation (without its header). FST
+	 * processors read the stream directly.
+	 *
+	 * @param agent
+	 *            the agent
+	 * @param processor
+	 *            the processor
+	 * @param channel
+	 *            the channel
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private static void restoreFromChannel(final IAgent agent, final ISerialisationProcessor processor,
+			final ReadableByteChannel channel) throws IOException {
+		try (InputStream in = new BlockCompressedInputStream(channel)) {
+			if (processor instanceof FSTAbstractProcessor fst) {
+				fst.restoreFromSerialisedForm(agent, (SerialisedAgent) fst.read(agent.getScope(), in));
+			} else {
+				processor.restoreAgentFromBytes(agent, in.readAllBytes());
+			}
+		}
+	}
+
 	/**
 	 * Save to file.
 	 *
@@ -187,11 +295,12 @@ public class BinarySerialisation implements ISerialisationConstants {
 	 */
 	public static final void saveToFile(final IScope scope, final Object o, final String path, final String format,
 			final boolean zip, final boolean includingHistory) {
-		try (FileOutputStream fos = new FileOutputStream(path, true)) {
+		try (FileChannel channel = FileChannel.open(Path.of(path), StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
 			if (o instanceof SimulationAgent sim) {
 				sim.setAttribute(SerialisedAgent.SERIALISE_HISTORY, includingHistory);
 			}
-			fos.write(saveToBytes(scope, o, format, zip));
+			writeTo(scope, o, format, zip, channel);
 			if (o instanceof SimulationAgent sim) { sim.setAttribute(SerialisedAgent.SERIALISE_HISTORY, false); }
 		} catch (IOException e) {
 			throw GamaRuntimeException.create(e, scope);
@@ -221,23 +330,61 @@ public class BinarySerialisation implements ISerialisationConstants {
 	 */
 	public static final byte[] saveToBytes(final IScope scope, final Object agent, final String format,
 			final boolean zip) {
-		ISerialisationProcessor processor = SerialisationProcessorFactory.create(format);
-		if (processor == null) throw GamaRuntimeException.error("No object serializer called " + format
-				+ " found. Available serializers are " + SerialisationProcessorFactory.getAvailableProcessors(), scope);
-		byte[] toSave = agent instanceof IAgent a ? processor.saveAgentToBytes(scope, a)
-				: processor.saveObjectToBytes(scope, agent);
-		if (zip) { toSave = ByteArrayZipper.zip(toSave); }
 		try (ByteArrayOutputStream fos = new ByteArrayOutputStream()) {
-			fos.write(agent instanceof IAgent ? GAMA_AGENT_IDENTIFIER : GAMA_OBJECT_IDENTIFIER);
-			fos.write(processor.getFormatIdentifier());
-			fos.write(zip ? COMPRESSED : UNCOMPRESSED);
-			fos.write(toSave);
+			writeTo(scope, agent, format, zip, Channels.newChannel(fos));
 			return fos.toByteArray();
 		} catch (IOException e) {
 			throw GamaRuntimeException.create(e, scope);
 		}
 	}
 
+	/**
+	 * Writes the header and the serialisation of an object to a channel. When zipped, the serialisation is compressed
+	 * as a whole, as older versions of GAMA expect it. If the 'pref_serialisation_blocks' preference is on, it is
+	 * instead compressed block by block in pooled direct buffers and, for FST processors, written directly to the
+	 * compressing stream, so that the complete serialisation never exists as an array in the heap.
+	 *
+	 * @param scope
+	 *            the scope
+	 * @param o
+	 *            the object (or agent)
+	 * @param format
+	 *            the format
+	 * @param zip
+	 *            whether to compress the serialisation
+	 * @param channel
+	 *            the channel
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private static void writeTo(final IScope scope, final Object o, final String format, final boolean zip,
+			final WritableByteChannel channel) throws IOException {
+		ISerialisationProcessor processor = SerialisationProcessorFactory.create(format);
+		if (processor == null) throw GamaRuntimeException.error("No object serializer called " + format
+				+ " found. Available serializers are " + SerialisationProcessorFactory.getAvailableProcessors(), scope);
+		final boolean blocks = zip && GamaPreferences.Runtime.SERIALISATION_BLOCKS.getValue();
+		ByteBuffer header = ByteBuffer.wrap(new byte[] {
+				o instanceof IAgent ? GAMA_AGENT_IDENTIFIER : GAMA_OBJECT_IDENTIFIER, processor.getFormatIdentifier(),
+				blocks ? BLOCK_COMPRESSED : zip ? COMPRESSED : UNCOMPRESSED });
+		while (header.hasRemaining()) { channel.write(header); }
+		if (blocks) {
+			try (OutputStream out = new BlockCompressedOutputStream(channel)) {
+				if (processor instanceof FSTAbstractProcessor fst) {
+					fst.write(scope, o, out);
+				} else {
+					out.write(o instanceof IAgent a ? processor.saveAgentToBytes(scope, a)
+							: processor.saveObjectToBytes(scope, o));
+				}
+			}
+		} else {
+			byte[] bytes = o instanceof IAgent a ? processor.saveAgentToBytes(scope, a)
+					: processor.saveObjectToBytes(scope, o);
+			if (zip) { bytes = ByteArrayZipper.zip(bytes); }
+			ByteBuffer toSave = ByteBuffer.wrap(bytes);
+			while (toSave.hasRemaining()) { channel.write(toSave); }
+		}
+	}
+
 	/**
 	 * Save to bytes.
 	 *
@@ -0,0 +1,255 @@
+/*******************************************************************************************************
+ *
+ * BlockCodec.java, in ummisco.gama.serialize, is part of the source code of the GAMA modeling and simulation platform
+ * (v.1.9.3).
+ *
+ * (c) 2007-2024 UMI 209 UMMISCO IRD/SU & Partners (IRIT, MIAT, TLU, CTU)
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package ummisco.gama.serializer.implementations;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * A fast block compression codec, in the spirit of LZ4, working directly on (possibly direct) byte buffers. A
+ * compressed block is a sequence of sequences, each made of a token (4 bits for the number of literals, 4 bits for the
+ * length of the match minus 4), optional extra bytes for the lengths (when they exceed 14), the literals, and the
+ * match, encoded as a 2-bytes offset backwards in the block and its length. The last sequence only contains literals.
+ * Favours speed over ratio: the snapshots of simulations are usually very redundant anyway.
+ *
+ * Also maintains a small pool of direct buffers, reused by the compressing and decompressing streams so that saving or
+ * restoring large snapshots does not allocate (and collect) new buffers for each block.
+ */
+public class BlockCodec {
+
+	/** The size of the blocks of the streams. */
+	public static final int BLOCK_SIZE = 1 << 22;
+
+	/** The min. length of a match. */
+	static final int MIN_MATCH = 4;
+
+	/** The max. offset of a match. */
+	static final int MAX_OFFSET = 0xFFFF;
+
+	/** The number of bits of the hash table. */
+	static final int HASH_BITS = 16;
+
+	/** The hash tables, one per thread. */
+	static final ThreadLocal<int[]> TABLES = ThreadLocal.withInitial(() -> new int[1 << HASH_BITS]);
+
+	/** The pool of direct buffers. */
+	static final ConcurrentLinkedQueue<ByteBuffer> POOL = new ConcurrentLinkedQueue<>();
+
+	/** The max. number of buffers kept in the pool. */
+	static final int POOL_SIZE = 8;
+
+	/**
+	 * The max. length of the compression of len bytes.
+	 *
+	 * @param len
+	 *            the len
+	 * @return the int
+	 */
+	public static int maxCompressedLength(final int len) {
+		return len + len / 255 + 16;
+	}
+
+	/**
+	 * Returns a direct buffer of at least this capacity, cleared, taken from the pool if possible.
+	 *
+	 * @param capacity
+	 *            the capacity
+	 * @return the byte buffer
+	 */
+	public static ByteBuffer acquire(final int capacity) {
+		for (final ByteBuffer buffer : POOL) {
+			if (buffer.capacity() >= capacity && POOL.remove(buffer)) return buffer.clear();
+		}
+		return ByteBuffer.allocateDirect(capacity);
+	}
+
+	/**
+	 * Gives back a buffer to the pool.
+	 *
+	 * @param buffer
+	 *            the buffer
+	 */
+	public static void release(final ByteBuffer buffer) {
+		if (buffer != null && buffer.isDirect() && POOL.size() < POOL_SIZE) { POOL.offer(buffer); }
+	}
+
+	/**
+	 * Compresses a whole array. The result starts with the length of the input.
+	 *
+	 * @param input
+	 *            the input
+	 * @return the compressed bytes
+	 */
+	public static byte[] compress(final byte[] input) {
+		final ByteBuffer output = ByteBuffer.allocate(4 + maxCompressedLength(input.length));
+		output.putInt(0, input.length);
+		final int length = compress(ByteBuffer.wrap(input), 0, input.length, output, 4);
+		return Arrays.copyOf(output.array(), 4 + length);
+	}
+
+	/**
+	 * Decompresses an array produced by {@link #compress(byte[])}.
+	 *
+	 * @param input
+	 *            the input
+	 * @return the decompressed bytes
+	 */
+	public static byte[] decompress(final byte[] input) {
+		final ByteBuffer source = ByteBuffer.wrap(input);
+		final byte[] result = new byte[source.getInt(0)];
+		decompress(source, 4, input.length - 4, ByteBuffer.wrap(result), 0);
+		return result;
+	}
+
+	/**
+	 * Compresses len bytes of src, starting at index from, into dst, starting at index to. Positions and limits of the
+	 * buffers are not used nor modified.
+	 *
+	 * @param src
+	 *            the src
+	 * @param from
+	 *            the from
+	 * @param len
+	 *            the len
+	 * @param dst
+	 *            the dst, which must have at least {@link #maxCompressedLength(int)} bytes after to
+	 * @param to
+	 *            the to
+	 * @return the number of bytes written in dst
+	 */
+	public static int compress(final ByteBuffer src, final int from, final int len, final ByteBuffer dst,
+			final int to) {
+		final int[] table = TABLES.get();
+		Arrays.fill(table, -1);
+		final int end = from + len;
+		final int limit = end - MIN_MATCH;
+		int anchor = from;
+		int ip = from;
+		int op = to;
+		while (ip < limit) {
+			final int sequence = src.getInt(ip);
+			final int h = sequence * 0x9E3779B1 >>> 32 - HASH_BITS;
+			int ref = table[h];
+			table[h] = ip;
+			if (ref < from || ip - ref > MAX_OFFSET || src.getInt(ref) != sequence) {
+				// Skips faster in incompressible regions
+				ip += 1 + (ip - anchor >>> 6);
+				continue;
+			}
+			while (ip > anchor && ref > from && src.get(ip - 1) == src.get(ref - 1)) {
+				ip--;
+				ref--;
+			}
+			int matchLength = MIN_MATCH;
+			while (ip + matchLength < end && src.get(ref + matchLength) == src.get(ip + matchLength)) { matchLength++; }
+			op = writeSequence(src, anchor, ip - anchor, dst, op, ip - ref, matchLength);
+			ip += matchLength;
+			anchor = ip;
+		}
+		op = writeSequence(src, anchor, end - anchor, dst, op, 0, 0);
+		return op - to;
+	}
+
+	/**
+	 * Writes a sequence (literals followed by a match, or only literals if the match length is 0).
+	 *
+	 * @return the new index in dst
+	 */
+	private static int writeSequence(final ByteBuffer src, final int literals, final int literalLength,
+			final ByteBuffer dst, final int to, final int offset, final int matchLength) {
+		int op = to;
+		final int matchCode = matchLength == 0 ? 0 : matchLength - MIN_MATCH;
+		dst.put(op++, (byte) (Math.min(literalLength, 15) << 4 | Math.min(matchCode, 15)));
+		if (literalLength >= 15) { op = writeLength(dst, op, literalLength - 15); }
+		dst.put(op, src, literals, literalLength);
+		op += literalLength;
+		if (matchLength == 0) return op;
+		dst.put(op++, (byte) offset);
+		dst.put(op++, (byte) (offset >>> 8));
+		if (matchCode >= 15) { op = writeLength(dst, op, matchCode - 15); }
+		return op;
+	}
+
+	/**
+	 * Writes the extra bytes of a length.
+	 *
+	 * @return the new index in dst
+	 */
+	private static int writeLength(final ByteBuffer dst, final int to, final int length) {
+		int op = to;
+		int remaining = length;
+		while (remaining >= 255) {
+			dst.put(op++, (byte) 255);
+			remaining -= 255;
+		}
+		dst.put(op++, (byte) remaining);
+		return op;
+	}
+
+	/**
+	 * Decompresses len bytes of src, starting at index from, into dst, starting at index to. Positions and limits of
+	 * the buffers are not used nor modified.
+	 *
+	 * @param src
+	 *            the src
+	 * @param from
+	 *            the from
+	 * @param len
+	 *            the len
+	 * @param dst
+	 *            the dst
+	 * @param to
+	 *            the to
+	 * @return the number of bytes written in dst
+	 */
+	public static int decompress(final ByteBuffer src, final int from, final int len, final ByteBuffer dst,
+			final int to) {
+		final int end = from + len;
+		int ip = from;
+		int op = to;
+		while (ip < end) {
+			final int token = src.get(ip++) & 0xFF;
+			int literalLength = token >>> 4;
+			if (literalLength == 15) {
+				int b;
+				do {
+					b = src.get(ip++) & 0xFF;
+					literalLength += b;
+				} while (b == 255);
+			}
+			dst.put(op, src, ip, literalLength);
+			ip += literalLength;
+			op += literalLength;
+			if (ip >= end) { break; }
+			final int offset = src.get(ip++) & 0xFF | (src.get(ip++) & 0xFF) << 8;
+			int matchLength = token & 0x0F;
+			if (matchLength == 15) {
+				int b;
+				do {
+					b = src.get(ip++) & 0xFF;
+					matchLength += b;
+				} while (b == 255);
+			}
+			matchLength += MIN_MATCH;
+			final int ref = op - offset;
+			if (offset >= matchLength) {
+				dst.put(op, dst, ref, matchLength);
+			} else {
+				// Overlapping match: copied byte per byte
+				for (int i = 0; i < matchLength; i++) { dst.put(op + i, dst.get(ref + i)); }
+			}
+			op += matchLength;
+		}
+		return op - to;
+	}
+
+}
@@ -0,0 +1,125 @@
+/*******************************************************************************************************
+ *
+ * BlockCompressedInputStream.java, in ummisco.gama.serialize, is part of the source code of the GAMA modeling and
+ * simulation platform (v.1.9.3).
+ *
+ * (c) 2007-2024 UMI 209 UMMISCO IRD/SU & Partners (IRIT, MIAT, TLU, CTU)
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package ummisco.gama.serializer.implementations;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * An input stream that reads, from a channel, the blocks written by a {@link BlockCompressedOutputStream} and
+ * decompresses them one at a time in a direct buffer taken from the pool of the codec. Closing the stream does not
+ * close the channel.
+ */
+public class BlockCompressedInputStream extends InputStream {
+
+	/** The channel. */
+	final ReadableByteChannel channel;
+
+	/** The header of the blocks. */
+	final ByteBuffer header = ByteBuffer.allocate(8);
+
+	/** The current (decompressed) block and the buffer receiving the compressed blocks. */
+	ByteBuffer block, compressed;
+
+	/** Whether the end of the stream has been reached. */
+	boolean finished;
+
+	/**
+	 * Instantiates a new block compressed input stream.
+	 *
+	 * @param channel
+	 *            the channel
+	 */
+	public BlockCompressedInputStream(final ReadableByteChannel channel) {
+		this.channel = channel;
+		block = BlockCodec.acquire(BlockCodec.BLOCK_SIZE);
+		compressed = BlockCodec.acquire(BlockCodec.maxCompressedLength(BlockCodec.BLOCK_SIZE));
+		block.limit(0);
+	}
+
+	/**
+	 * Reads and decompresses the next block.
+	 *
+	 * @return false if the end of the stream has been reached
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private boolean nextBlock() throws IOException {
+		if (finished) return false;
+		header.clear();
+		readFully(header);
+		final int length = header.getInt(0);
+		final int stored = header.getInt(4);
+		if (length == 0) {
+			finished = true;
+			return false;
+		}
+		if (length < 0 || length > block.capacity() || stored > compressed.capacity())
+			throw new IOException("Corrupted compressed block");
+		block.clear();
+		if (stored < 0) {
+			block.limit(length);
+			readFully(block);
+			block.flip();
+		} else {
+			compressed.clear().limit(stored);
+			readFully(compressed);
+			if (BlockCodec.decompress(compressed, 0, stored, block, 0) != length)
+				throw new IOException("Corrupted compressed block");
+			block.limit(length);
+		}
+		return true;
+	}
+
+	/**
+	 * Read fully.
+	 *
+	 * @param buffer
+	 *            the buffer
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private void readFully(final ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) { if (channel.read(buffer) < 0) throw new EOFException(); }
+	}
+
+	@Override
+	public int read() throws IOException {
+		if (!block.hasRemaining() && !nextBlock()) return -1;
+		return block.get() & 0xFF;
+	}
+
+	@Override
+	public int read(final byte[] b, final int off, final int len) throws IOException {
+		if (len == 0) return 0;
+		if (!block.hasRemaining() && !nextBlock()) return -1;
+		final int n = Math.min(len, block.remaining());
+		block.get(b, off, n);
+		return n;
+	}
+
+	@Override
+	public int available() throws IOException {
+		return block == null ? 0 : block.remaining();
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (block == null) return;
+		BlockCodec.release(block);
+		BlockCodec.release(compressed);
+		block = compressed = null;
+	}
+
+}
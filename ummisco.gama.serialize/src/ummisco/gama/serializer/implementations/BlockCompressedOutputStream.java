@@ -0,0 +1,115 @@
+/*******************************************************************************************************
+ *
+ * BlockCompressedOutputStream.java, in ummisco.gama.serialize, is part of the source code of the GAMA modeling and
+ * simulation platform (v.1.9.3).
+ *
+ * (c) 2007-2024 UMI 209 UMMISCO IRD/SU & Partners (IRIT, MIAT, TLU, CTU)
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package ummisco.gama.serializer.implementations;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * An output stream that compresses what it receives with {@link BlockCodec}, block by block, and writes the blocks to
+ * a channel. Each block is preceded by its uncompressed length and by its compressed length (negative if the block is
+ * stored uncompressed because it could not be compressed). A block of length 0 ends the stream. The buffers used are
+ * direct and taken from the pool of the codec. Closing the stream does not close the channel.
+ */
+public class BlockCompressedOutputStream extends OutputStream {
+
+	/** The channel. */
+	final WritableByteChannel channel;
+
+	/** The current block and the buffer receiving its compression (preceded by the header). */
+	ByteBuffer block, compressed;
+
+	/**
+	 * Instantiates a new block compressed output stream.
+	 *
+	 * @param channel
+	 *            the channel
+	 */
+	public BlockCompressedOutputStream(final WritableByteChannel channel) {
+		this.channel = channel;
+		block = BlockCodec.acquire(BlockCodec.BLOCK_SIZE);
+		compressed = BlockCodec.acquire(8 + BlockCodec.maxCompressedLength(BlockCodec.BLOCK_SIZE));
+	}
+
+	@Override
+	public void write(final int b) throws IOException {
+		if (!block.hasRemaining()) { writeBlock(); }
+		block.put((byte) b);
+	}
+
+	@Override
+	public void write(final byte[] b, final int off, final int len) throws IOException {
+		int offset = off;
+		int remaining = len;
+		while (remaining > 0) {
+			if (!block.hasRemaining()) { writeBlock(); }
+			final int n = Math.min(remaining, block.remaining());
+			block.put(b, offset, n);
+			offset += n;
+			remaining -= n;
+		}
+	}
+
+	/**
+	 * Compresses and writes the current block, if it is not empty.
+	 *
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private void writeBlock() throws IOException {
+		final int length = block.position();
+		if (length == 0) return;
+		final int c = BlockCodec.compress(block, 0, length, compressed, 8);
+		if (c < length) {
+			compressed.putInt(0, length).putInt(4, c);
+			compressed.position(0).limit(8 + c);
+			writeFully(compressed);
+		} else {
+			compressed.putInt(0, length).putInt(4, -length);
+			compressed.position(0).limit(8);
+			writeFully(compressed);
+			block.flip();
+			writeFully(block);
+		}
+		compressed.clear();
+		block.clear();
+	}
+
+	/**
+	 * Write fully.
+	 *
+	 * @param buffer
+	 *            the buffer
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private void writeFully(final ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) { channel.write(buffer); }
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (block == null) return;
+		try {
+			writeBlock();
+			compressed.putInt(0, 0).putInt(4, 0);
+			compressed.position(0).limit(8);
+			writeFully(compressed);
+		} finally {
+			BlockCodec.release(block);
+			BlockCodec.release(compressed);
+			block = compressed = null;
+		}
+	}
+
+}
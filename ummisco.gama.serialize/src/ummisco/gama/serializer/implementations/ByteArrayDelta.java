@@ -0,0 +1,226 @@
+/*******************************************************************************************************
+ *
+ * ByteArrayDelta.java, in ummisco.gama.serialize, is part of the source code of the GAMA modeling and simulation
+ * platform (v.1.9.3).
+ *
+ * (c) 2007-2024 UMI 209 UMMISCO IRD/SU & Partners (IRIT, MIAT, TLU, CTU)
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package ummisco.gama.serializer.implementations;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+/**
+ * Binary deltas between two byte arrays (typically, two serialised states of the same simulation). A delta describes
+ * the target as a sequence of copies of ranges of the source and of literal bytes, so that the parts of the state
+ * that did not change between two cycles (even if they moved in the array) cost only a few bytes. Matches are found
+ * by indexing the blocks of the source and by looking them up with a rolling hash of the target.
+ *
+ * The format is: the length of the target, followed by operations, each being either a copy (0, offset in the source,
+ * length) or a literal (1, length, bytes). All the integers are written as unsigned varints.
+ */
+public class ByteArrayDelta {
+
+	/** The size of the blocks indexed in the source. */
+	static final int BLOCK = 32;
+
+	/** The multiplier of the rolling hash. */
+	static final int PRIME = 257;
+
+	/** PRIME ^ BLOCK, used to remove the outgoing byte from the rolling hash. */
+	static final int OUT;
+
+	static {
+		int p = 1;
+		for (int i = 0; i < BLOCK; i++) { p *= PRIME; }
+		OUT = p;
+	}
+
+	/** The operations. */
+	static final byte COPY = 0, LITERAL = 1;
+
+	/**
+	 * Encodes the target as a delta from the source.
+	 *
+	 * @param source
+	 *            the source
+	 * @param target
+	 *            the target
+	 * @return the delta
+	 */
+	public static byte[] encode(final byte[] source, final byte[] target) {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, target.length / 16));
+		writeVarint(out, target.length);
+		final int[] index = index(source);
+		final int mask = index.length - 1;
+		int literalStart = 0;
+		int i = 0;
+		int hash = target.length >= BLOCK ? hash(target, 0) : 0;
+		while (i + BLOCK <= target.length) {
+			final int candidate = index[spread(hash) & mask] - 1;
+			if (candidate >= 0 && Arrays.equals(source, candidate, candidate + BLOCK, target, i, i + BLOCK)) {
+				int start = i;
+				int offset = candidate;
+				// Extends the match backwards (over the pending literal) and forwards
+				while (start > literalStart && offset > 0 && source[offset - 1] == target[start - 1]) {
+					start--;
+					offset--;
+				}
+				int end = i + BLOCK;
+				final int mismatch = Arrays.mismatch(source, candidate + BLOCK, source.length, target, end,
+						target.length);
+				end += mismatch < 0 ? Math.min(source.length - candidate - BLOCK, target.length - end) : mismatch;
+				writeLiteral(out, target, literalStart, start);
+				out.write(COPY);
+				writeVarint(out, offset);
+				writeVarint(out, end - start);
+				i = literalStart = end;
+				if (i + BLOCK <= target.length) { hash = hash(target, i); }
+			} else {
+				if (i + BLOCK < target.length) {
+					hash = hash * PRIME + (target[i + BLOCK] & 0xFF) - OUT * (target[i] & 0xFF);
+				}
+				i++;
+			}
+		}
+		writeLiteral(out, target, literalStart, target.length);
+		return out.toByteArray();
+	}
+
+	/**
+	 * Rebuilds the target from the source and the delta.
+	 *
+	 * @param source
+	 *            the source
+	 * @param delta
+	 *            the delta
+	 * @return the target
+	 */
+	public static byte[] decode(final byte[] source, final byte[] delta) {
+		final int[] position = { 0 };
+		final byte[] target = new byte[readVarint(delta, position)];
+		int written = 0;
+		while (position[0] < delta.length) {
+			final byte op = delta[position[0]++];
+			if (op == COPY) {
+				final int offset = readVarint(delta, position);
+				final int length = readVarint(delta, position);
+				System.arraycopy(source, offset, target, written, length);
+				written += length;
+			} else {
+				final int length = readVarint(delta, position);
+				System.arraycopy(delta, position[0], target, written, length);
+				position[0] += length;
+				written += length;
+			}
+		}
+		return target;
+	}
+
+	/**
+	 * Indexes the offsets of the blocks of the source by their hash, in an open table where colliding blocks simply
+	 * replace each other (matches are verified anyway). Offsets are stored plus one, so that 0 denotes an empty slot.
+	 *
+	 * @param source
+	 *            the source
+	 * @return the int[]
+	 */
+	private static int[] index(final byte[] source) {
+		final int blocks = source.length / BLOCK;
+		final int[] index = new int[Integer.highestOneBit(Math.max(1, blocks) * 2 - 1) * 2];
+		final int mask = index.length - 1;
+		for (int offset = (blocks - 1) * BLOCK; offset >= 0; offset -= BLOCK) {
+			index[spread(hash(source, offset)) & mask] = offset + 1;
+		}
+		return index;
+	}
+
+	/**
+	 * The polynomial hash of the block starting at offset.
+	 *
+	 * @param bytes
+	 *            the bytes
+	 * @param offset
+	 *            the offset
+	 * @return the int
+	 */
+	private static int hash(final byte[] bytes, final int offset) {
+		int h = 0;
+		for (int i = offset; i < offset + BLOCK; i++) { h = h * PRIME + (bytes[i] & 0xFF); }
+		return h;
+	}
+
+	/**
+	 * Spreads the bits of the hash before masking it.
+	 *
+	 * @param h
+	 *            the h
+	 * @return the int
+	 */
+	private static int spread(final int h) {
+		final int x = h * 0x9E3779B9;
+		return x ^ x >>> 16;
+	}
+
+	/**
+	 * Writes the bytes of the target between from (inclusive) and to (exclusive) as a literal, if any.
+	 *
+	 * @param out
+	 *            the out
+	 * @param target
+	 *            the target
+	 * @param from
+	 *            the from
+	 * @param to
+	 *            the to
+	 */
+	private static void writeLiteral(final ByteArrayOutputStream out, final byte[] target, final int from,
+			final int to) {
+		if (to <= from) return;
+		out.write(LITERAL);
+		writeVarint(out, to - from);
+		out.write(target, from, to - from);
+	}
+
+	/**
+	 * Write varint.
+	 *
+	 * @param out
+	 *            the out
+	 * @param value
+	 *            the value
+	 */
+	private static void writeVarint(final ByteArrayOutputStream out, final int value) {
+		int v = value;
+		while ((v & ~0x7F) != 0) {
+			out.write(v & 0x7F | 0x80);
+			v >>>= 7;
+		}
+		out.write(v);
+	}
+
+	/**
+	 * Read varint.
+	 *
+	 * @param in
+	 *            the in
+	 * @param position
+	 *            the position (updated)
+	 * @return the int
+	 */
+	private static int readVarint(final byte[] in, final int[] position) {
+		int result = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = in[position[0]++];
+			result |= (b & 0x7F) << shift;
+			shift += 7;
+		} while ((b & 0x80) != 0);
+		return result;
+	}
+
+}
@@ -11,6 +11,8 @@
 package ummisco.gama.serializer.implementations;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.List;
 import java.util.Map;
 
@@ -432,6 +434,48 @@ public abstract class FSTAbstractProcessor extends AbstractSerialisationProcesso
 		return fst.asByteArray(obj);
 	}
 
+	/**
+	 * Writes the object (or the serialised form of the agent) directly to the stream, without copying it in an
+	 * intermediate array. The stream is flushed, but not closed.
+	 *
+	 * @param scope
+	 *            the scope
+	 * @param obj
+	 *            the obj
+	 * @param os
+	 *            the os
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public void write(final IScope scope, final Object obj, final OutputStream os) throws IOException {
+		inAgent = false;
+		final FSTObjectOutput out = fst.getObjectOutput(os);
+		out.writeObject(obj instanceof IAgent agent ? encodeToSerialisedForm(agent) : obj);
+		out.flush();
+	}
+
+	/**
+	 * Reads an object (or the serialised form of an agent) directly from the stream.
+	 *
+	 * @param scope
+	 *            the scope
+	 * @param is
+	 *            the is
+	 * @return the object
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public Object read(final IScope scope, final InputStream is) throws IOException {
+		try {
+			fst.setScope(scope);
+			return fst.getObjectInput(is).readObject();
+		} catch (ClassNotFoundException e) {
+			throw new IOException(e);
+		} finally {
+			fst.setScope(null);
+		}
+	}
+
 	/**
 	 * Restore object from bytes.
 	 *
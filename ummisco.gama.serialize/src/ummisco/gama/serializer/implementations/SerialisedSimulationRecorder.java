@@ -19,7 +19,6 @@ import msi.gama.common.interfaces.ISerialisationConstants;
 import msi.gama.kernel.experiment.ISimulationRecorder;
 import msi.gama.kernel.simulation.SimulationAgent;
 import msi.gama.metamodel.agent.SerialisedAgent;
-import msi.gama.util.ByteArrayZipper;
 import ummisco.gama.dev.utils.DEBUG;
 
 /**
@@ -151,7 +150,7 @@ public class SerialisedSimulationRecorder implements ISimulationRecorder, ISeria
 	 */
 	protected void asyncZip(final HistoryNode node, final long startTime) {
 		executor.execute(() -> {
-			node.bytes = ByteArrayZipper.zip(node.bytes);
+			node.bytes = BlockCodec.compress(node.bytes);
 			DEBUG.OUT("Serialised in " + processor.getFormat() + " and compressed to " + node.bytes.length / 1000000d
 					+ "Mb in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime) + "ms");
 
@@ -175,7 +174,7 @@ public class SerialisedSimulationRecorder implements ISimulationRecorder, ISeria
 				if (node != null && node.cycle == sim.getClock().getCycle()) { node = history.pop(); }
 				if (node != null) {
 					long startTime = System.nanoTime();
-					processor.restoreAgentFromBytes(sim, ByteArrayZipper.unzip(node.bytes));
+					processor.restoreAgentFromBytes(sim, BlockCodec.decompress(node.bytes));
 					DEBUG.OUT("Deserialise from " + processor.getFormat() + " in "
 							+ TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime) + "ms");
 				}
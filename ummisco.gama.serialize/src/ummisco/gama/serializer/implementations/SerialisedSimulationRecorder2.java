@@ -10,12 +10,17 @@
  ********************************************************************************************************/
 package ummisco.gama.serializer.implementations;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
 import msi.gama.common.interfaces.ISerialisationConstants;
+import msi.gama.common.preferences.GamaPreferences;
 import msi.gama.kernel.experiment.ISimulationRecorder;
 import msi.gama.kernel.simulation.SimulationAgent;
 import msi.gama.metamodel.agent.SerialisedAgent;
@@ -23,7 +28,10 @@ import msi.gama.metamodel.agent.SerialisedAgent;
 import ummisco.gama.dev.utils.DEBUG;
 
 /**
- * The Class SerialisedSimulationRecorder. Used to record, store, and retrieve simulation states
+ * The Class SerialisedSimulationRecorder. Used to record, store, and retrieve simulation states. In order to limit the
+ * memory used by long histories, only some states (keyframes, every {@link GamaPreferences.Runtime#STEPBACK_KEYFRAMES}
+ * cycles) are stored completely: the others are stored as binary deltas from the last keyframe. When the history
+ * exceeds {@link GamaPreferences.Runtime#STEPBACK_MEMORY}, its oldest states are either written to disk or forgotten.
  *
  * @author Alexis Drogoul (alexis.drogoul@ird.fr)
  * @date 8 août 2023
@@ -42,9 +50,24 @@ public class SerialisedSimulationRecorder2 implements ISimulationRecorder, ISeri
 	 */
 	private static class HistoryNode {
 
-		/** The bytes. */
+		/** The bytes: the complete state for keyframes, the delta from the keyframe otherwise. Null once spilled */
 		byte[] bytes;
 
+		/** The number of bytes. */
+		final int length;
+
+		/** The keyframe this node is a delta of, or null if it is itself a keyframe. */
+		final HistoryNode keyframe;
+
+		/** The file the bytes have been written to, if any. */
+		File file;
+
+		/** Whether this node has been removed from the history. */
+		boolean discarded;
+
+		/** Whether this node has been scheduled to be written to disk (it no longer counts in the memory used). */
+		boolean spilled;
+
 		/** The cycle. */
 		long cycle;
 
@@ -62,22 +85,119 @@ public class SerialisedSimulationRecorder2 implements ISimulationRecorder, ISeri
 		 *            the state
 		 * @date 22 oct. 2023
 		 */
-		public HistoryNode(final byte[] state, final long cycle, final String path, final String exp) {
+		public HistoryNode(final byte[] state, final HistoryNode keyframe, final long cycle, final String path,
+				final String exp) {
 			bytes = state;
+			length = state.length;
+			this.keyframe = keyframe;
 			this.cycle = cycle;
 			pathToModel = path;
 			experimentName = exp;
 		}
 
+		/**
+		 * Returns the bytes stored, reading them from the disk if they have been spilled.
+		 *
+		 * @return the bytes
+		 * @throws IOException
+		 *             Signals that an I/O exception has occurred.
+		 */
+		synchronized byte[] getBytes() throws IOException {
+			if (bytes != null) return bytes;
+			return Files.readAllBytes(file.toPath());
+		}
+
+		/**
+		 * Returns the complete state, rebuilt from the keyframe if this node is a delta.
+		 *
+		 * @return the state
+		 * @throws IOException
+		 *             Signals that an I/O exception has occurred.
+		 */
+		byte[] getState() throws IOException {
+			if (keyframe == null) return getBytes();
+			return ByteArrayDelta.decode(keyframe.getBytes(), getBytes());
+		}
+
+		/**
+		 * Writes the bytes to a file in the directory and releases them.
+		 *
+		 * @param directory
+		 *            the directory
+		 */
+		synchronized void spill(final File directory) {
+			if (discarded || bytes == null) return;
+			try {
+				file = File.createTempFile("cycle_" + cycle + "_", ".state", directory);
+				file.deleteOnExit();
+				Files.write(file.toPath(), bytes);
+				bytes = null;
+			} catch (IOException e) {
+				// The bytes are simply kept in memory
+				DEBUG.ERR("The state of cycle " + cycle + " cannot be written to the disk: it is kept in memory", e);
+				if (file != null) { file.delete(); }
+				file = null;
+			}
+		}
+
+		/**
+		 * Releases the bytes and deletes the file, if any.
+		 */
+		synchronized void discard() {
+			discarded = true;
+			bytes = null;
+			if (file != null) { file.delete(); }
+		}
+
+		/**
+		 * Checks if is keyframe.
+		 *
+		 * @return true, if is keyframe
+		 */
+		boolean isKeyframe() { return keyframe == null; }
+
 	}
 
 	/**
-	 * The Class SimulationHistory.
+	 * The Class SimulationHistory. Its accesses are synchronized on itself.
 	 *
 	 * @author Alexis Drogoul (alexis.drogoul@ird.fr)
 	 * @date 22 oct. 2023
 	 */
-	private static class SimulationHistory extends LinkedList<HistoryNode> {}
+	private static class SimulationHistory extends LinkedList<HistoryNode> {
+
+		/** The number of bytes kept in memory. */
+		long memory;
+
+		/** The directory where nodes are spilled, created lazily. */
+		File directory;
+
+		/**
+		 * Returns the keyframe the next deltas are computed from (the one of the most recent node), if any.
+		 *
+		 * @return the history node or null
+		 */
+		HistoryNode currentKeyframe() {
+			final HistoryNode last = peek();
+			if (last == null) return null;
+			return last.isKeyframe() ? last : last.keyframe;
+		}
+
+		/**
+		 * Gets the directory where nodes are spilled.
+		 *
+		 * @return the directory
+		 * @throws IOException
+		 *             Signals that an I/O exception has occurred.
+		 */
+		File getDirectory() throws IOException {
+			if (directory == null) {
+				directory = Files.createTempDirectory("gama_history").toFile();
+				directory.deleteOnExit();
+			}
+			return directory;
+		}
+	}
 
 	/** The executor. */
 	ExecutorService executor = Executors.newCachedThreadPool();
@@ -112,16 +232,83 @@ public class SerialisedSimulationRecorder2 implements ISimulationRecorder, ISeri
 		try {
 			long startTime = System.nanoTime();
 			byte[] state = new FSTBinaryProcessor().saveObjectToBytes(sim.getScope(), sim);
-			LinkedList<HistoryNode> history = getSimulationHistory(sim);
-			HistoryNode node = new HistoryNode(state, sim.getClock().getCycle(), sim.getModel().getFilePath(),
-					sim.getExperiment().getSpecies().getName());
-			history.push(node);
-			asyncZip(node, startTime);
+			SimulationHistory history = getSimulationHistory(sim);
+			synchronized (history) {
+				long cycle = sim.getClock().getCycle();
+				HistoryNode keyframe = history.currentKeyframe();
+				HistoryNode node = null;
+				if (keyframe != null && cycle - keyframe.cycle < GamaPreferences.Runtime.STEPBACK_KEYFRAMES.getValue()) {
+					byte[] delta = ByteArrayDelta.encode(keyframe.getBytes(), state);
+					// A delta larger than half the state is not worth it
+					if (delta.length < state.length / 2) {
+						node = new HistoryNode(delta, keyframe, cycle, sim.getModel().getFilePath(),
+								sim.getExperiment().getSpecies().getName());
+					}
+				}
+				if (node == null) {
+					node = new HistoryNode(state, null, cycle, sim.getModel().getFilePath(),
+							sim.getExperiment().getSpecies().getName());
+				}
+				history.push(node);
+				history.memory += node.length;
+				enforceBudget(history);
+				DEBUG.OUT("Serialised " + (node.isKeyframe() ? "keyframe of " : "delta of ") + node.length / 1000000d
+						+ "Mb in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime) + "ms");
+			}
 		} catch (Throwable e) {
 			e.printStackTrace();
 		}
 	}
 
+	/**
+	 * Keeps the memory used by the history under the budget, by spilling its oldest nodes to the disk (asynchronously)
+	 * or by removing them, together with the deltas that depend on them. The current keyframe is always kept in memory.
+	 * Must be called while holding the lock on the history.
+	 *
+	 * @param history
+	 *            the history
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private void enforceBudget(final SimulationHistory history) throws IOException {
+		final long budget = GamaPreferences.Runtime.STEPBACK_MEMORY.getValue() * 1000000L;
+		if (budget <= 0 || history.memory <= budget) return;
+		final HistoryNode keyframe = history.currentKeyframe();
+		if (GamaPreferences.Runtime.STEPBACK_SPILL.getValue()) {
+			final File directory = history.getDirectory();
+			final Iterator<HistoryNode> oldestFirst = history.descendingIterator();
+			while (history.memory > budget && oldestFirst.hasNext()) {
+				final HistoryNode node = oldestFirst.next();
+				if (node == keyframe || node.spilled) { continue; }
+				history.memory -= node.length;
+				node.spilled = true;
+				executor.execute(() -> node.spill(directory));
+			}
+		} else {
+			while (history.memory > budget && history.peekLast() != keyframe) {
+				final HistoryNode oldest = history.peekLast();
+				history.removeIf(node -> {
+					if (node != oldest && node.keyframe != oldest) return false;
+					forget(history, node);
+					return true;
+				});
+			}
+		}
+	}
+
+	/**
+	 * Releases a node removed from the history.
+	 *
+	 * @param history
+	 *            the history
+	 * @param node
+	 *            the node
+	 */
+	private void forget(final SimulationHistory history, final HistoryNode node) {
+		if (!node.spilled) { history.memory -= node.length; }
+		node.discard();
+	}
+
 	/**
 	 * Gets the simulation history.
 	 *
@@ -131,33 +318,15 @@ public class SerialisedSimulationRecorder2 implements ISimulationRecorder, ISeri
 	 * @return the simulation history
 	 * @date 22 oct. 2023
 	 */
-	@SuppressWarnings ("unchecked")
-	private LinkedList<HistoryNode> getSimulationHistory(final SimulationAgent sim) {
-		LinkedList<HistoryNode> history = (LinkedList<HistoryNode>) sim.getAttribute(SerialisedAgent.HISTORY_KEY);
+	private SimulationHistory getSimulationHistory(final SimulationAgent sim) {
+		SimulationHistory history = (SimulationHistory) sim.getAttribute(SerialisedAgent.HISTORY_KEY);
 		if (history == null) {
-			history = new LinkedList<>();
+			history = new SimulationHistory();
 			sim.setAttribute(SerialisedAgent.HISTORY_KEY, history);
 		}
 		return history;
 	}
 
-	/**
-	 * Async zip.
-	 *
-	 * @author Alexis Drogoul (alexis.drogoul@ird.fr)
-	 * @param node
-	 *            the node
-	 * @date 8 août 2023
-	 */
-	protected void asyncZip(final HistoryNode node, final long startTime) {
-		executor.execute(() -> {
-			node.bytes = node.bytes;
-			DEBUG.OUT("Serialised and compressed to " + node.bytes.length / 1000000d + "Mb in "
-					+ TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime) + "ms");
-
-		});
-	}
-
 	/**
 	 * Restore.
 	 *
@@ -170,12 +339,22 @@ public class SerialisedSimulationRecorder2 implements ISimulationRecorder, ISeri
 	public void restore(final SimulationAgent sim) {
 		try {
 			synchronized (sim) {
-				LinkedList<HistoryNode> history = getSimulationHistory(sim);
-				HistoryNode node = history.pop();
-				if (node != null && node.cycle == sim.getClock().getCycle()) { node = history.pop(); }
-				if (node != null) {
+				SimulationHistory history = getSimulationHistory(sim);
+				byte[] state = null;
+				synchronized (history) {
+					HistoryNode node = history.poll();
+					if (node != null && node.cycle == sim.getClock().getCycle()) {
+						forget(history, node);
+						node = history.poll();
+					}
+					if (node != null) {
+						state = node.getState();
+						forget(history, node);
+					}
+				}
+				if (state != null) {
 					long startTime = System.nanoTime();
-					new FSTBinaryProcessor().restoreAgentFromBytes(sim, node.bytes);
+					new FSTBinaryProcessor().restoreAgentFromBytes(sim, state);
 					DEBUG.OUT("Deserialised in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime) + "ms");
 				}
 			}
@@ -194,8 +373,10 @@ public class SerialisedSimulationRecorder2 implements ISimulationRecorder, ISeri
 	 */
 	@Override
 	public boolean canStepBack(final SimulationAgent sim) {
-		return getSimulationHistory(sim).size() > 0;
-
+		SimulationHistory history = getSimulationHistory(sim);
+		synchronized (history) {
+			return history.size() > 0;
+		}
 	}
 
 }
@@ -43,6 +43,7 @@ import msi.gama.common.util.StringUtils;
 import msi.gama.kernel.batch.exploration.morris.Morris;
 import msi.gama.kernel.batch.exploration.sobol.Sobol;
 import msi.gama.kernel.batch.exploration.stochanalysis.Stochanalysis;
+import msi.gama.metamodel.population.AttributeColumns.Reduction;
 import msi.gama.metamodel.shape.GamaPoint;
 import msi.gama.precompiler.GamlAnnotations.doc;
 import msi.gama.precompiler.GamlAnnotations.example;
@@ -3050,6 +3051,8 @@ public class Stats {
 	@test ("[1,2] mean_of (each * 10 ) = 15")
 	@test ("[1,2] mean_of (each * 10 ) = 15")
 	public static Object opMeanOf(final IScope scope, final IContainer container, final IExpression filter) {
+		final Object reduced = Containers.reduceColumn(scope, container, filter, Reduction.MEAN);
+		if (reduced != null) return reduced;
 		return Containers.opMean(scope, collect(scope, container, filter));
 	}
 
@@ -3096,6 +3099,8 @@ public class Stats {
 	@test ("[1,2,4,3,5,7,6,8] min_of (each * 100 ) = 100")
 	@validator (ComparableValidator.class)
 	public static Object opMinOf(final IScope scope, final IContainer c, final IExpression filter) {
+		final Object reduced = Containers.reduceColumn(scope, c, filter, Reduction.MIN);
+		if (reduced != null) return reduced;
 		return Containers.stream(scope, c).map(Containers.with(scope, filter)).minBy(Function.identity()).orElse(null);
 	}
 
@@ -3143,6 +3148,8 @@ public class Stats {
 	@test ("[1,2,4,3,5,7,6,8] max_of (each * 100 ) = 800")
 	@validator (ComparableValidator.class)
 	public static Object opMaxOf(final IScope scope, final IContainer c, final IExpression filter) {
+		final Object reduced = Containers.reduceColumn(scope, c, filter, Reduction.MAX);
+		if (reduced != null) return reduced;
 		return Containers.stream(scope, c).map(Containers.with(scope, filter)).maxBy(Function.identity()).orElse(null);
 	}
 